@@ -0,0 +1,36 @@
+package org.team100.frc2024.motion;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.team100.lib.config.Identity;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamicsFactory;
+import org.team100.lib.trajectory.TrajectoryLibrary;
+import org.team100.lib.util.Util;
+
+import edu.wpi.first.hal.HAL;
+
+/**
+ * Plans every auton trajectory, for both alliances and every robot identity,
+ * and writes them to the trajectory library file.
+ *
+ * The subsystems are simulated; the identity only selects the kinodynamics,
+ * which, with the constraints made from them, is all the planner sees.
+ *
+ * Run it with "gradlew generateTrajectories", which deploy does for you.
+ */
+public class GenerateTrajectories {
+    public static void main(String[] args) throws IOException {
+        Path path = Path.of(args[0]);
+        if (!HAL.initialize(500, 0))
+            throw new IllegalStateException("HAL initialization failed");
+        TrajectoryLibrary library = TrajectoryLibrary.empty();
+        for (Identity identity : Identity.values()) {
+            SimulatedAutoMaker.buildAll(
+                    SimulatedAutoMaker.get(SwerveKinodynamicsFactory.get(identity), library));
+        }
+        library.write(path);
+        Util.printf("Wrote %d trajectories to %s\n", library.planned(), path);
+        HAL.shutdown();
+    }
+}
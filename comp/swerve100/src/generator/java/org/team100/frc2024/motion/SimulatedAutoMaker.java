@@ -0,0 +1,127 @@
+package org.team100.frc2024.motion;
+
+import org.team100.frc2024.MockSensors;
+import org.team100.frc2024.SensorInterface;
+import org.team100.frc2024.motion.intake.Intake;
+import org.team100.frc2024.motion.shooter.DrumShooter;
+import org.team100.lib.config.Identity;
+import org.team100.lib.follower.DrivePIDFFollower;
+import org.team100.lib.follower.DriveTrajectoryFollower;
+import org.team100.lib.follower.DriveTrajectoryFollowerFactory;
+import org.team100.lib.follower.DriveTrajectoryFollowerUtil;
+import org.team100.lib.geometry.GeometryUtil;
+import org.team100.lib.localization.SwerveDrivePoseEstimator100;
+import org.team100.lib.localization.VisionData;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.motion.drivetrain.SwerveDriveSubsystem;
+import org.team100.lib.motion.drivetrain.SwerveLocal;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
+import org.team100.lib.motion.drivetrain.module.SwerveModuleCollection;
+import org.team100.lib.sensors.Gyro;
+import org.team100.lib.sensors.SimulatedGyro;
+import org.team100.lib.swerve.AsymSwerveSetpointGenerator;
+import org.team100.lib.trajectory.TrajectoryLibrary;
+import org.team100.lib.visualization.TrajectoryVisualization;
+
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+
+/**
+ * Builds the autons against simulated subsystems, so that every trajectory they
+ * use gets planned. This is for the trajectory generator and the tests, not
+ * the robot.
+ */
+public class SimulatedAutoMaker {
+    /** Makes every auton, for both alliances. */
+    public static void buildAll(AutoMaker m_AutoMaker) {
+        SensorInterface m_sensors = new MockSensors();
+        m_AutoMaker.fourNoteAuto(Alliance.Red, m_sensors);
+        m_AutoMaker.fourNoteAuto(Alliance.Blue, m_sensors);
+        m_AutoMaker.citrus(Alliance.Red);
+        m_AutoMaker.citrus(Alliance.Blue);
+        m_AutoMaker.citrusv2(Alliance.Red);
+        m_AutoMaker.citrusv2(Alliance.Blue);
+        m_AutoMaker.sibling(Alliance.Red);
+        m_AutoMaker.sibling(Alliance.Blue);
+        m_AutoMaker.complementAuto(Alliance.Red);
+        m_AutoMaker.complementAuto(Alliance.Blue);
+
+        m_AutoMaker.eightNoteAuto(Alliance.Red);
+        m_AutoMaker.eightNoteAuto(Alliance.Blue);
+    }
+
+    /**
+     * An AutoMaker driving simulated subsystems, using the given kinodynamics
+     * for planning.
+     */
+    public static AutoMaker get(SwerveKinodynamics swerveKinodynamics, TrajectoryLibrary library) {
+        // the subsystems choose their hardware by identity, which is only BLANK,
+        // i.e. simulated, off the robot.
+        if (Identity.instance != Identity.BLANK)
+            throw new IllegalStateException("Simulated autons need simulated hardware, not " + Identity.instance);
+        LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
+        LoggerFactory fieldLogger = new TestLoggerFactory(new TestPrimitiveLogger());
+        SwerveModuleCollection collection = SwerveModuleCollection.get(logger, 10, 20, swerveKinodynamics);
+        Gyro gyro = new SimulatedGyro(swerveKinodynamics, collection);
+        final AsymSwerveSetpointGenerator setpointGenerator = new AsymSwerveSetpointGenerator(
+                logger,
+                swerveKinodynamics,
+                () -> 12);
+        SwerveLocal swerveLocal = new SwerveLocal(logger, swerveKinodynamics, setpointGenerator, collection);
+        SwerveDrivePoseEstimator100 poseEstimator = swerveKinodynamics.newPoseEstimator(
+                logger,
+                gyro.getYawNWU(),
+                gyro.getYawRateNWU(),
+                collection.positions(),
+                GeometryUtil.kPoseZero,
+                0); // initial time is zero here for testing
+        VisionData v = new VisionData() {
+            @Override
+            public void update() {
+            }
+        };
+
+        SwerveDriveSubsystem drive = new SwerveDriveSubsystem(
+                fieldLogger,
+                logger,
+                gyro,
+                poseEstimator,
+                swerveLocal,
+                v);
+
+        final DriveTrajectoryFollowerUtil util = new DriveTrajectoryFollowerUtil(logger);
+
+        final DriveTrajectoryFollowerFactory driveControllerFactory = new DriveTrajectoryFollowerFactory(util);
+        DrivePIDFFollower.Log PIDFlog = new DrivePIDFFollower.Log(logger);
+
+        final DriveTrajectoryFollower drivePID = driveControllerFactory.goodPIDF(PIDFlog);
+
+        var m_shooter = new DrumShooter(logger, 3, 13, 27, 58, 100);
+
+        SensorInterface m_sensors = new MockSensors();
+        final FeederSubsystem feeder = new FeederSubsystem(logger, m_sensors);
+
+        Intake intake = new Intake(logger, m_sensors);
+
+        final TrajectoryVisualization viz = new TrajectoryVisualization(logger);
+
+        return new AutoMaker(
+                logger,
+                drive,
+                driveControllerFactory,
+                drivePID,
+                0,
+                feeder,
+                m_shooter,
+                intake,
+                m_sensors,
+                swerveKinodynamics,
+                viz,
+                library);
+    }
+
+    private SimulatedAutoMaker() {
+        //
+    }
+}
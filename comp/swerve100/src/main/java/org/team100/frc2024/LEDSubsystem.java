@@ -3,6 +3,7 @@ package org.team100.frc2024;
 import java.util.Optional;
 
 import org.team100.frc2024.motion.shooter.DrumShooter;
+import org.team100.lib.framework.LoopProfiler;
 import org.team100.lib.indicator.LEDIndicator;
 import org.team100.lib.indicator.LEDIndicator.State;
 import org.team100.lib.localization.VisionDataProvider24;
@@ -13,6 +14,8 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 
 public class LEDSubsystem extends SubsystemBase {
+    private final LoopProfiler.Span m_span = LoopProfiler.instance().span(getName() + ".periodic()");
+
     /**
      * flash if the vision input is older than 0.3 sec. Typical "good" frame rate is
      * 15 hz, so 0.06 sec, much less.
@@ -45,6 +48,10 @@ public class LEDSubsystem extends SubsystemBase {
 
     @Override
     public void periodic() {
+        m_span.run(this::doPeriodic);
+    }
+
+    private void doPeriodic() {
         m_indicator.setBack(State.WHITE);
 
         if (!DriverStation.isDSAttached() || DriverStation.isDisabled()) {
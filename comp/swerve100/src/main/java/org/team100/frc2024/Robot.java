@@ -6,6 +6,7 @@ import org.team100.frc2024.config.AutonChooser;
 import org.team100.lib.config.Identity;
 import org.team100.lib.experiments.Experiment;
 import org.team100.lib.experiments.Experiments;
+import org.team100.lib.framework.LoopProfiler;
 import org.team100.lib.framework.TimedRobot100;
 import org.team100.lib.logging.JvmLogger;
 import org.team100.lib.logging.Level;
@@ -38,6 +39,10 @@ public class Robot extends TimedRobot100 {
     private final StringLogger m_log_active_auton_routine;
     private final DoubleLogger m_log_voltage;
     private final JvmLogger m_jvmLogger;
+    private final LoopProfiler.Span m_span_memo;
+    private final LoopProfiler.Span m_span_scheduler;
+    private final LoopProfiler.Span m_span_container;
+    private final LoopProfiler.Span m_span_logging;
 
     private RobotContainer m_robotContainer;
 
@@ -52,6 +57,11 @@ public class Robot extends TimedRobot100 {
         m_log_active_auton_routine = m_robotLogger.stringLogger(Level.COMP, "active auton routine");
         m_log_voltage = m_robotLogger.doubleLogger(Level.TRACE, "voltage");
         m_jvmLogger = new JvmLogger(m_robotLogger);
+        LoopProfiler profiler = LoopProfiler.instance();
+        m_span_memo = profiler.span("Memo.resetAll");
+        m_span_scheduler = profiler.span("CommandScheduler.run");
+        m_span_container = profiler.span("RobotContainer.periodic");
+        m_span_logging = profiler.span("Logging.periodic");
     }
 
     @Override
@@ -68,6 +78,8 @@ public class Robot extends TimedRobot100 {
 
         // log what the scheduler is doing
         SmartDashboard.putData(CommandScheduler.getInstance());
+        // attribute time to each command, inside the scheduler span
+        CommandScheduler.getInstance().onCommandExecute(LoopProfiler.instance()::lapCommand);
 
         try {
             m_robotContainer = new RobotContainer(this);
@@ -97,10 +109,10 @@ public class Robot extends TimedRobot100 {
         // Cache instances hold measurements that we want to keep consistent
         // for an entire cycle, but that we want to forget between cycles, so we
         // reset them all here.
-        Memo.resetAll();
-        CommandScheduler.getInstance().run();
+        m_span_memo.run(Memo::resetAll);
+        m_span_scheduler.run(CommandScheduler.getInstance()::run);
         // TODO(dmontauk): why do we separate things between Robot and RobotContainer? What is the logical separation?
-        m_robotContainer.periodic();
+        m_span_container.run(m_robotContainer::periodic);
 
         m_log_ds_MatchTime.log(DriverStation::getMatchTime);
         m_log_ds_AutonomousEnabled.log(DriverStation::isAutonomousEnabled);
@@ -111,7 +123,7 @@ public class Robot extends TimedRobot100 {
         m_jvmLogger.logMemoryPools();
         m_jvmLogger.logMemoryUsage();
 
-        Logging.instance().periodic();
+        m_span_logging.run(Logging.instance()::periodic);
 
         if (Experiments.instance.enabled(Experiment.FlushOften)) {
             Util.warn("FLUSHING EVERY LOOP, DO NOT USE IN COMP");
@@ -67,7 +67,9 @@ import org.team100.lib.hid.OperatorControlProxy;
 import org.team100.lib.indicator.LEDIndicator;
 import org.team100.lib.localization.AprilTagFieldLayoutWithCorrectOrientation;
 import org.team100.lib.localization.NotePosition24ArrayListener;
+import org.team100.lib.localization.OdometryThread;
 import org.team100.lib.localization.SwerveDrivePoseEstimator100;
+import org.team100.lib.localization.SwerveOdometrySampler;
 import org.team100.lib.localization.VisionDataProvider24;
 import org.team100.lib.logging.FieldLogger;
 import org.team100.lib.logging.Level;
@@ -85,6 +87,7 @@ import org.team100.lib.sensors.GyroFactory;
 import org.team100.lib.swerve.AsymSwerveSetpointGenerator;
 import org.team100.lib.timing.ConstantConstraint;
 import org.team100.lib.trajectory.StraightLineTrajectory;
+import org.team100.lib.trajectory.TrajectoryLibrary;
 import org.team100.lib.trajectory.TrajectoryMaker;
 import org.team100.lib.util.Util;
 import org.team100.lib.visualization.TrajectoryVisualization;
@@ -93,6 +96,8 @@ import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
@@ -114,6 +119,8 @@ public class RobotContainer implements Glassy {
     private static final double kDriveStatorLimit = 100;
 
     private final SwerveModuleCollection m_modules;
+    /** Null in simulation, since the simulated sensors aren't thread-safe. */
+    private final OdometryThread m_odometry;
     private final Command m_auton;
     private final DrumShooter m_shooter;
     final SwerveDriveSubsystem m_drive;
@@ -190,8 +197,20 @@ public class RobotContainer implements Glassy {
                 swerveLocal,
                 visionDataProvider);
 
+        // sample the wheels faster than the main loop.
+        if (RobotBase.isReal()) {
+            m_odometry = new OdometryThread(
+                    new SwerveOdometrySampler(gyro, m_modules),
+                    1 / SwerveOdometrySampler.kFrequencyHz);
+            m_drive.setOdometryThread(m_odometry);
+            m_odometry.start();
+        } else {
+            m_odometry = null;
+        }
+
         final NotePosition24ArrayListener noteListener = new NotePosition24ArrayListener(
-                () -> m_drive.getState().pose());
+                () -> m_drive.getState().pose(),
+                poseEstimator);
 
         //////////////////////////////
         //
@@ -475,7 +494,9 @@ public class RobotContainer implements Glassy {
                 intake,
                 m_sensors,
                 swerveKinodynamics,
-                viz);
+                viz,
+                TrajectoryLibrary.load(
+                        Filesystem.getDeployDirectory().toPath().resolve(AutoMaker.kLibraryFile)));
 
         // whileTrue(driverControl::test, m_AutoMaker.citrus(Alliance.Blue));
         whileTrue(driverControl::test, m_AutoMaker.fourNoteAuto(Alliance.Blue, m_sensors));
@@ -586,6 +607,8 @@ public class RobotContainer implements Glassy {
 
     // this keeps the tests from conflicting via the use of simulated HAL ports.
     public void close() {
+        if (m_odometry != null)
+            m_odometry.close();
         m_modules.close();
     }
 
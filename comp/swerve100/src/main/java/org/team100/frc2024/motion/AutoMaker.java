@@ -1,6 +1,7 @@
 package org.team100.frc2024.motion;
 
 import java.util.List;
+import java.util.StringJoiner;
 
 import org.team100.frc2024.SensorInterface;
 import org.team100.frc2024.commands.ShootPreload;
@@ -23,6 +24,7 @@ import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
 import org.team100.lib.timing.TimingConstraint;
 import org.team100.lib.timing.TimingConstraintFactory;
 import org.team100.lib.trajectory.Trajectory100;
+import org.team100.lib.trajectory.TrajectoryLibrary;
 import org.team100.lib.trajectory.TrajectoryPlanner;
 import org.team100.lib.visualization.TrajectoryVisualization;
 
@@ -38,6 +40,8 @@ import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
 import edu.wpi.first.wpilibj2.command.WaitCommand;
 
 public class AutoMaker implements Glassy {
+    /** Precomputed trajectories, in the deploy directory; see generateTrajectories in build.gradle. */
+    public static final String kLibraryFile = "trajectories.bin";
     private static final double kIntakeOffset = 0;
 
     private final SwerveDriveSubsystem m_swerve;
@@ -45,6 +49,9 @@ public class AutoMaker implements Glassy {
     private final SensorInterface m_sensors;
     private final List<TimingConstraint> m_slow;
     private final List<TimingConstraint> m_fast;
+    /** What the planner does with each set of constraints, for the library. */
+    private final long m_slowFingerprint;
+    private final long m_fastFingerprint;
     private final Intake m_intake;
     private final DrumShooter m_shooter;
     private final FeederSubsystem m_feeder;
@@ -55,6 +62,7 @@ public class AutoMaker implements Glassy {
     private final DriveTrajectoryFollowerFactory m_factory;
     private final SwerveKinodynamics m_swerveKinodynamics;
     private final TrajectoryVisualization m_viz;
+    private final TrajectoryLibrary m_library;
 
     public AutoMaker(
             LoggerFactory parent,
@@ -67,13 +75,16 @@ public class AutoMaker implements Glassy {
             Intake intake,
             SensorInterface sensor,
             SwerveKinodynamics swerveKinodynamics,
-            TrajectoryVisualization viz) {
+            TrajectoryVisualization viz,
+            TrajectoryLibrary library) {
         m_swerve = swerve;
         m_factory = factory;
         m_controller = controller;
         TimingConstraintFactory constraints = new TimingConstraintFactory(swerveKinodynamics);
         m_slow = constraints.allGood();
         m_fast = constraints.fast();
+        m_slowFingerprint = TrajectoryLibrary.constraintFingerprint(m_slow);
+        m_fastFingerprint = TrajectoryLibrary.constraintFingerprint(m_fast);
         kShooterScale = shooterScale;
         m_feeder = feeder;
         m_shooter = shooter;
@@ -84,6 +95,33 @@ public class AutoMaker implements Glassy {
         m_log = new DrivePIDFFollower.Log(m_logger);
         m_commandLog = new TrajectoryCommand100.Log(m_logger);
         m_viz = viz;
+        m_library = library;
+    }
+
+    /**
+     * Uses the precomputed trajectory if it's in the library and its inputs
+     * haven't changed, otherwise plans it now.
+     */
+    private Trajectory100 plan(String name, List<Pose2d> waypoints, List<Rotation2d> headings, boolean fast) {
+        List<TimingConstraint> constraints = fast ? m_fast : m_slow;
+        long fingerprint = TrajectoryLibrary.fingerprint(waypoints, headings,
+                fast ? m_fastFingerprint : m_slowFingerprint,
+                m_swerveKinodynamics.getMaxDriveVelocityM_S(),
+                m_swerveKinodynamics.getMaxDriveAccelerationM_S2(),
+                m_swerveKinodynamics.getMaxDriveDecelerationM_S2(),
+                m_swerveKinodynamics.getMaxCapsizeAccelM_S2(),
+                m_swerveKinodynamics.getMaxAngleSpeedRad_S(),
+                m_swerveKinodynamics.getMaxAngleAccelRad_S2());
+        return m_library.getOrPlan(name, fingerprint,
+                () -> TrajectoryPlanner.restToRest(waypoints, headings, constraints));
+    }
+
+    /** Library key, e.g. "driveStraight/Blue/NOTE4/NOTE8". */
+    private static String name(Object... parts) {
+        StringJoiner j = new StringJoiner("/");
+        for (Object p : parts)
+            j.add(String.valueOf(p));
+        return j.toString();
     }
 
     /** This encodes knowledge about how to approach each field point. */
@@ -143,7 +181,9 @@ public class AutoMaker implements Glassy {
                 startPose.getRotation(),
                 betweenHeading,
                 endPose.getRotation());
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_fast);
+        Trajectory100 trajectory = plan(
+                name("adjacentWithShooterAngle", alliance, noteA, noteB),
+                waypointsM, headings, true);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory, m_controller, m_viz);
     }
 
@@ -177,7 +217,10 @@ public class AutoMaker implements Glassy {
                 betweenHeading,
                 betweenHeading,
                 endPose.getRotation());
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_slow);
+        Trajectory100 trajectory = plan(
+                name("test", alliance, noteA, waypoint.getX(),
+                        waypoint.getY(), waypoint2.getX(), waypoint2.getY(), noteB),
+                waypointsM, headings, false);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory, m_factory.goodPIDF(m_log),
                 m_viz);
     }
@@ -197,7 +240,7 @@ public class AutoMaker implements Glassy {
                 new Pose2d(2, 2, new Rotation2d()),
                 new Pose2d(5, 2, new Rotation2d()));
         List<Rotation2d> headings = List.of(new Rotation2d(Math.PI), new Rotation2d(Math.PI));
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_fast);
+        Trajectory100 trajectory = plan(name("tuningTrajectory1"), waypointsM, headings, true);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory, m_controller, m_viz);
     }
 
@@ -206,7 +249,7 @@ public class AutoMaker implements Glassy {
                 new Pose2d(0, 0, Rotation2d.fromDegrees(45)),
                 new Pose2d(1, 1, Rotation2d.fromDegrees(45)));
         List<Rotation2d> headings = List.of(Rotation2d.fromDegrees(0), Rotation2d.fromDegrees(0));
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_fast);
+        Trajectory100 trajectory = plan(name("tuningTrajectory6"), waypointsM, headings, true);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory, m_controller, m_viz);
     }
 
@@ -215,21 +258,21 @@ public class AutoMaker implements Glassy {
                 new Pose2d(5, 2, new Rotation2d(Math.PI)),
                 new Pose2d(2, 2, new Rotation2d(Math.PI)));
         List<Rotation2d> headings = List.of(new Rotation2d(Math.PI), new Rotation2d(Math.PI));
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_fast);
+        Trajectory100 trajectory = plan(name("tuningTrajectory2"), waypointsM, headings, true);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory, m_controller, m_viz);
     }
 
     public TrajectoryCommand100 tuningTrajectory3() {
         List<Pose2d> waypointsM = List.of(new Pose2d(), new Pose2d());
         List<Rotation2d> headings = List.of(new Rotation2d(Math.PI), new Rotation2d());
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_fast);
+        Trajectory100 trajectory = plan(name("tuningTrajectory3"), waypointsM, headings, true);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory, m_controller, m_viz);
     }
 
     public TrajectoryCommand100 tuningTrajectory4() {
         List<Pose2d> waypointsM = List.of(new Pose2d(), new Pose2d());
         List<Rotation2d> headings = List.of(new Rotation2d(), new Rotation2d(Math.PI));
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_fast);
+        Trajectory100 trajectory = plan(name("tuningTrajectory4"), waypointsM, headings, true);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory, m_controller, m_viz);
     }
 
@@ -252,7 +295,7 @@ public class AutoMaker implements Glassy {
                 startPose.getRotation(),
                 endPose.getRotation(),
                 endPose.getRotation());
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_fast);
+        Trajectory100 trajectory = plan(name("driveToStageBase", alliance, start, end), waypointsM, headings, true);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory,
                 m_factory.stageBase(m_log), m_viz);
     }
@@ -280,7 +323,7 @@ public class AutoMaker implements Glassy {
                 startPose.getRotation(),
                 endPose.getRotation(),
                 endPose.getRotation());
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_fast);
+        Trajectory100 trajectory = plan(name("throughStage", alliance, start, end), waypointsM, headings, true);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory,
                 m_factory.complementPIDF(m_log), m_viz);
     }
@@ -305,7 +348,7 @@ public class AutoMaker implements Glassy {
                 startPose.getRotation(),
                 endPose.getRotation(),
                 endPose.getRotation());
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_slow);
+        Trajectory100 trajectory = plan(name("aroundStage", alliance, start, end), waypointsM, headings, false);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory,
                 m_factory.complementPIDF(m_log), m_viz);
     }
@@ -331,7 +374,9 @@ public class AutoMaker implements Glassy {
                 startPose.getRotation(),
                 heading,
                 heading);
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_slow);
+        Trajectory100 trajectory = plan(
+                name("aroundStageHeading", alliance, start, end, heading.getRadians()),
+                waypointsM, headings, false);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory,
                 m_factory.complementPIDF(m_log), m_viz);
     }
@@ -357,7 +402,9 @@ public class AutoMaker implements Glassy {
                 new Rotation2d(begHeading),
                 endPose.getRotation(),
                 endPose.getRotation());
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_slow);
+        Trajectory100 trajectory = plan(
+                name("aroundStageStart", alliance, start, end, begHeading),
+                waypointsM, headings, false);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory,
                 m_factory.complementPIDF(m_log), m_viz);
     }
@@ -376,7 +423,7 @@ public class AutoMaker implements Glassy {
         List<Rotation2d> headings = List.of(
                 startPose.getRotation(),
                 endPose.getRotation());
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_fast);
+        Trajectory100 trajectory = plan(name("driveStraight", alliance, start, end), waypointsM, headings, true);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory,
                 m_factory.straightPIDF(m_log), m_viz);
     }
@@ -396,7 +443,9 @@ public class AutoMaker implements Glassy {
 
         List<Pose2d> waypointsM = List.of(startWaypoint, endWaypoint);
         List<Rotation2d> headings = List.of(begHeading, endHeading);
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_fast);
+        Trajectory100 trajectory = plan(
+                name("driveStraightHeadings", alliance, start, end, begHeading.getRadians(), endHeading.getRadians()),
+                waypointsM, headings, true);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory,
                 m_factory.straightPIDF(m_log), m_viz);
     }
@@ -415,7 +464,9 @@ public class AutoMaker implements Glassy {
 
         List<Pose2d> waypointsM = List.of(startWaypoint, endWaypoint);
         List<Rotation2d> headings = List.of(startPose.getRotation(), endPose.getRotation());
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_fast);
+        Trajectory100 trajectory = plan(
+                name("driveStraightCourse", alliance, start, end, splineStartDirection, endingSplineDirection),
+                waypointsM, headings, true);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory,
                 m_factory.complementPIDF(m_log), m_viz);
     }
@@ -435,7 +486,10 @@ public class AutoMaker implements Glassy {
 
         List<Pose2d> waypointsM = List.of(startWaypoint, endWaypoint);
         List<Rotation2d> headings = List.of(startPose.getRotation(), endPose.getRotation());
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_fast);
+        Trajectory100 trajectory = plan(
+                name("driveStraightPose", alliance, start.getX(), start.getY(),
+                        start.getRotation().getRadians(), end.getX(), end.getY()),
+                waypointsM, headings, true);
         return new TrajectoryCommand100(
                 m_commandLog,
                 m_swerve,
@@ -459,7 +513,9 @@ public class AutoMaker implements Glassy {
         Rotation2d startHeading = startPose.getRotation();
         Rotation2d endHeading = new Rotation2d(Math.PI);
         List<Rotation2d> headings = List.of(startHeading, endHeading);
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_fast);
+        Trajectory100 trajectory = plan(
+                name("driveStraightWithWaypoints", alliance, start, end),
+                waypointsM, headings, true);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory,
                 m_factory.newNewPIDF(m_log), m_viz);
     }
@@ -489,7 +545,9 @@ public class AutoMaker implements Glassy {
                 startPose.getRotation(),
                 betweenPose.getRotation(),
                 endPose.getRotation());
-        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypointsM, headings, m_fast);
+        Trajectory100 trajectory = plan(
+                name("stageManeuver", alliance, start, between, end),
+                waypointsM, headings, true);
         return new TrajectoryCommand100(m_commandLog, m_swerve, trajectory, m_controller, m_viz);
     }
 
@@ -12,6 +12,7 @@ import org.team100.lib.encoder.EncoderDrive;
 import org.team100.lib.encoder.RotaryPositionSensor;
 import org.team100.lib.encoder.SimulatedBareEncoder;
 import org.team100.lib.encoder.SimulatedRotaryPositionSensor;
+import org.team100.lib.framework.LoopProfiler;
 import org.team100.lib.framework.TimedRobot100;
 import org.team100.lib.motion.mechanism.RotaryMechanism;
 import org.team100.lib.motion.mechanism.SimpleRotaryMechanism;
@@ -34,6 +35,7 @@ import edu.wpi.first.wpilibj2.command.SubsystemBase;
  * The pivot is independent from the feeder, so it's a separate subsystem.
  */
 public class AmpPivot extends SubsystemBase implements Glassy {
+    private final LoopProfiler.Span m_span = LoopProfiler.instance().span(getName() + ".periodic()");
 
     /**
      * The outboard velocity PID units are duty cycle per RPM, so tiny values are
@@ -147,6 +149,10 @@ public class AmpPivot extends SubsystemBase implements Glassy {
 
     @Override
     public void periodic() {
+        m_span.run(this::doPeriodic);
+    }
+
+    private void doPeriodic() {
         m_ampAngleServo.periodic();
     }
 
@@ -6,6 +6,7 @@ import org.team100.lib.config.PIDConstants;
 import org.team100.lib.dashboard.Glassy;
 import org.team100.lib.encoder.CANSparkEncoder;
 import org.team100.lib.encoder.SimulatedBareEncoder;
+import org.team100.lib.framework.LoopProfiler;
 import org.team100.lib.motor.MotorPhase;
 import org.team100.lib.motor.NeoVortexCANSparkMotor;
 import org.team100.lib.motor.SimulatedBareMotor;
@@ -24,6 +25,8 @@ import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 
 public class ClimberSubsystem extends SubsystemBase implements Glassy {
+    private final LoopProfiler.Span m_span = LoopProfiler.instance().span(getName() + ".periodic()");
+
     private static final double kMaxPositionM = 0.3;
     private static final double kUpPositionM = 0.28;
     private static final double kDownPositionM = 0.02;
@@ -209,6 +212,10 @@ public class ClimberSubsystem extends SubsystemBase implements Glassy {
 
     @Override
     public void periodic() {
+        m_span.run(this::doPeriodic);
+    }
+
+    private void doPeriodic() {
         m_left.periodic();
         m_right.periodic();
         m_log_left_position.log(m_left::getPositionM);
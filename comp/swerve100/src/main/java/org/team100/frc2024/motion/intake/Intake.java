@@ -5,6 +5,7 @@ import org.team100.lib.config.Feedforward100;
 import org.team100.lib.config.Identity;
 import org.team100.lib.config.PIDConstants;
 import org.team100.lib.dashboard.Glassy;
+import org.team100.lib.framework.LoopProfiler;
 import org.team100.lib.logging.Level;
 import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.logging.LoggerFactory.DoubleLogger;
@@ -17,6 +18,8 @@ import edu.wpi.first.wpilibj.motorcontrol.PWMSparkMax;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 
 public class Intake extends SubsystemBase implements Glassy {
+    private final LoopProfiler.Span m_span = LoopProfiler.instance().span(getName() + ".periodic()");
+
     private static final double kMaxDecel = -10;
     private static final double kMaxAccel = 10;
     private static final double kMaxVelocity = 15;
@@ -135,6 +138,10 @@ public class Intake extends SubsystemBase implements Glassy {
 
     @Override
     public void periodic() {
+        m_span.run(this::doPeriodic);
+    }
+
+    private void doPeriodic() {
         m_log_lower.log(m_intake::get);
         m_log_upper.log(superRollers::getVelocity);
         m_log_centering.log(m_centering::get);
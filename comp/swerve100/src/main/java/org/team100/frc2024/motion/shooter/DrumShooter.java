@@ -12,6 +12,7 @@ import org.team100.lib.encoder.EncoderDrive;
 import org.team100.lib.encoder.SimulatedBareEncoder;
 import org.team100.lib.encoder.SimulatedRotaryPositionSensor;
 import org.team100.lib.encoder.Talon6Encoder;
+import org.team100.lib.framework.LoopProfiler;
 import org.team100.lib.framework.TimedRobot100;
 import org.team100.lib.logging.Level;
 import org.team100.lib.logging.LoggerFactory;
@@ -51,6 +52,8 @@ import edu.wpi.first.wpilibj2.command.SubsystemBase;
  * up, so set the acceleration a bit higher than that to start.
  */
 public class DrumShooter extends SubsystemBase implements Glassy {
+    private final LoopProfiler.Span m_span = LoopProfiler.instance().span(getName() + ".periodic()");
+
     private static final int kMaxDecel = -40;
     private static final int kMaxAccel = 40;
     private static final int kMaxVelocity = 30;
@@ -327,6 +330,10 @@ public class DrumShooter extends SubsystemBase implements Glassy {
 
     @Override
     public void periodic() {
+        m_span.run(this::doPeriodic);
+    }
+
+    private void doPeriodic() {
         leftRoller.periodic();
         rightRoller.periodic();
         pivotServo.periodic();
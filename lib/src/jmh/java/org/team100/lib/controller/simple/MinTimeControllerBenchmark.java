@@ -0,0 +1,50 @@
+package org.team100.lib.controller.simple;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.state.State100;
+
+/** Far from the goal (bang-bang), and near it (full-state). */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MinTimeControllerBenchmark {
+    private final MinTimeController m_controller = new MinTimeController(
+            new TestLoggerFactory(new TestPrimitiveLogger()),
+            x -> x,
+            1, // maxV
+            1, // switchingA
+            0.9, // weakG
+            1.1, // strongI
+            0, // tolerance
+            0.1, // finish
+            new double[] { 10.0, 10.0 } // k
+    );
+    private final State100 m_far = new State100(-1, 0);
+    private final State100 m_near = new State100(0.95, 0.1);
+    private final State100 m_goal = new State100(1, 0);
+
+    @Benchmark
+    public State100 calculateFar() {
+        return m_controller.calculate(0.02, m_far, m_goal);
+    }
+
+    @Benchmark
+    public State100 calculateNear() {
+        return m_controller.calculate(0.02, m_near, m_goal);
+    }
+}
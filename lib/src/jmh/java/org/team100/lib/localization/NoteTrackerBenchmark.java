@@ -0,0 +1,114 @@
+package org.team100.lib.localization;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.team100.lib.config.SimulatedCamera;
+import org.team100.lib.util.NotePicker;
+import org.team100.lib.util.Util;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+
+/**
+ * The note tracker, fed a few thousand noisy sights made by the simulated
+ * camera from a robot driving across the field, compared with what the
+ * listener used to do: keep the last frame and search it for the closest note.
+ *
+ * Each op is one frame: add its sights, expire old ones, and find the closest.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NoteTrackerBenchmark {
+    private static final int kFrames = 1000;
+    private static final double kDt = 0.02;
+
+    /** Per frame: robot pose and sights, as x, y pairs. */
+    private final Pose2d[] m_poses = new Pose2d[kFrames];
+    private final double[][] m_sights = new double[kFrames][];
+    private final double[] m_xy = new double[2];
+    private NoteTracker m_tracker;
+    private int m_frame;
+    private double m_timeS;
+
+    @Setup
+    public void setup() {
+        SimulatedCamera camera = SimulatedCamera.getGamePieceCamera();
+        Random random = new Random(0);
+        int total = 0;
+        for (int i = 0; i < kFrames; ++i) {
+            Pose2d robotPose = new Pose2d(1 + 5.0 * i / kFrames, 4, Rotation2d.fromDegrees(180));
+            m_poses[i] = robotPose;
+            List<Translation2d> notes = new ArrayList<>();
+            for (Rotation3d sight : camera.getKnownLocations(Alliance.Blue, robotPose)) {
+                TargetLocalizer.cameraRotToFieldRelative(robotPose, camera.getOffset(), sight)
+                        .ifPresent(notes::add);
+            }
+            double[] xy = new double[2 * notes.size()];
+            for (int j = 0; j < notes.size(); ++j) {
+                xy[2 * j] = notes.get(j).getX() + random.nextGaussian() * 0.02;
+                xy[2 * j + 1] = notes.get(j).getY() + random.nextGaussian() * 0.02;
+            }
+            m_sights[i] = xy;
+            total += notes.size();
+        }
+        Util.printf("%d sights\n", total);
+        m_tracker = new NoteTracker(0.5, 0.3, 2, 256);
+        m_frame = 0;
+        m_timeS = 0;
+    }
+
+    @Benchmark
+    public double tracker() {
+        int i = next();
+        double[] xy = m_sights[i];
+        for (int j = 0; j < xy.length; j += 2) {
+            m_tracker.add(m_timeS, xy[j], xy[j + 1]);
+        }
+        m_tracker.expire(m_timeS);
+        Pose2d robotPose = m_poses[i];
+        if (!m_tracker.closest(robotPose.getX(), robotPose.getY(), m_xy))
+            return 0;
+        return m_xy[0];
+    }
+
+    @Benchmark
+    public double lastFrame() {
+        int i = next();
+        double[] xy = m_sights[i];
+        List<Translation2d> notes = new ArrayList<>();
+        for (int j = 0; j < xy.length; j += 2) {
+            notes.add(new Translation2d(xy[j], xy[j + 1]));
+        }
+        Optional<Translation2d> closest = NotePicker.closestNote(notes, m_poses[i]);
+        if (closest.isEmpty())
+            return 0;
+        return closest.get().getX();
+    }
+
+    private int next() {
+        m_timeS += kDt;
+        m_frame = (m_frame + 1) % kFrames;
+        return m_frame;
+    }
+}
@@ -0,0 +1,123 @@
+package org.team100.lib.localization;
+
+import java.util.ArrayDeque;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.team100.lib.geometry.GeometryUtil;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamicsFactory;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModulePosition100;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModulePositions;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * Contention between the odometry thread and the main loop: one thread samples
+ * as fast as it can while the other drains into the estimator. The lock-free
+ * queue is compared with a synchronized deque. Look at the producer times: the
+ * point of the queue is that the sampler never waits for the main loop.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class OdometryThreadBenchmark {
+    private static final double kDt = 0.004;
+
+    private final ArrayDeque<OdometrySample> m_deque = new ArrayDeque<>();
+    private SwerveModulePositions m_positions;
+    private SwerveDrivePoseEstimator100 m_estimator;
+    private OdometryThread m_thread;
+    /** Producer only. */
+    private int m_step;
+    /** Consumer only. */
+    private double m_lastS;
+
+    @Setup
+    public void setup() {
+        Optional<Rotation2d> angle = Optional.of(GeometryUtil.kRotationZero);
+        SwerveModulePosition100 p = new SwerveModulePosition100(0, angle);
+        m_positions = new SwerveModulePositions(p, p, p, p);
+        m_estimator = new SwerveDrivePoseEstimator100(
+                new TestLoggerFactory(new TestPrimitiveLogger()),
+                SwerveKinodynamicsFactory.forRealisticTest(),
+                GeometryUtil.kRotationZero,
+                0,
+                m_positions,
+                GeometryUtil.kPoseZero,
+                0);
+        // not started, the benchmark thread calls sample() instead.
+        m_thread = new OdometryThread(this::next, kDt);
+        m_step = 0;
+        m_lastS = 0;
+    }
+
+    private OdometrySample next() {
+        m_step++;
+        return new OdometrySample(m_step * kDt, GeometryUtil.kRotationZero, 0, m_positions);
+    }
+
+    @Benchmark
+    @Group("lockFree")
+    @GroupThreads(1)
+    public void lockFreeSample() {
+        m_thread.sample();
+    }
+
+    @Benchmark
+    @Group("lockFree")
+    @GroupThreads(1)
+    public int lockFreeDrain() {
+        return m_thread.drainTo(m_estimator);
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(1)
+    public void lockedSample() {
+        OdometrySample sample = next();
+        synchronized (m_deque) {
+            m_deque.offer(sample);
+            if (m_deque.size() > 100)
+                m_deque.poll();
+        }
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(1)
+    public int lockedDrain() {
+        int count = 0;
+        synchronized (m_deque) {
+            OdometrySample sample;
+            while ((sample = m_deque.poll()) != null) {
+                if (sample.timestampS() <= m_lastS)
+                    continue;
+                m_estimator.put(
+                        sample.timestampS(),
+                        sample.gyroAngle(),
+                        sample.gyroRateRad_S(),
+                        sample.positions());
+                m_lastS = sample.timestampS();
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,93 @@
+package org.team100.lib.localization;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.team100.lib.geometry.GeometryUtil;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamicsFactory;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModulePosition100;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModulePositions;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * One robot loop per op: an odometry update, and then, if vision is on, two
+ * camera measurements with some latency, which replay the recent history.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SwerveDrivePoseEstimator100Benchmark {
+    private static final double kDt = 0.02;
+    private static final double kLatency = 0.075;
+    /** Precomputed inputs, so the benchmark doesn't count making them. */
+    private static final int kInputs = 500;
+    private static final double[] kStateSigma = new double[] { 0.1, 0.1, 0.1 };
+    private static final double[] kVisionSigma = new double[] { 0.5, 0.5, 0.5 };
+
+    private final SwerveModulePositions[] m_positions = new SwerveModulePositions[kInputs];
+    private final Rotation2d[] m_gyro = new Rotation2d[kInputs];
+    private final Pose2d[] m_vision = new Pose2d[kInputs];
+
+    private SwerveDrivePoseEstimator100 m_estimator;
+    private int m_step;
+
+    @Param({ "false", "true" })
+    public boolean vision;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < kInputs; ++i) {
+            // driving back and forth, turning a bit.
+            double t = kDt * i;
+            double x = Math.sin(2 * Math.PI * i / kInputs);
+            Optional<Rotation2d> angle = Optional.of(new Rotation2d(0.2 * Math.sin(t)));
+            m_positions[i] = new SwerveModulePositions(
+                    new SwerveModulePosition100(0.9 * x, angle),
+                    new SwerveModulePosition100(1.1 * x, angle),
+                    new SwerveModulePosition100(0.9 * x, angle),
+                    new SwerveModulePosition100(1.1 * x, angle));
+            m_gyro[i] = new Rotation2d(0.2 * x);
+            m_vision[i] = new Pose2d(x, 0.01, new Rotation2d(0.2 * x));
+        }
+        m_estimator = new SwerveDrivePoseEstimator100(
+                new TestLoggerFactory(new TestPrimitiveLogger()),
+                SwerveKinodynamicsFactory.forRealisticTest(),
+                GeometryUtil.kRotationZero,
+                0,
+                m_positions[0],
+                GeometryUtil.kPoseZero,
+                0);
+        m_step = 0;
+    }
+
+    @Benchmark
+    public SwerveDrivePoseEstimator100 put() {
+        m_step++;
+        int i = m_step % kInputs;
+        double t = kDt * m_step;
+        m_estimator.put(t, m_gyro[i], 0, m_positions[i]);
+        if (vision) {
+            m_estimator.put(t - kLatency, m_vision[i], kStateSigma, kVisionSigma);
+            m_estimator.put(t - kLatency + 0.01, m_vision[i], kStateSigma, kVisionSigma);
+        }
+        return m_estimator;
+    }
+}
@@ -0,0 +1,101 @@
+package org.team100.lib.localization;
+
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.interpolation.Interpolatable;
+
+/**
+ * The sorted ring compared with the skip list it replaced, doing what the
+ * estimator does every cycle: put the new state, sample a recent time, and find
+ * a consistent pair.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TimeInterpolatableBuffer100Benchmark {
+    private static final double kDt = 0.004;
+
+    static class Item implements Interpolatable<Item> {
+        public final double value;
+
+        public Item(double v) {
+            value = v;
+        }
+
+        @Override
+        public Item interpolate(Item endValue, double t) {
+            return new Item(MathUtil.interpolate(value, endValue.value, t));
+        }
+    }
+
+    @Param({ "1", "10" })
+    public double history;
+
+    private final Item m_item = new Item(1);
+    private TimeInterpolatableBuffer100<Item> m_buffer;
+    private NavigableMap<Double, Item> m_skipList;
+    private double m_ringTime;
+    private double m_skipListTime;
+
+    @Setup
+    public void setup() {
+        m_buffer = new TimeInterpolatableBuffer100<>(
+                new TestLoggerFactory(new TestPrimitiveLogger()), history, 0, new Item(0));
+        m_skipList = new ConcurrentSkipListMap<>();
+        m_skipList.put(0.0, new Item(0));
+        m_ringTime = 0;
+        m_skipListTime = 0;
+    }
+
+    @Benchmark
+    public double ring() {
+        m_ringTime += kDt;
+        double t = m_ringTime;
+        m_buffer.put(t, m_item);
+        return m_buffer.get(t - 0.05).value
+                + m_buffer.consistentPair(t + 0.001, 0.015).size();
+    }
+
+    @Benchmark
+    public double skipList() {
+        m_skipListTime += kDt;
+        double t = m_skipListTime;
+        NavigableMap<Double, Item> m = m_skipList;
+        while (!m.isEmpty() && t - m.firstKey() >= history)
+            m.remove(m.firstKey());
+        m.put(t, m_item);
+        double q = t - 0.05;
+        double total;
+        Entry<Double, Item> top = m.ceilingEntry(q);
+        Entry<Double, Item> bottom = m.floorEntry(q);
+        if (top == null)
+            total = bottom.getValue().value;
+        else if (bottom == null)
+            total = top.getValue().value;
+        else
+            total = bottom.getValue().interpolate(top.getValue(), 0.5).value;
+        Entry<Double, Item> lower = m.lowerEntry(t + 0.001);
+        return total + (m.floorEntry(lower.getKey() - 0.015) == null ? 1 : 2);
+    }
+}
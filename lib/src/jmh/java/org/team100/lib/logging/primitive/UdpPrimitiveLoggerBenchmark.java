@@ -0,0 +1,70 @@
+package org.team100.lib.logging.primitive;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.team100.lib.logging.primitive.PrimitiveLogger.PrimitiveBooleanLogger;
+import org.team100.lib.logging.primitive.PrimitiveLogger.PrimitiveDoubleLogger;
+
+/**
+ * One robot loop of logging per op: update a few hundred keys, some of which
+ * change, and flush. The packets go nowhere, so this is just the encoding.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UdpPrimitiveLoggerBenchmark {
+    private static final int kDoubles = 400;
+    private static final int kBooleans = 100;
+
+    /** Zero means no delta encoding. */
+    @Param({ "0", "50" })
+    public int keyframePeriod;
+
+    private UdpPrimitiveLogger m_logger;
+    private PrimitiveDoubleLogger[] m_doubles;
+    private PrimitiveBooleanLogger[] m_booleans;
+    private int m_step;
+
+    @Setup
+    public void setup() {
+        m_logger = new UdpPrimitiveLogger(x -> {
+        }, x -> {
+        }, keyframePeriod);
+        m_doubles = new PrimitiveDoubleLogger[kDoubles];
+        for (int i = 0; i < kDoubles; ++i) {
+            m_doubles[i] = m_logger.doubleLogger("/benchmark/double/" + i);
+        }
+        m_booleans = new PrimitiveBooleanLogger[kBooleans];
+        for (int i = 0; i < kBooleans; ++i) {
+            m_booleans[i] = m_logger.booleanLogger("/benchmark/boolean/" + i);
+        }
+        m_step = 0;
+    }
+
+    @Benchmark
+    public void flush() {
+        m_step++;
+        for (int i = 0; i < kDoubles; ++i) {
+            // a quarter of them change every time
+            m_doubles[i].log(i % 4 == 0 ? m_step : i);
+        }
+        for (int i = 0; i < kBooleans; ++i) {
+            m_booleans[i].log(((m_step + i) & 8) == 0);
+        }
+        m_logger.flush();
+    }
+}
@@ -0,0 +1,76 @@
+package org.team100.lib.motion.drivetrain.kinodynamics;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Twist2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+
+/**
+ * Inverse kinematics for the drive output, forward kinematics for odometry.
+ * 
+ * The "Into" versions use caller-provided outputs, and should allocate
+ * nothing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SwerveDriveKinematics100Benchmark {
+    private final SwerveDriveKinematics100 m_kinematics = SwerveKinodynamicsFactory.forRealisticTest()
+            .getKinematics();
+    private final ChassisSpeeds m_speeds = new ChassisSpeeds(1, 0.5, 0.2);
+    private final SwerveModuleDeltas m_deltas = new SwerveModuleDeltas(
+            new SwerveModuleDelta(0.02, Optional.of(new Rotation2d(0.1))),
+            new SwerveModuleDelta(0.021, Optional.of(new Rotation2d(0.1))),
+            new SwerveModuleDelta(0.02, Optional.of(new Rotation2d(0.12))),
+            new SwerveModuleDelta(0.021, Optional.of(new Rotation2d(0.12))));
+    private final double[] m_moduleVectors = new double[8];
+    private final double[] m_chassisVector = new double[3];
+    private final Twist2d m_twist = new Twist2d();
+
+    @Benchmark
+    public SwerveModuleStates toSwerveModuleStates() {
+        return m_kinematics.toSwerveModuleStates(m_speeds);
+    }
+
+    @Benchmark
+    public Twist2d toTwist2d() {
+        return m_kinematics.toTwist2d(m_deltas);
+    }
+
+    @Benchmark
+    public double[] toModuleVectorsInto() {
+        m_kinematics.toModuleVectors(
+                m_speeds.vxMetersPerSecond,
+                m_speeds.vyMetersPerSecond,
+                m_speeds.omegaRadiansPerSecond,
+                m_moduleVectors);
+        return m_moduleVectors;
+    }
+
+    @Benchmark
+    public double[] toChassisVectorInto() {
+        m_kinematics.toChassisVector(m_moduleVectors, m_chassisVector);
+        return m_chassisVector;
+    }
+
+    @Benchmark
+    public Twist2d toTwist2dInto() {
+        m_kinematics.toTwist2d(m_deltas, m_twist);
+        return m_twist;
+    }
+}
@@ -0,0 +1,177 @@
+package org.team100.lib.planner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.team100.lib.camera.RobotSighting;
+import org.team100.lib.motion.drivetrain.kinodynamics.FieldRelativeVelocity;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * The robot tactics, with five opposing robots and a thousand sightings in the
+ * camera buffer, using the obstacle index, compared with what they used to do:
+ * look at every sighting, and for SteerAroundRobots, every pair of sightings.
+ *
+ * Each op is one cycle: the camera adds a sighting and drops the oldest, then
+ * both robot tactics run.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ObstacleIndexBenchmark {
+    private static final int kRobots = 5;
+    private static final int kSightings = 1000;
+    private static final double kDt = 0.001;
+
+    private final Translation2d[] m_robots = new Translation2d[kRobots];
+    private final NavigableMap<Double, RobotSighting> m_sightings = new ConcurrentSkipListMap<>();
+    private final Supplier<Pose2d> m_pose = () -> new Pose2d(8, 4, new Rotation2d());
+    private final FieldRelativeVelocity m_velocity = new FieldRelativeVelocity(3, 0, 0);
+    private final Heuristics m_heuristics = new Heuristics(false);
+    private Random m_random;
+    private ObstacleIndex m_index;
+    private SteerAroundRobots m_steer;
+    private RobotRepulsion m_repulsion;
+    private double m_timeS;
+
+    @Setup
+    public void setup() {
+        m_random = new Random(0);
+        for (int i = 0; i < kRobots; ++i) {
+            m_robots[i] = new Translation2d(8.5 + i * 0.7, 2.5 + i * 0.7);
+        }
+        m_sightings.clear();
+        m_timeS = 0;
+        for (int i = 0; i < kSightings; ++i) {
+            sight();
+        }
+        // long enough to include the whole buffer
+        m_index = new ObstacleIndex(kSightings * kDt);
+        m_steer = new SteerAroundRobots(m_pose, m_index, null, false);
+        m_repulsion = new RobotRepulsion(m_pose, m_index, null, false);
+    }
+
+    @Benchmark
+    public double index() {
+        sight();
+        m_index.update(m_sightings.descendingMap(), m_timeS);
+        return m_steer.apply(m_velocity).x() + m_repulsion.apply(m_velocity).x();
+    }
+
+    @Benchmark
+    public double allSightings() {
+        sight();
+        NavigableMap<Double, RobotSighting> recent = m_sightings.descendingMap();
+        return steerAroundRobots(recent).x() + robotRepulsion(recent).x();
+    }
+
+    /** Add a noisy sighting of one of the robots, and drop the oldest. */
+    private void sight() {
+        m_timeS += kDt;
+        Translation2d p = m_robots[m_random.nextInt(kRobots)];
+        m_sightings.put(m_timeS, new RobotSighting(false, new Translation2d(
+                p.getX() + m_random.nextGaussian() * 0.05,
+                p.getY() + m_random.nextGaussian() * 0.05)));
+        if (m_sightings.size() > kSightings)
+            m_sightings.pollFirstEntry();
+    }
+
+    /** The old SteerAroundRobots. */
+    private FieldRelativeVelocity steerAroundRobots(NavigableMap<Double, RobotSighting> recentSightings) {
+        Pose2d myPosition = m_pose.get();
+        final double maxDistance = m_velocity.norm();
+        FieldRelativeVelocity v = new FieldRelativeVelocity(0, 0, 0);
+        List<Translation2d> nearby = new ArrayList<>();
+        for (Entry<Double, RobotSighting> mostRecent : recentSightings.entrySet()) {
+            double mostRecentTime = mostRecent.getKey();
+            RobotSighting mostRecentSighting = mostRecent.getValue();
+            Translation2d mostRecentPosition = mostRecentSighting.position();
+            for (Entry<Double, RobotSighting> earlier : recentSightings.tailMap(mostRecentTime).entrySet()) {
+                if (mostRecentSighting.friend() != earlier.getValue().friend()) {
+                    continue;
+                }
+                double dt = mostRecentTime - earlier.getKey();
+                Translation2d velocity = mostRecentPosition.minus(
+                        earlier.getValue().position()).div(dt);
+                if (velocity.getNorm() > 4) {
+                    continue;
+                }
+            }
+            if (!nearby.isEmpty()) {
+                Translation2d nearest = mostRecentPosition.nearest(nearby);
+                if (mostRecentPosition.getDistance(nearest) < 1) {
+                    continue;
+                }
+            }
+            nearby.add(mostRecentPosition);
+            double distance = myPosition.getTranslation().getDistance(mostRecentPosition);
+            if (distance > maxDistance)
+                continue;
+            FieldRelativeVelocity steer = m_heuristics.steerToAvoid(
+                    myPosition.getTranslation(),
+                    m_velocity,
+                    mostRecentPosition,
+                    1.0);
+            if (steer.norm() < 1e-3)
+                continue;
+            FieldRelativeVelocity force = steer.times(8);
+            v = v.plus(new FieldRelativeVelocity(force.x(), force.y(), 0));
+        }
+        return v;
+    }
+
+    /** The old RobotRepulsion. */
+    private FieldRelativeVelocity robotRepulsion(NavigableMap<Double, RobotSighting> recentSightings) {
+        Pose2d myPosition = m_pose.get();
+        final double maxDistance = 3;
+        FieldRelativeVelocity v = new FieldRelativeVelocity(0, 0, 0);
+        List<Translation2d> nearby = new ArrayList<>();
+        for (RobotSighting sight : recentSightings.values()) {
+            Translation2d mostRecent = sight.position();
+            if (!nearby.isEmpty()) {
+                Translation2d nearest = mostRecent.nearest(nearby);
+                if (mostRecent.getDistance(nearest) < 1) {
+                    continue;
+                }
+            }
+            nearby.add(mostRecent);
+            double distance = myPosition.getTranslation().getDistance(mostRecent);
+            if (distance > 4)
+                continue;
+            Translation2d robotRelativeToTarget = myPosition.getTranslation().minus(mostRecent);
+            double norm = robotRelativeToTarget.getNorm();
+            if (norm < maxDistance) {
+                Translation2d normalized = robotRelativeToTarget.div(norm);
+                double scale = 8 * (1 / norm - 1 / maxDistance);
+                Translation2d force = normalized.times(scale);
+                FieldRelativeVelocity robotRepel = new FieldRelativeVelocity(force.getX(), force.getY(), 0);
+                if (m_velocity.dot(robotRepel) < 0) {
+                    v = v.plus(robotRepel);
+                }
+            }
+        }
+        return v;
+    }
+}
@@ -0,0 +1,38 @@
+package org.team100.lib.profile;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.team100.lib.state.State100;
+
+/** A profile step from rest, and one from a state that needs to turn around. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TrapezoidProfile100Benchmark {
+    private final TrapezoidProfile100 m_profile = new TrapezoidProfile100(5, 10, 0.01);
+    private final State100 m_rest = new State100(0, 0);
+    private final State100 m_moving = new State100(0, -2);
+    private final State100 m_goal = new State100(1, 0);
+
+    @Benchmark
+    public State100 calculateFromRest() {
+        return m_profile.calculate(0.02, m_rest, m_goal);
+    }
+
+    @Benchmark
+    public State100 calculateReversing() {
+        return m_profile.calculate(0.02, m_moving, m_goal);
+    }
+}
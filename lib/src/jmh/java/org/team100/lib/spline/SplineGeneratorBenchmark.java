@@ -0,0 +1,97 @@
+package org.team100.lib.spline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.team100.lib.geometry.Pose2dWithMotion;
+import org.team100.lib.path.Path100;
+import org.team100.lib.trajectory.TrajectoryUtil100;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * Spline sampling, with the tolerances TrajectoryPlanner uses, for paths
+ * shaped like the ones in AutoMaker (blue alliance): a straight tuning path,
+ * and a path through the stage to the center line.
+ *
+ * "iterative" is the generator alone, "recursive" is the old one, and "path"
+ * is the whole TrajectoryUtil100 call, including spline optimization.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SplineGeneratorBenchmark {
+    private static final double kMaxDx = 0.0127;
+    private static final double kMaxDy = 0.0127;
+    private static final double kMaxDTheta = Math.toRadians(1.0);
+
+    @Param({ "tuning", "throughStage" })
+    public String name;
+
+    private List<Pose2d> m_waypoints;
+    private List<Rotation2d> m_headings;
+    private List<HolonomicSpline> m_splines;
+
+    @Setup
+    public void setup() {
+        switch (name) {
+            case "tuning":
+                m_waypoints = List.of(
+                        new Pose2d(2, 2, new Rotation2d()),
+                        new Pose2d(5, 2, new Rotation2d()));
+                m_headings = List.of(new Rotation2d(Math.PI), new Rotation2d(Math.PI));
+                break;
+            case "throughStage":
+                m_waypoints = List.of(
+                        new Pose2d(2.9, 5.5, new Rotation2d(-0.4)),
+                        new Pose2d(5.0, 4.2, new Rotation2d(0.1)),
+                        new Pose2d(8.3, 4.1, new Rotation2d(0.1)));
+                m_headings = List.of(
+                        new Rotation2d(Math.PI),
+                        new Rotation2d(2.5),
+                        new Rotation2d(2.5));
+                break;
+            default:
+                throw new IllegalArgumentException(name);
+        }
+        m_splines = new ArrayList<>();
+        for (int i = 1; i < m_waypoints.size(); ++i) {
+            m_splines.add(new HolonomicSpline(
+                    m_waypoints.get(i - 1), m_waypoints.get(i),
+                    m_headings.get(i - 1), m_headings.get(i)));
+        }
+        HolonomicSpline.optimizeSpline(m_splines);
+    }
+
+    @Benchmark
+    public List<Pose2dWithMotion> iterative() {
+        return SplineGenerator.parameterizeSplines(m_splines, kMaxDx, kMaxDy, kMaxDTheta);
+    }
+
+    @Benchmark
+    public List<Pose2dWithMotion> recursive() {
+        return RecursiveSplineGenerator.parameterizeSplines(m_splines, kMaxDx, kMaxDy, kMaxDTheta);
+    }
+
+    @Benchmark
+    public Path100 path() {
+        return TrajectoryUtil100.trajectoryFromWaypointsAndHeadings(
+                m_waypoints, m_headings, kMaxDx, kMaxDy, kMaxDTheta);
+    }
+}
@@ -0,0 +1,59 @@
+package org.team100.lib.swerve;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamicsFactory;
+
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+
+/**
+ * One setpoint per op, chasing a goal that changes every so often, so the
+ * limiters have something to do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AsymSwerveSetpointGeneratorBenchmark {
+    private static final ChassisSpeeds[] kGoals = new ChassisSpeeds[] {
+            new ChassisSpeeds(3, 0, 0),
+            new ChassisSpeeds(0, 3, 1),
+            new ChassisSpeeds(-2, 1, -1),
+            new ChassisSpeeds(0, 0, 0) };
+
+    private AsymSwerveSetpointGenerator m_generator;
+    private SwerveSetpoint m_setpoint;
+    private int m_step;
+
+    @Setup
+    public void setup() {
+        LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
+        m_generator = new AsymSwerveSetpointGenerator(
+                logger, SwerveKinodynamicsFactory.forRealisticTest(), () -> 12);
+        m_setpoint = new SwerveSetpoint();
+    }
+
+    @Benchmark
+    public SwerveSetpoint generateSetpoint() {
+        // a new goal every second
+        ChassisSpeeds goal = kGoals[m_step / 50];
+        m_step = (m_step + 1) % (50 * kGoals.length);
+        m_setpoint = m_generator.generateSetpoint(m_setpoint, goal);
+        return m_setpoint;
+    }
+}
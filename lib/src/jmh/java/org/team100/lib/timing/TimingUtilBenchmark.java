@@ -0,0 +1,86 @@
+package org.team100.lib.timing;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.team100.lib.geometry.GeometryUtil;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamicsFactory;
+import org.team100.lib.path.Path100;
+import org.team100.lib.path.PathDistanceSampler;
+import org.team100.lib.trajectory.Trajectory100;
+import org.team100.lib.trajectory.TrajectoryUtil100;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * Time parameterization of an S-shaped path, by path length, in the calling
+ * thread, which is always serial, and in a pool like the one in
+ * TrajectoryPlanService, where the longer paths are parallel. The shorter paths
+ * are below the parallel threshold.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TimingUtilBenchmark {
+    private static final double kStep = 0.0127;
+
+    /** Path length in meters. */
+    @Param({ "1", "5", "15" })
+    public double length;
+
+    private Path100 m_path;
+    private TimingUtil m_timingUtil;
+    private ForkJoinPool m_pool;
+
+    @Setup
+    public void setup() {
+        List<Pose2d> waypoints = List.of(
+                new Pose2d(0, 0, GeometryUtil.kRotationZero),
+                new Pose2d(length / 3, 1, GeometryUtil.kRotationZero),
+                new Pose2d(2 * length / 3, 0, GeometryUtil.kRotationZero),
+                new Pose2d(length, 1, GeometryUtil.kRotationZero));
+        List<Rotation2d> headings = List.of(
+                GeometryUtil.kRotationZero,
+                GeometryUtil.fromDegrees(90),
+                GeometryUtil.kRotationZero,
+                GeometryUtil.fromDegrees(90));
+        m_path = TrajectoryUtil100.trajectoryFromWaypointsAndHeadings(
+                waypoints, headings, kStep, kStep, Math.toRadians(1.0));
+        m_timingUtil = new TimingUtil(
+                new TimingConstraintFactory(SwerveKinodynamicsFactory.forRealisticTest()).allGood());
+        m_pool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    @TearDown
+    public void tearDown() {
+        m_pool.shutdownNow();
+    }
+
+    @Benchmark
+    public Trajectory100 timeParameterize() {
+        return m_timingUtil.timeParameterizeTrajectory(
+                new PathDistanceSampler(m_path), kStep, 0, 0);
+    }
+
+    @Benchmark
+    public Trajectory100 timeParameterizeInPool() {
+        return m_pool.submit(this::timeParameterize).join();
+    }
+}
@@ -0,0 +1,68 @@
+package org.team100.lib.trajectory;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamicsFactory;
+import org.team100.lib.timing.TimingConstraintFactory;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * Sampling a long trajectory, either moving forward a cycle at a time, as the
+ * followers do, or jumping around.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TrajectoryTimeSamplerBenchmark {
+    private TrajectoryTimeSampler m_sampler;
+    private double m_duration;
+    private double m_time;
+    private int m_jump;
+
+    @Setup
+    public void setup() {
+        Trajectory100 trajectory = TrajectoryPlanner.restToRest(
+                List.of(
+                        new Pose2d(0, 0, new Rotation2d()),
+                        new Pose2d(4, 2, new Rotation2d()),
+                        new Pose2d(8, 0, new Rotation2d())),
+                List.of(new Rotation2d(), new Rotation2d(1), new Rotation2d()),
+                new TimingConstraintFactory(SwerveKinodynamicsFactory.forRealisticTest()).fast());
+        m_sampler = new TrajectoryTimeSampler(trajectory);
+        m_duration = trajectory.getTotalTimeSeconds();
+        m_time = 0;
+        m_jump = 0;
+    }
+
+    @Benchmark
+    public Optional<TrajectorySamplePoint> sampleAdvancing() {
+        m_time += 0.02;
+        if (m_time > m_duration)
+            m_time = 0;
+        return m_sampler.sample(m_time);
+    }
+
+    @Benchmark
+    public Optional<TrajectorySamplePoint> sampleJumping() {
+        // 37 steps of about 0.27 of the whole, so it goes back and forth.
+        m_jump = (m_jump + 1) % 37;
+        return m_sampler.sample(m_duration * ((m_jump * 10) % 37) / 37);
+    }
+}
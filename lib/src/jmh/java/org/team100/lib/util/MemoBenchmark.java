@@ -0,0 +1,109 @@
+package org.team100.lib.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The epoch caches compared with the synchronized caches they replaced: a cache
+ * hit, and one robot cycle (reset everything, then read everything once).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MemoBenchmark {
+
+    /** The old DoubleCache. */
+    static class SynchronizedDoubleCache implements DoubleSupplier {
+        private final DoubleSupplier m_delegate;
+        private double m_value;
+        private boolean m_valid;
+
+        SynchronizedDoubleCache(DoubleSupplier delegate) {
+            m_delegate = delegate;
+        }
+
+        @Override
+        public synchronized double getAsDouble() {
+            if (m_valid)
+                return m_value;
+            m_value = m_delegate.getAsDouble();
+            m_valid = true;
+            return m_value;
+        }
+
+        public synchronized void reset() {
+            m_valid = false;
+        }
+    }
+
+    /** Number of caches, a swerve drive has a few hundred. */
+    @Param({ "100", "1000" })
+    public int caches;
+
+    private final List<Runnable> m_resetters = new ArrayList<>();
+    private DoubleSupplier[] m_epoch;
+    private SynchronizedDoubleCache[] m_sync;
+    private double m_source;
+
+    @Setup
+    public void setup() {
+        m_epoch = new DoubleSupplier[caches];
+        m_sync = new SynchronizedDoubleCache[caches];
+        for (int i = 0; i < caches; ++i) {
+            m_epoch[i] = Memo.ofDouble(() -> m_source);
+            SynchronizedDoubleCache c = new SynchronizedDoubleCache(() -> m_source);
+            m_resetters.add(c::reset);
+            m_sync[i] = c;
+        }
+        m_source = 1;
+    }
+
+    @Benchmark
+    public double epochHit() {
+        return m_epoch[0].getAsDouble();
+    }
+
+    @Benchmark
+    public double synchronizedHit() {
+        return m_sync[0].getAsDouble();
+    }
+
+    @Benchmark
+    public double epochCycle() {
+        Memo.resetAll();
+        double total = 0;
+        for (DoubleSupplier c : m_epoch) {
+            total += c.getAsDouble();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double synchronizedCycle() {
+        for (Runnable r : m_resetters) {
+            r.run();
+        }
+        double total = 0;
+        for (DoubleSupplier c : m_sync) {
+            total += c.getAsDouble();
+        }
+        return total;
+    }
+}
@@ -1,6 +1,7 @@
 package org.team100.lib.commands.drivetrain;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.team100.lib.dashboard.Glassy;
 import org.team100.lib.follower.DriveTrajectoryFollower;
@@ -13,7 +14,7 @@ import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
 import org.team100.lib.timing.TimingConstraint;
 import org.team100.lib.timing.TimingConstraintFactory;
 import org.team100.lib.trajectory.Trajectory100;
-import org.team100.lib.trajectory.TrajectoryPlanner;
+import org.team100.lib.trajectory.TrajectoryPlanService;
 import org.team100.lib.trajectory.TrajectoryTimeIterator;
 import org.team100.lib.trajectory.TrajectoryTimeSampler;
 import org.team100.lib.util.DriveUtil;
@@ -30,8 +31,17 @@ import edu.wpi.first.wpilibj2.command.Command;
 /**
  * A copy of DriveToWaypoint to explore the new holonomic trajectory classes we
  * cribbed from 254.
+ * 
+ * The trajectory is planned in the background (see TrajectoryPlanService), and
+ * the robot stops while it waits. That makes the start velocity stale, so the
+ * plan is made again from the current state until the state stops changing,
+ * i.e. until the robot is at rest or the plan arrives quickly enough.
  */
 public class DriveToState101 extends Command implements Glassy {
+    /** Replan if the robot is this far from the start of the plan. */
+    private static final double kReplanToleranceM = 0.05;
+    private static final double kReplanToleranceM_S = 0.1;
+
     private final Pose2d m_goal;
     private final FieldRelativeVelocity m_endVelocity;
     private final SwerveDriveSubsystem m_swerve;
@@ -42,6 +52,14 @@ public class DriveToState101 extends Command implements Glassy {
     // LOGGERS
     private final ChassisSpeedsLogger m_log_chassis_speeds;
 
+    /** Planning in progress, null when done. */
+    private CompletableFuture<Trajectory100> m_pending;
+    /** Where the robot was when planning started. */
+    private Pose2d m_startPose;
+    private FieldRelativeVelocity m_startVelocity;
+    /** The planner produced nothing. */
+    private boolean m_failed;
+
     public DriveToState101(
             LoggerFactory parent,
             Pose2d goal,
@@ -63,42 +81,34 @@ public class DriveToState101 extends Command implements Glassy {
 
     @Override
     public void initialize() {
-        Translation2d toGoal = m_goal.getTranslation().minus(m_swerve.getState().pose().getTranslation());
-        Transform2d transform = new Transform2d(toGoal, toGoal.getAngle()).inverse();
-        Pose2d startPose = new Pose2d(m_swerve.getState().pose().getTranslation(), transform.getRotation());
-        FieldRelativeVelocity startVelocity = m_swerve.getState().velocity();
-        Pose2d startWaypoint = getStartWaypoint(startPose, startVelocity);
-        Pose2d endWaypoint = new Pose2d(m_goal.getTranslation(), new Rotation2d(1, -1));
-        List<Pose2d> waypointsM = List.of(
-                startWaypoint,
-                endWaypoint);
-        List<Rotation2d> headings = List.of(
-                m_swerve.getState().pose().getRotation(),
-                m_goal.getRotation());
-        Trajectory100 trajectory = TrajectoryPlanner.generateTrajectory(
-                waypointsM,
-                headings,
-                m_constraints,
-                Math.hypot(startVelocity.x(), startVelocity.y()),
-                Math.hypot(m_endVelocity.x(), m_endVelocity.y()));
-
-        if (trajectory.length() == 0) {
-            cancel();
-            return;
-        }
-
-        m_viz.setViz(trajectory);
-        TrajectoryTimeIterator iter = new TrajectoryTimeIterator(
-                new TrajectoryTimeSampler(trajectory));
-        m_controller.setTrajectory(iter);
+        m_failed = false;
+        plan();
     }
 
     @Override
     public void execute() {
+        if (m_pending != null) {
+            if (!m_pending.isDone()) {
+                m_swerve.stop();
+                return;
+            }
+            Trajectory100 trajectory = m_pending.join();
+            m_pending = null;
+            if (moved()) {
+                plan();
+                m_swerve.stop();
+                return;
+            }
+            startTrajectory(trajectory);
+        }
+        if (m_failed)
+            return;
         double now = Timer.getFPGATimestamp();
         Pose2d currentPose = m_swerve.getState().pose();
         ChassisSpeeds currentSpeed = m_swerve.getState().chassisSpeeds();
         ChassisSpeeds output = m_controller.update(now, currentPose, currentSpeed);
+        if (output == null)
+            return;
         m_log_chassis_speeds.log(() -> output);
         DriveUtil.checkSpeeds(output);
         m_swerve.setChassisSpeeds(output);
@@ -106,15 +116,74 @@ public class DriveToState101 extends Command implements Glassy {
 
     @Override
     public boolean isFinished() {
+        if (m_failed)
+            return true;
+        if (m_pending != null)
+            return false;
         return m_controller.isDone();
     }
 
     @Override
     public void end(boolean interrupted) {
+        if (m_pending != null) {
+            m_pending.cancel(false);
+            m_pending = null;
+        }
         m_swerve.stop();
         m_viz.clear();
     }
 
+    /** Blocks until the pending plan is done, for testing. */
+    void awaitPlan() {
+        if (m_pending != null)
+            m_pending.join();
+    }
+
+    ////////////////////////////////////////////////////
+
+    private void plan() {
+        m_startPose = m_swerve.getState().pose();
+        m_startVelocity = m_swerve.getState().velocity();
+        Translation2d toGoal = m_goal.getTranslation().minus(m_startPose.getTranslation());
+        Transform2d transform = new Transform2d(toGoal, toGoal.getAngle()).inverse();
+        Pose2d startPose = new Pose2d(m_startPose.getTranslation(), transform.getRotation());
+        Pose2d startWaypoint = getStartWaypoint(startPose, m_startVelocity);
+        Pose2d endWaypoint = new Pose2d(m_goal.getTranslation(), new Rotation2d(1, -1));
+        List<Pose2d> waypointsM = List.of(
+                startWaypoint,
+                endWaypoint);
+        List<Rotation2d> headings = List.of(
+                m_startPose.getRotation(),
+                m_goal.getRotation());
+        m_pending = TrajectoryPlanService.instance().generateTrajectory(
+                waypointsM,
+                headings,
+                m_constraints,
+                Math.hypot(m_startVelocity.x(), m_startVelocity.y()),
+                Math.hypot(m_endVelocity.x(), m_endVelocity.y()));
+    }
+
+    /** True if the robot is no longer where, or as fast as, the plan starts. */
+    private boolean moved() {
+        Pose2d pose = m_swerve.getState().pose();
+        FieldRelativeVelocity velocity = m_swerve.getState().velocity();
+        return pose.getTranslation().getDistance(m_startPose.getTranslation()) > kReplanToleranceM
+                || Math.hypot(
+                        velocity.x() - m_startVelocity.x(),
+                        velocity.y() - m_startVelocity.y()) > kReplanToleranceM_S;
+    }
+
+    private void startTrajectory(Trajectory100 trajectory) {
+        if (trajectory.length() == 0) {
+            m_failed = true;
+            return;
+        }
+        m_viz.setViz(trajectory);
+        TrajectoryTimeIterator iter = new TrajectoryTimeIterator(
+                new TrajectoryTimeSampler(trajectory));
+        m_controller.setTrajectory(iter);
+    }
+
     private Pose2d getStartWaypoint(Pose2d startPose, FieldRelativeVelocity startVelocity) {
         if (Math.abs(startVelocity.x()) < 0.01 && Math.abs(startVelocity.y()) < 0.01) {
             return startPose;
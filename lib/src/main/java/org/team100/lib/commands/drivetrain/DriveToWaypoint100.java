@@ -1,6 +1,7 @@
 package org.team100.lib.commands.drivetrain;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.team100.lib.dashboard.Glassy;
 import org.team100.lib.follower.DriveTrajectoryFollower;
@@ -12,7 +13,7 @@ import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
 import org.team100.lib.timing.TimingConstraint;
 import org.team100.lib.timing.TimingConstraintFactory;
 import org.team100.lib.trajectory.Trajectory100;
-import org.team100.lib.trajectory.TrajectoryPlanner;
+import org.team100.lib.trajectory.TrajectoryPlanService;
 import org.team100.lib.trajectory.TrajectoryTimeIterator;
 import org.team100.lib.trajectory.TrajectoryTimeSampler;
 import org.team100.lib.util.DriveUtil;
@@ -28,8 +29,17 @@ import edu.wpi.first.wpilibj2.command.Command;
 /**
  * A copy of DriveToWaypoint to explore the new holonomic trajectory classes we
  * cribbed from 254.
+ * 
+ * The trajectory is planned in the background (see TrajectoryPlanService), so
+ * the robot sits still for a cycle or two before it starts moving. If the robot
+ * was pushed while it waited, the trajectory is planned again from where it is
+ * now.
  */
 public class DriveToWaypoint100 extends Command implements Glassy {
+    /** Replan if the robot is this far from the start of the plan. */
+    private static final double kReplanToleranceM = 0.05;
+    private static final double kReplanToleranceRad = 0.05;
+
     private final Pose2d m_goal;
     private final SwerveDriveSubsystem m_swerve;
     private final DriveTrajectoryFollower m_controller;
@@ -43,6 +53,12 @@ public class DriveToWaypoint100 extends Command implements Glassy {
     private final ChassisSpeedsLogger m_log_chassis_speeds;
 
     private Trajectory100 m_trajectory = new Trajectory100();
+    /** Planning in progress, null when done. */
+    private CompletableFuture<Trajectory100> m_pending;
+    /** Where the robot was when planning started. */
+    private Pose2d m_start;
+    /** The planner produced nothing. */
+    private boolean m_failed;
 
     public DriveToWaypoint100(
             LoggerFactory parent,
@@ -65,33 +81,31 @@ public class DriveToWaypoint100 extends Command implements Glassy {
 
     @Override
     public void initialize() {
-        final Pose2d start = m_swerve.getState().pose();
-        Pose2d end = m_goal;
+        m_timer.stop();
         m_timer.reset();
-        m_timer.start();
-
-        List<Pose2d> waypointsM = getWaypoints(start, end);
-        List<Rotation2d> headings = List.of(start.getRotation(), end.getRotation());
-
-        m_trajectory = TrajectoryPlanner.restToRest(
-                waypointsM,
-                headings,
-                m_constraints);
-
-        m_viz.setViz(m_trajectory);
-
-        if (m_trajectory.isEmpty()) {
-            end(false);
-            return;
-        }
-        TrajectoryTimeIterator iter = new TrajectoryTimeIterator(
-                new TrajectoryTimeSampler(m_trajectory));
-
-        m_controller.setTrajectory(iter);
+        m_trajectory = new Trajectory100();
+        m_failed = false;
+        plan();
     }
 
     @Override
     public void execute() {
+        if (m_pending != null) {
+            if (!m_pending.isDone()) {
+                m_swerve.stop();
+                return;
+            }
+            Trajectory100 trajectory = m_pending.join();
+            m_pending = null;
+            if (moved()) {
+                plan();
+                m_swerve.stop();
+                return;
+            }
+            startTrajectory(trajectory);
+        }
+        if (m_failed)
+            return;
         double now = Timer.getFPGATimestamp();
         Pose2d currentPose = m_swerve.getState().pose();
         ChassisSpeeds currentSpeed = m_swerve.getState().chassisSpeeds();
@@ -107,18 +121,62 @@ public class DriveToWaypoint100 extends Command implements Glassy {
     @Override
     public boolean isFinished() {
         // return m_controller.isDone();
+        if (m_failed)
+            return true;
+        if (m_pending != null)
+            return false;
         return m_timer.get() > m_trajectory.getLastPoint().state().getTimeS() + m_timeBuffer;
     }
 
     @Override
     public void end(boolean interrupted) {
+        if (m_pending != null) {
+            m_pending.cancel(false);
+            m_pending = null;
+        }
         m_timer.stop();
         m_swerve.stop();
         m_viz.clear();
     }
 
+    /** Blocks until the pending plan is done, for testing. */
+    void awaitPlan() {
+        if (m_pending != null)
+            m_pending.join();
+    }
+
     ////////////////////////////////////////////////////
 
+    private void plan() {
+        m_start = m_swerve.getState().pose();
+        List<Pose2d> waypointsM = getWaypoints(m_start, m_goal);
+        List<Rotation2d> headings = List.of(m_start.getRotation(), m_goal.getRotation());
+        m_pending = TrajectoryPlanService.instance().restToRest(
+                waypointsM,
+                headings,
+                m_constraints);
+    }
+
+    /** True if the robot is no longer where the plan starts. */
+    private boolean moved() {
+        Pose2d now = m_swerve.getState().pose();
+        return now.getTranslation().getDistance(m_start.getTranslation()) > kReplanToleranceM
+                || Math.abs(now.getRotation().minus(m_start.getRotation()).getRadians()) > kReplanToleranceRad;
+    }
+
+    private void startTrajectory(Trajectory100 trajectory) {
+        m_trajectory = trajectory;
+        m_viz.setViz(m_trajectory);
+        if (m_trajectory.isEmpty()) {
+            m_failed = true;
+            return;
+        }
+        TrajectoryTimeIterator iter = new TrajectoryTimeIterator(
+                new TrajectoryTimeSampler(m_trajectory));
+        m_controller.setTrajectory(iter);
+        m_timer.start();
+    }
+
     /** Waypoints where the rotation points in the direction of motion. */
     private static List<Pose2d> getWaypoints(Pose2d p0, Pose2d p1) {
         Translation2d t0 = p0.getTranslation();
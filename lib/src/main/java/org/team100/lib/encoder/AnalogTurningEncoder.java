@@ -1,7 +1,6 @@
 package org.team100.lib.encoder;
 
 import java.util.OptionalDouble;
-import java.util.function.DoubleSupplier;
 
 import org.team100.lib.logging.Level;
 import org.team100.lib.logging.LoggerFactory;
@@ -17,8 +16,8 @@ import edu.wpi.first.wpilibj.RobotController;
 public class AnalogTurningEncoder extends RoboRioRotaryPositionSensor {
     private final AnalogInput m_input;
     // CACHES
-    private final DoubleSupplier m_voltage;
-    private final DoubleSupplier m_rail;
+    private final Memo.DoubleCache m_voltage;
+    private final Memo.DoubleCache m_rail;
     // LOGGERS
     private final DoubleLogger m_log_voltage;
     private final DoubleLogger m_log_ratio;
@@ -48,6 +47,12 @@ public class AnalogTurningEncoder extends RoboRioRotaryPositionSensor {
         return 1.0;
     }
 
+    @Override
+    public void resetCache() {
+        m_voltage.reset();
+        m_rail.reset();
+    }
+
     @Override
     public void close() {
         m_input.close();
@@ -10,7 +10,6 @@ import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.logging.LoggerFactory.DoubleLogger;
 import org.team100.lib.logging.LoggerFactory.OptionalDoubleLogger;
 import org.team100.lib.motion.mechanism.RotaryMechanism;
-import org.team100.lib.util.Memo;
 
 import edu.wpi.first.math.MathUtil;
 
@@ -74,13 +73,15 @@ public class CombinedEncoder implements RotaryPositionSensor {
      * Setting the encoder position is very slow, so just do it once.
      */
     void sync() {
-        Memo.resetAll();
         // Assume the mechanism is stationary at startup, average a few measurements to
         // remove a little bit of noise.
         double sin = 0;
         double cos = 0;
         final int N = 10;
         for (int i = 0; i < N; ++i) {
+            // this runs in the synchronizer thread, so reset only our own sensor,
+            // not all the caches (and the CAN refresh) that the main loop uses.
+            m_absolute.resetCache();
             double pos = m_absolute.getPositionRad().getAsDouble();
             cos += Math.cos(pos);
             sin += Math.sin(pos);
@@ -1,7 +1,6 @@
 package org.team100.lib.encoder;
 
 import java.util.OptionalDouble;
-import java.util.function.DoubleSupplier;
 
 import org.team100.lib.logging.Level;
 import org.team100.lib.logging.LoggerFactory;
@@ -22,7 +21,7 @@ public abstract class DutyCycleRotaryPositionSensor extends RoboRioRotaryPositio
     private final DigitalInput m_digitalInput;
     private final DutyCycle m_dutyCycle;
     // CACHES
-    private final DoubleSupplier m_duty;
+    private final Memo.DoubleCache m_duty;
     // LOGGERS
     private final DoubleLogger m_log_duty;
 
@@ -45,6 +44,11 @@ public abstract class DutyCycleRotaryPositionSensor extends RoboRioRotaryPositio
         child.intLogger(Level.TRACE, "channel").log(() -> channel);
     }
 
+    @Override
+    public void resetCache() {
+        m_duty.reset();
+    }
+
     @Override
     public void close() {
         m_dutyCycle.close();
@@ -33,6 +33,14 @@ public interface RotaryPositionSensor extends Glassy {
      */
     OptionalDouble getRateRad_S();
 
+    /**
+     * Forget any cached measurement, so the next read is fresh. This affects only
+     * this sensor, unlike Memo.resetAll(). The default does nothing, for sensors
+     * without a cache of their own.
+     */
+    default void resetCache() {
+    }
+
     /**
      * Releases the encoder resource, if necessary (e.g. HAL ports).
      */
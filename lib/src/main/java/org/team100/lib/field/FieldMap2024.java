@@ -13,6 +13,12 @@ import edu.wpi.first.math.geometry.Translation2d;
  */
 public class FieldMap2024 {
 
+    /** Length of the field, along x, from the blue wall to the red wall. */
+    public static final double fieldLengthM = 16.541;
+
+    /** Width of the field, along y. */
+    public static final double fieldWidthM = 8.211;
+
     /**
      * Each post is a 30 cm square.
      */
@@ -36,7 +42,7 @@ public class FieldMap2024 {
      */
     public static final Map<String, Pose2d> subwoofers = Map.ofEntries(
             entry("blue subwoofer", new Pose2d(0, 5.547, new Rotation2d(0))),
-            entry("red subwoofer", new Pose2d(16.541, 5.547, new Rotation2d(0))));
+            entry("red subwoofer", new Pose2d(fieldLengthM, 5.547, new Rotation2d(0))));
 
     public static final Map<Integer, Translation2d> notes = Map.ofEntries();
 
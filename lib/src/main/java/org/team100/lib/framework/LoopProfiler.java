@@ -0,0 +1,456 @@
+package org.team100.lib.framework;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import org.team100.lib.logging.Level;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.LoggerFactory.DoubleLogger;
+import org.team100.lib.logging.LoggerFactory.IntLogger;
+import org.team100.lib.logging.LoggerFactory.StringLogger;
+
+import edu.wpi.first.wpilibj2.command.Command;
+
+/**
+ * Hierarchical loop-timing profiler, so when the main loop overruns we can see
+ * which subsystem periodic(), command execute(), or logger flush ate the time.
+ *
+ * Make spans at startup, with span(), and then wrap the work with run(), e.g.
+ * m_span.run(this::doPeriodic) in a subsystem periodic(), which stops the span
+ * even if the work throws. Or start() and stop() it, with stop() in a finally
+ * block. Spans nest: the time of a span includes its
+ * children, and its "self" time doesn't. TimedRobot100 calls endLoop() once
+ * per loop, which logs the top few spans by self time, and, every kWindowLoops
+ * loops, the p50, p99, and max of every span. The "loop" span is the busy time of each loop, i.e.
+ * the total of the outermost spans.
+ *
+ * Every span is also written to a ring buffer of raw nanosecond start/stop
+ * times, for looking at the recent past with forEachRecent().
+ *
+ * Everything is preallocated, so start(), stop(), lap() and lapCommand()
+ * don't allocate. The one exception is the first lap of a command name, which
+ * makes its span at the end of the loop, outside the measured work. This is for
+ * the main loop thread only; it's not thread-safe.
+ */
+public class LoopProfiler {
+    /** How many offenders to log each loop. */
+    public static final int kTopN = 5;
+    /** Spans beyond this are lumped into the overflow span. */
+    private static final int kMaxSpans = 256;
+    /** New command names beyond this many in one loop wait for the next loop. */
+    private static final int kMaxNewCommands = 16;
+    /** Spans nested deeper than this are ignored. */
+    private static final int kMaxDepth = 16;
+    private static final int kRingSize = 1024;
+    /** Histogram bucket width, 50 us. */
+    private static final long kBucketNs = 50_000;
+    /** 20 ms of buckets; the last one also holds anything longer. */
+    private static final int kBuckets = 400;
+    /** Percentiles are over this many loops, about one second. */
+    private static final int kWindowLoops = 50;
+
+    private static final LoopProfiler instance = new LoopProfiler(System::nanoTime);
+
+    /** Visits one span in the ring. */
+    public interface SpanVisitor {
+        void accept(String name, int depth, long startNs, long durationNs);
+    }
+
+    /** A named, reusable span. Make these at startup. */
+    public final class Span {
+        private final int m_id;
+
+        private Span(int id) {
+            m_id = id;
+        }
+
+        public void start() {
+            LoopProfiler.this.start(m_id);
+        }
+
+        public void stop() {
+            LoopProfiler.this.stop(m_id);
+        }
+
+        /** Runs the work inside this span. */
+        public void run(Runnable work) {
+            start();
+            try {
+                work.run();
+            } finally {
+                stop();
+            }
+        }
+
+        /**
+         * Records this span from the last start() or stop() of any span until
+         * now, for work we can't wrap, e.g. the commands run by the scheduler.
+         */
+        public void lap() {
+            LoopProfiler.this.lap(m_id);
+        }
+
+        public String name() {
+            return m_names[m_id];
+        }
+    }
+
+    private final LongSupplier m_clock;
+
+    // per-span
+    private final Span[] m_spans;
+    private final String[] m_names;
+    private final long[] m_loopSelfNs;
+    private final int[][] m_histogram;
+    private final int[] m_count;
+    private final long[] m_maxNs;
+    private final DoubleLogger[] m_log_p50;
+    private final DoubleLogger[] m_log_p99;
+    private final DoubleLogger[] m_log_max;
+    private int m_spanCount;
+
+    // stack of open spans
+    private final int[] m_stackId;
+    private final long[] m_stackStartNs;
+    private final long[] m_stackChildNs;
+    private int m_depth;
+    /** Spans started while the stack was full, which stop() should ignore. */
+    private int m_overflow;
+    /** stop() calls that didn't match the innermost start(). */
+    private int m_mismatches;
+    private long m_markNs;
+
+    // ring of raw spans
+    private final int[] m_ringId;
+    private final int[] m_ringDepth;
+    private final long[] m_ringStartNs;
+    private final long[] m_ringDurationNs;
+    private long m_ringCount;
+
+    // loop
+    private final Span m_loop;
+    private final Span m_other;
+    private final int[] m_topId;
+    private final long[] m_topNs;
+    private final Span m_newCommand;
+    /** Spans by name, so asking again for a name returns the same span. */
+    private final Map<String, Span> m_byName;
+    /** Spans by command name, separate since commands can have any name. */
+    private final Map<String, Span> m_commands;
+    /** Command names that need spans, made in endLoop(). */
+    private final String[] m_newCommands;
+    private int m_newCommandCount;
+    /** Total of the outermost spans in this loop, i.e. not waiting. */
+    private long m_loopBusyNs;
+    private int m_windowLoops;
+
+    // loggers
+    private LoggerFactory m_logger;
+    private final StringLogger[] m_log_top_name;
+    private final DoubleLogger[] m_log_top_duration;
+    private IntLogger m_log_mismatches;
+
+    public LoopProfiler(LongSupplier clock) {
+        m_clock = clock;
+        m_spans = new Span[kMaxSpans];
+        m_names = new String[kMaxSpans];
+        m_loopSelfNs = new long[kMaxSpans];
+        m_histogram = new int[kMaxSpans][];
+        m_count = new int[kMaxSpans];
+        m_maxNs = new long[kMaxSpans];
+        m_log_p50 = new DoubleLogger[kMaxSpans];
+        m_log_p99 = new DoubleLogger[kMaxSpans];
+        m_log_max = new DoubleLogger[kMaxSpans];
+        m_stackId = new int[kMaxDepth];
+        m_stackStartNs = new long[kMaxDepth];
+        m_stackChildNs = new long[kMaxDepth];
+        m_ringId = new int[kRingSize];
+        m_ringDepth = new int[kRingSize];
+        m_ringStartNs = new long[kRingSize];
+        m_ringDurationNs = new long[kRingSize];
+        m_topId = new int[kTopN];
+        m_topNs = new long[kTopN];
+        m_byName = new HashMap<>();
+        m_commands = new HashMap<>();
+        m_newCommands = new String[kMaxNewCommands];
+        m_log_top_name = new StringLogger[kTopN];
+        m_log_top_duration = new DoubleLogger[kTopN];
+        m_loop = span("loop");
+        m_other = span("other");
+        m_newCommand = span("command/(new)");
+        m_markNs = m_clock.getAsLong();
+    }
+
+    public static LoopProfiler instance() {
+        return instance;
+    }
+
+    /**
+     * Log to this factory, including spans made earlier. TimedRobot100 does this
+     * for the singleton.
+     */
+    public void setLogger(LoggerFactory parent) {
+        m_logger = parent.child("LoopProfiler");
+        for (int i = 0; i < kTopN; ++i) {
+            m_log_top_name[i] = m_logger.stringLogger(Level.COMP, "top/" + i + "/name");
+            m_log_top_duration[i] = m_logger.doubleLogger(Level.COMP, "top/" + i + "/self (s)");
+        }
+        m_log_mismatches = m_logger.intLogger(Level.TRACE, "mismatches");
+        for (int i = 0; i < m_spanCount; ++i) {
+            makeLoggers(i);
+        }
+    }
+
+    /**
+     * Makes a span, or returns the existing span with the same name, e.g. for a
+     * second instance of a subsystem. Past kMaxSpans, this returns the "other"
+     * span.
+     */
+    public Span span(String name) {
+        Span existing = m_byName.get(name);
+        if (existing != null)
+            return existing;
+        if (m_spanCount >= kMaxSpans)
+            return m_other;
+        int id = m_spanCount++;
+        m_names[id] = name;
+        m_histogram[id] = new int[kBuckets];
+        m_spans[id] = new Span(id);
+        m_byName.put(name, m_spans[id]);
+        if (m_logger != null)
+            makeLoggers(id);
+        return m_spans[id];
+    }
+
+    /**
+     * Lap the span for this command; use it with
+     * CommandScheduler.onCommandExecute(), which runs right after each
+     * execute(). The first command's lap includes the scheduler's work since the
+     * last subsystem periodic(), e.g. polling buttons.
+     *
+     * Spans are keyed by command name, so commands made on the fly (e.g. by a
+     * button binding) share one span per name, rather than using up the spans.
+     * A name seen for the first time is lapped as "command/(new)" and gets its
+     * own span at the end of the loop.
+     */
+    public void lapCommand(Command command) {
+        String name = command.getName();
+        Span span = m_commands.get(name);
+        if (span == null) {
+            span = m_newCommand;
+            if (m_newCommandCount < kMaxNewCommands)
+                m_newCommands[m_newCommandCount++] = name;
+        }
+        span.lap();
+    }
+
+    /**
+     * Finishes the loop: logs the top few spans by self time, and sometimes the
+     * percentiles, and starts the next loop.
+     */
+    public void endLoop() {
+        if (m_depth > 0 || m_overflow > 0) {
+            // something didn't stop; don't let it spoil the next loop.
+            m_mismatches++;
+            m_depth = 0;
+            m_overflow = 0;
+        }
+        record(m_loop.m_id, m_loopBusyNs);
+        m_loopBusyNs = 0;
+        logTop();
+        if (m_log_mismatches != null)
+            m_log_mismatches.log(m_mismatches);
+        m_windowLoops++;
+        if (m_windowLoops >= kWindowLoops) {
+            logPercentiles();
+            m_windowLoops = 0;
+        }
+        makeCommandSpans();
+    }
+
+    /** Visits the spans in the ring, oldest first. */
+    public void forEachRecent(SpanVisitor visitor) {
+        long first = Math.max(0, m_ringCount - kRingSize);
+        for (long i = first; i < m_ringCount; ++i) {
+            int idx = (int) (i % kRingSize);
+            visitor.accept(
+                    m_names[m_ringId[idx]],
+                    m_ringDepth[idx],
+                    m_ringStartNs[idx],
+                    m_ringDurationNs[idx]);
+        }
+    }
+
+    /** Self time of the span in the current loop, for testing. */
+    long loopSelfNs(Span span) {
+        return m_loopSelfNs[span.m_id];
+    }
+
+    /** Quantile q of the span in the current window, for testing. */
+    long percentileNs(Span span, double q) {
+        return percentile(span.m_id, q);
+    }
+
+    /** Count of the span in the current window, for testing. */
+    int count(Span span) {
+        return m_count[span.m_id];
+    }
+
+    /** Max of the span in the current window, for testing. */
+    long maxNs(Span span) {
+        return m_maxNs[span.m_id];
+    }
+
+    /** Offender at rank i in the last loop, or null, for testing. */
+    String top(int i) {
+        if (m_topId[i] < 0)
+            return null;
+        return m_names[m_topId[i]];
+    }
+
+    ///////////////////////////////////////////////////////////////
+
+    private void start(int id) {
+        long now = m_clock.getAsLong();
+        m_markNs = now;
+        if (m_depth >= kMaxDepth) {
+            m_overflow++;
+            return;
+        }
+        m_stackId[m_depth] = id;
+        m_stackStartNs[m_depth] = now;
+        m_stackChildNs[m_depth] = 0;
+        m_depth++;
+    }
+
+    private void stop(int id) {
+        long now = m_clock.getAsLong();
+        m_markNs = now;
+        if (m_overflow > 0) {
+            m_overflow--;
+            return;
+        }
+        if (m_depth == 0) {
+            m_mismatches++;
+            return;
+        }
+        m_depth--;
+        if (m_stackId[m_depth] != id)
+            m_mismatches++;
+        close(m_stackId[m_depth], m_depth, m_stackStartNs[m_depth], now, m_stackChildNs[m_depth]);
+    }
+
+    private void lap(int id) {
+        long now = m_clock.getAsLong();
+        long startNs = m_markNs;
+        m_markNs = now;
+        if (m_depth >= kMaxDepth)
+            return;
+        close(id, m_depth, startNs, now, 0);
+    }
+
+    private void close(int id, int depth, long startNs, long endNs, long childNs) {
+        long durationNs = endNs - startNs;
+        if (depth > 0)
+            m_stackChildNs[depth - 1] += durationNs;
+        else
+            m_loopBusyNs += durationNs;
+        m_loopSelfNs[id] += durationNs - childNs;
+        record(id, durationNs);
+        int idx = (int) (m_ringCount % kRingSize);
+        m_ringId[idx] = id;
+        m_ringDepth[idx] = depth;
+        m_ringStartNs[idx] = startNs;
+        m_ringDurationNs[idx] = durationNs;
+        m_ringCount++;
+    }
+
+    private void record(int id, long durationNs) {
+        int bucket = (int) Math.min(kBuckets - 1, Math.max(0, durationNs / kBucketNs));
+        m_histogram[id][bucket]++;
+        m_count[id]++;
+        if (durationNs > m_maxNs[id])
+            m_maxNs[id] = durationNs;
+    }
+
+    /** Insertion into the small top-N arrays, then clears the loop totals. */
+    private void logTop() {
+        for (int i = 0; i < kTopN; ++i) {
+            m_topId[i] = -1;
+            m_topNs[i] = 0;
+        }
+        for (int id = 0; id < m_spanCount; ++id) {
+            long ns = m_loopSelfNs[id];
+            m_loopSelfNs[id] = 0;
+            if (ns <= m_topNs[kTopN - 1])
+                continue;
+            int i = kTopN - 1;
+            while (i > 0 && ns > m_topNs[i - 1]) {
+                m_topId[i] = m_topId[i - 1];
+                m_topNs[i] = m_topNs[i - 1];
+                i--;
+            }
+            m_topId[i] = id;
+            m_topNs[i] = ns;
+        }
+        if (m_logger == null)
+            return;
+        for (int i = 0; i < kTopN; ++i) {
+            m_log_top_name[i].log(m_topId[i] < 0 ? "" : m_names[m_topId[i]]);
+            m_log_top_duration[i].log(m_topNs[i] * 1e-9);
+        }
+    }
+
+    private void logPercentiles() {
+        for (int id = 0; id < m_spanCount; ++id) {
+            if (m_count[id] == 0)
+                continue;
+            if (m_logger != null) {
+                m_log_p50[id].log(percentile(id, 0.5) * 1e-9);
+                m_log_p99[id].log(percentile(id, 0.99) * 1e-9);
+                m_log_max[id].log(m_maxNs[id] * 1e-9);
+            }
+            int[] h = m_histogram[id];
+            for (int b = 0; b < kBuckets; ++b) {
+                h[b] = 0;
+            }
+            m_count[id] = 0;
+            m_maxNs[id] = 0;
+        }
+    }
+
+    /** Middle of the bucket containing the quantile, but never more than max. */
+    private long percentile(int id, double q) {
+        int count = m_count[id];
+        if (count == 0)
+            return 0;
+        long rank = (long) Math.ceil(q * count);
+        long cumulative = 0;
+        int[] h = m_histogram[id];
+        for (int b = 0; b < kBuckets; ++b) {
+            cumulative += h[b];
+            if (cumulative >= rank)
+                return Math.min(m_maxNs[id], b * kBucketNs + kBucketNs / 2);
+        }
+        return m_maxNs[id];
+    }
+
+    /** Spans for the commands first seen in this loop, after the measured work. */
+    private void makeCommandSpans() {
+        for (int i = 0; i < m_newCommandCount; ++i) {
+            String name = m_newCommands[i];
+            m_newCommands[i] = null;
+            if (!m_commands.containsKey(name))
+                m_commands.put(name, span("command/" + name));
+        }
+        m_newCommandCount = 0;
+    }
+
+    private void makeLoggers(int id) {
+        LoggerFactory child = m_logger.child(m_names[id]);
+        m_log_p50[id] = child.doubleLogger(Level.TRACE, "p50 (s)");
+        m_log_p99[id] = child.doubleLogger(Level.TRACE, "p99 (s)");
+        m_log_max[id] = child.doubleLogger(Level.TRACE, "max (s)");
+    }
+}
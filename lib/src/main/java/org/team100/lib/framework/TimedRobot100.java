@@ -27,6 +27,7 @@ public class TimedRobot100 extends IterativeRobotBase implements Glassy {
         public double period;
         public double expirationTime;
         public DoubleLogger logger;
+        public LoopProfiler.Span span;
 
         /**
          * Construct a callback container.
@@ -48,12 +49,18 @@ public class TimedRobot100 extends IterativeRobotBase implements Glassy {
                             * this.period
                     + this.period;
             this.logger = logger.doubleLogger(Level.COMP, "duration (s)/" + name);
+            this.span = LoopProfiler.instance().span(name);
         }
 
         public void run() {
 
             double startWaitingS = Timer.getFPGATimestamp();
-            func.run();
+            span.start();
+            try {
+                func.run();
+            } finally {
+                span.stop();
+            }
             double endWaitingS = Timer.getFPGATimestamp();
             double durationS = endWaitingS - startWaitingS;
             this.logger.log(() -> durationS);
@@ -104,6 +111,7 @@ public class TimedRobot100 extends IterativeRobotBase implements Glassy {
         super(LOOP_PERIOD_S);
         m_robotLogger = Logging.instance().rootLogger.child(this);
         m_log_slack = m_robotLogger.doubleLogger(Level.COMP, "slack time (s)");
+        LoopProfiler.instance().setLogger(m_robotLogger);
         m_startTime = Timer.getFPGATimestamp();
         addPeriodic(this::loopFunc, TimedRobot100.LOOP_PERIOD_S, "main loop");
         NotifierJNI.setNotifierName(m_notifier, "TimedRobot");
@@ -166,6 +174,9 @@ public class TimedRobot100 extends IterativeRobotBase implements Glassy {
                 callback.expirationTime += callback.period;
                 m_callbacks.add(callback);
             }
+
+            // attribute the time spent in this loop
+            LoopProfiler.instance().endLoop();
         }
     }
 
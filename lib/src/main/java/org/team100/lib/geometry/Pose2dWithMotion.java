@@ -86,6 +86,11 @@ public class Pose2dWithMotion {
         return m_pose;
     }
 
+    /** Per meter traveled; see the field comment. */
+    public Twist2d getFieldRelativeMotionDirection() {
+        return m_fieldRelativeMotionDirection;
+    }
+
     /** Radians per meter. */
     public double getCurvature() {
         return m_curvatureRad_M;
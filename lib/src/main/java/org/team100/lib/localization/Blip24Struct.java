@@ -27,6 +27,11 @@ public class Blip24Struct implements Struct<Blip24> {
         return "int id;Transform3d pose";
     }
 
+    @Override
+    public Struct<?>[] getNested() {
+        return new Struct<?>[] { Transform3d.struct };
+    }
+
     @Override
     public Blip24 unpack(ByteBuffer bb) {
         int id = bb.getInt();
@@ -33,6 +33,14 @@ class InterpolationRecord implements Interpolatable<InterpolationRecord> {
     // The current encoder readings.
     final SwerveModulePositions m_wheelPositions;
 
+    /**
+     * The robot-relative translation from the previous record, from the wheel
+     * positions alone, i.e. the forward kinematics result, so replay doesn't
+     * need to do the kinematics again.
+     */
+    final double m_odometryDx;
+    final double m_odometryDy;
+
     /**
      * Constructs an Interpolation Record with the specified parameters.
      *
@@ -40,18 +48,34 @@ class InterpolationRecord implements Interpolatable<InterpolationRecord> {
      *                       the previous pose.
      * @param gyro           The current gyro angle.
      * @param wheelPositions The current encoder readings. Makes a copy.
+     * @param odometryDx     Robot-relative x from the previous record
+     * @param odometryDy     Robot-relative y from the previous record
      */
     InterpolationRecord(
             SwerveDriveKinematics100 kinematics,
             SwerveState state,
             Rotation2d gyro,
             double gyroRateRad_S,
-            SwerveModulePositions wheelPositions) {
+            SwerveModulePositions wheelPositions,
+            double odometryDx,
+            double odometryDy) {
         m_kinematics = kinematics;
         m_state = state;
         m_gyroAngle = gyro;
         m_gyroRateRad_S = gyroRateRad_S;
         m_wheelPositions = new SwerveModulePositions(wheelPositions);
+        m_odometryDx = odometryDx;
+        m_odometryDy = odometryDy;
+    }
+
+    /** For records with no predecessor. */
+    InterpolationRecord(
+            SwerveDriveKinematics100 kinematics,
+            SwerveState state,
+            Rotation2d gyro,
+            double gyroRateRad_S,
+            SwerveModulePositions wheelPositions) {
+        this(kinematics, state, gyro, gyroRateRad_S, wheelPositions, 0, 0);
     }
 
     /**
@@ -91,13 +115,16 @@ class InterpolationRecord implements Interpolatable<InterpolationRecord> {
         // inputs.
         Twist2d twist = m_kinematics.toTwist2d(
                 DriveUtil.modulePositionDelta(m_wheelPositions, wheelLerp));
+        double odometryDx = twist.dx;
+        double odometryDy = twist.dy;
         twist.dtheta = gyroLerp.minus(m_gyroAngle).getRadians();
 
         SwerveState newState = new SwerveState(
                 m_state.pose().exp(twist),
                 m_state.velocity(),
                 m_state.acceleration());
-        return new InterpolationRecord(m_kinematics, newState, gyroLerp, gyroRateLerp, wheelLerp);
+        return new InterpolationRecord(
+                m_kinematics, newState, gyroLerp, gyroRateLerp, wheelLerp, odometryDx, odometryDy);
     }
 
     @Override
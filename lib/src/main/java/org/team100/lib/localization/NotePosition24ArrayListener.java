@@ -9,7 +9,6 @@ import java.util.function.Supplier;
 import org.team100.lib.config.Camera;
 import org.team100.lib.config.Identity;
 import org.team100.lib.config.SimulatedCamera;
-import org.team100.lib.util.NotePicker;
 import org.team100.lib.util.Util;
 
 import edu.wpi.first.math.geometry.Pose2d;
@@ -32,22 +31,41 @@ import edu.wpi.first.wpilibj.Timer;
  * Listen for updates from the note-detector camera and remember them for
  * awhile.
  * 
- * TODO: as described below, use a buffer here, don't just remember the very
- * last thing the camera saw. Also use multiple sights to get a better idea of
- * where the target is.
+ * Each sight is projected onto the floor using the robot pose at the time the
+ * camera saw it, and given to a NoteTracker, which clusters the sights from the
+ * last kHistoryS into note tracks, so the targets stay put while the robot
+ * moves, and an occasional missed frame doesn't lose the note.
  */
 public class NotePosition24ArrayListener {
-    /** Ignore sights older than this. */
-    private static final double kMaxSightAgeS = 0.1;
+    /** Forget sights older than this. */
+    private static final double kHistoryS = 0.5;
+    /** Sights closer than this are the same note. */
+    private static final double kClusterRadiusM = 0.3;
+    /** Ignore notes seen fewer times than this. */
+    private static final int kMinSightings = 2;
+    /** About 30 fps, a few notes per frame. */
+    private static final int kCapacity = 256;
     private StructBuffer<Rotation3d> m_buf = StructBuffer.create(Rotation3d.struct);
-    private List<Translation2d> notes = new ArrayList<>();
     private final Supplier<Pose2d> m_poseSupplier;
+    private final PoseEstimator100 m_poseEstimator;
     private final NetworkTableListenerPoller m_poller;
+    private final NoteTracker m_tracker;
+    /** Reused output of the tracker. */
+    private final double[] m_xy;
 
-    private double latestTime = 0;
+    private double m_lastSimTimeS = 0;
 
-    public NotePosition24ArrayListener(Supplier<Pose2d> poseSupplier) {
+    /**
+     * @param poseSupplier  current robot pose
+     * @param poseEstimator robot pose in the past, at the time of each sight
+     */
+    public NotePosition24ArrayListener(
+            Supplier<Pose2d> poseSupplier,
+            PoseEstimator100 poseEstimator) {
         m_poseSupplier = poseSupplier;
+        m_poseEstimator = poseEstimator;
+        m_tracker = new NoteTracker(kHistoryS, kClusterRadiusM, kMinSightings, kCapacity);
+        m_xy = new double[2 * kCapacity];
         NetworkTableInstance inst = NetworkTableInstance.getDefault();
         m_poller = new NetworkTableListenerPoller(inst);
         m_poller.addListener(
@@ -59,13 +77,17 @@ public class NotePosition24ArrayListener {
     }
 
     public void update() {
+        double nowS = Timer.getFPGATimestamp();
+        if (Identity.instance == Identity.BLANK) {
+            simulate(nowS);
+        }
         for (NetworkTableEvent e : m_poller.readQueue()) {
             ValueEventData ve = e.valueData;
             NetworkTableValue v = ve.value;
             String name = ve.getTopic().getName();
             String[] fields = name.split("/");
             if (fields.length != 3) {
-                return;
+                continue;
             }
             if (fields[2].equals("fps")) {
                 // FPS is not used by the robot
@@ -75,65 +97,80 @@ public class NotePosition24ArrayListener {
                 // decode the way StructArrayEntryImpl does
                 byte[] b = v.getRaw();
                 if (b.length == 0) {
-                    return;
+                    continue;
                 }
                 // NOTE! sights are x-ahead WPI coordinates, not z-ahead camera coordinates.
                 Rotation3d[] sights;
                 try {
                     synchronized (m_buf) {
                         sights = m_buf.readArray(b);
-                        latestTime = Timer.getFPGATimestamp();
                     }
                 } catch (RuntimeException ex) {
-                    return;
+                    continue;
                 }
                 Transform3d cameraInRobotCoordinates = Camera.get(fields[1]).getOffset();
-                // TODO: this should use the timestamp of the camera data, not the current time.
-                Pose2d robotPose = m_poseSupplier.get();
-                // TODO: this should accumulate sights, not replace the list every time.
-                notes = TargetLocalizer.cameraRotsToFieldRelativeArray(
-                        robotPose,
-                        cameraInRobotCoordinates,
-                        sights);
+                // the robot is the NT server, so server time is FPGA time.
+                double sightTimeS = v.getServerTime() / 1000000.0;
+                Pose2d robotPose = m_poseEstimator.get(sightTimeS).pose();
+                add(sightTimeS, robotPose, cameraInRobotCoordinates, sights);
             } else {
                 Util.warn("note weird vision update key: " + name);
             }
         }
+        m_tracker.expire(nowS);
     }
 
     /**
-     * Field-relative translations of recent sights.
+     * Field-relative translations of the current note tracks.
      */
     public List<Translation2d> getTranslation2dArray() {
         update();
-        Pose2d robotPose = m_poseSupplier.get();
-        switch (Identity.instance) {
-            case BLANK:
-                SimulatedCamera simCamera = SimulatedCamera.getGamePieceCamera();
-                Optional<Alliance> alliance = DriverStation.getAlliance();
-                if (alliance.isEmpty())
-                    return new ArrayList<>();
-                List<Rotation3d> rot = simCamera.getKnownLocations(alliance.get(), robotPose);
-                return TargetLocalizer.cameraRotsToFieldRelativeArray(
-                        robotPose,
-                        simCamera.getOffset(),
-                        rot.toArray(new Rotation3d[0]));
-            default:
-                if (latestTime > Timer.getFPGATimestamp() - kMaxSightAgeS) {
-                    return notes;
-                }
-                return new ArrayList<>();
+        int n = m_tracker.tracks(m_xy);
+        List<Translation2d> notes = new ArrayList<>(n);
+        for (int i = 0; i < n; ++i) {
+            notes.add(new Translation2d(m_xy[2 * i], m_xy[2 * i + 1]));
         }
+        return notes;
     }
 
     /**
-     * The field-relative translation of the closest note, if any.
+     * The field-relative translation of the closest note, if any. This sticks
+     * with the same note unless another one is clearly closer.
      */
     public Optional<Translation2d> getClosestTranslation2d() {
         update();
         Pose2d robotPose = m_poseSupplier.get();
-        return NotePicker.closestNote(
-                getTranslation2dArray(),
-                robotPose);
+        if (!m_tracker.closest(robotPose.getX(), robotPose.getY(), m_xy))
+            return Optional.empty();
+        return Optional.of(new Translation2d(m_xy[0], m_xy[1]));
+    }
+
+    private void add(
+            double sightTimeS,
+            Pose2d robotPose,
+            Transform3d cameraInRobotCoordinates,
+            Rotation3d[] sights) {
+        for (Rotation3d sight : sights) {
+            Optional<Translation2d> note = TargetLocalizer.cameraRotToFieldRelative(
+                    robotPose,
+                    cameraInRobotCoordinates,
+                    sight);
+            if (note.isPresent())
+                m_tracker.add(sightTimeS, note.get().getX(), note.get().getY());
+        }
+    }
+
+    /** In simulation, the camera sees all the known notes, once per cycle. */
+    private void simulate(double nowS) {
+        if (nowS <= m_lastSimTimeS)
+            return;
+        m_lastSimTimeS = nowS;
+        Optional<Alliance> alliance = DriverStation.getAlliance();
+        if (alliance.isEmpty())
+            return;
+        SimulatedCamera simCamera = SimulatedCamera.getGamePieceCamera();
+        Pose2d robotPose = m_poseSupplier.get();
+        List<Rotation3d> rot = simCamera.getKnownLocations(alliance.get(), robotPose);
+        add(nowS, robotPose, simCamera.getOffset(), rot.toArray(new Rotation3d[0]));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,355 @@
+package org.team100.lib.localization;
+
+import java.util.Arrays;
+
+import org.team100.lib.field.FieldMap2024;
+
+/**
+ * Remembers note sightings for awhile, and clusters them into tracks, so that a
+ * note seen many times, from different places, is one stable target.
+ *
+ * Sightings are kept in a ring, in the order they arrive, for historyS. Each
+ * sighting belongs to a track, and the track position is the mean of its
+ * sightings still in the ring: when a sighting expires it's subtracted from its
+ * track, and when a track has no sightings left, the track is gone.
+ *
+ * A new sighting joins the nearest track within the cluster radius, or starts a
+ * new one. The tracks are indexed by a grid of cells the size of the radius, so
+ * finding the nearest one only looks at the 3x3 cells around the sighting.
+ *
+ * closest() prefers the track it returned last time, unless another is closer
+ * by more than kSwitchMarginM, so the target doesn't flicker between two notes
+ * at about the same distance. It only considers tracks with at least
+ * minSightings sightings, to ignore one-off false positives. It uses the same
+ * grid, searching rings of cells outward from the query point until the next
+ * ring is farther than the best track so far, so the cost depends on how far
+ * away the nearest note is, not on how many tracks there are.
+ *
+ * Track ids are reused, so the previous target is only kept if it's still
+ * where it was, i.e. it's the same note.
+ *
+ * There can't be more tracks than sightings, so everything is allocated up
+ * front, and add() and the queries don't allocate. This isn't thread-safe.
+ */
+public class NoteTracker {
+    /** The grid covers the field with this margin around it. */
+    private static final double kMarginM = 1;
+    /** Keep the current target unless another is this much closer. */
+    private static final double kSwitchMarginM = 0.3;
+
+    private final double m_historyS;
+    private final double m_radiusM;
+    private final int m_minSightings;
+
+    // sightings ring, oldest at m_head
+    private final int m_capacity;
+    private final double[] m_time;
+    private final double[] m_x;
+    private final double[] m_y;
+    private final int[] m_sightingTrack;
+    private int m_head;
+    private int m_size;
+
+    // tracks, indexed by id
+    private final double[] m_sumX;
+    private final double[] m_sumY;
+    private final int[] m_count;
+    private final int[] m_cell;
+    /** Next track in the same cell, or -1. */
+    private final int[] m_next;
+    /** Ids of the live tracks, in no order, and each track's index in it. */
+    private final int[] m_live;
+    private final int[] m_liveIndex;
+    private int m_liveCount;
+    private final int[] m_free;
+    private int m_freeCount;
+    /** Number of tracks with at least minSightings. */
+    private int m_confirmed;
+    /** The track closest() returned last, or -1. */
+    private int m_target;
+    /** Where the target was when closest() returned it. */
+    private double m_targetX;
+    private double m_targetY;
+
+    // grid
+    private final int m_cols;
+    private final int m_rows;
+    /** First track in each cell, or -1. */
+    private final int[] m_cellHead;
+
+    /**
+     * @param historyS     forget sightings older than this
+     * @param radiusM      sightings closer than this to a track join it
+     * @param minSightings tracks with fewer sightings are ignored by the queries
+     * @param capacity     max sightings to remember
+     */
+    public NoteTracker(double historyS, double radiusM, int minSightings, int capacity) {
+        m_historyS = historyS;
+        m_radiusM = radiusM;
+        m_minSightings = minSightings;
+        m_capacity = capacity;
+        m_time = new double[capacity];
+        m_x = new double[capacity];
+        m_y = new double[capacity];
+        m_sightingTrack = new int[capacity];
+        m_sumX = new double[capacity];
+        m_sumY = new double[capacity];
+        m_count = new int[capacity];
+        m_cell = new int[capacity];
+        m_next = new int[capacity];
+        m_live = new int[capacity];
+        m_liveIndex = new int[capacity];
+        m_free = new int[capacity];
+        m_cols = (int) Math.ceil((FieldMap2024.fieldLengthM + 2 * kMarginM) / radiusM);
+        m_rows = (int) Math.ceil((FieldMap2024.fieldWidthM + 2 * kMarginM) / radiusM);
+        m_cellHead = new int[m_cols * m_rows];
+        clear();
+    }
+
+    /** Forget everything. */
+    public void clear() {
+        m_head = 0;
+        m_size = 0;
+        m_liveCount = 0;
+        m_freeCount = m_capacity;
+        for (int i = 0; i < m_capacity; ++i) {
+            // so the low ids are used first
+            m_free[i] = m_capacity - 1 - i;
+        }
+        Arrays.fill(m_cellHead, -1);
+        m_confirmed = 0;
+        m_target = -1;
+    }
+
+    /**
+     * Add a field-relative sighting. If the ring is full, the oldest sighting is
+     * forgotten to make room.
+     *
+     * @param timeS capture time
+     */
+    public void add(double timeS, double x, double y) {
+        expire(timeS);
+        if (m_size == m_capacity)
+            removeOldest();
+        int track = nearest(x, y);
+        if (track < 0) {
+            track = m_free[--m_freeCount];
+            m_sumX[track] = 0;
+            m_sumY[track] = 0;
+            m_count[track] = 0;
+            m_cell[track] = -1;
+            m_liveIndex[track] = m_liveCount;
+            m_live[m_liveCount++] = track;
+        }
+        int idx = (m_head + m_size) % m_capacity;
+        m_time[idx] = timeS;
+        m_x[idx] = x;
+        m_y[idx] = y;
+        m_sightingTrack[idx] = track;
+        m_size++;
+        m_sumX[track] += x;
+        m_sumY[track] += y;
+        m_count[track]++;
+        if (m_count[track] == m_minSightings)
+            m_confirmed++;
+        rebucket(track);
+    }
+
+    /** Forget sightings older than the history. */
+    public void expire(double nowS) {
+        double oldestS = nowS - m_historyS;
+        while (m_size > 0 && m_time[m_head] < oldestS)
+            removeOldest();
+    }
+
+    /** Number of sightings remembered. */
+    public int sightings() {
+        return m_size;
+    }
+
+    /** Number of tracks with at least minSightings. */
+    public int tracks() {
+        int n = 0;
+        for (int i = 0; i < m_liveCount; ++i) {
+            if (m_count[m_live[i]] >= m_minSightings)
+                n++;
+        }
+        return n;
+    }
+
+    /**
+     * Writes the x and y of each track with at least minSightings, interleaved,
+     * into xy, up to its length.
+     *
+     * @return the number of tracks written
+     */
+    public int tracks(double[] xy) {
+        int n = 0;
+        for (int i = 0; i < m_liveCount && 2 * n + 1 < xy.length; ++i) {
+            int track = m_live[i];
+            if (m_count[track] < m_minSightings)
+                continue;
+            xy[2 * n] = m_sumX[track] / m_count[track];
+            xy[2 * n + 1] = m_sumY[track] / m_count[track];
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * The track closest to the given point, sticking with the previous choice
+     * unless another is clearly closer.
+     *
+     * @param out the x and y of the closest track
+     * @return false if there are no tracks, and out is unchanged
+     */
+    public boolean closest(double x, double y, double[] out) {
+        if (m_confirmed == 0) {
+            m_target = -1;
+            return false;
+        }
+        int best = nearestConfirmed(x, y);
+        if (m_target >= 0
+                && m_target != best
+                && m_count[m_target] >= m_minSightings
+                && distance2(m_target, m_targetX, m_targetY) < m_radiusM * m_radiusM) {
+            double targetD = Math.sqrt(distance2(m_target, x, y));
+            if (targetD - Math.sqrt(distance2(best, x, y)) < kSwitchMarginM)
+                best = m_target;
+        }
+        m_target = best;
+        m_targetX = m_sumX[best] / m_count[best];
+        m_targetY = m_sumY[best] / m_count[best];
+        out[0] = m_targetX;
+        out[1] = m_targetY;
+        return true;
+    }
+
+    ////////////////////////////////////////////////////////////
+
+    private double distance2(int track, double x, double y) {
+        double dx = m_sumX[track] / m_count[track] - x;
+        double dy = m_sumY[track] / m_count[track] - y;
+        return dx * dx + dy * dy;
+    }
+
+    /** The nearest track within the radius, or -1. */
+    private int nearest(double x, double y) {
+        int col = col(x);
+        int row = row(y);
+        int best = -1;
+        double bestD2 = m_radiusM * m_radiusM;
+        for (int r = Math.max(0, row - 1); r <= Math.min(m_rows - 1, row + 1); ++r) {
+            for (int c = Math.max(0, col - 1); c <= Math.min(m_cols - 1, col + 1); ++c) {
+                for (int track = m_cellHead[r * m_cols + c]; track >= 0; track = m_next[track]) {
+                    double d2 = distance2(track, x, y);
+                    if (d2 < bestD2) {
+                        best = track;
+                        bestD2 = d2;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The nearest track with at least minSightings, searching the cells in rings
+     * around the point. There must be at least one such track.
+     */
+    private int nearestConfirmed(double x, double y) {
+        int col = col(x);
+        int row = row(y);
+        int rings = Math.max(
+                Math.max(col, m_cols - 1 - col),
+                Math.max(row, m_rows - 1 - row));
+        int best = -1;
+        double bestD2 = Double.MAX_VALUE;
+        for (int ring = 0; ring <= rings; ++ring) {
+            // every track in this ring is at least this far away.
+            double minD = Math.max(0, ring - 1) * m_radiusM;
+            if (best >= 0 && minD * minD > bestD2)
+                break;
+            for (int r = Math.max(0, row - ring); r <= Math.min(m_rows - 1, row + ring); ++r) {
+                // the top and bottom rows of the ring are whole, the others
+                // are just the two ends.
+                int step = (r == row - ring || r == row + ring) ? 1 : 2 * ring;
+                for (int c = col - ring; c <= col + ring; c += step) {
+                    if (c < 0 || c >= m_cols)
+                        continue;
+                    for (int track = m_cellHead[r * m_cols + c]; track >= 0; track = m_next[track]) {
+                        if (m_count[track] < m_minSightings)
+                            continue;
+                        double d2 = distance2(track, x, y);
+                        if (d2 < bestD2) {
+                            best = track;
+                            bestD2 = d2;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private void removeOldest() {
+        int track = m_sightingTrack[m_head];
+        m_sumX[track] -= m_x[m_head];
+        m_sumY[track] -= m_y[m_head];
+        m_count[track]--;
+        if (m_count[track] == m_minSightings - 1)
+            m_confirmed--;
+        m_head = (m_head + 1) % m_capacity;
+        m_size--;
+        if (m_count[track] > 0) {
+            rebucket(track);
+            return;
+        }
+        unlink(track);
+        // swap-remove from the live list
+        int i = m_liveIndex[track];
+        int last = m_live[--m_liveCount];
+        m_live[i] = last;
+        m_liveIndex[last] = i;
+        m_free[m_freeCount++] = track;
+        if (m_target == track)
+            m_target = -1;
+    }
+
+    /** Move the track to the cell of its mean, if it's changed. */
+    private void rebucket(int track) {
+        int cell = row(m_sumY[track] / m_count[track]) * m_cols
+                + col(m_sumX[track] / m_count[track]);
+        if (cell == m_cell[track])
+            return;
+        unlink(track);
+        m_cell[track] = cell;
+        m_next[track] = m_cellHead[cell];
+        m_cellHead[cell] = track;
+    }
+
+    private void unlink(int track) {
+        int cell = m_cell[track];
+        if (cell < 0)
+            return;
+        if (m_cellHead[cell] == track) {
+            m_cellHead[cell] = m_next[track];
+        } else {
+            int t = m_cellHead[cell];
+            while (m_next[t] != track)
+                t = m_next[t];
+            m_next[t] = m_next[track];
+        }
+        m_cell[track] = -1;
+    }
+
+    private int col(double x) {
+        int c = (int) Math.floor((x + kMarginM) / m_radiusM);
+        return Math.max(0, Math.min(m_cols - 1, c));
+    }
+
+    private int row(double y) {
+        int r = (int) Math.floor((y + kMarginM) / m_radiusM);
+        return Math.max(0, Math.min(m_rows - 1, r));
+    }
+}
@@ -0,0 +1,19 @@
+package org.team100.lib.localization;
+
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModulePositions;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * Gyro and wheel measurements taken together.
+ * 
+ * The timestamp is when the measurements were valid, not when they were read,
+ * so if the sensors report latency (e.g. the CAN frame timestamp), the sampler
+ * should use that.
+ */
+public record OdometrySample(
+        double timestampS,
+        Rotation2d gyroAngle,
+        double gyroRateRad_S,
+        SwerveModulePositions positions) {
+}
@@ -0,0 +1,132 @@
+package org.team100.lib.localization;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.team100.lib.util.Util;
+
+/**
+ * Samples odometry faster than the main loop.
+ * 
+ * Integrating wheel deltas once per 20 ms loop is inaccurate when the wheels
+ * are turning quickly, since each delta is a straight line along the final
+ * wheel angle. So this samples the gyro and wheels at a higher rate, in its
+ * own thread, and the main loop puts all the samples into the pose estimator
+ * at the start of each cycle.
+ * 
+ * The samples go through a lock-free queue, so the sampler never waits for
+ * the main loop. The pose estimator itself is only touched by the main loop.
+ * 
+ * The sampler runs in this thread, so it must not read through the Memo
+ * caches, which are only reset in the main loop; it should read the signals
+ * directly, and timestamp them with the measurement time. See
+ * SwerveOdometrySampler.
+ */
+public class OdometryThread implements AutoCloseable {
+    /** If the main loop stalls, drop the oldest samples beyond this. */
+    private static final int kMaxQueued = 100;
+
+    private final Supplier<OdometrySample> m_sampler;
+    private final double m_periodS;
+    private final Queue<OdometrySample> m_queue;
+    /** ConcurrentLinkedQueue.size() is O(n), so count separately. */
+    private final AtomicInteger m_queued;
+    private ScheduledExecutorService m_executor;
+    /** Time of the last sample put into the estimator. Main loop only. */
+    private double m_lastS;
+
+    /**
+     * @param sampler reads the sensors, called in the odometry thread.
+     * @param periodS sample period, e.g. 0.004 for 250 Hz.
+     */
+    public OdometryThread(Supplier<OdometrySample> sampler, double periodS) {
+        m_sampler = sampler;
+        m_periodS = periodS;
+        m_queue = new ConcurrentLinkedQueue<>();
+        m_queued = new AtomicInteger();
+        m_lastS = Double.NEGATIVE_INFINITY;
+    }
+
+    public synchronized void start() {
+        if (m_executor != null)
+            return;
+        m_executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Odometry");
+            // above the main loop
+            t.setPriority(Thread.MAX_PRIORITY);
+            t.setDaemon(true);
+            return t;
+        });
+        long periodUs = (long) (m_periodS * 1e6);
+        m_executor.scheduleAtFixedRate(this::sample, 0, periodUs, TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * Put all the queued samples into the estimator, oldest first. Call this from
+     * the main loop, before reading the estimator.
+     * 
+     * @return the number of samples used
+     */
+    public int drainTo(SwerveDrivePoseEstimator100 estimator) {
+        int count = 0;
+        OdometrySample sample;
+        while ((sample = m_queue.poll()) != null) {
+            m_queued.decrementAndGet();
+            if (sample.timestampS() <= m_lastS) {
+                // older than a reset, or a duplicate
+                continue;
+            }
+            estimator.put(
+                    sample.timestampS(),
+                    sample.gyroAngle(),
+                    sample.gyroRateRad_S(),
+                    sample.positions());
+            m_lastS = sample.timestampS();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Forget the queued samples. Call this from the main loop when resetting the
+     * estimator; samples older than timeS will be ignored.
+     * 
+     * The sampler may be adding samples at the same time, so this removes them
+     * one at a time, keeping the count in step with the queue; clearing both
+     * could lose a concurrent increment. Samples added after the drain are
+     * filtered by time in drainTo().
+     */
+    public void reset(double timeS) {
+        m_lastS = timeS;
+        while (m_queue.poll() != null) {
+            m_queued.decrementAndGet();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (m_executor != null) {
+            m_executor.shutdownNow();
+            m_executor = null;
+        }
+    }
+
+    /** Read the sensors. Runs in the odometry thread, or in tests. */
+    void sample() {
+        try {
+            m_queue.offer(m_sampler.get());
+            if (m_queued.incrementAndGet() > kMaxQueued) {
+                if (m_queue.poll() != null)
+                    m_queued.decrementAndGet();
+            }
+        } catch (RuntimeException e) {
+            // an exception here would cancel the schedule
+            Util.warn("Odometry sample failed: " + e.getMessage());
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.team100.lib.localization;
 
+import org.team100.lib.config.Camera;
 import org.team100.lib.dashboard.Glassy;
 import org.team100.lib.geometry.GeometryUtil;
 import org.team100.lib.logging.Level;
@@ -14,6 +15,7 @@ import edu.wpi.first.math.geometry.Transform2d;
 import edu.wpi.first.math.geometry.Transform3d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
 
 /**
  * Static methods used to interpret camera input.
@@ -153,6 +155,49 @@ public class PoseEstimationHelper implements Glassy {
                 cameraInRobotCoords);
     }
 
+    /**
+     * Calculate robot translation, trusting the gyro, like the method above, but
+     * using the precomputed tables, and without allocating anything.
+     *
+     * With the camera rotation in field coords synthesized from the gyro, the tag
+     * rotation cancels out, and what's left is
+     *
+     * robot = tag - gyro * (camera rotation * blip + camera translation)
+     *
+     * The gyro only produces yaw, so only the top two rows of the camera rotation
+     * matter.
+     *
+     * @param yawRad robot yaw from the gyro
+     * @param out    robot x and y in field coords
+     * @return false if the tag isn't in the layout, and out is unchanged
+     */
+    public boolean getRobotTranslationInFieldCoords(
+            TagTransformCache cache,
+            Camera camera,
+            Alliance alliance,
+            Blip24 blip,
+            double yawRad,
+            double[] out) {
+        int id = blip.getId();
+        if (!cache.has(alliance, id))
+            return false;
+        m_log_rotation_source.log("GYRO");
+        Transform3d b = blip.getPose();
+        // z-forward to x-forward
+        double tx = b.getZ();
+        double ty = -b.getX();
+        double tz = -b.getY();
+        double[] c = cache.camera(camera);
+        double vx = c[0] * tx + c[1] * ty + c[2] * tz + c[6];
+        double vy = c[3] * tx + c[4] * ty + c[5] * tz + c[7];
+        double cos = Math.cos(yawRad);
+        double sin = Math.sin(yawRad);
+        double[] tags = cache.tags(alliance);
+        out[0] = tags[3 * id] - (cos * vx - sin * vy);
+        out[1] = tags[3 * id + 1] - (sin * vx + cos * vy);
+        return true;
+    }
+
     //////////////////////////////
     //
     // package private below, don't use these.
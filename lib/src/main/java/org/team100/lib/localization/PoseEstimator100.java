@@ -1,5 +1,7 @@
 package org.team100.lib.localization;
 
+import java.util.List;
+
 import org.team100.lib.motion.drivetrain.SwerveState;
 
 import edu.wpi.first.math.geometry.Pose2d;
@@ -13,6 +15,15 @@ public interface PoseEstimator100 {
             double[] stateSigma,
             double[] visionSigma);
 
+    /**
+     * Put a batch of measurements, sorted oldest first. Implementations can use
+     * this to replay the history once for the whole batch.
+     */
+    default void put(List<VisionMeasurement> measurements) {
+        for (VisionMeasurement m : measurements) {
+            put(m.timestampS(), m.pose(), m.stateSigma(), m.visionSigma());
+        }
+    }
 
     SwerveState get(double timestampS);
 }
@@ -27,6 +27,11 @@ public class SwerveDrivePoseEstimator100 implements PoseEstimator100, Glassy {
     private static final double kBufferDuration = 1.5;
     // look back a little to get a pose for velocity estimation
     private static final double velocityDtS = 0.02;
+    /**
+     * When replaying odometry after a vision update, reuse the stored wheel
+     * twists instead of doing the forward kinematics again.
+     */
+    private static final boolean INCREMENTAL_REPLAY = true;
 
     private final SwerveKinodynamics m_kinodynamics;
     private final TimeInterpolatableBuffer100<InterpolationRecord> m_poseBuffer;
@@ -39,6 +44,8 @@ public class SwerveDrivePoseEstimator100 implements PoseEstimator100, Glassy {
      */
     private Rotation2d m_gyroOffset;
 
+    private boolean m_incrementalReplay = INCREMENTAL_REPLAY;
+
     /**
      * @param kinodynamics      A correctly-configured kinodynamics object
      *                          for your drivetrain.
@@ -120,6 +127,45 @@ public class SwerveDrivePoseEstimator100 implements PoseEstimator100, Glassy {
             Pose2d measurement,
             double[] stateSigma,
             double[] visionSigma) {
+        if (correct(timestampS, measurement, stateSigma, visionSigma))
+            replay(timestampS, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Put a batch of measurements, sorted oldest first. Each correction replays
+     * only up to the next one, so the tail is replayed once for the whole batch.
+     * The result is the same as putting them one at a time.
+     * 
+     * The replay goes through the first entry at or after the next measurement,
+     * since the next correction interpolates between that entry and the one
+     * before it, and both need to reflect the previous corrections.
+     */
+    @Override
+    public void put(List<VisionMeasurement> measurements) {
+        // time of the latest correction not yet replayed
+        double pendingS = Double.NaN;
+        for (VisionMeasurement m : measurements) {
+            if (!Double.isNaN(pendingS)) {
+                Entry<Double, InterpolationRecord> ceiling = m_poseBuffer.ceilingEntry(m.timestampS());
+                replay(pendingS, ceiling == null ? Double.POSITIVE_INFINITY : ceiling.getKey());
+            }
+            if (correct(m.timestampS(), m.pose(), m.stateSigma(), m.visionSigma()))
+                pendingS = m.timestampS();
+        }
+        if (!Double.isNaN(pendingS))
+            replay(pendingS, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Steps 0-6 of the vision update: adjust the state at the measurement time.
+     * 
+     * @return false if the measurement was too old to use.
+     */
+    private boolean correct(
+            double timestampS,
+            Pose2d measurement,
+            double[] stateSigma,
+            double[] visionSigma) {
 
         // discount the vision update by this factor.
         final double[] k = new double[] {
@@ -131,7 +177,7 @@ public class SwerveDrivePoseEstimator100 implements PoseEstimator100, Glassy {
         // timespan, skip.
 
         if (m_poseBuffer.tooOld(timestampS)) {
-            return;
+            return false;
         }
 
         // Step 1: Get the pose odometry measured at the moment the vision measurement
@@ -174,19 +220,36 @@ public class SwerveDrivePoseEstimator100 implements PoseEstimator100, Glassy {
                         new SwerveState(newPose, sample.m_state.velocity(), sample.m_state.acceleration()),
                         sample.m_gyroAngle,
                         sample.m_gyroRateRad_S,
-                        sample.m_wheelPositions));
-        // Step 7: Replay odometry inputs between sample time and latest recorded sample
-        // to update the pose buffer and correct odometry.
+                        sample.m_wheelPositions,
+                        sample.m_odometryDx,
+                        sample.m_odometryDy));
+        return true;
+    }
+
+    /**
+     * Step 7: Replay odometry inputs after the correction at fromS, through toS
+     * inclusive, to update the pose buffer and correct odometry.
+     * 
+     * In incremental mode, only the first entry needs the kinematics, since its
+     * predecessor is the entry we just put; the rest have the same predecessors
+     * as when they were recorded, so their stored twists are still right.
+     */
+    private void replay(double fromS, double toS) {
         // note exclusive tailmap, don't need to reprocess the entry we just put there.
-        for (Map.Entry<Double, InterpolationRecord> entry : m_poseBuffer.tailMap(timestampS, false).entrySet()) {
+        boolean first = true;
+        for (Map.Entry<Double, InterpolationRecord> entry : m_poseBuffer.tailMap(fromS, false).entrySet()) {
             double entryTimestampS = entry.getKey();
+            if (entryTimestampS > toS)
+                break;
             InterpolationRecord value = entry.getValue();
 
             Rotation2d entryGyroAngle = value.m_gyroAngle;
             double entryGyroRate = value.m_gyroRateRad_S;
             SwerveModulePositions wheelPositions = value.m_wheelPositions;
 
-            put(entryTimestampS, entryGyroAngle, entryGyroRate, wheelPositions);
+            integrate(entryTimestampS, entryGyroAngle, entryGyroRate, wheelPositions,
+                    m_incrementalReplay && !first ? value : null);
+            first = false;
         }
 
     }
@@ -204,6 +267,24 @@ public class SwerveDrivePoseEstimator100 implements PoseEstimator100, Glassy {
             Rotation2d gyroAngle,
             double gyroRateRad_S,
             SwerveModulePositions wheelPositions) {
+        integrate(currentTimeS, gyroAngle, gyroRateRad_S, wheelPositions, null);
+    }
+
+    /** For testing: compare with full replay. */
+    void setIncrementalReplay(boolean incrementalReplay) {
+        m_incrementalReplay = incrementalReplay;
+    }
+
+    /**
+     * @param replayed if not null, use the odometry twist stored in this record,
+     *                 instead of computing it from the wheel positions.
+     */
+    private void integrate(
+            double currentTimeS,
+            Rotation2d gyroAngle,
+            double gyroRateRad_S,
+            SwerveModulePositions wheelPositions,
+            InterpolationRecord replayed) {
 
         // the extra little bit here is to make sure we catch the most recent entry even
         // though the clock jitters a little.
@@ -226,11 +307,17 @@ public class SwerveDrivePoseEstimator100 implements PoseEstimator100, Glassy {
         InterpolationRecord value = lowerEntry.getValue();
         SwerveState previousState = value.m_state;
 
-        SwerveModuleDeltas modulePositionDelta = DriveUtil.modulePositionDelta(
-                value.m_wheelPositions,
-                wheelPositions);
-
-        Twist2d twist = m_kinodynamics.getKinematics().toTwist2d(modulePositionDelta);
+        Twist2d twist;
+        if (replayed != null) {
+            twist = new Twist2d(replayed.m_odometryDx, replayed.m_odometryDy, 0);
+        } else {
+            SwerveModuleDeltas modulePositionDelta = DriveUtil.modulePositionDelta(
+                    value.m_wheelPositions,
+                    wheelPositions);
+            twist = m_kinodynamics.getKinematics().toTwist2d(modulePositionDelta);
+        }
+        double odometryDx = twist.dx;
+        double odometryDy = twist.dy;
 
         // replace the twist dtheta with one derived from the current pose
         // pose angle based on the gyro (which is more accurate)
@@ -283,7 +370,8 @@ public class SwerveDrivePoseEstimator100 implements PoseEstimator100, Glassy {
         m_poseBuffer.put(
                 currentTimeS,
                 new InterpolationRecord(
-                    m_kinodynamics.getKinematics(), swerveState, gyroAngle, gyroRateRad_S, wheelPositions));
+                        m_kinodynamics.getKinematics(), swerveState, gyroAngle, gyroRateRad_S, wheelPositions,
+                        odometryDx, odometryDy));
     }
 
     ///////////////////////////////////////
@@ -0,0 +1,49 @@
+package org.team100.lib.localization;
+
+import java.util.function.Supplier;
+
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModulePositions;
+import org.team100.lib.motion.drivetrain.module.SwerveModuleCollection;
+import org.team100.lib.sensors.Gyro;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Reads the gyro and the wheels for the OdometryThread.
+ * 
+ * The modules refresh their own copies of the position and velocity signals,
+ * separate from the PhoenixSignals batch that the main loop refreshes, and
+ * extrapolate them to the moment of the refresh, so the sample is stamped with
+ * that moment.
+ * 
+ * The gyro is read through its sample methods, which skip the main-loop caches
+ * and the loggers, neither of which belong to this thread.
+ */
+public class SwerveOdometrySampler implements Supplier<OdometrySample> {
+    /**
+     * Sample rate. The drive and steering motors are on the RoboRIO CAN bus, and
+     * each signal is a frame, so 8 motors * 2 signals * 100 Hz is 1600 frames/s,
+     * which leaves room for everything else. A CANivore could go faster.
+     */
+    public static final double kFrequencyHz = 100;
+
+    private final Gyro m_gyro;
+    private final SwerveModuleCollection m_modules;
+
+    public SwerveOdometrySampler(Gyro gyro, SwerveModuleCollection modules) {
+        m_gyro = gyro;
+        m_modules = modules;
+    }
+
+    /** Called in the odometry thread, or in tests. */
+    @Override
+    public OdometrySample get() {
+        SwerveModulePositions positions = m_modules.samplePositions();
+        double timestampS = Timer.getFPGATimestamp();
+        return new OdometrySample(
+                timestampS,
+                m_gyro.sampleYawNWU(),
+                m_gyro.sampleYawRateNWU(),
+                positions);
+    }
+}
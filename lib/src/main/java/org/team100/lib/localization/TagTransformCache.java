@@ -0,0 +1,90 @@
+package org.team100.lib.localization;
+
+import java.util.Optional;
+
+import org.team100.lib.config.Camera;
+
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Quaternion;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+
+/**
+ * The fixed parts of the blip-to-robot-pose calculation, as primitive arrays,
+ * computed once at startup, so that the per-blip part is a few multiplies, with
+ * no lookups in the layout and no allocation.
+ *
+ * For each camera, this keeps the top two rows of the camera-in-robot rotation
+ * matrix, and the camera-in-robot translation. For each alliance and tag id,
+ * this keeps the tag translation in field coordinates. The tag rotation isn't
+ * needed: see PoseEstimationHelper.getRobotTranslationInFieldCoords().
+ */
+public class TagTransformCache {
+    /** Tag ids go up to 102 in the practice layout. */
+    private static final int kMaxId = 128;
+    private static final int kCameraDoubles = 8;
+
+    /** By camera ordinal: r00, r01, r02, r10, r11, r12, x, y. */
+    private final double[][] m_cameras;
+    /** By alliance ordinal, then 3 * id: x, y, z, in field coords. */
+    private final double[][] m_tags;
+    /** By alliance ordinal, then id. */
+    private final boolean[][] m_present;
+
+    public TagTransformCache(AprilTagFieldLayoutWithCorrectOrientation layout) {
+        Camera[] cameras = Camera.values();
+        m_cameras = new double[cameras.length][];
+        for (Camera camera : cameras) {
+            m_cameras[camera.ordinal()] = cameraRows(camera.getOffset());
+        }
+        Alliance[] alliances = Alliance.values();
+        m_tags = new double[alliances.length][3 * kMaxId];
+        m_present = new boolean[alliances.length][kMaxId];
+        for (Alliance alliance : alliances) {
+            int a = alliance.ordinal();
+            for (int id = 0; id < kMaxId; ++id) {
+                Optional<Pose3d> pose = layout.getTagPose(alliance, id);
+                if (pose.isEmpty())
+                    continue;
+                m_present[a][id] = true;
+                m_tags[a][3 * id] = pose.get().getX();
+                m_tags[a][3 * id + 1] = pose.get().getY();
+                m_tags[a][3 * id + 2] = pose.get().getZ();
+            }
+        }
+    }
+
+    /** True if the layout has this tag. */
+    public boolean has(Alliance alliance, int id) {
+        return id >= 0 && id < kMaxId && m_present[alliance.ordinal()][id];
+    }
+
+    /** See the class comment for the layout. Don't modify it. */
+    double[] camera(Camera camera) {
+        return m_cameras[camera.ordinal()];
+    }
+
+    /** Tag x, y, z are at 3 * id. Don't modify it. */
+    double[] tags(Alliance alliance) {
+        return m_tags[alliance.ordinal()];
+    }
+
+    /** Top two rows of the rotation matrix, from the quaternion. */
+    static double[] cameraRows(Transform3d cameraInRobotCoords) {
+        Quaternion q = cameraInRobotCoords.getRotation().getQuaternion();
+        double w = q.getW();
+        double x = q.getX();
+        double y = q.getY();
+        double z = q.getZ();
+        double[] result = new double[kCameraDoubles];
+        result[0] = 1 - 2 * (y * y + z * z);
+        result[1] = 2 * (x * y - w * z);
+        result[2] = 2 * (x * z + w * y);
+        result[3] = 2 * (x * y + w * z);
+        result[4] = 1 - 2 * (x * x + z * z);
+        result[5] = 2 * (y * z - w * x);
+        result[6] = cameraInRobotCoords.getX();
+        result[7] = cameraInRobotCoords.getY();
+        return result;
+    }
+}
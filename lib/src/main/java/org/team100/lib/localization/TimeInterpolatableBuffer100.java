@@ -1,10 +1,15 @@
 package org.team100.lib.localization;
 
-import java.util.Map.Entry;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
-import java.util.NavigableMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.SortedMap;
-import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -17,19 +22,31 @@ import edu.wpi.first.math.interpolation.Interpolatable;
 
 /**
  * Uses an Interpolator to provide interpolated sampling with a history limit.
- * 
+ *
  * The buffer is never empty, so get() always returns *something*.
+ *
+ * The samples are kept in a ring, sorted by time, with the timestamps in a
+ * primitive array, so lookups are binary searches, and put() allocates
+ * nothing: almost all puts are appends, and pruning just advances the head.
+ * The ring grows if it needs to, which only happens during the first history
+ * window.
  */
 public final class TimeInterpolatableBuffer100<T extends Interpolatable<T>> implements Glassy {
+    private static final int kInitialCapacity = 64;
+
     private final double m_historyS;
-    private final NavigableMap<Double, T> m_pastSnapshots = new ConcurrentSkipListMap<>();
+
+    /** Sample times, in ring order. */
+    private double[] m_times;
+    /** Sample values, in ring order. */
+    private Object[] m_values;
+    /** Index of the oldest sample. */
+    private int m_head;
+    private int m_size;
 
     /**
-     * We allow concurrent operations on the map, with one exception: when we want
-     * two reads to be consistent with each other. For this purpose we use a
-     * read-write lock with the semantics inverted: it's the double-read operation
-     * that takes the "write" (exclusive) lock, and the write operations take the
-     * "read" (non-exclusive) lock.
+     * Writes take the write lock, and the two-read operations take the read
+     * lock so that the reads are consistent with each other.
      */
     private final ReadWriteLock m_lock = new ReentrantReadWriteLock();
     private final StringLogger m_log_bottom;
@@ -38,8 +55,10 @@ public final class TimeInterpolatableBuffer100<T extends Interpolatable<T>> impl
     public TimeInterpolatableBuffer100(LoggerFactory parent, double historyS, double timeS, T initialValue) {
         LoggerFactory child = parent.child(this);
         m_historyS = historyS;
+        m_times = new double[kInitialCapacity];
+        m_values = new Object[kInitialCapacity];
         // no lock needed in constructor
-        m_pastSnapshots.put(timeS, initialValue);
+        append(timeS, initialValue);
         m_log_bottom = child.stringLogger(Level.TRACE, "bottom");
         m_log_top = child.stringLogger(Level.TRACE, "top");
     }
@@ -48,22 +67,30 @@ public final class TimeInterpolatableBuffer100<T extends Interpolatable<T>> impl
      * Remove stale entries and add the new one.
      */
     public void put(double timeS, T value) {
-        // System.out.println("TimeInterpolatableBuffer.put() " + timeS + " value " + value);
         try {
-            // wait for in-progress double-reads
-            m_lock.readLock().lock();
-            while (!m_pastSnapshots.isEmpty()) {
-                Entry<Double, T> oldest = m_pastSnapshots.firstEntry();
-                Double oldestTimeS = oldest.getKey();
-                double oldestAgeS = timeS - oldestTimeS;
+            m_lock.writeLock().lock();
+            while (m_size > 0) {
+                double oldestAgeS = timeS - time(0);
                 // if oldest is younger than the history limit, we're done
                 if (oldestAgeS < m_historyS)
                     break;
-                m_pastSnapshots.remove(oldestTimeS);
+                m_values[m_head] = null;
+                m_head = (m_head + 1) & mask();
+                m_size--;
+            }
+            int i = ceilingIndex(timeS);
+            if (i < m_size && time(i) == timeS) {
+                // replace
+                m_values[index(i)] = value;
+                return;
+            }
+            if (i == m_size) {
+                append(timeS, value);
+                return;
             }
-            m_pastSnapshots.put(timeS, value);
+            insert(i, timeS, value);
         } finally {
-            m_lock.readLock().unlock();
+            m_lock.writeLock().unlock();
         }
     }
 
@@ -71,14 +98,16 @@ public final class TimeInterpolatableBuffer100<T extends Interpolatable<T>> impl
      * Remove all entries and add the new one.
      */
     public void reset(double timeS, T value) {
-        // System.out.println("TimeInterpolatableBuffer100.reset() " + timeS + " value " + value);
         try {
-            // wait for in-progress double-reads
-            m_lock.readLock().lock();
-            m_pastSnapshots.clear();
-            m_pastSnapshots.put(timeS, value);
+            m_lock.writeLock().lock();
+            for (int i = 0; i < m_size; ++i) {
+                m_values[index(i)] = null;
+            }
+            m_head = 0;
+            m_size = 0;
+            append(timeS, value);
         } finally {
-            m_lock.readLock().unlock();
+            m_lock.writeLock().unlock();
         }
     }
 
@@ -86,104 +115,358 @@ public final class TimeInterpolatableBuffer100<T extends Interpolatable<T>> impl
      * Sample the buffer at the given time.
      */
     public T get(double timeSeconds) {
-        // System.out.println("TimeInterpolatableBuffer100.timeSeconds() " + timeSeconds);
-        // Special case for when the requested time is the same as a sample
-        T nowEntry = m_pastSnapshots.get(timeSeconds);
-        if (nowEntry != null) {
-            // System.out.println("now " + nowEntry);
-            return nowEntry;
-        }
-        Entry<Double, T> topBound = null;
-        Entry<Double, T> bottomBound = null;
+        T bottom;
+        T top;
+        double timeFraction;
         try {
-            // this pair should be consistent, so prohibit writes briefly.
-            m_lock.writeLock().lock();
-            topBound = m_pastSnapshots.ceilingEntry(timeSeconds);
-            bottomBound = m_pastSnapshots.floorEntry(timeSeconds);
+            m_lock.readLock().lock();
+            int i = ceilingIndex(timeSeconds);
+            if (i < m_size && time(i) == timeSeconds) {
+                // Special case for when the requested time is the same as a sample
+                return value(i);
+            }
+            // Return the opposite bound if the other is missing
+            if (i == m_size) {
+                bottom = value(m_size - 1);
+                if (m_log_bottom.enabled())
+                    m_log_bottom.log(bottom.toString());
+                return bottom;
+            }
+            if (i == 0) {
+                top = value(0);
+                if (m_log_top.enabled())
+                    m_log_top.log(top.toString());
+                return top;
+            }
+            bottom = value(i - 1);
+            top = value(i);
+            // If both bounds exist, interpolate between them.
+            // Because T is between [0, 1], we want the ratio of
+            // (the difference between the current time and bottom bound) and (the
+            // difference between top and bottom bounds).
+            double timeSinceBottom = timeSeconds - time(i - 1);
+            double timeSpan = time(i) - time(i - 1);
+            timeFraction = timeSinceBottom / timeSpan;
         } finally {
-            m_lock.writeLock().unlock();
-        }
-        // Return the opposite bound if the other is null
-        if (topBound == null) {
-            String bottomValue = bottomBound.getValue().toString();
-            m_log_bottom.log(() -> bottomValue);
-            // System.out.println("bottom " + bottomValue);
-            return bottomBound.getValue();
-        }
-        if (bottomBound == null) {
-            String topValue = topBound.getValue().toString();
-            m_log_top.log(() -> topValue);
-            // System.out.println("top " + topValue);
-            return topBound.getValue();
+            m_lock.readLock().unlock();
         }
-
-        // If both bounds exist, interpolate between them.
-        // Because T is between [0, 1], we want the ratio of
-        // (the difference between the current time and bottom bound) and (the
-        // difference between top and bottom bounds).
-
-        String bottomValue = bottomBound.getValue().toString();
-        m_log_bottom.log(() -> bottomValue);
-        String topValue = topBound.getValue().toString();
-        m_log_top.log(() -> topValue);
-        double timeSinceBottom = timeSeconds - bottomBound.getKey();
-        double timeSpan = topBound.getKey() - bottomBound.getKey();
-        double timeFraction = timeSinceBottom / timeSpan;
-        return bottomBound.getValue().interpolate(topBound.getValue(), timeFraction);
+        if (m_log_bottom.enabled())
+            m_log_bottom.log(bottom.toString());
+        if (m_log_top.enabled())
+            m_log_top.log(top.toString());
+        return bottom.interpolate(top, timeFraction);
     }
 
     /**
      * Return the lowerEntry before t. and another floorEntry dt before that.
-     * 
+     *
      * The first is used as the basis for integration. The second is used to
      * estimate velocity.
-     * 
+     *
      * Writes are prohibited between the two reads, so that they are consistent.
-     * 
+     *
      * This might return an empty list (if no entries exist before t) or one item
      * (if one entry exists before t, but there are no entries earlier than dt
      * before that), or two items.
-     * 
+     *
      * If present, the first item in the list is the lowerEntry, and the second item
      * is the earlierEntry, if present.
      */
     public List<Entry<Double, T>> consistentPair(double t, double dt) {
         try {
-            // this pair should be consistent, so prohibit writes briefly.
-            m_lock.writeLock().lock();
-            Entry<Double, T> lowerEntry = m_pastSnapshots.lowerEntry(t);
-            if (lowerEntry == null) {
+            m_lock.readLock().lock();
+            int lower = ceilingIndex(t) - 1;
+            if (lower < 0) {
                 // if there's no lower entry, then return nothing.
                 return List.of();
             }
-            Entry<Double, T> earlierEntry = m_pastSnapshots.floorEntry(lowerEntry.getKey() - dt);
-            if (earlierEntry == null) {
+            int earlier = floorIndex(time(lower) - dt);
+            if (earlier < 0) {
                 // if there's no earlier entry, return the lower entry alone.
-                return List.of(lowerEntry);
+                return List.of(entry(lower));
             }
-
-            return List.of(lowerEntry, earlierEntry);
+            return List.of(entry(lower), entry(earlier));
         } finally {
-            m_lock.writeLock().unlock();
+            m_lock.readLock().unlock();
         }
     }
 
+    /**
+     * A view of the entries after t. Like the ConcurrentSkipListMap views, the
+     * iterator is "weakly consistent": each step finds the next entry after the
+     * previous one, so it's fine to put() while iterating.
+     */
     public SortedMap<Double, T> tailMap(double t, boolean inclusive) {
-        return m_pastSnapshots.tailMap(t, inclusive);
+        return new RangeView(t, inclusive, Double.POSITIVE_INFINITY, true);
     }
 
     /** True if the timestamp is older than the history window. */
     boolean tooOld(double timestampS) {
-        Double newestSeenS = m_pastSnapshots.lastKey();
-        double oldestAcceptableS = newestSeenS - m_historyS;
-        return timestampS < oldestAcceptableS;
+        try {
+            m_lock.readLock().lock();
+            double newestSeenS = time(m_size - 1);
+            double oldestAcceptableS = newestSeenS - m_historyS;
+            return timestampS < oldestAcceptableS;
+        } finally {
+            m_lock.readLock().unlock();
+        }
     }
 
     public Entry<Double, T> lowerEntry(double t) {
-        return m_pastSnapshots.lowerEntry(t);
+        try {
+            m_lock.readLock().lock();
+            int i = ceilingIndex(t) - 1;
+            if (i < 0)
+                return null;
+            return entry(i);
+        } finally {
+            m_lock.readLock().unlock();
+        }
     }
 
     public Entry<Double, T> ceilingEntry(double arg0) {
-        return m_pastSnapshots.ceilingEntry(arg0);
+        try {
+            m_lock.readLock().lock();
+            int i = ceilingIndex(arg0);
+            if (i == m_size)
+                return null;
+            return entry(i);
+        } finally {
+            m_lock.readLock().unlock();
+        }
+    }
+
+    ///////////////////////////////////////////////////
+    //
+    // The rest of these should be called with the lock held.
+
+    private int mask() {
+        return m_times.length - 1;
+    }
+
+    /** Array index of the i-th oldest sample. */
+    private int index(int i) {
+        return (m_head + i) & mask();
+    }
+
+    private double time(int i) {
+        return m_times[index(i)];
+    }
+
+    @SuppressWarnings("unchecked")
+    private T value(int i) {
+        return (T) m_values[index(i)];
+    }
+
+    private Entry<Double, T> entry(int i) {
+        return Map.entry(time(i), value(i));
+    }
+
+    /** Position of the first sample at or after t, or size if none. */
+    private int ceilingIndex(double t) {
+        int lo = 0;
+        int hi = m_size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (time(mid) < t)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /** Position of the last sample at or before t, or -1 if none. */
+    private int floorIndex(double t) {
+        int lo = 0;
+        int hi = m_size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (time(mid) <= t)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo - 1;
+    }
+
+    private void append(double timeS, Object value) {
+        if (m_size == m_times.length)
+            grow();
+        int j = index(m_size);
+        m_times[j] = timeS;
+        m_values[j] = value;
+        m_size++;
+    }
+
+    /** Insert at position i, shifting the newer samples up. */
+    private void insert(int i, double timeS, Object value) {
+        if (m_size == m_times.length)
+            grow();
+        for (int k = m_size; k > i; --k) {
+            int to = index(k);
+            int from = index(k - 1);
+            m_times[to] = m_times[from];
+            m_values[to] = m_values[from];
+        }
+        int j = index(i);
+        m_times[j] = timeS;
+        m_values[j] = value;
+        m_size++;
+    }
+
+    private void grow() {
+        double[] times = new double[m_times.length * 2];
+        Object[] values = new Object[m_values.length * 2];
+        for (int i = 0; i < m_size; ++i) {
+            times[i] = time(i);
+            values[i] = m_values[index(i)];
+        }
+        m_times = times;
+        m_values = values;
+        m_head = 0;
+    }
+
+    /** Position of the first sample after t (or at t, if inclusive). */
+    private int firstIndex(double t, boolean inclusive) {
+        return inclusive ? ceilingIndex(t) : floorIndex(t) + 1;
+    }
+
+    /** The first entry in the range, or null. */
+    private Entry<Double, T> first(double lo, boolean loInclusive, double hi, boolean hiInclusive) {
+        try {
+            m_lock.readLock().lock();
+            int i = firstIndex(lo, loInclusive);
+            if (i == m_size)
+                return null;
+            double t = time(i);
+            if (t > hi || (t == hi && !hiInclusive))
+                return null;
+            return entry(i);
+        } finally {
+            m_lock.readLock().unlock();
+        }
+    }
+
+    /** The last entry in the range, or null. */
+    private Entry<Double, T> last(double lo, boolean loInclusive, double hi, boolean hiInclusive) {
+        try {
+            m_lock.readLock().lock();
+            int i = hiInclusive ? floorIndex(hi) : ceilingIndex(hi) - 1;
+            if (i < 0)
+                return null;
+            double t = time(i);
+            if (t < lo || (t == lo && !loInclusive))
+                return null;
+            return entry(i);
+        } finally {
+            m_lock.readLock().unlock();
+        }
+    }
+
+    /** A live view of a range of keys. */
+    private final class RangeView extends AbstractMap<Double, T> implements SortedMap<Double, T> {
+        private final double m_lo;
+        private final boolean m_loInclusive;
+        private final double m_hi;
+        private final boolean m_hiInclusive;
+
+        RangeView(double lo, boolean loInclusive, double hi, boolean hiInclusive) {
+            m_lo = lo;
+            m_loInclusive = loInclusive;
+            m_hi = hi;
+            m_hiInclusive = hiInclusive;
+        }
+
+        @Override
+        public Set<Entry<Double, T>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<Double, T>> iterator() {
+                    return new Iterator<>() {
+                        private Entry<Double, T> m_next = first(m_lo, m_loInclusive, m_hi, m_hiInclusive);
+
+                        @Override
+                        public boolean hasNext() {
+                            return m_next != null;
+                        }
+
+                        @Override
+                        public Entry<Double, T> next() {
+                            if (m_next == null)
+                                throw new NoSuchElementException();
+                            Entry<Double, T> result = m_next;
+                            m_next = first(result.getKey(), false, m_hi, m_hiInclusive);
+                            return result;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    try {
+                        m_lock.readLock().lock();
+                        int first = firstIndex(m_lo, m_loInclusive);
+                        int last = m_hiInclusive ? floorIndex(m_hi) : ceilingIndex(m_hi) - 1;
+                        return Math.max(0, last - first + 1);
+                    } finally {
+                        m_lock.readLock().unlock();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public Comparator<? super Double> comparator() {
+            return null;
+        }
+
+        @Override
+        public SortedMap<Double, T> subMap(Double fromKey, Double toKey) {
+            return new RangeView(fromKey, true, toKey, false).clip(this);
+        }
+
+        @Override
+        public SortedMap<Double, T> headMap(Double toKey) {
+            return new RangeView(m_lo, m_loInclusive, toKey, false).clip(this);
+        }
+
+        @Override
+        public SortedMap<Double, T> tailMap(Double fromKey) {
+            return new RangeView(fromKey, true, m_hi, m_hiInclusive).clip(this);
+        }
+
+        @Override
+        public Double firstKey() {
+            Entry<Double, T> e = first(m_lo, m_loInclusive, m_hi, m_hiInclusive);
+            if (e == null)
+                throw new NoSuchElementException();
+            return e.getKey();
+        }
+
+        @Override
+        public Double lastKey() {
+            Entry<Double, T> e = last(m_lo, m_loInclusive, m_hi, m_hiInclusive);
+            if (e == null)
+                throw new NoSuchElementException();
+            return e.getKey();
+        }
+
+        /** The intersection of this range and the outer one. */
+        private RangeView clip(RangeView outer) {
+            double lo = m_lo;
+            boolean loInclusive = m_loInclusive;
+            if (outer.m_lo > lo || (outer.m_lo == lo && !outer.m_loInclusive)) {
+                lo = outer.m_lo;
+                loInclusive = outer.m_loInclusive;
+            }
+            double hi = m_hi;
+            boolean hiInclusive = m_hiInclusive;
+            if (outer.m_hi < hi || (outer.m_hi == hi && !outer.m_hiInclusive)) {
+                hi = outer.m_hi;
+                hiInclusive = outer.m_hiInclusive;
+            }
+            return new RangeView(lo, loInclusive, hi, hiInclusive);
+        }
     }
-}
\ No newline at end of file
+}
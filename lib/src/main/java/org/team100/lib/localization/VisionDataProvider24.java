@@ -1,7 +1,12 @@
 package org.team100.lib.localization;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.team100.lib.config.Camera;
@@ -17,7 +22,6 @@ import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Rotation3d;
-import edu.wpi.first.math.geometry.Transform3d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.networktables.MultiSubscriber;
 import edu.wpi.first.networktables.NetworkTableEvent;
@@ -35,6 +39,12 @@ import edu.wpi.first.wpilibj.RobotController;
  * 
  * This "24" version uses the "struct" method instead of the "msgpack" method,
  * which matches the TagFinder24 code on the camera.
+ * 
+ * The estimates from all the cameras are collected during update(), and the
+ * estimates from different cameras captured within one camera frame of each
+ * other are fused into one. The fused estimates
+ * go to the pose estimator in a single batch, oldest first, so the odometry
+ * history is replayed once per update, not once per blip.
  */
 public class VisionDataProvider24 implements VisionData, Glassy {
     /**
@@ -52,6 +62,12 @@ public class VisionDataProvider24 implements VisionData, Glassy {
     private static final double kTagRotationBeliefThresholdMeters = 0;
     /** Discard results further than this from the previous one. */
     private static final double kVisionChangeToleranceMeters = 0.1;
+    /**
+     * Estimates captured within this interval are fused. The cameras aren't
+     * synchronized, so simultaneous views of the same scene land anywhere within
+     * one frame period, which is about 20 ms.
+     */
+    static final double kFusionWindowSec = 0.02;
     // private static final double kVisionChangeToleranceMeters = 1;
 
     /** this is the default value which, in hindsight, seems ridiculously high. */
@@ -71,6 +87,7 @@ public class VisionDataProvider24 implements VisionData, Glassy {
 
     private final PoseEstimator100 m_poseEstimator;
     private final AprilTagFieldLayoutWithCorrectOrientation m_layout;
+    private final TagTransformCache m_tags;
     private final PoseEstimationHelper m_helper;
     private final NetworkTableListenerPoller m_poller;
     // LOGGERS
@@ -84,6 +101,52 @@ public class VisionDataProvider24 implements VisionData, Glassy {
 
     private long latestTimeUs = 0;
 
+    /** Output of the fused transform, reused. */
+    private final double[] m_robotXY = new double[2];
+
+    /** Parsed topic names, by topic handle, so we only parse each one once. */
+    private final Map<Integer, Route> m_routes = new HashMap<>();
+    /** Estimates collected during this update, waiting to be fused. */
+    private final List<Candidate> m_pending = new ArrayList<>();
+
+    /**
+     * What to do with a topic. Topic names look like
+     * "vision/<camera serial>/<field>/blips"; everything else is ignored.
+     * 
+     * @param cameraSerialNumber null for ignored topics
+     */
+    private record Route(String cameraSerialNumber) {
+        static final Route IGNORE = new Route(null);
+
+        static Route parse(String name) {
+            String[] fields = name.split("/");
+            if (fields.length != 4)
+                return IGNORE;
+            if (fields[2].equals("fps")) {
+                // FPS is not used by the robot
+                return IGNORE;
+            }
+            if (fields[2].equals("latency")) {
+                // latency is not used by the robot
+                return IGNORE;
+            }
+            if (fields[3].equals("blips")) {
+                return new Route(fields[1]);
+            }
+            // this event is not for us
+            // Util.println("weird vision update key: " + name);
+            return IGNORE;
+        }
+    }
+
+    /**
+     * A single-blip robot pose estimate.
+     * 
+     * @param rangeM camera-to-tag distance, which determines the sigma.
+     */
+    private record Candidate(String cameraSerialNumber, double timeSec, Pose2d pose, double rangeM) {
+    }
+
     /**
      * @param layout
      * @param poseEstimator
@@ -96,6 +159,7 @@ public class VisionDataProvider24 implements VisionData, Glassy {
             PoseEstimator100 poseEstimator) {
         LoggerFactory child = parent.child(this);
         m_layout = layout;
+        m_tags = new TagTransformCache(layout);
         m_helper = new PoseEstimationHelper(child);
         m_poseEstimator = poseEstimator;
 
@@ -121,46 +185,34 @@ public class VisionDataProvider24 implements VisionData, Glassy {
         for (NetworkTableEvent e : events) {
             ValueEventData ve = e.valueData;
             NetworkTableValue v = ve.value;
-            String name = ve.getTopic().getName();
-            String[] fields = name.split("/");
-            if (fields.length != 4) {
-                return;
-            }
-            if (fields[2].equals("fps")) {
-                // FPS is not used by the robot
-            } else if (fields[2].equals("latency")) {
-                // latency is not used by the robot
-            } else if (fields[3].equals("blips")) {
-                // decode the way StructArrayEntryImpl does
-                byte[] b = v.getRaw();
-                if (b.length == 0)
-                    return;
-                Blip24[] blips;
-                try {
-                    synchronized (m_buf) {
-                        blips = m_buf.readArray(b);
-                    }
-                } catch (RuntimeException ex) {
-                    return;
+            Route route = m_routes.computeIfAbsent(ve.topic, x -> Route.parse(ve.getTopic().getName()));
+            if (route.cameraSerialNumber() == null)
+                continue;
+            // decode the way StructArrayEntryImpl does
+            byte[] b = v.getRaw();
+            if (b.length == 0)
+                continue;
+            Blip24[] blips;
+            try {
+                synchronized (m_buf) {
+                    blips = m_buf.readArray(b);
                 }
-                // the ID of the camera
-                String cameraSerialNumber = fields[1];
-
-                Optional<Alliance> alliance = DriverStation.getAlliance();
-                if (!alliance.isPresent())
-                    return;
-
-                double blipTimeSec = v.getServerTime() / 1000000.0;
-                estimateRobotPose(
-                        cameraSerialNumber,
-                        blips,
-                        blipTimeSec,
-                        alliance.get());
-            } else {
-                // this event is not for us
-                // Util.println("weird vision update key: " + name);
+            } catch (RuntimeException ex) {
+                continue;
             }
+
+            Optional<Alliance> alliance = DriverStation.getAlliance();
+            if (!alliance.isPresent())
+                continue;
+
+            double blipTimeSec = v.getServerTime() / 1000000.0;
+            collect(
+                    route.cameraSerialNumber(),
+                    blips,
+                    blipTimeSec,
+                    alliance.get());
         }
+        flush();
     }
 
     /**
@@ -174,51 +226,73 @@ public class VisionDataProvider24 implements VisionData, Glassy {
             final Blip24[] blips,
             double blipTimeSec,
             Alliance alliance) {
+        collect(cameraSerialNumber, blips, blipTimeSec, alliance);
+        flush();
+    }
+
+    /** Add the estimates from these blips to the pending list. */
+    void collect(
+            String cameraSerialNumber,
+            final Blip24[] blips,
+            double blipTimeSec,
+            Alliance alliance) {
         m_log_alliance.log(() -> alliance);
-        final Transform3d cameraInRobotCoordinates = Camera.get(cameraSerialNumber).getOffset();
+        final Camera camera = Camera.get(cameraSerialNumber);
 
         final Rotation2d gyroRotation = m_poseEstimator.get(blipTimeSec).pose().getRotation();
 
         estimateFromBlips(
+                cameraSerialNumber,
                 blips,
-                cameraInRobotCoordinates,
+                camera,
                 blipTimeSec,
                 gyroRotation,
                 alliance);
     }
 
     private void estimateFromBlips(
+            final String cameraSerialNumber,
             final Blip24[] blips,
-            final Transform3d cameraInRobotCoordinates,
+            final Camera camera,
             final double frameTimeSec,
             final Rotation2d gyroRotation,
             Alliance alliance) {
         for (int i = 0; i < blips.length; ++i) {
             Blip24 blip = blips[i];
 
-            Optional<Pose3d> tagInFieldCoordsOptional = m_layout.getTagPose(alliance, blip.getId());
-            if (!tagInFieldCoordsOptional.isPresent())
+            if (!m_tags.has(alliance, blip.getId()))
                 continue;
 
-            if (blip.getPose().getTranslation().getNorm() > 5) {
+            double blipNormM = blip.getPose().getTranslation().getNorm();
+            if (blipNormM > 5) {
                 return;
             }
 
-            // Gyro only produces yaw so use zero roll and zero pitch
-            Rotation3d robotRotationInFieldCoordsFromGyro = new Rotation3d(
-                    0, 0, gyroRotation.getRadians());
-
-            Pose3d tagInFieldCoords = tagInFieldCoordsOptional.get();
-            Pose3d robotPoseInFieldCoords = m_helper.getRobotPoseInFieldCoords(
-                    cameraInRobotCoordinates,
-                    tagInFieldCoords,
-                    blip,
-                    robotRotationInFieldCoordsFromGyro,
-                    kTagRotationBeliefThresholdMeters);
-
-            Translation2d robotTranslationInFieldCoords = robotPoseInFieldCoords.getTranslation().toTranslation2d();
-
-            Pose2d currentRobotinFieldCoords = new Pose2d(robotTranslationInFieldCoords, gyroRotation);
+            Pose2d currentRobotinFieldCoords;
+            if (blipNormM < kTagRotationBeliefThresholdMeters) {
+                // close enough to use the camera's tag rotation, which needs the
+                // whole chain of transforms.
+                Pose3d tagInFieldCoords = m_layout.getTagPose(alliance, blip.getId()).get();
+                Pose3d robotPoseInFieldCoords = m_helper.getRobotPoseInFieldCoords(
+                        camera.getOffset(),
+                        tagInFieldCoords,
+                        blip,
+                        // Gyro only produces yaw so use zero roll and zero pitch
+                        new Rotation3d(0, 0, gyroRotation.getRadians()),
+                        kTagRotationBeliefThresholdMeters);
+                currentRobotinFieldCoords = new Pose2d(
+                        robotPoseInFieldCoords.getTranslation().toTranslation2d(),
+                        gyroRotation);
+            } else {
+                m_helper.getRobotTranslationInFieldCoords(
+                        m_tags,
+                        camera,
+                        alliance,
+                        blip,
+                        gyroRotation.getRadians(),
+                        m_robotXY);
+                currentRobotinFieldCoords = new Pose2d(m_robotXY[0], m_robotXY[1], gyroRotation);
+            }
 
             if (!Experiments.instance.enabled(Experiment.HeedVision))
                 continue;
@@ -229,17 +303,90 @@ public class VisionDataProvider24 implements VisionData, Glassy {
                     // this hard limit excludes false positives, which were a bigger problem in 2023
                     // due to the coarse tag family used. in 2024 this might not be an issue.
                     latestTimeUs = RobotController.getFPGATime();
-                    m_poseEstimator.put(
-                            frameTimeSec,
-                            currentRobotinFieldCoords,
-                            stateStdDevs(),
-                            visionMeasurementStdDevs(distanceM));
+                    m_pending.add(new Candidate(
+                            cameraSerialNumber, frameTimeSec, currentRobotinFieldCoords, blipNormM));
                 }
             }
             lastRobotInFieldCoords = currentRobotinFieldCoords;
         }
     }
 
+    /**
+     * Fuse the pending estimates from different cameras captured within one frame
+     * period of each other, and give them all to the pose estimator, oldest first.
+     * 
+     * Estimates from the same camera aren't independent, so a group takes at most
+     * one from each camera; another tag in the same frame, or the next frame,
+     * starts a new group. Within a frame, the closest tag goes first.
+     */
+    void flush() {
+        if (m_pending.isEmpty())
+            return;
+        m_pending.sort(Comparator.comparingDouble(Candidate::timeSec)
+                .thenComparingDouble(Candidate::rangeM));
+        List<VisionMeasurement> measurements = new ArrayList<>();
+        int start = 0;
+        while (start < m_pending.size()) {
+            double windowEndSec = m_pending.get(start).timeSec() + kFusionWindowSec;
+            int end = start + 1;
+            while (end < m_pending.size()
+                    && m_pending.get(end).timeSec() <= windowEndSec
+                    && !hasCamera(m_pending.subList(start, end), m_pending.get(end).cameraSerialNumber()))
+                end++;
+            measurements.add(fuse(m_pending.subList(start, end)));
+            start = end;
+        }
+        m_pending.clear();
+        m_poseEstimator.put(measurements);
+    }
+
+    private static boolean hasCamera(List<Candidate> candidates, String cameraSerialNumber) {
+        for (Candidate c : candidates) {
+            if (c.cameraSerialNumber().equals(cameraSerialNumber))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Combine estimates from one frame period, weighting by inverse variance,
+     * using the sigma from visionMeasurementStdDevs(), i.e. by tag range. Each
+     * estimate is moved forward to the latest capture time in the group using the
+     * odometry displacement between the two times, so a moving robot doesn't smear
+     * the fused position. The rotation comes from the gyro, so it's taken from the
+     * latest one.
+     */
+    private VisionMeasurement fuse(List<Candidate> candidates) {
+        Candidate last = candidates.get(candidates.size() - 1);
+        if (candidates.size() == 1) {
+            return new VisionMeasurement(
+                    last.timeSec(),
+                    last.pose(),
+                    stateStdDevs(),
+                    visionMeasurementStdDevs(last.rangeM()));
+        }
+        Translation2d lastOdometry = m_poseEstimator.get(last.timeSec()).pose().getTranslation();
+        double x = 0;
+        double y = 0;
+        double weightSum = 0;
+        for (Candidate c : candidates) {
+            double sigma = visionMeasurementStdDevs(c.rangeM())[0];
+            double weight = 1 / (sigma * sigma);
+            Translation2d shift = lastOdometry.minus(
+                    m_poseEstimator.get(c.timeSec()).pose().getTranslation());
+            x += weight * (c.pose().getX() + shift.getX());
+            y += weight * (c.pose().getY() + shift.getY());
+            weightSum += weight;
+        }
+        // the combined sigma is 1/sqrt(sum of 1/sigma^2)
+        double fusedSigma = 1 / Math.sqrt(weightSum);
+        return new VisionMeasurement(
+                last.timeSec(),
+                new Pose2d(x / weightSum, y / weightSum, last.pose().getRotation()),
+                stateStdDevs(),
+                new double[] { fusedSigma, fusedSigma, Double.MAX_VALUE });
+    }
+
     static double[] stateStdDevs() {
         if (Experiments.instance.enabled(Experiment.AvoidVisionJitter)) {
             return tightStateStdDevs;
@@ -247,7 +394,7 @@ public class VisionDataProvider24 implements VisionData, Glassy {
         return defaultStateStdDevs;
     }
 
-    /** This is an educated guess. */
+    /** This is an educated guess. The distance is the camera-to-tag range. */
     static double[] visionMeasurementStdDevs(double distanceM) {
         if (Experiments.instance.enabled(Experiment.AvoidVisionJitter)) {
             /*
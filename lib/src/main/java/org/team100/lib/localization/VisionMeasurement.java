@@ -0,0 +1,13 @@
+package org.team100.lib.localization;
+
+import edu.wpi.first.math.geometry.Pose2d;
+
+/**
+ * A pose measurement for the estimator, see PoseEstimator100.
+ */
+public record VisionMeasurement(
+        double timestampS,
+        Pose2d pose,
+        double[] stateSigma,
+        double[] visionSigma) {
+}
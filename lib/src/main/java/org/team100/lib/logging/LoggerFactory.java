@@ -1,5 +1,7 @@
 package org.team100.lib.logging;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Optional;
 import java.util.OptionalDouble;
 import java.util.function.BooleanSupplier;
@@ -32,6 +34,7 @@ import edu.wpi.first.math.geometry.Twist2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.spline.PoseWithCurvature;
 import edu.wpi.first.math.trajectory.Trajectory.State;
+import edu.wpi.first.util.struct.Struct;
 
 /**
  * This is the logger factory class.
@@ -46,6 +49,16 @@ import edu.wpi.first.math.trajectory.Trajectory.State;
  * In general you shouldn't keep references to this factory; let the top level
  * container keep the root reference.
  * 
+ * The Supplier versions of log() avoid computing values that won't be logged,
+ * but the caller allocates a lambda on each call. In hot paths, use the
+ * primitive versions instead, and hoist enabled() around any expensive
+ * computation.
+ * 
+ * Compound values with a WPILib struct, e.g. Pose2d, are packed into one key,
+ * which is much cheaper than one key per field: each key costs metadata, a
+ * logger slot, and flush work. The receiver writes them to the log with their
+ * schema, so AdvantageScope can unpack them.
+ * 
  * Don't use slashes in names, it confuses Glass.
  */
 public class LoggerFactory {
@@ -116,12 +129,22 @@ public class LoggerFactory {
             m_primitiveLogger = m_pLogger.booleanLogger(root(leaf));
         }
 
+        public boolean enabled() {
+            return allow(m_level);
+        }
+
         public void log(BooleanSupplier vals) {
             if (!allow(m_level))
                 return;
             boolean val = vals.getAsBoolean();
             m_primitiveLogger.log(val);
         }
+
+        public void log(boolean val) {
+            if (!allow(m_level))
+                return;
+            m_primitiveLogger.log(val);
+        }
     }
 
     public BooleanLogger booleanLogger(Level level, String leaf) {
@@ -137,6 +160,10 @@ public class LoggerFactory {
             m_primitiveLogger = m_pLogger.doubleLogger(root(leaf));
         }
 
+        public boolean enabled() {
+            return allow(m_level);
+        }
+
         public void log(DoubleSupplier vals) {
             if (!allow(m_level))
                 return;
@@ -150,6 +177,12 @@ public class LoggerFactory {
             double val = vals.get();
             m_primitiveLogger.log(val);
         }
+
+        public void log(double val) {
+            if (!allow(m_level))
+                return;
+            m_primitiveLogger.log(val);
+        }
     }
 
     public DoubleLogger doubleLogger(Level level, String leaf) {
@@ -165,12 +198,22 @@ public class LoggerFactory {
             m_primitiveLogger = m_pLogger.intLogger(root(leaf));
         }
 
+        public boolean enabled() {
+            return allow(m_level);
+        }
+
         public void log(IntSupplier vals) {
             if (!allow(m_level))
                 return;
             int val = vals.getAsInt();
             m_primitiveLogger.log(val);
         }
+
+        public void log(int val) {
+            if (!allow(m_level))
+                return;
+            m_primitiveLogger.log(val);
+        }
     }
 
     public IntLogger intLogger(Level level, String leaf) {
@@ -186,12 +229,22 @@ public class LoggerFactory {
             m_primitiveLogger = m_pLogger.doubleArrayLogger(root(leaf));
         }
 
+        public boolean enabled() {
+            return allow(m_level);
+        }
+
         public void log(Supplier<double[]> vals) {
             if (!allow(m_level))
                 return;
             double[] val = vals.get();
             m_primitiveLogger.log(val);
         }
+
+        public void log(double[] val) {
+            if (!allow(m_level))
+                return;
+            m_primitiveLogger.log(val);
+        }
     }
 
     public DoubleArrayLogger doubleArrayLogger(Level level, String leaf) {
@@ -207,12 +260,22 @@ public class LoggerFactory {
             m_primitiveLogger = m_pLogger.longLogger(root(leaf));
         }
 
+        public boolean enabled() {
+            return allow(m_level);
+        }
+
         public void log(LongSupplier vals) {
             if (!allow(m_level))
                 return;
             long val = vals.getAsLong();
             m_primitiveLogger.log(val);
         }
+
+        public void log(long val) {
+            if (!allow(m_level))
+                return;
+            m_primitiveLogger.log(val);
+        }
     }
 
     public LongLogger longLogger(Level level, String leaf) {
@@ -228,12 +291,22 @@ public class LoggerFactory {
             m_primitiveLogger = m_pLogger.stringLogger(root(leaf));
         }
 
+        public boolean enabled() {
+            return allow(m_level);
+        }
+
         public void log(Supplier<String> vals) {
             if (!allow(m_level))
                 return;
             String val = vals.get();
             m_primitiveLogger.log(val);
         }
+
+        public void log(String val) {
+            if (!allow(m_level))
+                return;
+            m_primitiveLogger.log(val);
+        }
     }
 
     public StringLogger stringLogger(Level level, String leaf) {
@@ -249,6 +322,10 @@ public class LoggerFactory {
             m_primitiveLogger = m_pLogger.doubleLogger(root(leaf));
         }
 
+        public boolean enabled() {
+            return allow(m_level);
+        }
+
         public void log(Supplier<OptionalDouble> vals) {
             if (!allow(m_level))
                 return;
@@ -272,6 +349,10 @@ public class LoggerFactory {
             m_primitiveLogger = m_pLogger.stringLogger(root(leaf));
         }
 
+        public boolean enabled() {
+            return allow(m_level);
+        }
+
         public void log(Supplier<Enum<?>> vals) {
             if (!allow(m_level))
                 return;
@@ -284,23 +365,89 @@ public class LoggerFactory {
         return new EnumLogger(level, leaf);
     }
 
-    public class Pose2dLogger {
+    /**
+     * Logs a value packed by a WPILib struct, as one key. The buffer is allocated
+     * once, so the only allocation is whatever the struct's pack() does.
+     */
+    public class StructLogger<T> {
         private final Level m_level;
-        private final Translation2dLogger m_translation2dLogger;
-        private final Rotation2dLogger m_rotation2dLogger;
+        private final Struct<T> m_struct;
+        private final byte[] m_bytes;
+        /** WPILib structs are little-endian. */
+        private final ByteBuffer m_buffer;
+        private final PrimitiveLogger.PrimitiveStructLogger m_primitiveLogger;
 
-        Pose2dLogger(Level level, String leaf) {
+        StructLogger(Level level, String leaf, Struct<T> struct) {
             m_level = level;
-            m_translation2dLogger = translation2dLogger(level, join(leaf, "translation"));
-            m_rotation2dLogger = rotation2dLogger(level, join(leaf, "rotation"));
+            m_struct = struct;
+            m_bytes = new byte[struct.getSize()];
+            m_buffer = ByteBuffer.wrap(m_bytes).order(ByteOrder.LITTLE_ENDIAN);
+            m_primitiveLogger = m_pLogger.structLogger(root(leaf), struct);
         }
 
-        public void log(Supplier<Pose2d> vals) {
+        public boolean enabled() {
+            return allow(m_level);
+        }
+
+        public void log(Supplier<T> vals) {
             if (!allow(m_level))
                 return;
-            Pose2d val = vals.get();
-            m_translation2dLogger.log(val::getTranslation);
-            m_rotation2dLogger.log(val::getRotation);
+            T val = vals.get();
+            m_buffer.clear();
+            m_struct.pack(m_buffer, val);
+            m_primitiveLogger.log(m_bytes);
+        }
+
+        public void log(T val) {
+            if (!allow(m_level))
+                return;
+            m_buffer.clear();
+            m_struct.pack(m_buffer, val);
+            m_primitiveLogger.log(m_bytes);
+        }
+
+        /**
+         * For the primitive log methods of the loggers below: put the fields in
+         * the struct's order, and then send().
+         */
+        private ByteBuffer buffer() {
+            m_buffer.clear();
+            return m_buffer;
+        }
+
+        private void send() {
+            m_primitiveLogger.log(m_bytes);
+        }
+    }
+
+    public <T> StructLogger<T> structLogger(Level level, String leaf, Struct<T> struct) {
+        return new StructLogger<>(level, leaf, struct);
+    }
+
+    /** Pose2d struct: x, y, theta. */
+    public class Pose2dLogger {
+        private final StructLogger<Pose2d> m_logger;
+
+        Pose2dLogger(Level level, String leaf) {
+            m_logger = structLogger(level, leaf, Pose2d.struct);
+        }
+
+        public boolean enabled() {
+            return m_logger.enabled();
+        }
+
+        public void log(Supplier<Pose2d> vals) {
+            m_logger.log(vals);
+        }
+
+        public void log(double x, double y, double theta) {
+            if (!m_logger.enabled())
+                return;
+            m_logger.buffer()
+                    .putDouble(x)
+                    .putDouble(y)
+                    .putDouble(theta);
+            m_logger.send();
         }
     }
 
@@ -308,23 +455,20 @@ public class LoggerFactory {
         return new Pose2dLogger(level, leaf);
     }
 
+    /** Transform3d struct: translation x, y, z, and rotation quaternion. */
     public class Transform3dLogger {
-        private final Level m_level;
-        private final Translation3dLogger m_translation3dLogger;
-        private final Rotation3dLogger m_rotation3dLogger;
+        private final StructLogger<Transform3d> m_logger;
 
         Transform3dLogger(Level level, String leaf) {
-            m_level = level;
-            m_translation3dLogger = translation3dLogger(level, join(leaf, "translation"));
-            m_rotation3dLogger = rotation3dLogger(level, join(leaf, "rotation"));
+            m_logger = structLogger(level, leaf, Transform3d.struct);
+        }
+
+        public boolean enabled() {
+            return m_logger.enabled();
         }
 
         public void log(Supplier<Transform3d> vals) {
-            if (!allow(m_level))
-                return;
-            Transform3d val = vals.get();
-            m_translation3dLogger.log(val::getTranslation);
-            m_rotation3dLogger.log(val::getRotation);
+            m_logger.log(vals);
         }
     }
 
@@ -332,26 +476,30 @@ public class LoggerFactory {
         return new Transform3dLogger(level, leaf);
     }
 
+    /** Translation3d struct: x, y, z. */
     public class Translation3dLogger {
-        private final Level m_level;
-        private final DoubleLogger m_xLogger;
-        private final DoubleLogger m_yLogger;
-        private final DoubleLogger m_zLogger;
+        private final StructLogger<Translation3d> m_logger;
 
         Translation3dLogger(Level level, String leaf) {
-            m_level = level;
-            m_xLogger = doubleLogger(level, join(leaf, "x"));
-            m_yLogger = doubleLogger(level, join(leaf, "y"));
-            m_zLogger = doubleLogger(level, join(leaf, "z"));
+            m_logger = structLogger(level, leaf, Translation3d.struct);
+        }
+
+        public boolean enabled() {
+            return m_logger.enabled();
         }
 
         public void log(Supplier<Translation3d> vals) {
-            if (!allow(m_level))
+            m_logger.log(vals);
+        }
+
+        public void log(double x, double y, double z) {
+            if (!m_logger.enabled())
                 return;
-            Translation3d val = vals.get();
-            m_xLogger.log(val::getX);
-            m_yLogger.log(val::getY);
-            m_zLogger.log(val::getZ);
+            m_logger.buffer()
+                    .putDouble(x)
+                    .putDouble(y)
+                    .putDouble(z);
+            m_logger.send();
         }
     }
 
@@ -359,26 +507,38 @@ public class LoggerFactory {
         return new Translation3dLogger(level, leaf);
     }
 
+    /** Rotation3d struct: quaternion w, x, y, z. */
     public class Rotation3dLogger {
-        private final Level m_level;
-        private final DoubleLogger m_rollLogger;
-        private final DoubleLogger m_pitchLogger;
-        private final DoubleLogger m_yawLogger;
+        private final StructLogger<Rotation3d> m_logger;
 
         Rotation3dLogger(Level level, String leaf) {
-            m_level = level;
-            m_rollLogger = doubleLogger(level, join(leaf, "roll"));
-            m_pitchLogger = doubleLogger(level, join(leaf, "pitch"));
-            m_yawLogger = doubleLogger(level, join(leaf, "yaw"));
+            m_logger = structLogger(level, leaf, Rotation3d.struct);
+        }
+
+        public boolean enabled() {
+            return m_logger.enabled();
         }
 
         public void log(Supplier<Rotation3d> vals) {
-            if (!allow(m_level))
+            m_logger.log(vals);
+        }
+
+        /** Same quaternion as the Rotation3d(roll, pitch, yaw) constructor. */
+        public void log(double roll, double pitch, double yaw) {
+            if (!m_logger.enabled())
                 return;
-            Rotation3d val = vals.get();
-            m_rollLogger.log(val::getX);
-            m_pitchLogger.log(val::getY);
-            m_yawLogger.log(val::getZ);
+            double cr = Math.cos(roll * 0.5);
+            double sr = Math.sin(roll * 0.5);
+            double cp = Math.cos(pitch * 0.5);
+            double sp = Math.sin(pitch * 0.5);
+            double cy = Math.cos(yaw * 0.5);
+            double sy = Math.sin(yaw * 0.5);
+            m_logger.buffer()
+                    .putDouble(cr * cp * cy + sr * sp * sy)
+                    .putDouble(sr * cp * cy - cr * sp * sy)
+                    .putDouble(cr * sp * cy + sr * cp * sy)
+                    .putDouble(cr * cp * sy - sr * sp * cy);
+            m_logger.send();
         }
     }
 
@@ -386,23 +546,29 @@ public class LoggerFactory {
         return new Rotation3dLogger(level, leaf);
     }
 
+    /** Translation2d struct: x, y. */
     public class Translation2dLogger {
-        private final Level m_level;
-        private final DoubleLogger m_xLogger;
-        private final DoubleLogger m_yLogger;
+        private final StructLogger<Translation2d> m_logger;
 
         Translation2dLogger(Level level, String leaf) {
-            m_level = level;
-            m_xLogger = doubleLogger(level, join(leaf, "x"));
-            m_yLogger = doubleLogger(level, join(leaf, "y"));
+            m_logger = structLogger(level, leaf, Translation2d.struct);
+        }
+
+        public boolean enabled() {
+            return m_logger.enabled();
         }
 
         public void log(Supplier<Translation2d> vals) {
-            if (!allow(m_level))
+            m_logger.log(vals);
+        }
+
+        public void log(double x, double y) {
+            if (!m_logger.enabled())
                 return;
-            Translation2d val = vals.get();
-            m_xLogger.log(val::getX);
-            m_yLogger.log(val::getY);
+            m_logger.buffer()
+                    .putDouble(x)
+                    .putDouble(y);
+            m_logger.send();
         }
     }
 
@@ -421,6 +587,10 @@ public class LoggerFactory {
             m_yLogger = doubleLogger(level, join(leaf, "y"));
         }
 
+        public boolean enabled() {
+            return allow(m_level);
+        }
+
         public void log(Supplier<Vector2d> vals) {
             if (!allow(m_level))
                 return;
@@ -428,6 +598,13 @@ public class LoggerFactory {
             m_xLogger.log(val::getX);
             m_yLogger.log(val::getY);
         }
+
+        public void log(double x, double y) {
+            if (!allow(m_level))
+                return;
+            m_xLogger.log(x);
+            m_yLogger.log(y);
+        }
     }
 
     public Vector2dLogger vector2dLogger(Level level, String leaf) {
@@ -443,12 +620,22 @@ public class LoggerFactory {
             m_radLogger = doubleLogger(level, join(leaf, "rad"));
         }
 
+        public boolean enabled() {
+            return allow(m_level);
+        }
+
         public void log(Supplier<Rotation2d> vals) {
             if (!allow(m_level))
                 return;
             Rotation2d val = vals.get();
             m_radLogger.log(val::getRadians);
         }
+
+        public void log(double rad) {
+            if (!allow(m_level))
+                return;
+            m_radLogger.log(rad);
+        }
     }
 
     public Rotation2dLogger rotation2dLogger(Level level, String leaf) {
@@ -464,6 +651,10 @@ public class LoggerFactory {
             m_timedPoseLogger = timedPoseLogger(level, join(leaf, "state"));
         }
 
+        public boolean enabled() {
+            return allow(m_level);
+        }
+
         public void log(Supplier<TrajectorySamplePoint> vals) {
             if (!allow(m_level))
                 return;
@@ -491,6 +682,10 @@ public class LoggerFactory {
             m_accelLogger = doubleLogger(level, join(leaf, "accel"));
         }
 
+        public boolean enabled() {
+            return allow(m_level);
+        }
+
         public void log(Supplier<TimedPose> vals) {
             if (!allow(m_level))
                 return;
@@ -516,6 +711,10 @@ public class LoggerFactory {
             m_pose2dLogger = pose2dLogger(level, join(leaf, "pose"));
         }
 
+        public boolean enabled() {
+            return allow(m_level);
+        }
+
         public void log(Supplier<PoseWithCurvature> vals) {
             if (!allow(m_level))
                 return;
@@ -539,6 +738,10 @@ public class LoggerFactory {
             m_rotation2dLogger = rotation2dLogger(level, join(leaf, "course"));
         }
 
+        public boolean enabled() {
+            return allow(m_level);
+        }
+
         public void log(Supplier<Pose2dWithMotion> vals) {
             if (!allow(m_level))
                 return;
@@ -555,26 +758,30 @@ public class LoggerFactory {
         return new Pose2dWithMotionLogger(level, leaf);
     }
 
+    /** Twist2d struct: dx, dy, dtheta. */
     public class Twist2dLogger {
-        private final Level m_level;
-        private final DoubleLogger m_dxLogger;
-        private final DoubleLogger m_dyLogger;
-        private final DoubleLogger m_dthetaLogger;
+        private final StructLogger<Twist2d> m_logger;
 
         Twist2dLogger(Level level, String leaf) {
-            m_level = level;
-            m_dxLogger = doubleLogger(level, join(leaf, "dx"));
-            m_dyLogger = doubleLogger(level, join(leaf, "dy"));
-            m_dthetaLogger = doubleLogger(level, join(leaf, "dtheta"));
+            m_logger = structLogger(level, leaf, Twist2d.struct);
+        }
+
+        public boolean enabled() {
+            return m_logger.enabled();
         }
 
         public void log(Supplier<Twist2d> vals) {
-            if (!allow(m_level))
+            m_logger.log(vals);
+        }
+
+        public void log(double dx, double dy, double dtheta) {
+            if (!m_logger.enabled())
                 return;
-            Twist2d val = vals.get();
-            m_dxLogger.log(() -> val.dx);
-            m_dyLogger.log(() -> val.dy);
-            m_dthetaLogger.log(() -> val.dtheta);
+            m_logger.buffer()
+                    .putDouble(dx)
+                    .putDouble(dy)
+                    .putDouble(dtheta);
+            m_logger.send();
         }
     }
 
@@ -582,26 +789,30 @@ public class LoggerFactory {
         return new Twist2dLogger(level, leaf);
     }
 
+    /** ChassisSpeeds struct: vx, vy, omega. */
     public class ChassisSpeedsLogger {
-        private final Level m_level;
-        private final DoubleLogger m_vxLogger;
-        private final DoubleLogger m_vyLogger;
-        private final DoubleLogger m_omegaLogger;
+        private final StructLogger<ChassisSpeeds> m_logger;
 
         ChassisSpeedsLogger(Level level, String leaf) {
-            m_level = level;
-            m_vxLogger = doubleLogger(level, join(leaf, "vx m_s"));
-            m_vyLogger = doubleLogger(level, join(leaf, "vy m_s"));
-            m_omegaLogger = doubleLogger(level, join(leaf, "omega rad_s"));
+            m_logger = structLogger(level, leaf, ChassisSpeeds.struct);
+        }
+
+        public boolean enabled() {
+            return m_logger.enabled();
         }
 
         public void log(Supplier<ChassisSpeeds> vals) {
-            if (!allow(m_level))
+            m_logger.log(vals);
+        }
+
+        public void log(double vx, double vy, double omega) {
+            if (!m_logger.enabled())
                 return;
-            ChassisSpeeds val = vals.get();
-            m_vxLogger.log(() -> val.vxMetersPerSecond);
-            m_vyLogger.log(() -> val.vyMetersPerSecond);
-            m_omegaLogger.log(() -> val.omegaRadiansPerSecond);
+            m_logger.buffer()
+                    .putDouble(vx)
+                    .putDouble(vy)
+                    .putDouble(omega);
+            m_logger.send();
         }
     }
 
@@ -622,6 +833,10 @@ public class LoggerFactory {
             m_thetaLogger = doubleLogger(level, join(leaf, "theta rad_s"));
         }
 
+        public boolean enabled() {
+            return allow(m_level);
+        }
+
         public void log(Supplier<FieldRelativeVelocity> vals) {
             if (!allow(m_level))
                 return;
@@ -630,6 +845,14 @@ public class LoggerFactory {
             m_yLogger.log(val::y);
             m_thetaLogger.log(val::theta);
         }
+
+        public void log(double x, double y, double theta) {
+            if (!allow(m_level))
+                return;
+            m_xLogger.log(x);
+            m_yLogger.log(y);
+            m_thetaLogger.log(theta);
+        }
     }
 
     public FieldRelativeVelocityLogger fieldRelativeVelocityLogger(Level level, String leaf) {
@@ -649,6 +872,10 @@ public class LoggerFactory {
             m_thetaLogger = doubleLogger(level, join(leaf, "theta rad_s_s"));
         }
 
+        public boolean enabled() {
+            return allow(m_level);
+        }
+
         public void log(Supplier<FieldRelativeAcceleration> vals) {
             if (!allow(m_level))
                 return;
@@ -657,32 +884,44 @@ public class LoggerFactory {
             m_yLogger.log(val::y);
             m_thetaLogger.log(val::theta);
         }
+
+        public void log(double x, double y, double theta) {
+            if (!allow(m_level))
+                return;
+            m_xLogger.log(x);
+            m_yLogger.log(y);
+            m_thetaLogger.log(theta);
+        }
     }
 
     public FieldRelativeAccelerationLogger fieldRelativeAccelerationLogger(Level level, String leaf) {
         return new FieldRelativeAccelerationLogger(level, leaf);
     }
 
+    /** State100 struct: x, v, a. */
     public class State100Logger {
-        private final Level m_level;
-        private final DoubleLogger m_xLogger;
-        private final DoubleLogger m_vLogger;
-        private final DoubleLogger m_aLogger;
+        private final StructLogger<State100> m_logger;
 
         State100Logger(Level level, String leaf) {
-            m_level = level;
-            m_xLogger = doubleLogger(level, join(leaf, "x"));
-            m_vLogger = doubleLogger(level, join(leaf, "v"));
-            m_aLogger = doubleLogger(level, join(leaf, "a"));
+            m_logger = structLogger(level, leaf, State100.struct);
+        }
+
+        public boolean enabled() {
+            return m_logger.enabled();
         }
 
         public void log(Supplier<State100> vals) {
-            if (!allow(m_level))
+            m_logger.log(vals);
+        }
+
+        public void log(double x, double v, double a) {
+            if (!m_logger.enabled())
                 return;
-            State100 val = vals.get();
-            m_xLogger.log(val::x);
-            m_vLogger.log(val::v);
-            m_aLogger.log(val::a);
+            m_logger.buffer()
+                    .putDouble(x)
+                    .putDouble(v)
+                    .putDouble(a);
+            m_logger.send();
         }
     }
 
@@ -690,26 +929,20 @@ public class LoggerFactory {
         return new State100Logger(level, leaf);
     }
 
+    /** SwerveState struct: State100 x, y, theta. */
     public class SwerveStateLogger {
-        private final Level m_level;
-        private final State100Logger m_xLogger;
-        private final State100Logger m_yLogger;
-        private final State100Logger m_thetaLogger;
+        private final StructLogger<SwerveState> m_logger;
 
         SwerveStateLogger(Level level, String leaf) {
-            m_level = level;
-            m_xLogger = state100Logger(level, join(leaf, "x"));
-            m_yLogger = state100Logger(level, join(leaf, "y"));
-            m_thetaLogger = state100Logger(level, join(leaf, "theta"));
+            m_logger = structLogger(level, leaf, SwerveState.struct);
+        }
+
+        public boolean enabled() {
+            return m_logger.enabled();
         }
 
         public void log(Supplier<SwerveState> vals) {
-            if (!allow(m_level))
-                return;
-            SwerveState val = vals.get();
-            m_xLogger.log(val::x);
-            m_yLogger.log(val::y);
-            m_thetaLogger.log(val::theta);
+            m_logger.log(vals);
         }
     }
 
@@ -717,25 +950,20 @@ public class LoggerFactory {
         return new SwerveStateLogger(level, leaf);
     }
 
+    /** SwerveModulePosition100 struct: distance, and optional angle. */
     public class SwerveModulePosition100Logger {
-        private final Level m_level;
-        private final DoubleLogger m_distanceLogger;
-        private final Rotation2dLogger m_rotation2dLogger;
+        private final StructLogger<SwerveModulePosition100> m_logger;
 
         SwerveModulePosition100Logger(Level level, String leaf) {
-            m_level = level;
-            m_distanceLogger = doubleLogger(level, join(leaf, "distance"));
-            m_rotation2dLogger = rotation2dLogger(level, join(leaf, "angle"));
+            m_logger = structLogger(level, leaf, SwerveModulePosition100.struct);
+        }
+
+        public boolean enabled() {
+            return m_logger.enabled();
         }
 
         public void log(Supplier<SwerveModulePosition100> vals) {
-            if (!allow(m_level))
-                return;
-            SwerveModulePosition100 val = vals.get();
-            m_distanceLogger.log(() -> val.distanceMeters);
-            if (val.angle.isPresent()) {
-                m_rotation2dLogger.log(val.angle::get);
-            }
+            m_logger.log(vals);
         }
     }
 
@@ -754,6 +982,10 @@ public class LoggerFactory {
             m_th2Logger = doubleLogger(level, join(leaf, "th2"));
         }
 
+        public boolean enabled() {
+            return allow(m_level);
+        }
+
         public void log(Supplier<ArmAngles> vals) {
             if (!allow(m_level))
                 return;
@@ -761,6 +993,13 @@ public class LoggerFactory {
             m_th1Logger.log(() -> val.th1);
             m_th2Logger.log(() -> val.th2);
         }
+
+        public void log(double th1, double th2) {
+            if (!allow(m_level))
+                return;
+            m_th1Logger.log(th1);
+            m_th2Logger.log(th2);
+        }
     }
 
     public ArmAnglesLogger armAnglesLogger(Level level, String leaf) {
@@ -782,6 +1021,10 @@ public class LoggerFactory {
             m_accelLogger = doubleLogger(level, join(leaf, "accel"));
         }
 
+        public boolean enabled() {
+            return allow(m_level);
+        }
+
         public void log(Supplier<State> vals) {
             if (!allow(m_level))
                 return;
@@ -797,23 +1040,20 @@ public class LoggerFactory {
         return new StateLogger(level, leaf);
     }
 
+    /** Blip24 struct: id, and Transform3d. */
     public class Blip24Logger {
-        private final Level m_level;
-        private final IntLogger m_idLogger;
-        private final Transform3dLogger m_transformLogger;
+        private final StructLogger<Blip24> m_logger;
 
         Blip24Logger(Level level, String leaf) {
-            m_level = level;
-            m_idLogger = intLogger(level, join(leaf, "id"));
-            m_transformLogger = transform3dLogger(level, join(leaf, "transform"));
+            m_logger = structLogger(level, leaf, Blip24.struct);
+        }
+
+        public boolean enabled() {
+            return m_logger.enabled();
         }
 
         public void log(Supplier<Blip24> vals) {
-            if (!allow(m_level))
-                return;
-            Blip24 val = vals.get();
-            m_idLogger.log(val::getId);
-            m_transformLogger.log(val::getPose);
+            m_logger.log(vals);
         }
     }
 
@@ -1,6 +1,14 @@
 package org.team100.lib.logging;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+import org.team100.lib.logging.primitive.AsyncUdpPrimitiveLogger;
 import org.team100.lib.logging.primitive.DummySender;
+import org.team100.lib.logging.primitive.MappedFilePrimitiveLogger;
+import org.team100.lib.logging.primitive.MappedLogFile;
 import org.team100.lib.logging.primitive.NTPrimitiveLogger;
 import org.team100.lib.logging.primitive.PrimitiveLogger;
 import org.team100.lib.logging.primitive.UdpPrimitiveLogger;
@@ -13,10 +21,31 @@ import com.ctre.phoenix6.SignalLogger;
 public class Logging {
     private static final boolean USE_UDP_LOGGING = false;
     private static final boolean USE_REAL_UDP = false;
+    /** Encode and send UDP logs on a separate thread. */
+    private static final boolean USE_ASYNC_UDP = false;
+    /**
+     * If positive, send only changed values, with a full keyframe every this many
+     * flushes.
+     */
+    private static final int UDP_KEYFRAME_PERIOD = 0;
+    /**
+     * Write the UDP protocol to a memory-mapped ring file on the USB stick
+     * instead of the network. Replay it with LogFileReplay.
+     */
+    private static final boolean USE_MAPPED_FILE = false;
+    private static final Path kLogFileDir = Path.of("/u/logs");
+    /**
+     * The whole ring is mapped, and the RIO has only 256 MB (512 MB for the RIO
+     * 2), so keep it to 32 MB. With 2000 keys sent every 100 ms, that's about two
+     * minutes; in delta mode it's much longer.
+     */
+    private static final int kLogFileSegments = 8;
+    private static final int kLogFileSegmentBytes = 1 << 22;
 
     private static final Logging instance = new Logging();
 
     private UdpPrimitiveLogger udpLogger;
+    private AsyncUdpPrimitiveLogger asyncUdpLogger;
     private PrimitiveLogger ntLogger;
     private Level m_level;
 
@@ -38,17 +67,44 @@ public class Logging {
             Util.warn("Using UDP network logging!");
             Util.warn("You must have a log listener connected!");
             Util.warn("=======================================");
-            if (USE_REAL_UDP) {
-                udpLogger = new UdpPrimitiveLogger(
-                        UdpSender.data(),
-                        UdpSender.meta());
+            Consumer<ByteBuffer> dataSink;
+            Consumer<ByteBuffer> metadataSink;
+            MappedLogFile logFile = null;
+            if (USE_MAPPED_FILE) {
+                try {
+                    logFile = new MappedLogFile(kLogFileDir, kLogFileSegments, kLogFileSegmentBytes, true);
+                } catch (IOException e) {
+                    Util.warn("Could not open the log file: " + e.getMessage());
+                }
+            }
+            if (logFile != null) {
+                dataSink = logFile.data();
+                metadataSink = logFile.meta();
+            } else if (USE_REAL_UDP) {
+                dataSink = UdpSender.data();
+                metadataSink = UdpSender.meta();
+            } else {
+                dataSink = new DummySender();
+                metadataSink = new DummySender();
+            }
+            PrimitiveLogger primitiveLogger;
+            if (USE_ASYNC_UDP) {
+                if (logFile != null) {
+                    // the file constructor rewrites the labels in each segment.
+                    asyncUdpLogger = new AsyncUdpPrimitiveLogger(logFile, UDP_KEYFRAME_PERIOD);
+                } else {
+                    asyncUdpLogger = new AsyncUdpPrimitiveLogger(dataSink, metadataSink, UDP_KEYFRAME_PERIOD);
+                }
+                primitiveLogger = asyncUdpLogger;
+            } else if (logFile != null) {
+                udpLogger = new MappedFilePrimitiveLogger(logFile, UDP_KEYFRAME_PERIOD);
+                primitiveLogger = udpLogger;
             } else {
-                udpLogger = new UdpPrimitiveLogger(
-                        new DummySender(),
-                        new DummySender());
+                udpLogger = new UdpPrimitiveLogger(dataSink, metadataSink, UDP_KEYFRAME_PERIOD);
+                primitiveLogger = udpLogger;
             }
-            fieldLogger = new LoggerFactory(() -> m_level, "field", udpLogger);
-            rootLogger = new LoggerFactory(() -> m_level, "log", udpLogger);
+            fieldLogger = new LoggerFactory(() -> m_level, "field", primitiveLogger);
+            rootLogger = new LoggerFactory(() -> m_level, "log", primitiveLogger);
         } else {
             ntLogger = new NTPrimitiveLogger();
             fieldLogger = new LoggerFactory(() -> m_level, "field", ntLogger);
@@ -64,6 +120,8 @@ public class Logging {
     public int keyCount() {
         if (udpLogger != null)
             return udpLogger.keyCount();
+        if (asyncUdpLogger != null)
+            return asyncUdpLogger.keyCount();
         if (ntLogger != null)
             return ntLogger.keyCount();
         return 0;
@@ -72,6 +130,8 @@ public class Logging {
     public void periodic() {
         if (udpLogger != null)
             udpLogger.periodic();
+        if (asyncUdpLogger != null)
+            asyncUdpLogger.periodic();
     }
 
     public void setLevel(Level level) {
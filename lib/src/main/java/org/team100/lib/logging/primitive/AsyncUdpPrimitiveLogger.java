@@ -0,0 +1,870 @@
+package org.team100.lib.logging.primitive;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import org.team100.lib.logging.primitive.UdpPrimitiveLogger.Metadata;
+import org.team100.lib.util.Util;
+
+import edu.wpi.first.util.struct.Struct;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Send logs to a log recipient via UDP, like {@link UdpPrimitiveLogger}, but do
+ * the encoding and sending on a separate low-priority thread.
+ *
+ * Loggers write into the "front" arena, which is a set of primitive arrays
+ * indexed by slot. Once per flush period, the main loop swaps the front and
+ * back arenas, which is just a couple of reference assignments, and wakes the
+ * sender thread. The sender encodes the dirty values in the back arena, clears
+ * the dirty flags, and sends one packet of labels.
+ *
+ * So the cost on the main loop is the same for 100 keys as for 20000 keys.
+ *
+ * Arrays are copied when logged, since callers reuse them.
+ *
+ * Delta mode works like UdpPrimitiveLogger: the sender keeps its own copy of
+ * the last value sent for each slot, sends only the values that differ from
+ * it, and every keyframePeriod flushes, sends all of them.
+ *
+ * To write to a MappedLogFile, use the file constructor, so the sender writes
+ * all the labels at the start of each segment, like MappedFilePrimitiveLogger.
+ *
+ * If the sender is still busy at swap time, the swap is skipped, and values
+ * accumulate in the front arena until the next period; the newest value wins.
+ *
+ * Like UdpPrimitiveLogger, the loggers themselves are not thread-safe: log from
+ * the main thread.
+ *
+ * Close the logger to stop the sender thread.
+ */
+public class AsyncUdpPrimitiveLogger implements PrimitiveLogger, AutoCloseable {
+    /** if false, throw when a duplicate logger is created. */
+    private static final boolean ALLOW_DUPLICATES = true;
+    private static final double kFlushPeriod = 0.1;
+
+    /** Guarded by m_metadataLock, since the sender reads it. */
+    final List<Metadata> metadata = new ArrayList<>();
+    private final Object m_metadataLock = new Object();
+
+    /**
+     * These are to catch duplicate keys at startup, same as UdpPrimitiveLogger.
+     */
+    private final Map<String, AsyncBooleanLogger> booleanIdx = new HashMap<>();
+    private final Map<String, AsyncDoubleLogger> doubleIdx = new HashMap<>();
+    private final Map<String, AsyncIntLogger> intIdx = new HashMap<>();
+    private final Map<String, AsyncDoubleArrayLogger> doubleArrayIdx = new HashMap<>();
+    private final Map<String, AsyncLongLogger> longIdx = new HashMap<>();
+    private final Map<String, AsyncStringLogger> stringIdx = new HashMap<>();
+    private final Map<String, AsyncStructLogger> structIdx = new HashMap<>();
+
+    private final Consumer<ByteBuffer> m_bufferSink;
+    private final Consumer<ByteBuffer> m_metadataSink;
+    /** True if the sink started a new segment, which needs all the labels. */
+    private final BooleanSupplier m_rolled;
+
+    // these are only touched by the sender thread.
+    private final UdpPrimitiveProtocol m_dataProtocol;
+    private final UdpMetadataProtocol m_metadataProtocol;
+    /** Current offset of label dumper */
+    private int offset = 0;
+    /**
+     * The last value sent for each slot. Here the dirty flag means the slot has
+     * a value, i.e. it has been sent at least once.
+     */
+    private final Arena m_sent;
+    /**
+     * In delta mode, send a keyframe every this many flushes. Zero means no delta
+     * mode, i.e. send all dirty values.
+     */
+    private final int m_keyframePeriod;
+    /** Counts flushes, for keyframe timing. */
+    private int m_flushCount;
+    /** Counts packets, so the receiver can detect loss. */
+    private int m_packetSeq;
+    /** True during a keyframe flush. */
+    private boolean m_keyframe;
+
+    private final Thread m_sender;
+
+    /** Owned by the loggers, i.e. the main thread. */
+    private Arena m_front;
+    /** Owned by the sender while m_pending is true, otherwise by the main thread. */
+    private Arena m_back;
+    /** True while the sender is working on the back arena. */
+    private volatile boolean m_pending;
+    /** Tells the sender to stop. */
+    private volatile boolean m_closed;
+
+    private double flushTime;
+
+    /**
+     * @param keyframePeriod if positive, use delta mode, with a keyframe every
+     *                       keyframePeriod flushes.
+     */
+    public AsyncUdpPrimitiveLogger(
+            Consumer<ByteBuffer> dataSink,
+            Consumer<ByteBuffer> metadataSink,
+            int keyframePeriod) {
+        this(dataSink, metadataSink, () -> false, keyframePeriod);
+    }
+
+    public AsyncUdpPrimitiveLogger(
+            Consumer<ByteBuffer> dataSink,
+            Consumer<ByteBuffer> metadataSink) {
+        this(dataSink, metadataSink, 0);
+    }
+
+    /**
+     * Writes to the file from the sender thread, which is also the only caller
+     * of rolled().
+     */
+    public AsyncUdpPrimitiveLogger(MappedLogFile file, int keyframePeriod) {
+        this(file.data(), file.meta(), file::rolled, keyframePeriod);
+    }
+
+    /** @param rolled called only by the sender thread. */
+    AsyncUdpPrimitiveLogger(
+            Consumer<ByteBuffer> dataSink,
+            Consumer<ByteBuffer> metadataSink,
+            BooleanSupplier rolled,
+            int keyframePeriod) {
+        if (keyframePeriod < 0)
+            throw new IllegalArgumentException("negative keyframe period");
+        m_bufferSink = dataSink;
+        m_metadataSink = metadataSink;
+        m_rolled = rolled;
+        m_dataProtocol = new UdpPrimitiveProtocol();
+        m_metadataProtocol = new UdpMetadataProtocol();
+        m_sent = new Arena();
+        m_keyframePeriod = keyframePeriod;
+        m_front = new Arena();
+        m_back = new Arena();
+        m_pending = false;
+        flushTime = 0;
+        m_sender = new Thread(this::run);
+        m_sender.setPriority(Thread.MIN_PRIORITY);
+        m_sender.setDaemon(true);
+        m_sender.setName("UDP Log Sender");
+        m_sender.start();
+    }
+
+    /**
+     * Call this once when the specific logger class is instantiated.
+     *
+     * Minimum key is 1, so that zero is an "invalid key".
+     */
+    private int getKey(UdpType type, String label) {
+        return getKey(type, label, "");
+    }
+
+    private int getKey(UdpType type, String label, String structType) {
+        synchronized (m_metadataLock) {
+            int key = metadata.size() + 1;
+            metadata.add(new Metadata(key, type, label, structType));
+            return key;
+        }
+    }
+
+    @Override
+    public int keyCount() {
+        synchronized (m_metadataLock) {
+            return metadata.size();
+        }
+    }
+
+    /** Swaps the arenas if it's time to flush. */
+    public void periodic() {
+        double now = Timer.getFPGATimestamp();
+        if (flushTime + kFlushPeriod < now) {
+            swap();
+            flushTime = now;
+        }
+    }
+
+    /**
+     * Hand the current values to the sender thread, unless it's still busy.
+     *
+     * The layout match only does any work when keys have been added since the
+     * last swap, i.e. at startup.
+     *
+     * @return true if swapped, false if the sender is busy or closed
+     */
+    boolean swap() {
+        if (m_pending || m_closed)
+            return false;
+        m_back.matchLayout(m_front);
+        Arena tmp = m_front;
+        m_front = m_back;
+        m_back = tmp;
+        m_pending = true;
+        LockSupport.unpark(m_sender);
+        return true;
+    }
+
+    /**
+     * Stop the sender thread, and wait for it to finish what it's doing. Values
+     * logged after this are never sent.
+     *
+     * This uses a flag rather than an interrupt, since interrupting a thread
+     * blocked in a channel write closes the channel.
+     */
+    @Override
+    public void close() {
+        m_closed = true;
+        LockSupport.unpark(m_sender);
+        try {
+            m_sender.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** For testing: wait for the sender to finish the current swap. */
+    void awaitSender() {
+        while (m_pending)
+            Thread.onSpinWait();
+    }
+
+    private void run() {
+        while (!m_closed) {
+            if (!m_pending) {
+                LockSupport.park(this);
+                continue;
+            }
+            try {
+                flush(m_back);
+                dumpLabels();
+                segmentLabels();
+            } catch (Throwable e) {
+                Util.warn(e.toString());
+            } finally {
+                m_pending = false;
+            }
+        }
+    }
+
+    /** If the sink rolled to a new segment, write all the labels into it. */
+    private void segmentLabels() {
+        if (m_rolled.getAsBoolean()) {
+            offset = 0;
+            while (dumpLabels())
+                ;
+            // if the labels themselves spilled into a new segment, write them
+            // again, so that segment has all of them.
+            if (m_rolled.getAsBoolean()) {
+                offset = 0;
+                while (dumpLabels())
+                    ;
+            }
+        }
+    }
+
+    /**
+     * Send one packet of labels.
+     *
+     * The packet is encoded under the lock, since the main thread adds labels,
+     * but sent outside it, so the main thread never waits for the sink.
+     *
+     * return true if there are more labels to send
+     */
+    private boolean dumpLabels() {
+        boolean more = false;
+        synchronized (m_metadataLock) {
+            if (metadata.isEmpty())
+                return false;
+            m_metadataProtocol.clear();
+            for (int i = offset; i < metadata.size(); ++i) {
+                Metadata d = metadata.get(i);
+                if (!m_metadataProtocol.put(d.key(), d.type(), d.label(), d.structType())) {
+                    // packet is full, send it and start here next time.
+                    offset = i;
+                    more = true;
+                    break;
+                }
+            }
+            if (!more)
+                offset = 0;
+        }
+        m_metadataSink.accept(m_metadataProtocol.trim());
+        return more;
+    }
+
+    /** Send at least one packet, and clear all the dirty flags. */
+    private void flush(Arena arena) {
+        m_keyframe = delta() && m_flushCount % m_keyframePeriod == 0;
+        m_flushCount++;
+        m_sent.matchLayout(arena);
+        startPacket(true);
+        flushLane(arena.m_booleans, m_sent.m_booleans);
+        flushLane(arena.m_doubles, m_sent.m_doubles);
+        flushLane(arena.m_ints, m_sent.m_ints);
+        flushLane(arena.m_doubleArrays, m_sent.m_doubleArrays);
+        flushLane(arena.m_longs, m_sent.m_longs);
+        flushLane(arena.m_strings, m_sent.m_strings);
+        flushLane(arena.m_structs, m_sent.m_structs);
+        m_bufferSink.accept(m_dataProtocol.trim());
+    }
+
+    /**
+     * Move the dirty values into the sent lane, and encode the ones that should
+     * be sent: all the dirty ones, or in delta mode, the ones that changed, or
+     * in a keyframe, every one that has a value.
+     */
+    private <L extends Lane<L>> void flushLane(L lane, L sent) {
+        for (int i = 0; i < lane.m_size; ++i) {
+            boolean send;
+            if (lane.m_dirty[i]) {
+                lane.m_dirty[i] = false;
+                send = !delta() || m_keyframe || !sent.m_dirty[i] || lane.differs(i, sent);
+                lane.copyTo(i, sent);
+                sent.m_dirty[i] = true;
+            } else {
+                send = m_keyframe && sent.m_dirty[i];
+            }
+            if (!send)
+                continue;
+            if (!sent.put(m_dataProtocol, i)) {
+                send();
+                if (!sent.put(m_dataProtocol, i))
+                    throw new IllegalStateException();
+            }
+        }
+    }
+
+    /**
+     * Send the full packet and start a new one. The caller puts each value
+     * directly, and calls this if it doesn't fit, rather than passing a lambda
+     * per value.
+     */
+    private void send() {
+        m_bufferSink.accept(m_dataProtocol.trim());
+        startPacket(false);
+    }
+
+    private boolean delta() {
+        return m_keyframePeriod > 0;
+    }
+
+    /** Clear the buffer, and in delta mode, write the frame header. */
+    private void startPacket(boolean first) {
+        m_dataProtocol.clear();
+        if (delta())
+            m_dataProtocol.putFrame(m_packetSeq++, m_keyframe, first);
+    }
+
+    //////////////////////////////////////////
+    //
+    // Arena
+
+    /**
+     * Keys, values, and dirty flags for one type, indexed by slot. The slot layout
+     * is the same in all the arenas.
+     *
+     * @param <L> this lane type, so lanes can compare and copy to each other.
+     */
+    abstract static class Lane<L extends Lane<L>> {
+        int m_size;
+        int[] m_keys = new int[0];
+        boolean[] m_dirty = new boolean[0];
+
+        /** @return the new slot */
+        int add(int key) {
+            if (m_size == m_keys.length)
+                grow(Math.max(16, 2 * m_size));
+            m_keys[m_size] = key;
+            return m_size++;
+        }
+
+        /** Make this lane have the same slots as the other one. */
+        void matchLayout(L other) {
+            if (m_size == other.m_size)
+                return;
+            if (m_keys.length < other.m_size)
+                grow(other.m_keys.length);
+            System.arraycopy(other.m_keys, 0, m_keys, 0, other.m_size);
+            m_size = other.m_size;
+        }
+
+        private void grow(int capacity) {
+            m_keys = Arrays.copyOf(m_keys, capacity);
+            m_dirty = Arrays.copyOf(m_dirty, capacity);
+            growValues(capacity);
+        }
+
+        abstract void growValues(int capacity);
+
+        /** @return false if the packet is full */
+        abstract boolean put(UdpPrimitiveProtocol protocol, int slot);
+
+        /** @return true if the value in the slot differs from the other lane's */
+        abstract boolean differs(int slot, L other);
+
+        /** Copy the value in the slot to the other lane, without allocating. */
+        abstract void copyTo(int slot, L other);
+    }
+
+    static class BooleanLane extends Lane<BooleanLane> {
+        boolean[] m_values = new boolean[0];
+
+        @Override
+        void growValues(int capacity) {
+            m_values = Arrays.copyOf(m_values, capacity);
+        }
+
+        @Override
+        boolean put(UdpPrimitiveProtocol protocol, int slot) {
+            return protocol.putBoolean(m_keys[slot], m_values[slot]);
+        }
+
+        @Override
+        boolean differs(int slot, BooleanLane other) {
+            return m_values[slot] != other.m_values[slot];
+        }
+
+        @Override
+        void copyTo(int slot, BooleanLane other) {
+            other.m_values[slot] = m_values[slot];
+        }
+    }
+
+    static class DoubleLane extends Lane<DoubleLane> {
+        double[] m_values = new double[0];
+
+        @Override
+        void growValues(int capacity) {
+            m_values = Arrays.copyOf(m_values, capacity);
+        }
+
+        @Override
+        boolean put(UdpPrimitiveProtocol protocol, int slot) {
+            return protocol.putDouble(m_keys[slot], m_values[slot]);
+        }
+
+        /** Compares bits, like UdpPrimitiveLogger, so NaN equals NaN. */
+        @Override
+        boolean differs(int slot, DoubleLane other) {
+            return Double.doubleToRawLongBits(m_values[slot])
+                    != Double.doubleToRawLongBits(other.m_values[slot]);
+        }
+
+        @Override
+        void copyTo(int slot, DoubleLane other) {
+            other.m_values[slot] = m_values[slot];
+        }
+    }
+
+    static class IntLane extends Lane<IntLane> {
+        int[] m_values = new int[0];
+
+        @Override
+        void growValues(int capacity) {
+            m_values = Arrays.copyOf(m_values, capacity);
+        }
+
+        @Override
+        boolean put(UdpPrimitiveProtocol protocol, int slot) {
+            return protocol.putInt(m_keys[slot], m_values[slot]);
+        }
+
+        @Override
+        boolean differs(int slot, IntLane other) {
+            return m_values[slot] != other.m_values[slot];
+        }
+
+        @Override
+        void copyTo(int slot, IntLane other) {
+            other.m_values[slot] = m_values[slot];
+        }
+    }
+
+    static class LongLane extends Lane<LongLane> {
+        long[] m_values = new long[0];
+
+        @Override
+        void growValues(int capacity) {
+            m_values = Arrays.copyOf(m_values, capacity);
+        }
+
+        @Override
+        boolean put(UdpPrimitiveProtocol protocol, int slot) {
+            return protocol.putLong(m_keys[slot], m_values[slot]);
+        }
+
+        @Override
+        boolean differs(int slot, LongLane other) {
+            return m_values[slot] != other.m_values[slot];
+        }
+
+        @Override
+        void copyTo(int slot, LongLane other) {
+            other.m_values[slot] = m_values[slot];
+        }
+    }
+
+    /** Strings are immutable, so the lanes can share them. */
+    static class StringLane extends Lane<StringLane> {
+        String[] m_values = new String[0];
+
+        @Override
+        void growValues(int capacity) {
+            m_values = Arrays.copyOf(m_values, capacity);
+        }
+
+        @Override
+        boolean put(UdpPrimitiveProtocol protocol, int slot) {
+            return protocol.putString(m_keys[slot], m_values[slot]);
+        }
+
+        @Override
+        boolean differs(int slot, StringLane other) {
+            return !Objects.equals(m_values[slot], other.m_values[slot]);
+        }
+
+        @Override
+        void copyTo(int slot, StringLane other) {
+            other.m_values[slot] = m_values[slot];
+        }
+    }
+
+    /**
+     * Each slot owns an array, in each arena, which is reallocated only when the
+     * length changes, so logging an array is usually a copy, not an allocation.
+     */
+    static class DoubleArrayLane extends Lane<DoubleArrayLane> {
+        private static final double[] kEmpty = new double[0];
+        double[][] m_values = new double[0][];
+
+        @Override
+        int add(int key) {
+            int slot = super.add(key);
+            m_values[slot] = kEmpty;
+            return slot;
+        }
+
+        /** Copy the value into the slot. */
+        void set(int slot, double[] val) {
+            if (m_values[slot].length != val.length)
+                m_values[slot] = new double[val.length];
+            System.arraycopy(val, 0, m_values[slot], 0, val.length);
+        }
+
+        /** Also fills the new slots. */
+        @Override
+        void matchLayout(DoubleArrayLane other) {
+            int size = m_size;
+            super.matchLayout(other);
+            for (int i = size; i < m_size; ++i) {
+                m_values[i] = kEmpty;
+            }
+        }
+
+        @Override
+        void growValues(int capacity) {
+            m_values = Arrays.copyOf(m_values, capacity);
+        }
+
+        @Override
+        boolean put(UdpPrimitiveProtocol protocol, int slot) {
+            return protocol.putDoubleArray(m_keys[slot], m_values[slot]);
+        }
+
+        @Override
+        boolean differs(int slot, DoubleArrayLane other) {
+            return !Arrays.equals(m_values[slot], other.m_values[slot]);
+        }
+
+        @Override
+        void copyTo(int slot, DoubleArrayLane other) {
+            other.set(slot, m_values[slot]);
+        }
+    }
+
+    /**
+     * Each slot owns a byte array of the struct size, in each arena, so logging
+     * a struct is a copy, not an allocation.
+     */
+    static class StructLane extends Lane<StructLane> {
+        byte[][] m_values = new byte[0][];
+
+        /** @return the new slot */
+        int add(int key, int size) {
+            int slot = add(key);
+            m_values[slot] = new byte[size];
+            return slot;
+        }
+
+        /** Also allocates the arrays for the new slots. */
+        @Override
+        void matchLayout(StructLane other) {
+            int size = m_size;
+            super.matchLayout(other);
+            for (int i = size; i < m_size; ++i) {
+                m_values[i] = new byte[other.m_values[i].length];
+            }
+        }
+
+        @Override
+        void growValues(int capacity) {
+            m_values = Arrays.copyOf(m_values, capacity);
+        }
+
+        @Override
+        boolean put(UdpPrimitiveProtocol protocol, int slot) {
+            return protocol.putStruct(m_keys[slot], m_values[slot]);
+        }
+
+        @Override
+        boolean differs(int slot, StructLane other) {
+            return !Arrays.equals(m_values[slot], other.m_values[slot]);
+        }
+
+        @Override
+        void copyTo(int slot, StructLane other) {
+            System.arraycopy(m_values[slot], 0, other.m_values[slot], 0, m_values[slot].length);
+        }
+    }
+
+    /** One buffer's worth of values. */
+    static class Arena {
+        final BooleanLane m_booleans = new BooleanLane();
+        final DoubleLane m_doubles = new DoubleLane();
+        final IntLane m_ints = new IntLane();
+        final DoubleArrayLane m_doubleArrays = new DoubleArrayLane();
+        final LongLane m_longs = new LongLane();
+        final StringLane m_strings = new StringLane();
+        final StructLane m_structs = new StructLane();
+
+        void matchLayout(Arena other) {
+            m_booleans.matchLayout(other.m_booleans);
+            m_doubles.matchLayout(other.m_doubles);
+            m_ints.matchLayout(other.m_ints);
+            m_doubleArrays.matchLayout(other.m_doubleArrays);
+            m_longs.matchLayout(other.m_longs);
+            m_strings.matchLayout(other.m_strings);
+            m_structs.matchLayout(other.m_structs);
+        }
+    }
+
+    //////////////////////////////////////////
+    //
+    // Loggers write into the front arena.
+
+    public class AsyncBooleanLogger implements PrimitiveLogger.PrimitiveBooleanLogger {
+        private final int m_slot;
+
+        public AsyncBooleanLogger(String label) {
+            m_slot = m_front.m_booleans.add(getKey(UdpType.BOOLEAN, label));
+        }
+
+        @Override
+        public void log(boolean val) {
+            m_front.m_booleans.m_values[m_slot] = val;
+            m_front.m_booleans.m_dirty[m_slot] = true;
+        }
+    }
+
+    public class AsyncDoubleLogger implements PrimitiveLogger.PrimitiveDoubleLogger {
+        private final int m_slot;
+
+        public AsyncDoubleLogger(String label) {
+            m_slot = m_front.m_doubles.add(getKey(UdpType.DOUBLE, label));
+        }
+
+        @Override
+        public void log(double val) {
+            m_front.m_doubles.m_values[m_slot] = val;
+            m_front.m_doubles.m_dirty[m_slot] = true;
+        }
+    }
+
+    public class AsyncIntLogger implements PrimitiveLogger.PrimitiveIntLogger {
+        private final int m_slot;
+
+        public AsyncIntLogger(String label) {
+            m_slot = m_front.m_ints.add(getKey(UdpType.INT, label));
+        }
+
+        @Override
+        public void log(int val) {
+            m_front.m_ints.m_values[m_slot] = val;
+            m_front.m_ints.m_dirty[m_slot] = true;
+        }
+    }
+
+    public class AsyncDoubleArrayLogger implements PrimitiveLogger.PrimitiveDoubleArrayLogger {
+        private final int m_slot;
+
+        public AsyncDoubleArrayLogger(String label) {
+            m_slot = m_front.m_doubleArrays.add(getKey(UdpType.DOUBLE_ARRAY, label));
+        }
+
+        /** Copies the value, since the caller may reuse the array. */
+        @Override
+        public void log(double[] val) {
+            m_front.m_doubleArrays.set(m_slot, val);
+            m_front.m_doubleArrays.m_dirty[m_slot] = true;
+        }
+    }
+
+    public class AsyncLongLogger implements PrimitiveLogger.PrimitiveLongLogger {
+        private final int m_slot;
+
+        public AsyncLongLogger(String label) {
+            m_slot = m_front.m_longs.add(getKey(UdpType.LONG, label));
+        }
+
+        @Override
+        public void log(long val) {
+            m_front.m_longs.m_values[m_slot] = val;
+            m_front.m_longs.m_dirty[m_slot] = true;
+        }
+    }
+
+    public class AsyncStringLogger implements PrimitiveLogger.PrimitiveStringLogger {
+        private final int m_slot;
+
+        public AsyncStringLogger(String label) {
+            m_slot = m_front.m_strings.add(getKey(UdpType.STRING, label));
+        }
+
+        @Override
+        public void log(String val) {
+            m_front.m_strings.m_values[m_slot] = val;
+            m_front.m_strings.m_dirty[m_slot] = true;
+        }
+    }
+
+    public class AsyncStructLogger implements PrimitiveLogger.PrimitiveStructLogger {
+        private final int m_slot;
+        private final int m_size;
+
+        public AsyncStructLogger(String label, Struct<?> struct) {
+            m_size = struct.getSize();
+            if (m_size > 255)
+                throw new IllegalArgumentException("struct too big: " + struct.getTypeString());
+            m_slot = m_front.m_structs.add(
+                    getKey(UdpType.STRUCT, label, struct.getTypeString()), m_size);
+        }
+
+        /** Copies the value, since the caller reuses the array. */
+        @Override
+        public void log(byte[] val) {
+            System.arraycopy(val, 0, m_front.m_structs.m_values[m_slot], 0, m_size);
+            m_front.m_structs.m_dirty[m_slot] = true;
+        }
+    }
+
+    @Override
+    public PrimitiveBooleanLogger booleanLogger(String label) {
+        if (booleanIdx.containsKey(label)) {
+            if (ALLOW_DUPLICATES) {
+                Util.warn("duplicate label " + label);
+                return booleanIdx.get(label);
+            } else {
+                throw new IllegalArgumentException("duplicate label " + label);
+            }
+        }
+        AsyncBooleanLogger x = new AsyncBooleanLogger(label);
+        booleanIdx.put(label, x);
+        return x;
+    }
+
+    @Override
+    public PrimitiveDoubleLogger doubleLogger(String label) {
+        if (doubleIdx.containsKey(label)) {
+            if (ALLOW_DUPLICATES) {
+                Util.warn("duplicate label " + label);
+                return doubleIdx.get(label);
+            } else {
+                throw new IllegalArgumentException("duplicate label " + label);
+            }
+        }
+        AsyncDoubleLogger x = new AsyncDoubleLogger(label);
+        doubleIdx.put(label, x);
+        return x;
+    }
+
+    @Override
+    public PrimitiveIntLogger intLogger(String label) {
+        if (intIdx.containsKey(label)) {
+            if (ALLOW_DUPLICATES) {
+                Util.warn("duplicate label " + label);
+                return intIdx.get(label);
+            } else {
+                throw new IllegalArgumentException("duplicate label " + label);
+            }
+        }
+        AsyncIntLogger x = new AsyncIntLogger(label);
+        intIdx.put(label, x);
+        return x;
+    }
+
+    @Override
+    public PrimitiveDoubleArrayLogger doubleArrayLogger(String label) {
+        if (doubleArrayIdx.containsKey(label)) {
+            if (ALLOW_DUPLICATES) {
+                Util.warn("duplicate label " + label);
+                return doubleArrayIdx.get(label);
+            } else {
+                throw new IllegalArgumentException("duplicate label " + label);
+            }
+        }
+        AsyncDoubleArrayLogger x = new AsyncDoubleArrayLogger(label);
+        doubleArrayIdx.put(label, x);
+        return x;
+    }
+
+    @Override
+    public PrimitiveLongLogger longLogger(String label) {
+        if (longIdx.containsKey(label)) {
+            if (ALLOW_DUPLICATES) {
+                Util.warn("duplicate label " + label);
+                return longIdx.get(label);
+            } else {
+                throw new IllegalArgumentException("duplicate label " + label);
+            }
+        }
+        AsyncLongLogger x = new AsyncLongLogger(label);
+        longIdx.put(label, x);
+        return x;
+    }
+
+    @Override
+    public PrimitiveStringLogger stringLogger(String label) {
+        if (stringIdx.containsKey(label)) {
+            if (ALLOW_DUPLICATES) {
+                Util.warn("duplicate label " + label);
+                return stringIdx.get(label);
+            } else {
+                throw new IllegalArgumentException("duplicate label " + label);
+            }
+        }
+        AsyncStringLogger x = new AsyncStringLogger(label);
+        stringIdx.put(label, x);
+        return x;
+    }
+
+    @Override
+    public PrimitiveStructLogger structLogger(String label, Struct<?> struct) {
+        if (structIdx.containsKey(label)) {
+            if (ALLOW_DUPLICATES) {
+                Util.warn("duplicate label " + label);
+                return structIdx.get(label);
+            } else {
+                throw new IllegalArgumentException("duplicate label " + label);
+            }
+        }
+        AsyncStructLogger x = new AsyncStructLogger(label, struct);
+        structIdx.put(label, x);
+        return x;
+    }
+}
@@ -0,0 +1,36 @@
+package org.team100.lib.logging.primitive;
+
+/**
+ * Writes the UDP log protocol into a memory-mapped ring file instead of the
+ * network, so we get logs even if the receiver laptop isn't connected.
+ *
+ * Replay the files with LogFileReplay.
+ */
+public class MappedFilePrimitiveLogger extends UdpPrimitiveLogger {
+    private final MappedLogFile m_file;
+
+    public MappedFilePrimitiveLogger(MappedLogFile file, int keyframePeriod) {
+        super(file.data(), file.meta(), keyframePeriod);
+        m_file = file;
+    }
+
+    public MappedFilePrimitiveLogger(MappedLogFile file) {
+        this(file, 0);
+    }
+
+    /** Also writes all the labels at the start of each segment. */
+    @Override
+    public void periodic() {
+        super.periodic();
+        if (m_file.rolled()) {
+            offset = 0;
+            sendAllLabels();
+            // if the labels themselves spilled into a new segment, write them
+            // again, so that segment has all of them.
+            if (m_file.rolled()) {
+                offset = 0;
+                sendAllLabels();
+            }
+        }
+    }
+}
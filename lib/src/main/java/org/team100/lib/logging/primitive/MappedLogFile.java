@@ -0,0 +1,186 @@
+package org.team100.lib.logging.primitive;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.team100.lib.util.Util;
+
+/**
+ * A ring of pre-allocated, memory-mapped segment files, for the same data and
+ * metadata packets we send via UDP, so we don't lose logs when the receiver
+ * isn't connected.
+ *
+ * All the segments are created and mapped in the constructor, so writing a
+ * packet is just a copy into memory, and rolling to the next segment is just
+ * switching buffers. The OS writes the pages back in the background, and a
+ * low-priority thread calls force() every so often, so there's not too much
+ * unwritten when the robot power goes off. Nothing here blocks the caller on
+ * the disk.
+ *
+ * When the last segment is full, the oldest one is overwritten.
+ *
+ * Segment format:
+ *
+ * <pre>
+ * MMMMSSSSSSSS   header: magic (4 bytes), segment sequence number (8 bytes)
+ * KLL...         record: kind (1 byte), length (2 bytes), packet (length bytes)
+ * KLL...         ... more records
+ * 0              kind zero marks the end
+ * </pre>
+ *
+ * The sequence number increases across restarts, so the replayer can put the
+ * segments in order.
+ *
+ * See LogFileReplay for the reader.
+ */
+public class MappedLogFile {
+    public static final int kMagic = 0x54313030; // "T100"
+    public static final int kHeaderSize = 12;
+    /** Record kind for data packets. */
+    public static final byte kData = 1;
+    /** Record kind for metadata packets. */
+    public static final byte kMeta = 2;
+    /** Record kind and length */
+    public static final int kRecordHeaderSize = 3;
+    private static final long kForcePeriodMs = 1000;
+
+    private final MappedByteBuffer[] m_segments;
+    private final Consumer<ByteBuffer> m_data;
+    private final Consumer<ByteBuffer> m_meta;
+    /** nullable */
+    private final ScheduledExecutorService m_forcer;
+
+    private int m_index;
+    private long m_seq;
+    private volatile MappedByteBuffer m_current;
+    /** True if we've rolled since the last call to rolled(). */
+    private boolean m_rolled;
+
+    /**
+     * @param dir          directory for the segment files, e.g. on the USB stick
+     * @param segments     number of segment files
+     * @param segmentBytes size of each segment file
+     * @param force        periodically force the current segment to disk
+     */
+    public MappedLogFile(Path dir, int segments, int segmentBytes, boolean force) throws IOException {
+        if (segments < 1)
+            throw new IllegalArgumentException("need at least one segment");
+        if (segmentBytes < kHeaderSize + kRecordHeaderSize + UdpSender.MTU + 1)
+            throw new IllegalArgumentException("segment too small");
+        Files.createDirectories(dir);
+        m_segments = new MappedByteBuffer[segments];
+        long maxSeq = -1;
+        int maxIndex = -1;
+        for (int i = 0; i < segments; ++i) {
+            try (RandomAccessFile file = new RandomAccessFile(dir.resolve(segmentName(i)).toFile(), "rw")) {
+                file.setLength(segmentBytes);
+                // the mapping stays valid after the file is closed.
+                MappedByteBuffer buf = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+                // big-endian is the default, but just to make it clear...
+                buf.order(ByteOrder.BIG_ENDIAN);
+                m_segments[i] = buf;
+                if (buf.getInt(0) == kMagic && buf.getLong(4) > maxSeq) {
+                    maxSeq = buf.getLong(4);
+                    maxIndex = i;
+                }
+            }
+        }
+        // start after the newest existing segment, overwriting the oldest.
+        m_index = maxIndex;
+        m_seq = maxSeq;
+        roll();
+        m_rolled = false;
+        m_data = bb -> write(kData, bb);
+        m_meta = bb -> write(kMeta, bb);
+        if (force) {
+            m_forcer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "Log File Forcer");
+                t.setPriority(Thread.MIN_PRIORITY);
+                t.setDaemon(true);
+                return t;
+            });
+            m_forcer.scheduleAtFixedRate(
+                    () -> m_current.force(), kForcePeriodMs, kForcePeriodMs, TimeUnit.MILLISECONDS);
+        } else {
+            m_forcer = null;
+        }
+    }
+
+    public static String segmentName(int i) {
+        return String.format("log%03d.bin", i);
+    }
+
+    /** Sink for data packets. */
+    public Consumer<ByteBuffer> data() {
+        return m_data;
+    }
+
+    /** Sink for metadata packets. */
+    public Consumer<ByteBuffer> meta() {
+        return m_meta;
+    }
+
+    /**
+     * True if a new segment was started since the last call. The metadata should
+     * be rewritten in that case, so each segment can be decoded without the old
+     * ones.
+     */
+    public boolean rolled() {
+        boolean result = m_rolled;
+        m_rolled = false;
+        return result;
+    }
+
+    /** Sequence number of the current segment. */
+    public long sequence() {
+        return m_seq;
+    }
+
+    /** Stops the forcer and forces everything to disk. */
+    public void close() {
+        if (m_forcer != null)
+            m_forcer.shutdown();
+        for (MappedByteBuffer buf : m_segments) {
+            buf.force();
+        }
+    }
+
+    private void write(byte kind, ByteBuffer bb) {
+        int length = bb.remaining();
+        if (length > 0xffff) {
+            Util.warn("log record too long");
+            return;
+        }
+        // leave room for the end marker
+        if (m_current.remaining() < kRecordHeaderSize + length + 1)
+            roll();
+        m_current.put(kind);
+        m_current.putShort((short) length);
+        m_current.put(bb.duplicate());
+        m_current.put(m_current.position(), (byte) 0);
+    }
+
+    private void roll() {
+        m_index = (m_index + 1) % m_segments.length;
+        m_seq++;
+        MappedByteBuffer buf = m_segments[m_index];
+        buf.clear();
+        // the end marker first, so a crash while writing the header doesn't expose
+        // the old contents.
+        buf.put(kHeaderSize, (byte) 0);
+        buf.putInt(kMagic);
+        buf.putLong(m_seq);
+        m_current = buf;
+        m_rolled = true;
+    }
+}
@@ -12,8 +12,11 @@ import edu.wpi.first.networktables.DoubleTopic;
 import edu.wpi.first.networktables.IntegerPublisher;
 import edu.wpi.first.networktables.IntegerTopic;
 import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.RawPublisher;
+import edu.wpi.first.networktables.RawTopic;
 import edu.wpi.first.networktables.StringPublisher;
 import edu.wpi.first.networktables.StringTopic;
+import edu.wpi.first.util.struct.Struct;
 import edu.wpi.first.wpilibj.DataLogManager;
 
 /**
@@ -134,6 +137,22 @@ public class NTPrimitiveLogger implements PrimitiveLogger {
         }
     }
 
+    public class NTStructLogger implements PrimitiveLogger.PrimitiveStructLogger {
+        RawPublisher m_pub;
+
+        public NTStructLogger(String label, Struct<?> struct) {
+            inst.addSchema(struct);
+            RawTopic t = inst.getRawTopic(label);
+            m_pub = t.publish(struct.getTypeString());
+            t.setRetained(true);
+        }
+
+        @Override
+        public void log(byte[] val) {
+            m_pub.set(val);
+        }
+    }
+
     @Override
     public PrimitiveBooleanLogger booleanLogger(String label) {
         keys.add(label);
@@ -170,4 +189,9 @@ public class NTPrimitiveLogger implements PrimitiveLogger {
         return new NTStringLogger(label);
     }
 
+    @Override
+    public PrimitiveStructLogger structLogger(String label, Struct<?> struct) {
+        keys.add(label);
+        return new NTStructLogger(label, struct);
+    }
 }
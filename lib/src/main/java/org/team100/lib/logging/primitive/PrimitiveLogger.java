@@ -1,5 +1,7 @@
 package org.team100.lib.logging.primitive;
 
+import edu.wpi.first.util.struct.Struct;
+
 /**
  * This should not be used by client code. Use {@link LoggerFactory} instead.
  */
@@ -48,4 +50,19 @@ public interface PrimitiveLogger {
     }
 
     PrimitiveStringLogger stringLogger(String label);
+
+    /**
+     * Logs a value packed by the struct, as raw bytes, so a compound value uses
+     * one key instead of one per field.
+     */
+    @FunctionalInterface
+    interface PrimitiveStructLogger {
+        /**
+         * @param val packed value, exactly struct.getSize() bytes. The caller reuses
+         *            the array, so implementations must copy it.
+         */
+        void log(byte[] val);
+    }
+
+    PrimitiveStructLogger structLogger(String label, Struct<?> struct);
 }
@@ -6,6 +6,8 @@ import java.util.Set;
 
 import org.team100.lib.util.Util;
 
+import edu.wpi.first.util.struct.Struct;
+
 /** Prints logs to stdout. */
 public class TestPrimitiveLogger implements PrimitiveLogger {
     private final boolean m_print;
@@ -95,4 +97,16 @@ public class TestPrimitiveLogger implements PrimitiveLogger {
             }
         };
     }
-}
\ No newline at end of file
+
+    @Override
+    public PrimitiveStructLogger structLogger(String label, Struct<?> struct) {
+        keys.add(label);
+        return new PrimitiveStructLogger() {
+            @Override
+            public void log(byte[] val) {
+                if (m_print)
+                    Util.printf("%s/%s %s\n", label, struct.getTypeString(), Arrays.toString(val));
+            }
+        };
+    }
+}
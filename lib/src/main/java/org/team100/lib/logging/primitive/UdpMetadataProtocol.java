@@ -40,6 +40,19 @@ import edu.wpi.first.wpilibj.RobotController;
  *                             ^     string length = 3
  *                              ^^^  string in ascii for label 18
  * </pre>
+ * 
+ * Struct tuples also include the struct type string, e.g. "struct:Pose2d", so
+ * the receiver can find the schema:
+ * 
+ * <pre>
+ * KKTLAAAALSSSSSSSSSSSSS
+ * ^^                     key
+ *   ^                    type = 8 (struct)
+ *    ^                   label length
+ *     ^^^^               label
+ *         ^              struct type length
+ *          ^^^^^^^^^^^^^ struct type string
+ * </pre>
  */
 public class UdpMetadataProtocol {
 
@@ -103,6 +116,13 @@ public class UdpMetadataProtocol {
         return add(m_buffer, key, type, label);
     }
 
+    /** The struct type is only written for struct keys. */
+    boolean put(int key, UdpType type, String label, String structType) {
+        if (type == UdpType.STRUCT)
+            return addStruct(m_buffer, key, label, structType);
+        return add(m_buffer, key, type, label);
+    }
+
     /**
      * <pre>
      * KKTLAAAA
@@ -128,4 +148,33 @@ public class UdpMetadataProtocol {
         buf.put(bytes); // string = N bytes
         return true;
     }
+
+    /**
+     * <pre>
+     * KKTLAAAALSSSS
+     * ^^            key
+     *   ^           type = 8 (struct)
+     *    ^          label length
+     *     ^^^^      label
+     *         ^     struct type length
+     *          ^^^^ struct type
+     * </pre>
+     * 
+     * @return true if written
+     */
+    static boolean addStruct(ByteBuffer buf, int key, String label, String structType) {
+        byte[] labelBytes = label.getBytes(StandardCharsets.US_ASCII);
+        byte[] typeBytes = structType.getBytes(StandardCharsets.US_ASCII);
+        int n = labelBytes.length;
+        int m = typeBytes.length;
+        if (5 + n + m > buf.remaining())
+            return false;
+        buf.putChar((char) key); // key = 2 bytes
+        buf.put(UdpType.STRUCT.id); // type = 1 byte
+        buf.put((byte) n); // length = 1 byte
+        buf.put(labelBytes); // string = N bytes
+        buf.put((byte) m); // length = 1 byte
+        buf.put(typeBytes); // string = M bytes
+        return true;
+    }
 }
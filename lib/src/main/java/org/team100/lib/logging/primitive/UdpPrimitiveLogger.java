@@ -3,6 +3,7 @@ package org.team100.lib.logging.primitive;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -11,6 +12,7 @@ import java.util.function.Consumer;
 
 import org.team100.lib.util.Util;
 
+import edu.wpi.first.util.struct.Struct;
 import edu.wpi.first.wpilibj.Timer;
 
 /**
@@ -23,12 +25,19 @@ import edu.wpi.first.wpilibj.Timer;
  * 
  * This logger accepts inputs only one value per key per flush period; the
  * newest value wins.
+ * 
+ * In delta mode, values are sent only if they differ from the last value sent
+ * for that key, and every so often, a keyframe containing every value is sent,
+ * so the receiver can recover from lost packets. Most of our logged values
+ * (config, enum states, booleans) don't change very often, so this cuts the
+ * number of packets quite a bit.
  */
 public class UdpPrimitiveLogger implements PrimitiveLogger {
     /** if false, throw when a duplicate logger is created. */
     private static final boolean ALLOW_DUPLICATES = true;
 
-    record Metadata(int key, UdpType type, String label) {
+    /** @param structType for struct keys, e.g. "struct:Pose2d", otherwise empty. */
+    record Metadata(int key, UdpType type, String label, String structType) {
         /** this is the only place we check the sizes. */
         public Metadata {
             if (key > 65535)
@@ -36,6 +45,13 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
             byte[] bytes = label.getBytes(StandardCharsets.US_ASCII);
             if (bytes.length > 255)
                 throw new IllegalArgumentException("label too long: " + label);
+            byte[] typeBytes = structType.getBytes(StandardCharsets.US_ASCII);
+            if (typeBytes.length > 255)
+                throw new IllegalArgumentException("struct type too long: " + structType);
+        }
+
+        public Metadata(int key, UdpType type, String label) {
+            this(key, type, label, "");
         }
     }
 
@@ -48,6 +64,7 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
     private final List<UdpDoubleArrayLogger> doubleArrayLoggers = new ArrayList<>();
     private final List<UdpLongLogger> longLoggers = new ArrayList<>();
     private final List<UdpStringLogger> stringLoggers = new ArrayList<>();
+    private final List<UdpStructLogger> structLoggers = new ArrayList<>();
 
     final List<Metadata> metadata = new ArrayList<>();
     /**
@@ -61,6 +78,7 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
     private final Map<String, UdpDoubleArrayLogger> doubleArrayIdx = new HashMap<>();
     private final Map<String, UdpLongLogger> longIdx = new HashMap<>();
     private final Map<String, UdpStringLogger> stringIdx = new HashMap<>();
+    private final Map<String, UdpStructLogger> structIdx = new HashMap<>();
     private final Consumer<ByteBuffer> m_bufferSink;
     private final Consumer<ByteBuffer> m_metadataSink;
 
@@ -71,26 +89,56 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
     /** Current offset of label dumper */
     int offset = 0;
 
+    /**
+     * In delta mode, send a keyframe every this many flushes. Zero means no delta
+     * mode, i.e. send all dirty values.
+     */
+    private final int m_keyframePeriod;
+    /** Counts flushes, for keyframe timing. */
+    private int m_flushCount;
+    /** Counts packets, so the receiver can detect loss. */
+    private int m_packetSeq;
+    /** True during a keyframe flush. */
+    private boolean m_keyframe;
+
     private double flushTime;
 
+    /**
+     * @param keyframePeriod if positive, use delta mode, with a keyframe every
+     *                       keyframePeriod flushes.
+     */
     public UdpPrimitiveLogger(
             Consumer<ByteBuffer> dataSink,
-            Consumer<ByteBuffer> metadataSink) {
+            Consumer<ByteBuffer> metadataSink,
+            int keyframePeriod) {
+        if (keyframePeriod < 0)
+            throw new IllegalArgumentException("negative keyframe period");
         m_bufferSink = dataSink;
         m_metadataSink = metadataSink;
         m_dataProtocol = new UdpPrimitiveProtocol();
         m_metadataProtocol = new UdpMetadataProtocol();
+        m_keyframePeriod = keyframePeriod;
         flushTime = 0;
     }
 
+    public UdpPrimitiveLogger(
+            Consumer<ByteBuffer> dataSink,
+            Consumer<ByteBuffer> metadataSink) {
+        this(dataSink, metadataSink, 0);
+    }
+
     /**
      * Call this once when the specific logger class is instantiated.
      * 
      * Minimum key is 1, so that zero is an "invalid key".
      */
     private synchronized int getKey(UdpType type, String label) {
+        return getKey(type, label, "");
+    }
+
+    private synchronized int getKey(UdpType type, String label, String structType) {
         int key = metadata.size() + 1;
-        metadata.add(new Metadata(key, type, label));
+        metadata.add(new Metadata(key, type, label, structType));
         return key;
     }
 
@@ -125,7 +173,7 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
         m_metadataProtocol.clear();
         for (int i = offset; i < metadata.size(); ++i) {
             Metadata d = metadata.get(i);
-            if (!m_metadataProtocol.put(d.key, d.type, d.label)) {
+            if (!m_metadataProtocol.put(d.key, d.type, d.label, d.structType)) {
                 // packet is full, so send it.
                 m_metadataSink.accept(m_metadataProtocol.trim());
                 offset = i;
@@ -140,20 +188,37 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
 
     /** Send at least one packet. */
     public void flush() {
-        m_dataProtocol.clear();
+        m_keyframe = delta() && m_flushCount % m_keyframePeriod == 0;
+        m_flushCount++;
+        startPacket(true);
         flushBoolean();
         flushDouble();
         flushInteger();
         flushDoubleArray();
         flushLong();
         flushString();
+        flushStruct();
         m_bufferSink.accept(m_dataProtocol.trim());
     }
 
+    private boolean delta() {
+        return m_keyframePeriod > 0;
+    }
+
+    /** Clear the buffer, and in delta mode, write the frame header. */
+    private void startPacket(boolean first) {
+        m_dataProtocol.clear();
+        if (delta())
+            m_dataProtocol.putFrame(m_packetSeq++, m_keyframe, first);
+    }
+
     public class UdpBooleanLogger implements PrimitiveLogger.PrimitiveBooleanLogger {
         private final int m_key;
         private boolean m_val;
         private boolean m_dirty;
+        /** Delta mode: last value sent, and whether there is one. */
+        private boolean m_sent;
+        private boolean m_valid;
 
         public UdpBooleanLogger(String label) {
             m_key = getKey(UdpType.BOOLEAN, label);
@@ -165,12 +230,35 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
             m_val = val;
             m_dirty = true;
         }
+
+        /**
+         * In delta mode, send values that differ from the last one sent, or
+         * everything in a keyframe. Otherwise, send dirty values.
+         */
+        private boolean shouldSend() {
+            if (!delta() || !m_valid)
+                return m_dirty;
+            if (m_keyframe)
+                return true;
+            return m_dirty && m_val != m_sent;
+        }
+
+        private void sent() {
+            m_dirty = false;
+            if (delta()) {
+                m_sent = m_val;
+                m_valid = true;
+            }
+        }
     }
 
     public class UdpDoubleLogger implements PrimitiveLogger.PrimitiveDoubleLogger {
         private final int m_key;
         private double m_val;
         private boolean m_dirty;
+        /** Delta mode: last value sent, and whether there is one. */
+        private double m_sent;
+        private boolean m_valid;
 
         public UdpDoubleLogger(String label) {
             m_key = getKey(UdpType.DOUBLE, label);
@@ -183,12 +271,32 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
             m_dirty = true;
         }
 
+        private boolean shouldSend() {
+            if (!delta() || !m_valid)
+                return m_dirty;
+            if (m_keyframe)
+                return true;
+            return m_dirty
+                    && Double.doubleToRawLongBits(m_val) != Double.doubleToRawLongBits(m_sent);
+        }
+
+        private void sent() {
+            m_dirty = false;
+            if (delta()) {
+                m_sent = m_val;
+                m_valid = true;
+            }
+        }
+
     }
 
     public class UdpIntLogger implements PrimitiveLogger.PrimitiveIntLogger {
         private final int m_key;
         private int m_val;
         private boolean m_dirty;
+        /** Delta mode: last value sent, and whether there is one. */
+        private int m_sent;
+        private boolean m_valid;
 
         public UdpIntLogger(String label) {
             m_key = getKey(UdpType.INT, label);
@@ -200,12 +308,31 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
             m_val = val;
             m_dirty = true;
         }
+
+        private boolean shouldSend() {
+            if (!delta() || !m_valid)
+                return m_dirty;
+            if (m_keyframe)
+                return true;
+            return m_dirty && m_val != m_sent;
+        }
+
+        private void sent() {
+            m_dirty = false;
+            if (delta()) {
+                m_sent = m_val;
+                m_valid = true;
+            }
+        }
     }
 
     public class UdpDoubleArrayLogger implements PrimitiveLogger.PrimitiveDoubleArrayLogger {
         private final int m_key;
         private double[] m_val;
         private boolean m_dirty;
+        /** Delta mode: last value sent, and whether there is one. */
+        private double[] m_sent;
+        private boolean m_valid;
 
         public UdpDoubleArrayLogger(String label) {
             m_key = getKey(UdpType.DOUBLE_ARRAY, label);
@@ -217,12 +344,31 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
             m_val = val;
             m_dirty = true;
         }
+
+        private boolean shouldSend() {
+            if (!delta() || !m_valid)
+                return m_dirty;
+            if (m_keyframe)
+                return true;
+            return m_dirty && !Arrays.equals(m_val, m_sent);
+        }
+
+        private void sent() {
+            m_dirty = false;
+            if (delta()) {
+                m_sent = m_val.clone();
+                m_valid = true;
+            }
+        }
     }
 
     public class UdpLongLogger implements PrimitiveLogger.PrimitiveLongLogger {
         private final int m_key;
         private long m_val;
         private boolean m_dirty;
+        /** Delta mode: last value sent, and whether there is one. */
+        private long m_sent;
+        private boolean m_valid;
 
         public UdpLongLogger(String label) {
             m_key = getKey(UdpType.LONG, label);
@@ -235,12 +381,31 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
             m_dirty = true;
         }
 
+        private boolean shouldSend() {
+            if (!delta() || !m_valid)
+                return m_dirty;
+            if (m_keyframe)
+                return true;
+            return m_dirty && m_val != m_sent;
+        }
+
+        private void sent() {
+            m_dirty = false;
+            if (delta()) {
+                m_sent = m_val;
+                m_valid = true;
+            }
+        }
+
     }
 
     public class UdpStringLogger implements PrimitiveLogger.PrimitiveStringLogger {
         private final int m_key;
         private String m_val;
         private boolean m_dirty;
+        /** Delta mode: last value sent, and whether there is one. */
+        private String m_sent;
+        private boolean m_valid;
 
         public UdpStringLogger(String label) {
             m_key = getKey(UdpType.STRING, label);
@@ -252,6 +417,64 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
             m_val = val;
             m_dirty = true;
         }
+
+        private boolean shouldSend() {
+            if (!delta() || !m_valid)
+                return m_dirty;
+            if (m_keyframe)
+                return true;
+            return m_dirty && !m_val.equals(m_sent);
+        }
+
+        private void sent() {
+            m_dirty = false;
+            if (delta()) {
+                m_sent = m_val;
+                m_valid = true;
+            }
+        }
+    }
+
+    public class UdpStructLogger implements PrimitiveLogger.PrimitiveStructLogger {
+        private final int m_key;
+        private final byte[] m_val;
+        private boolean m_dirty;
+        /** Delta mode: last value sent, and whether there is one. */
+        private final byte[] m_sent;
+        private boolean m_valid;
+
+        public UdpStructLogger(String label, Struct<?> struct) {
+            int size = struct.getSize();
+            if (size > 255)
+                throw new IllegalArgumentException("struct too big: " + struct.getTypeString());
+            m_key = getKey(UdpType.STRUCT, label, struct.getTypeString());
+            m_val = new byte[size];
+            m_sent = new byte[size];
+            structLoggers.add(this);
+        }
+
+        /** Copies the value, since the caller reuses the array. */
+        @Override
+        public void log(byte[] val) {
+            System.arraycopy(val, 0, m_val, 0, m_val.length);
+            m_dirty = true;
+        }
+
+        private boolean shouldSend() {
+            if (!delta() || !m_valid)
+                return m_dirty;
+            if (m_keyframe)
+                return true;
+            return m_dirty && !Arrays.equals(m_val, m_sent);
+        }
+
+        private void sent() {
+            m_dirty = false;
+            if (delta()) {
+                System.arraycopy(m_val, 0, m_sent, 0, m_val.length);
+                m_valid = true;
+            }
+        }
     }
 
     //////////////////////////////////////////
@@ -261,7 +484,7 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
         if (!putter.getAsBoolean()) {
             // time to send the packet
             m_bufferSink.accept(m_dataProtocol.trim());
-            m_dataProtocol.clear();
+            startPacket(false);
             if (!putter.getAsBoolean())
                 throw new IllegalStateException();
         }
@@ -270,54 +493,63 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
 
     private void flushBoolean() {
         for (UdpBooleanLogger logger : booleanLoggers) {
-            if (logger.m_dirty) {
+            if (logger.shouldSend()) {
                 putAndMaybeSend(() -> m_dataProtocol.putBoolean(logger.m_key, logger.m_val));
-                logger.m_dirty = false;
+                logger.sent();
             }
         }
     }
 
     private void flushDouble() {
         for (UdpDoubleLogger logger : doubleLoggers) {
-            if (logger.m_dirty) {
+            if (logger.shouldSend()) {
                 putAndMaybeSend(() -> m_dataProtocol.putDouble(logger.m_key, logger.m_val));
-                logger.m_dirty = false;
+                logger.sent();
             }
         }
     }
 
     private void flushInteger() {
         for (UdpIntLogger logger : integerLoggers) {
-            if (logger.m_dirty) {
+            if (logger.shouldSend()) {
                 putAndMaybeSend(() -> m_dataProtocol.putInt(logger.m_key, logger.m_val));
-                logger.m_dirty = false;
+                logger.sent();
             }
         }
     }
 
     private void flushDoubleArray() {
         for (UdpDoubleArrayLogger logger : doubleArrayLoggers) {
-            if (logger.m_dirty) {
+            if (logger.shouldSend()) {
                 putAndMaybeSend(() -> m_dataProtocol.putDoubleArray(logger.m_key, logger.m_val));
-                logger.m_dirty = false;
+                logger.sent();
             }
         }
     }
 
     private void flushLong() {
         for (UdpLongLogger logger : longLoggers) {
-            if (logger.m_dirty) {
+            if (logger.shouldSend()) {
                 putAndMaybeSend(() -> m_dataProtocol.putLong(logger.m_key, logger.m_val));
-                logger.m_dirty = false;
+                logger.sent();
             }
         }
     }
 
     private void flushString() {
         for (UdpStringLogger logger : stringLoggers) {
-            if (logger.m_dirty) {
+            if (logger.shouldSend()) {
                 putAndMaybeSend(() -> m_dataProtocol.putString(logger.m_key, logger.m_val));
-                logger.m_dirty = false;
+                logger.sent();
+            }
+        }
+    }
+
+    private void flushStruct() {
+        for (UdpStructLogger logger : structLoggers) {
+            if (logger.shouldSend()) {
+                putAndMaybeSend(() -> m_dataProtocol.putStruct(logger.m_key, logger.m_val));
+                logger.sent();
             }
         }
     }
@@ -412,4 +644,19 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
         return x;
     }
 
+    @Override
+    public PrimitiveStructLogger structLogger(String label, Struct<?> struct) {
+        if (structIdx.containsKey(label)) {
+            if (ALLOW_DUPLICATES) {
+                Util.warn("duplicate label " + label);
+                return structIdx.get(label);
+            } else {
+                throw new IllegalArgumentException("duplicate label " + label);
+            }
+        }
+        UdpStructLogger x = new UdpStructLogger(label, struct);
+        structIdx.put(label, x);
+        return x;
+    }
+
 }
@@ -39,6 +39,13 @@ import java.nio.charset.StandardCharsets;
  * 
  * These operations used to use offsets but the only use cases are
  * sequential, so i converted them all to relative.
+ * 
+ * There's an optional "delta" mode, where the sender only includes values that
+ * have changed since they were last sent, and periodically sends a full
+ * "keyframe" of all the values. In delta mode, each packet starts with a frame
+ * tuple (key zero), containing a packet sequence number, so the receiver can
+ * detect packet loss, and flags marking keyframes and the first packet of
+ * each flush, so the receiver can tell when a keyframe has arrived complete.
  */
 public class UdpPrimitiveProtocol {
     public static class ProtocolException extends Exception {
@@ -104,6 +111,16 @@ public class UdpPrimitiveProtocol {
         return encodeDoubleArray(m_buffer, key, val) != 0;
     }
 
+    /** @return true if written */
+    public boolean putStruct(int key, byte[] val) {
+        return encodeStruct(m_buffer, key, val) != 0;
+    }
+
+    /** @return true if written */
+    public boolean putFrame(int seq, boolean keyframe, boolean first) {
+        return encodeFrame(m_buffer, seq, keyframe, first) != 0;
+    }
+
     /** just the key */
     public static int decodeKey(ByteBuffer buf) throws ProtocolException {
         try {
@@ -309,4 +326,81 @@ public class UdpPrimitiveProtocol {
             throw new ProtocolException();
         }
     }
+
+    /**
+     * The bytes of a value packed by a WPILib struct; the struct type is in the
+     * metadata, so the receiver can write the value to the log unchanged, with
+     * the schema.
+     * 
+     * <pre>
+     * KKTLbbbbbbbb
+     * ^^           key (2 bytes)
+     *   ^          type (1 byte)
+     *    ^         struct length (1 byte)
+     *     ^^^^^^^^ struct bytes (255 bytes max)
+     * </pre>
+     */
+    static int encodeStruct(ByteBuffer buf, int key, byte[] val) {
+        final int bytesLength = val.length;
+        if (bytesLength > 255)
+            throw new IllegalArgumentException();
+        final int totalLength = 4 + bytesLength;
+        if (buf.remaining() < totalLength)
+            return 0;
+        buf.putChar((char) key); // 2 bytes
+        buf.put(UdpType.STRUCT.id); // type = 1 byte
+        buf.put((byte) bytesLength); // 1 byte
+        buf.put(val);
+        return totalLength;
+    }
+
+    public static byte[] decodeStruct(ByteBuffer buf) throws ProtocolException {
+        try {
+            int length = Byte.toUnsignedInt(buf.get());
+            byte[] bytes = new byte[length];
+            buf.get(bytes);
+            return bytes;
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new ProtocolException();
+        }
+    }
+
+    public static final byte kKeyframe = 1;
+    public static final byte kFirst = 2;
+
+    /**
+     * Frame header for delta mode. The key is always zero.
+     * 
+     * <pre>
+     * KKTssssf
+     * ^^       key = 0 (2 bytes)
+     *   ^      type (1 byte)
+     *    ^^^^  packet sequence number (4 bytes)
+     *        ^ flags (1 byte): kKeyframe | kFirst
+     * </pre>
+     */
+    static int encodeFrame(ByteBuffer buf, int seq, boolean keyframe, boolean first) {
+        final int totalLength = 8;
+        if (buf.remaining() < totalLength)
+            return 0;
+        byte flags = 0;
+        if (keyframe)
+            flags |= kKeyframe;
+        if (first)
+            flags |= kFirst;
+        buf.putChar((char) 0); // 2 bytes
+        buf.put(UdpType.FRAME.id); // type = 1 byte
+        buf.putInt(seq); // 4 bytes
+        buf.put(flags); // 1 byte
+        return totalLength;
+    }
+
+    /** Use decodeInt for the sequence number, and then this for the flags. */
+    public static byte decodeFrameFlags(ByteBuffer buf) throws ProtocolException {
+        try {
+            return buf.get();
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new ProtocolException();
+        }
+    }
 }
@@ -27,7 +27,12 @@ public class UdpSender implements Consumer<ByteBuffer> {
     private int m_counter;
 
     public UdpSender(int port) {
-        m_channel = makeChannel(port);
+        this(robotAddr(), port);
+    }
+
+    /** For testing, e.g. with InetAddress.getLoopbackAddress(). */
+    public UdpSender(InetAddress addr, int port) {
+        m_channel = makeChannel(addr, port);
         m_counter = 0;
     }
 
@@ -43,17 +48,25 @@ public class UdpSender implements Consumer<ByteBuffer> {
         return new UdpSender(kmetadataPort);
     }
 
-    private static DatagramChannel makeChannel(int port) {
+    private static InetAddress robotAddr() {
+        try {
+            return InetAddress.getByAddress(ADDR);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static DatagramChannel makeChannel(InetAddress m_addr, int port) {
+        if (m_addr == null)
+            return null;
         try {
             DatagramChannel channel = DatagramChannel.open();
             channel.configureBlocking(false);
             // big buffer does not help but doesn't hurt
             channel.setOption(StandardSocketOptions.SO_SNDBUF, 1000000);
 
-            InetAddress m_addr = InetAddress.getByAddress(ADDR);
-
             // NOTE! don't use localhost in prod! for testing!
-            // InetAddress m_addr = InetAddress.getLocalHost();
 
             InetSocketAddress sockAddr = new InetSocketAddress(m_addr, port);
             // this will fail for localhost if there's no listener
@@ -9,7 +9,11 @@ public enum UdpType {
     INT(3),
     DOUBLE_ARRAY(4),
     LONG(5),
-    STRING(6);
+    STRING(6),
+    /** Packet header for delta encoding, see UdpPrimitiveProtocol. */
+    FRAME(7),
+    /** Raw bytes packed by a WPILib struct, see UdpPrimitiveProtocol. */
+    STRUCT(8);
 
     public final byte id;
 
@@ -25,7 +29,7 @@ public enum UdpType {
     public static UdpType get(byte id) {
         if (id < 0)
             return UNKNOWN;
-        if (id > values().length)
+        if (id >= values().length)
             return UNKNOWN;
         return list[id];
     }
@@ -0,0 +1,383 @@
+package org.team100.lib.logging.receiver;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.team100.lib.logging.primitive.UdpType;
+
+import edu.wpi.first.networktables.BooleanPublisher;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.RawPublisher;
+import edu.wpi.first.networktables.StringPublisher;
+import edu.wpi.first.util.datalog.BooleanLogEntry;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DoubleArrayLogEntry;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.util.datalog.IntegerLogEntry;
+import edu.wpi.first.util.datalog.RawLogEntry;
+import edu.wpi.first.util.datalog.StringLogEntry;
+import edu.wpi.first.util.struct.Struct;
+
+/**
+ * Same as UdpConsumers, but faster.
+ *
+ * Keys are at most 16 bits, so the publishers and log entries are in dense
+ * arrays indexed by key, instead of ConcurrentHashMaps with boxed Integer keys.
+ * The meta reader fills them in its own thread, so they're atomic arrays.
+ *
+ * Each value gets the time its packet was received (see UdpRingReader), so
+ * there's one clock read per packet instead of one per append, and the key
+ * counter is updated once per batch (see UdpRingConsumer).
+ *
+ * The log file writes itself out every 0.1 s, so flush() only flushes the
+ * network tables.
+ *
+ * Struct values are written as raw entries with the struct type, plus the
+ * schema from StructRegistry, which is what WPILib's StructLogEntry does.
+ *
+ * Only the data consumer thread should call the accept methods.
+ */
+public class ArrayUdpConsumers implements UdpConsumersInterface {
+    private static final int kKeys = 65536;
+    // see DataLogManager.java
+    private static final ZoneId m_utc = ZoneId.of("UTC");
+    private static final DateTimeFormatter m_timeFormatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")
+            .withZone(m_utc);
+
+    private final String m_logDir;
+    // write to network tables
+    private final boolean m_pub;
+    // write to disk
+    private final boolean m_log;
+
+    // write the count periodically
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    private final AtomicLong counter = new AtomicLong(0);
+
+    private final AtomicReferenceArray<BooleanPublisher> booleanPublishers = new AtomicReferenceArray<>(kKeys);
+    private final AtomicReferenceArray<BooleanLogEntry> booleanEntries = new AtomicReferenceArray<>(kKeys);
+    private final AtomicReferenceArray<DoublePublisher> doublePublishers = new AtomicReferenceArray<>(kKeys);
+    private final AtomicReferenceArray<DoubleLogEntry> doubleEntries = new AtomicReferenceArray<>(kKeys);
+    private final AtomicReferenceArray<IntegerPublisher> intPublishers = new AtomicReferenceArray<>(kKeys);
+    private final AtomicReferenceArray<IntegerLogEntry> intEntries = new AtomicReferenceArray<>(kKeys);
+    private final AtomicReferenceArray<DoubleArrayPublisher> doubleArrayPublishers = new AtomicReferenceArray<>(
+            kKeys);
+    private final AtomicReferenceArray<DoubleArrayLogEntry> doubleArrayEntries = new AtomicReferenceArray<>(kKeys);
+    private final AtomicReferenceArray<StringPublisher> stringPublishers = new AtomicReferenceArray<>(kKeys);
+    private final AtomicReferenceArray<StringLogEntry> stringEntries = new AtomicReferenceArray<>(kKeys);
+    private final AtomicReferenceArray<RawPublisher> structPublishers = new AtomicReferenceArray<>(kKeys);
+    private final AtomicReferenceArray<RawLogEntry> structEntries = new AtomicReferenceArray<>(kKeys);
+
+    private volatile NetworkTableInstance inst;
+    private volatile DataLog log_file;
+
+    private volatile long m_timestamp;
+
+    /** Receive time of the current packet, microseconds. */
+    private long m_packetTimeUs;
+    /** Keys in the current batch. */
+    private long m_batchCount;
+
+    /**
+     * @param logDir directory for log files, empty means the default.
+     * @param pub    write to network tables
+     * @param log    write to disk
+     */
+    public ArrayUdpConsumers(String logDir, boolean pub, boolean log) {
+        m_logDir = logDir;
+        m_pub = pub;
+        m_log = log;
+        scheduler.scheduleAtFixedRate(
+                () -> System.out.printf("counter %d\n", counter.getAndSet(0)),
+                0, 1, SECONDS);
+    }
+
+    public ArrayUdpConsumers() {
+        this("", true, true);
+    }
+
+    @Override
+    public synchronized boolean validateTimestamp(long timestamp) {
+        if (timestamp == 0) {
+            // not a real timestamp, this only happens on startup
+            // before the DS connects to the robot. Since we don't
+            // know what the timestamp is, there's no reason to record
+            // any data that arrives.
+            m_timestamp = 0;
+            return true;
+        }
+        if (m_timestamp == timestamp)
+            return true;
+
+        System.out.println("new timestamp");
+        m_timestamp = 0;
+        for (int i = 0; i < kKeys; ++i) {
+            booleanPublishers.set(i, null);
+            booleanEntries.set(i, null);
+            doublePublishers.set(i, null);
+            doubleEntries.set(i, null);
+            intPublishers.set(i, null);
+            intEntries.set(i, null);
+            doubleArrayPublishers.set(i, null);
+            doubleArrayEntries.set(i, null);
+            stringPublishers.set(i, null);
+            stringEntries.set(i, null);
+            structPublishers.set(i, null);
+            structEntries.set(i, null);
+        }
+        if (m_log) {
+            if (log_file != null)
+                log_file.close();
+            DataLog newLog = new DataLog(m_logDir, "", 0.1);
+            Instant i = Instant.ofEpochSecond(timestamp);
+            newLog.setFilename("FRC_" + m_timeFormatter.format(i) + ".wpilog");
+            log_file = newLog;
+        }
+        if (m_pub) {
+            if (inst != null)
+                inst.close();
+            NetworkTableInstance newInst = NetworkTableInstance.getDefault();
+            newInst.startServer();
+            inst = newInst;
+        }
+        m_timestamp = timestamp;
+        return true;
+    }
+
+    @Override
+    public void beginPacket(long timestampUs) {
+        m_packetTimeUs = timestampUs;
+    }
+
+    @Override
+    public void acceptBoolean(int key, boolean val) {
+        if (m_timestamp == 0)
+            return;
+        m_batchCount++;
+        if (m_pub) {
+            BooleanPublisher pub = booleanPublishers.get(key);
+            if (pub != null)
+                pub.set(val, m_packetTimeUs);
+        }
+        if (m_log) {
+            BooleanLogEntry entry = booleanEntries.get(key);
+            if (entry != null)
+                entry.append(val, m_packetTimeUs);
+        }
+    }
+
+    @Override
+    public void acceptDouble(int key, double val) {
+        if (m_timestamp == 0)
+            return;
+        m_batchCount++;
+        if (m_pub) {
+            DoublePublisher pub = doublePublishers.get(key);
+            if (pub != null)
+                pub.set(val, m_packetTimeUs);
+        }
+        if (m_log) {
+            DoubleLogEntry entry = doubleEntries.get(key);
+            if (entry != null)
+                entry.append(val, m_packetTimeUs);
+        }
+    }
+
+    @Override
+    public void acceptInt(int key, int val) {
+        if (m_timestamp == 0)
+            return;
+        m_batchCount++;
+        if (m_pub) {
+            IntegerPublisher pub = intPublishers.get(key);
+            if (pub != null)
+                pub.set(val, m_packetTimeUs);
+        }
+        if (m_log) {
+            IntegerLogEntry entry = intEntries.get(key);
+            if (entry != null)
+                entry.append(val, m_packetTimeUs);
+        }
+    }
+
+    @Override
+    public void acceptDoubleArray(int key, double[] val) {
+        if (m_timestamp == 0)
+            return;
+        m_batchCount++;
+        if (m_pub) {
+            DoubleArrayPublisher pub = doubleArrayPublishers.get(key);
+            if (pub != null)
+                pub.set(val, m_packetTimeUs);
+        }
+        if (m_log) {
+            DoubleArrayLogEntry entry = doubleArrayEntries.get(key);
+            if (entry != null)
+                entry.append(val, m_packetTimeUs);
+        }
+    }
+
+    @Override
+    public void acceptString(int key, String val) {
+        if (m_timestamp == 0)
+            return;
+        m_batchCount++;
+        if (m_pub) {
+            StringPublisher pub = stringPublishers.get(key);
+            if (pub != null)
+                pub.set(val, m_packetTimeUs);
+        }
+        if (m_log) {
+            StringLogEntry entry = stringEntries.get(key);
+            if (entry != null)
+                entry.append(val, m_packetTimeUs);
+        }
+    }
+
+    @Override
+    public void acceptStruct(int key, byte[] val) {
+        if (m_timestamp == 0)
+            return;
+        m_batchCount++;
+        if (m_pub) {
+            RawPublisher pub = structPublishers.get(key);
+            if (pub != null)
+                pub.set(val, m_packetTimeUs);
+        }
+        if (m_log) {
+            RawLogEntry entry = structEntries.get(key);
+            if (entry != null)
+                entry.append(val, m_packetTimeUs);
+        }
+    }
+
+    /** Runs in the meta reader thread. */
+    @Override
+    public synchronized void acceptStructMeta(int key, String structType, String label) {
+        if (m_timestamp == 0)
+            return;
+        Optional<Struct<?>> struct = StructRegistry.get(structType);
+        if (struct.isEmpty())
+            System.out.println("unknown struct type " + structType);
+        if (m_pub && structPublishers.get(key) == null) {
+            struct.ifPresent(inst::addSchema);
+            var t = inst.getRawTopic(label);
+            structPublishers.set(key, t.publish(structType, PubSubOption.keepDuplicates(true)));
+            t.setRetained(true);
+        }
+        if (m_log && structEntries.get(key) == null) {
+            struct.ifPresent(log_file::addSchema);
+            structEntries.set(key, new RawLogEntry(log_file, label, "", structType));
+        }
+    }
+
+    /** Runs in the meta reader thread. */
+    @Override
+    public synchronized void acceptMeta(int key, UdpType type, String val) {
+        if (m_timestamp == 0)
+            return;
+        if (m_pub) {
+            switch (type) {
+                case BOOLEAN -> {
+                    if (booleanPublishers.get(key) == null) {
+                        var t = inst.getBooleanTopic(val);
+                        booleanPublishers.set(key, t.publish(PubSubOption.keepDuplicates(true)));
+                        t.setRetained(true);
+                    }
+                }
+                case DOUBLE -> {
+                    if (doublePublishers.get(key) == null) {
+                        var t = inst.getDoubleTopic(val);
+                        doublePublishers.set(key, t.publish(PubSubOption.keepDuplicates(true)));
+                        t.setRetained(true);
+                    }
+                }
+                case INT, LONG -> {
+                    if (intPublishers.get(key) == null) {
+                        var t = inst.getIntegerTopic(val);
+                        intPublishers.set(key, t.publish(PubSubOption.keepDuplicates(true)));
+                        t.setRetained(true);
+                    }
+                }
+                case DOUBLE_ARRAY -> {
+                    if (doubleArrayPublishers.get(key) == null) {
+                        var t = inst.getDoubleArrayTopic(val);
+                        doubleArrayPublishers.set(key, t.publish(PubSubOption.keepDuplicates(true)));
+                        t.setRetained(true);
+                    }
+                }
+                case STRING -> {
+                    if (stringPublishers.get(key) == null) {
+                        var t = inst.getStringTopic(val);
+                        stringPublishers.set(key, t.publish(PubSubOption.keepDuplicates(true)));
+                        t.setRetained(true);
+                    }
+                }
+                default -> {
+                    System.out.println("unknown meta type 1");
+                }
+            }
+        }
+        if (m_log) {
+            switch (type) {
+                case BOOLEAN -> {
+                    if (booleanEntries.get(key) == null)
+                        booleanEntries.set(key, new BooleanLogEntry(log_file, val));
+                }
+                case DOUBLE -> {
+                    if (doubleEntries.get(key) == null)
+                        doubleEntries.set(key, new DoubleLogEntry(log_file, val));
+                }
+                case INT, LONG -> {
+                    if (intEntries.get(key) == null)
+                        intEntries.set(key, new IntegerLogEntry(log_file, val));
+                }
+                case DOUBLE_ARRAY -> {
+                    if (doubleArrayEntries.get(key) == null)
+                        doubleArrayEntries.set(key, new DoubleArrayLogEntry(log_file, val));
+                }
+                case STRING -> {
+                    if (stringEntries.get(key) == null)
+                        stringEntries.set(key, new StringLogEntry(log_file, val));
+                }
+                default -> {
+                    System.out.println("unknown meta type 2");
+                }
+            }
+        }
+    }
+
+    /**
+     * Called once per batch. Network Tables has a 2MB output buffer, so flush it
+     * often enough to keep it from filling up. The log file has its own period.
+     */
+    @Override
+    public void flush() {
+        counter.addAndGet(m_batchCount);
+        m_batchCount = 0;
+        NetworkTableInstance i = inst;
+        if (m_pub && i != null)
+            i.flush();
+    }
+
+    /** Also closes the log file, which writes out whatever is left. */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        DataLog l = log_file;
+        if (l != null)
+            l.close();
+    }
+}
@@ -71,6 +71,20 @@ public class DummyUdpConsumers implements UdpConsumersInterface {
             System.out.printf("META key: %d type: %s, value: %s\n", key, type.name(), val);
     }
 
+    @Override
+    public void acceptStruct(int key, byte[] val) {
+        counter.incrementAndGet();
+        if (PRINT)
+            System.out.printf("struct key: %d value: %s\n", key, Arrays.toString(val));
+    }
+
+    @Override
+    public void acceptStructMeta(int key, String structType, String label) {
+        counter.incrementAndGet();
+        if (PRINT)
+            System.out.printf("META key: %d struct: %s, value: %s\n", key, structType, label);
+    }
+
     @Override
     public void flush() {
         if (PRINT)
@@ -0,0 +1,124 @@
+package org.team100.lib.logging.receiver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.team100.lib.logging.primitive.MappedLogFile;
+import org.team100.lib.logging.primitive.UdpPrimitiveProtocol.ProtocolException;
+
+import edu.wpi.first.util.WPIUtilJNI;
+
+/**
+ * Reads the segment files written by MappedLogFile, oldest first, and passes
+ * the packets to the usual decoders, as fast as they can go.
+ *
+ * Within each segment, the metadata records are decoded before the data
+ * records, so the consumers know about the keys before the values arrive.
+ * The writer rewrites all the labels at the start of each segment, so this
+ * works for each segment on its own.
+ */
+public class LogFileReplay {
+    private final Path m_dir;
+    private final UdpDataDecoder m_dataDecoder;
+    private final UdpMetaDecoder m_metaDecoder;
+    private final UdpConsumersInterface m_consumers;
+
+    public LogFileReplay(
+            Path dir,
+            UdpDataDecoder dataDecoder,
+            UdpMetaDecoder metaDecoder,
+            UdpConsumersInterface consumers) {
+        m_dir = dir;
+        m_dataDecoder = dataDecoder;
+        m_metaDecoder = metaDecoder;
+        m_consumers = consumers;
+    }
+
+    /**
+     * Replay all the segments.
+     *
+     * @return the number of data packets replayed.
+     */
+    public long replay() throws IOException {
+        long packets = 0;
+        for (MappedByteBuffer segment : segments()) {
+            replay(segment, MappedLogFile.kMeta);
+            packets += replay(segment, MappedLogFile.kData);
+        }
+        return packets;
+    }
+
+    /** Valid segments, oldest first. */
+    private List<MappedByteBuffer> segments() throws IOException {
+        List<MappedByteBuffer> result = new ArrayList<>();
+        try (Stream<Path> files = Files.list(m_dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) {
+                if (!p.getFileName().toString().endsWith(".bin"))
+                    continue;
+                try (FileChannel channel = FileChannel.open(p, StandardOpenOption.READ)) {
+                    if (channel.size() < MappedLogFile.kHeaderSize)
+                        continue;
+                    MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    // big-endian is the default, but just to make it clear...
+                    buf.order(ByteOrder.BIG_ENDIAN);
+                    if (buf.getInt(0) != MappedLogFile.kMagic)
+                        continue;
+                    result.add(buf);
+                }
+            }
+        }
+        result.sort(Comparator.comparingLong(b -> b.getLong(4)));
+        return result;
+    }
+
+    /** Replay records of the specified kind, return the count. */
+    private long replay(ByteBuffer segment, byte kind) {
+        long count = 0;
+        int pos = MappedLogFile.kHeaderSize;
+        final int end = segment.capacity();
+        while (pos + MappedLogFile.kRecordHeaderSize <= end) {
+            byte k = segment.get(pos);
+            if (k == 0)
+                break;
+            int length = Short.toUnsignedInt(segment.getShort(pos + 1));
+            int start = pos + MappedLogFile.kRecordHeaderSize;
+            if (start + length > end) {
+                System.out.println("truncated log record");
+                break;
+            }
+            pos = start + length;
+            if (k != kind)
+                continue;
+            ByteBuffer packet = segment.slice(start, length).order(ByteOrder.BIG_ENDIAN);
+            try {
+                if (kind == MappedLogFile.kData) {
+                    // replay time, since the file doesn't keep the receive time.
+                    m_consumers.beginPacket(WPIUtilJNI.now());
+                    if (m_dataDecoder.validateTimestamp(packet))
+                        m_dataDecoder.decodeAll(packet);
+                } else {
+                    if (m_metaDecoder.validateTimestamp(packet)) {
+                        while (packet.remaining() > 0) {
+                            m_metaDecoder.decode(packet);
+                        }
+                    }
+                }
+            } catch (ProtocolException e) {
+                e.printStackTrace();
+            }
+            count++;
+        }
+        m_consumers.flush();
+        return count;
+    }
+}
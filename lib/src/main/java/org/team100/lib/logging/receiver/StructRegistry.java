@@ -0,0 +1,67 @@
+package org.team100.lib.logging.receiver;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.team100.lib.localization.Blip24;
+import org.team100.lib.motion.drivetrain.SwerveState;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModuleDelta;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModulePosition100;
+import org.team100.lib.state.State100;
+import org.team100.lib.util.OptionalRotation2d;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Quaternion;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.math.geometry.Twist2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.util.struct.Struct;
+
+/**
+ * The structs the robot might log, by type string, e.g. "struct:Pose2d".
+ * 
+ * Struct metadata only carries the type string, so the receiver looks up the
+ * struct here, to write its schema (and the nested ones) to the log and to
+ * Network Tables, so that AdvantageScope can decode the values.
+ * 
+ * Values of unknown types are still logged, as raw bytes with the type string,
+ * just without the schema.
+ */
+public class StructRegistry {
+    private static final Map<String, Struct<?>> structs = new HashMap<>();
+
+    static {
+        add(Pose2d.struct);
+        add(Translation2d.struct);
+        add(Rotation2d.struct);
+        add(Transform3d.struct);
+        add(Translation3d.struct);
+        add(Rotation3d.struct);
+        add(Quaternion.struct);
+        add(Twist2d.struct);
+        add(ChassisSpeeds.struct);
+        add(State100.struct);
+        add(SwerveState.struct);
+        add(SwerveModulePosition100.struct);
+        add(SwerveModuleDelta.struct);
+        add(OptionalRotation2d.struct);
+        add(Blip24.struct);
+    }
+
+    public static Optional<Struct<?>> get(String typeString) {
+        return Optional.ofNullable(structs.get(typeString));
+    }
+
+    private static void add(Struct<?> struct) {
+        structs.put(struct.getTypeString(), struct);
+    }
+
+    private StructRegistry() {
+        //
+    }
+}
@@ -6,6 +6,7 @@ import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -19,13 +20,16 @@ import edu.wpi.first.networktables.DoublePublisher;
 import edu.wpi.first.networktables.IntegerPublisher;
 import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.RawPublisher;
 import edu.wpi.first.networktables.StringPublisher;
 import edu.wpi.first.util.datalog.BooleanLogEntry;
 import edu.wpi.first.util.datalog.DataLog;
 import edu.wpi.first.util.datalog.DoubleArrayLogEntry;
 import edu.wpi.first.util.datalog.DoubleLogEntry;
 import edu.wpi.first.util.datalog.IntegerLogEntry;
+import edu.wpi.first.util.datalog.RawLogEntry;
 import edu.wpi.first.util.datalog.StringLogEntry;
+import edu.wpi.first.util.struct.Struct;
 
 /**
  * All the publishers and log entries.
@@ -62,6 +66,8 @@ public class UdpConsumers implements UdpConsumersInterface {
     Map<Integer, DoubleArrayLogEntry> doubleArrayEntries = new ConcurrentHashMap<>();
     Map<Integer, StringPublisher> stringPublishers = new ConcurrentHashMap<>();
     Map<Integer, StringLogEntry> stringEntries = new ConcurrentHashMap<>();
+    Map<Integer, RawPublisher> structPublishers = new ConcurrentHashMap<>();
+    Map<Integer, RawLogEntry> structEntries = new ConcurrentHashMap<>();
 
     public UdpConsumers() {
         scheduler.scheduleAtFixedRate(
@@ -102,6 +108,8 @@ public class UdpConsumers implements UdpConsumersInterface {
             doubleArrayEntries.clear();
             stringPublishers.clear();
             stringEntries.clear();
+            structPublishers.clear();
+            structEntries.clear();
 
             // make a new log file?
             if (log_file != null)
@@ -211,6 +219,46 @@ public class UdpConsumers implements UdpConsumersInterface {
         }
     }
 
+    @Override
+    public void acceptStruct(int key, byte[] val) {
+        if (m_timestamp == 0)
+            return;
+        counter.incrementAndGet();
+        if (PUB) {
+            RawPublisher pub = structPublishers.get(key);
+            if (pub != null)
+                pub.set(val);
+        }
+        if (LOG) {
+            RawLogEntry entry = structEntries.get(key);
+            if (entry != null)
+                entry.append(val);
+        }
+    }
+
+    @Override
+    public void acceptStructMeta(int key, String structType, String label) {
+        counter.incrementAndGet();
+        Optional<Struct<?>> struct = StructRegistry.get(structType);
+        if (struct.isEmpty())
+            System.out.println("unknown struct type " + structType);
+        if (PUB) {
+            structPublishers.computeIfAbsent(key, k -> {
+                struct.ifPresent(inst::addSchema);
+                var t = inst.getRawTopic(label);
+                var p = t.publish(structType, PubSubOption.keepDuplicates(true));
+                t.setRetained(true);
+                return p;
+            });
+        }
+        if (LOG) {
+            structEntries.computeIfAbsent(key, k -> {
+                struct.ifPresent(log_file::addSchema);
+                return new RawLogEntry(log_file, label, "", structType);
+            });
+        }
+    }
+
     @Override
     public void acceptMeta(int key, UdpType type, String val) {
         counter.incrementAndGet();
@@ -6,6 +6,13 @@ public interface UdpConsumersInterface {
 
     boolean validateTimestamp(long timestamp);
 
+    /**
+     * Called before the values in each packet, with the time the packet was
+     * received, see UdpRingReader.
+     */
+    default void beginPacket(long timestampUs) {
+    }
+
     void acceptBoolean(int key, boolean val);
 
     void acceptDouble(int key, double val);
@@ -18,6 +25,18 @@ public interface UdpConsumersInterface {
 
     void acceptMeta(int key, UdpType type, String val);
 
+    /**
+     * Struct values are the raw packed bytes; the struct type is in the
+     * metadata. Consumers that don't handle structs ignore them.
+     */
+    default void acceptStruct(int key, byte[] val) {
+    }
+
+    /** @param structType e.g. "struct:Pose2d" */
+    default void acceptStructMeta(int key, String structType, String label) {
+        acceptMeta(key, UdpType.STRUCT, label);
+    }
+
     void flush();
 
     void close();
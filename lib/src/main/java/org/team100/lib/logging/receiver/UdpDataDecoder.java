@@ -1,16 +1,43 @@
 package org.team100.lib.logging.receiver;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import org.team100.lib.logging.primitive.UdpPrimitiveProtocol;
 import org.team100.lib.logging.primitive.UdpType;
 import org.team100.lib.logging.primitive.UdpPrimitiveProtocol.ProtocolException;
 
+/**
+ * Decodes data packets, passes the values to the consumers, and keeps the last
+ * value for each key.
+ *
+ * In delta mode, the sender omits unchanged values, so the last-value table is
+ * the full state. Lost packets make the table incomplete, which is indicated
+ * by isSynced(), until the next complete keyframe arrives.
+ */
 public class UdpDataDecoder {
     private static final int kFlushFrequency = 50;
     private final UdpConsumersInterface m_consumers;
     private int flushCounter = 0;
 
+    /** Last value for each key. Doubles are stored as raw long bits. */
+    private long[] m_bits = new long[0];
+    /** Last value for each key, for double arrays, strings, and structs. */
+    private Object[] m_objects = new Object[0];
+    /** Type of each key in the tables, UNKNOWN if never seen. */
+    private UdpType[] m_types = new UdpType[0];
+
+    /** True if we've ever seen a frame header. */
+    private boolean m_framed;
+    /** Sequence number of the last frame header. */
+    private int m_seq;
+    /** True if the last frame header was part of a keyframe. */
+    private boolean m_inKeyframe;
+    /** True if we've received every packet since the start of the keyframe. */
+    private boolean m_keyframeClean;
+    /** True if the last-value table is complete. */
+    private boolean m_synced;
+
     public UdpDataDecoder(UdpConsumersInterface consumers) {
         m_consumers = consumers;
     }
@@ -18,7 +45,7 @@ public class UdpDataDecoder {
     /**
      * return true if timestamp is the first we've seen, or the same as the previous
      * one.
-     * @throws ProtocolException 
+     * @throws ProtocolException
      */
     public boolean validateTimestamp(ByteBuffer buf) throws ProtocolException {
         long timestamp = UdpPrimitiveProtocol.decodeLong(buf);
@@ -30,38 +57,157 @@ public class UdpDataDecoder {
      * Flushes the consumers at the end.
      */
     public void decode(ByteBuffer buf) throws ProtocolException {
+        decodeOne(buf);
+        if (flushCounter++ > kFlushFrequency) {
+            m_consumers.flush();
+            flushCounter = 0;
+        }
+    }
+
+    /**
+     * Decodes everything from buf.position() to the end, without flushing the
+     * consumers; the caller should flush once per batch of packets.
+     */
+    public void decodeAll(ByteBuffer buf) throws ProtocolException {
+        while (buf.remaining() > 0) {
+            decodeOne(buf);
+        }
+    }
+
+    private void decodeOne(ByteBuffer buf) throws ProtocolException {
         int key = UdpPrimitiveProtocol.decodeKey(buf);
         UdpType type = UdpPrimitiveProtocol.decodeType(buf);
         switch (type) {
             case BOOLEAN -> {
                 boolean v = UdpPrimitiveProtocol.decodeBoolean(buf);
+                put(key, type, v ? 1 : 0);
                 m_consumers.acceptBoolean(key, v);
             }
             case DOUBLE -> {
                 double v = UdpPrimitiveProtocol.decodeDouble(buf);
+                put(key, type, Double.doubleToRawLongBits(v));
                 m_consumers.acceptDouble(key, v);
             }
             case INT -> {
                 int v = UdpPrimitiveProtocol.decodeInt(buf);
+                put(key, type, v);
                 m_consumers.acceptInt(key, v);
             }
             case DOUBLE_ARRAY -> {
                 double[] v = UdpPrimitiveProtocol.decodeDoubleArray(buf);
+                put(key, type, v);
                 m_consumers.acceptDoubleArray(key, v);
             }
             case LONG -> {
                 long v = UdpPrimitiveProtocol.decodeLong(buf);
+                put(key, type, v);
                 m_consumers.acceptInt(key, (int) v);
             }
             case STRING -> {
                 String v = UdpPrimitiveProtocol.decodeString(buf);
+                put(key, type, v);
                 m_consumers.acceptString(key, v);
             }
+            case STRUCT -> {
+                byte[] v = UdpPrimitiveProtocol.decodeStruct(buf);
+                put(key, type, v);
+                m_consumers.acceptStruct(key, v);
+            }
+            case FRAME -> {
+                int seq = UdpPrimitiveProtocol.decodeInt(buf);
+                byte flags = UdpPrimitiveProtocol.decodeFrameFlags(buf);
+                frame(seq, flags);
+            }
             default -> System.out.println("unknown data decoder type");
         }
-        if (flushCounter++ > kFlushFrequency) {
-            m_consumers.flush();
-            flushCounter = 0;
+    }
+
+    /**
+     * True if the last-value table is complete, i.e. a keyframe has arrived
+     * complete, and no packets have been lost since then.
+     */
+    public boolean isSynced() {
+        return m_synced;
+    }
+
+    public UdpType getType(int key) {
+        if (key >= m_types.length || m_types[key] == null)
+            return UdpType.UNKNOWN;
+        return m_types[key];
+    }
+
+    public boolean getBoolean(int key) {
+        return m_bits[key] != 0;
+    }
+
+    public double getDouble(int key) {
+        return Double.longBitsToDouble(m_bits[key]);
+    }
+
+    public int getInt(int key) {
+        return (int) m_bits[key];
+    }
+
+    public long getLong(int key) {
+        return m_bits[key];
+    }
+
+    public double[] getDoubleArray(int key) {
+        return (double[]) m_objects[key];
+    }
+
+    public String getString(int key) {
+        return (String) m_objects[key];
+    }
+
+    /** The packed bytes; the struct type is in the metadata. */
+    public byte[] getStruct(int key) {
+        return (byte[]) m_objects[key];
+    }
+
+    /**
+     * A gap in sequence numbers means a lost packet. A keyframe is complete if all
+     * of its packets arrive, from the first one through the first packet of the
+     * next flush.
+     */
+    private void frame(int seq, byte flags) {
+        boolean keyframe = (flags & UdpPrimitiveProtocol.kKeyframe) != 0;
+        boolean first = (flags & UdpPrimitiveProtocol.kFirst) != 0;
+        boolean contiguous = m_framed && seq == m_seq + 1;
+        m_framed = true;
+        m_seq = seq;
+        if (!contiguous) {
+            m_synced = false;
+            m_keyframeClean = false;
+        }
+        if (first && m_inKeyframe && m_keyframeClean) {
+            // we got the whole previous keyframe
+            m_synced = true;
+        }
+        if (keyframe && first) {
+            m_keyframeClean = true;
         }
+        m_inKeyframe = keyframe;
+    }
+
+    private void put(int key, UdpType type, long bits) {
+        ensureCapacity(key);
+        m_types[key] = type;
+        m_bits[key] = bits;
+    }
+
+    private void put(int key, UdpType type, Object val) {
+        ensureCapacity(key);
+        m_types[key] = type;
+        m_objects[key] = val;
+    }
+
+    private void ensureCapacity(int key) {
+        if (key < m_bits.length)
+            return;
+        int capacity = Math.max(key + 1, 2 * m_bits.length);
+        m_bits = Arrays.copyOf(m_bits, capacity);
+        m_objects = Arrays.copyOf(m_objects, capacity);
+        m_types = Arrays.copyOf(m_types, capacity);
     }
 }
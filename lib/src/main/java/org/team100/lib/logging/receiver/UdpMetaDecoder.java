@@ -31,7 +31,12 @@ public class UdpMetaDecoder {
         int key = UdpPrimitiveProtocol.decodeKey(buf);
         UdpType type = UdpPrimitiveProtocol.decodeType(buf);
         String v = UdpPrimitiveProtocol.decodeString(buf);
-        m_consumers.acceptMeta(key, type, v);
+        if (type == UdpType.STRUCT) {
+            String structType = UdpPrimitiveProtocol.decodeString(buf);
+            m_consumers.acceptStructMeta(key, structType, v);
+        } else {
+            m_consumers.acceptMeta(key, type, v);
+        }
         if (flushCounter++ > kFlushFrequency) {
             m_consumers.flush();
             flushCounter = 0;
@@ -0,0 +1,92 @@
+package org.team100.lib.logging.receiver;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.team100.lib.logging.primitive.UdpSender;
+
+/**
+ * Bounded single-producer single-consumer ring of packet buffers, so the
+ * socket reader can keep receiving while the consumer decodes.
+ *
+ * The buffers are allocated up front, so passing a packet through the ring
+ * allocates nothing.
+ *
+ * The producer calls claim(), fills the buffer, and calls publish() with the
+ * time it was received. The consumer calls peek(), reads the buffer and its
+ * timestamp, and calls release(). The head and
+ * tail counters are volatile, which is all the synchronization needed for one
+ * producer and one consumer.
+ */
+public class UdpPacketRing {
+    private final ByteBuffer[] m_slots;
+    /** Receive time of each slot, microseconds. */
+    private final long[] m_timestampsUs;
+    private final int m_mask;
+    /** Next slot to consume. Written only by the consumer. */
+    private volatile long m_head;
+    /** Next slot to produce. Written only by the producer. */
+    private volatile long m_tail;
+
+    /** @param capacity must be a power of two */
+    public UdpPacketRing(int capacity) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("capacity must be a power of two");
+        m_slots = new ByteBuffer[capacity];
+        m_timestampsUs = new long[capacity];
+        for (int i = 0; i < capacity; ++i) {
+            // big-endian is the default, but just to make it clear...
+            m_slots[i] = ByteBuffer.allocateDirect(UdpSender.MTU).order(ByteOrder.BIG_ENDIAN);
+        }
+        m_mask = capacity - 1;
+    }
+
+    /**
+     * Producer: the next empty buffer, cleared, or null if the ring is full.
+     * Call publish() after filling it.
+     */
+    public ByteBuffer claim() {
+        long tail = m_tail;
+        if (tail - m_head >= m_slots.length)
+            return null;
+        ByteBuffer buf = m_slots[(int) (tail & m_mask)];
+        buf.clear();
+        return buf;
+    }
+
+    /** Producer: make the claimed buffer visible to the consumer. */
+    public void publish(long timestampUs) {
+        long tail = m_tail;
+        m_timestampsUs[(int) (tail & m_mask)] = timestampUs;
+        m_tail = tail + 1;
+    }
+
+    /**
+     * Consumer: the oldest full buffer, or null if the ring is empty. Call
+     * release() when done with it.
+     */
+    public ByteBuffer peek() {
+        long head = m_head;
+        if (head >= m_tail)
+            return null;
+        return m_slots[(int) (head & m_mask)];
+    }
+
+    /** Consumer: the receive time of the peeked buffer, microseconds. */
+    public long timestampUs() {
+        return m_timestampsUs[(int) (m_head & m_mask)];
+    }
+
+    /** Consumer: return the peeked buffer to the producer. */
+    public void release() {
+        m_head = m_head + 1;
+    }
+
+    public int size() {
+        return (int) (m_tail - m_head);
+    }
+
+    public int capacity() {
+        return m_slots.length;
+    }
+}
@@ -1,8 +1,18 @@
 package org.team100.lib.logging.receiver;
 
 public class UdpReceiver {
+    /**
+     * Use the ring pipeline, which separates the socket reader from the decoder,
+     * and flushes once per batch. See UdpRingReader and UdpRingConsumer.
+     */
+    private static final boolean BATCHED = true;
+    private static final int kRingCapacity = 4096;
 
     public static void run() throws InterruptedException {
+        if (BATCHED) {
+            runBatched();
+            return;
+        }
         // sender can go about 30M keys/sec.
         // real consumer can go about 4M keys/sec.
         UdpConsumersInterface consumers = new UdpConsumers();
@@ -22,4 +32,25 @@ public class UdpReceiver {
         consumers.close();
     }
 
+    private static void runBatched() throws InterruptedException {
+        UdpConsumersInterface consumers = new ArrayUdpConsumers();
+        UdpPacketRing ring = new UdpPacketRing(kRingCapacity);
+        UdpDataDecoder dataDecoder = new UdpDataDecoder(consumers);
+        UdpMetaDecoder metaDecoder = new UdpMetaDecoder(consumers);
+        UdpRingReader ringReader = new UdpRingReader(ring);
+        UdpRingConsumer ringConsumer = new UdpRingConsumer(ring, dataDecoder, consumers);
+        UdpMetaReader metaReader = new UdpMetaReader(metaDecoder);
+        Thread ringReaderThread = new Thread(ringReader, "UDP Ring Reader");
+        ringReaderThread.start();
+        Thread ringConsumerThread = new Thread(ringConsumer, "UDP Ring Consumer");
+        ringConsumerThread.start();
+        Thread metaReaderThread = new Thread(metaReader);
+        metaReaderThread.start();
+        // these should block forever.
+        ringReaderThread.join();
+        ringConsumerThread.interrupt();
+        System.out.println("done");
+        consumers.close();
+    }
+
 }
@@ -0,0 +1,66 @@
+package org.team100.lib.logging.receiver;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.LockSupport;
+
+import org.team100.lib.logging.primitive.UdpPrimitiveProtocol.ProtocolException;
+
+/**
+ * Decodes packets from the ring filled by UdpRingReader.
+ *
+ * Packets are handled in batches: everything in the ring, up to kMaxBatch
+ * packets, is decoded, and then the consumers are flushed once, instead of
+ * every few dozen keys. Each packet's values get the time the reader received
+ * it.
+ */
+public class UdpRingConsumer implements Runnable {
+    private static final int kMaxBatch = 256;
+    /** How long to wait when the ring is empty. */
+    private static final long kIdleNs = 100000;
+
+    private final UdpPacketRing m_ring;
+    private final UdpDataDecoder m_decoder;
+    private final UdpConsumersInterface m_consumers;
+
+    private volatile long m_consumed;
+
+    public UdpRingConsumer(
+            UdpPacketRing ring,
+            UdpDataDecoder decoder,
+            UdpConsumersInterface consumers) {
+        m_ring = ring;
+        m_decoder = decoder;
+        m_consumers = consumers;
+    }
+
+    @Override
+    public void run() {
+        System.out.println("ring consumer running...");
+        while (!Thread.currentThread().isInterrupted()) {
+            if (m_ring.peek() == null) {
+                LockSupport.parkNanos(kIdleNs);
+                continue;
+            }
+            int batch = 0;
+            ByteBuffer buf;
+            while (batch < kMaxBatch && (buf = m_ring.peek()) != null) {
+                try {
+                    m_consumers.beginPacket(m_ring.timestampUs());
+                    if (m_decoder.validateTimestamp(buf)) {
+                        m_decoder.decodeAll(buf);
+                    }
+                } catch (ProtocolException e) {
+                    e.printStackTrace();
+                }
+                m_ring.release();
+                batch++;
+            }
+            m_consumers.flush();
+            m_consumed = m_consumed + batch;
+        }
+    }
+
+    public long getConsumed() {
+        return m_consumed;
+    }
+}
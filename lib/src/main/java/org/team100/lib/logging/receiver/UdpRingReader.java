@@ -0,0 +1,113 @@
+package org.team100.lib.logging.receiver;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+
+import org.team100.lib.logging.primitive.UdpSender;
+
+import edu.wpi.first.util.WPIUtilJNI;
+
+/**
+ * Receives data packets into a ring, for UdpRingConsumer to decode in another
+ * thread.
+ *
+ * This thread does nothing but receive, so the socket buffer doesn't overflow
+ * while the consumer is busy, and each packet is stamped when it arrives. If the ring is full, the packet is dropped, and
+ * counted.
+ */
+public class UdpRingReader implements Runnable {
+    private final UdpPacketRing m_ring;
+
+    /** nullable */
+    private final DatagramChannel m_channel;
+
+    /** Where packets go when the ring is full. */
+    private final ByteBuffer m_scratch;
+
+    private volatile long m_received;
+    private volatile long m_dropped;
+
+    /** @param port use zero for an ephemeral port, see getPort(). */
+    public UdpRingReader(UdpPacketRing ring, int port) {
+        m_ring = ring;
+        m_channel = makeChannel(port);
+        m_scratch = ByteBuffer.allocateDirect(UdpSender.MTU);
+    }
+
+    public UdpRingReader(UdpPacketRing ring) {
+        this(ring, UdpSender.kPort);
+    }
+
+    @Override
+    public void run() {
+        if (m_channel == null) {
+            System.out.println("no channel");
+            return;
+        }
+        System.out.println("ring reader running...");
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                ByteBuffer buf = m_ring.claim();
+                if (buf == null) {
+                    m_scratch.clear();
+                    m_channel.receive(m_scratch);
+                    m_dropped = m_dropped + 1;
+                    continue;
+                }
+                m_channel.receive(buf);
+                long timestampUs = WPIUtilJNI.now();
+                buf.flip();
+                m_ring.publish(timestampUs);
+                m_received = m_received + 1;
+            } catch (ClosedChannelException e) {
+                // see close()
+                return;
+            } catch (IOException e) {
+                e.printStackTrace();
+                return;
+            }
+        }
+    }
+
+    public long getReceived() {
+        return m_received;
+    }
+
+    /** Packets dropped because the ring was full. */
+    public long getDropped() {
+        return m_dropped;
+    }
+
+    public int getPort() {
+        try {
+            return ((InetSocketAddress) m_channel.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    public void close() {
+        try {
+            m_channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static DatagramChannel makeChannel(int port) {
+        try {
+            DatagramChannel channel = DatagramChannel.open();
+            channel.configureBlocking(true);
+            InetSocketAddress sockAddr = new InetSocketAddress(port);
+            channel.bind(sockAddr);
+            return channel;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
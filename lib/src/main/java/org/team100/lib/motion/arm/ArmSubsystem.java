@@ -5,6 +5,7 @@ import java.util.OptionalDouble;
 
 import org.team100.lib.dashboard.Glassy;
 import org.team100.lib.encoder.RotaryPositionSensor;
+import org.team100.lib.framework.LoopProfiler;
 import org.team100.lib.framework.TimedRobot100;
 import org.team100.lib.logging.Level;
 import org.team100.lib.logging.LoggerFactory;
@@ -19,6 +20,8 @@ import edu.wpi.first.wpilibj2.command.SubsystemBase;
  * Arm mechanism with two joints.
  */
 public class ArmSubsystem extends SubsystemBase implements Glassy {
+    private final LoopProfiler.Span m_span = LoopProfiler.instance().span(getName() + ".periodic()");
+
     private static final double kFilterTimeConstantS = 0.06;
 
     private final LinearFilter m_lowerMeasurementFilter;
@@ -110,6 +113,10 @@ public class ArmSubsystem extends SubsystemBase implements Glassy {
 
     @Override
     public void periodic() {
+        m_span.run(this::doPeriodic);
+    }
+
+    private void doPeriodic() {
         m_lowerArmMotor.periodic();
         m_upperArmMotor.periodic();
     }
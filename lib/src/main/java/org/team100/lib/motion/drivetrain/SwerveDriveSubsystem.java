@@ -2,7 +2,9 @@ package org.team100.lib.motion.drivetrain;
 
 import org.team100.lib.config.DriverSkill;
 import org.team100.lib.dashboard.Glassy;
+import org.team100.lib.framework.LoopProfiler;
 import org.team100.lib.geometry.GeometryUtil;
+import org.team100.lib.localization.OdometryThread;
 import org.team100.lib.localization.SwerveDrivePoseEstimator100;
 import org.team100.lib.localization.VisionData;
 import org.team100.lib.logging.Level;
@@ -30,10 +32,14 @@ import edu.wpi.first.wpilibj2.command.SubsystemBase;
  * We depend on CommandScheduler to enforce the mutex.
  */
 public class SwerveDriveSubsystem extends SubsystemBase implements Glassy, DriveSubsystemInterface {
+    private final LoopProfiler.Span m_span = LoopProfiler.instance().span(getName() + ".periodic()");
+
     private final Gyro m_gyro;
     private final SwerveDrivePoseEstimator100 m_poseEstimator;
     private final SwerveLocal m_swerveLocal;
     private final VisionData m_cameras;
+    /** Optional, if null, odometry is sampled once per cycle. */
+    private OdometryThread m_odometry;
 
     // CACHES
     private final Memo.CotemporalCache<SwerveState> m_stateSupplier;
@@ -176,24 +182,30 @@ public class SwerveDriveSubsystem extends SubsystemBase implements Glassy, Drive
     public void resetTranslation(Translation2d translation) {
         Util.warn("Make sure resetting the swerve module collection doesn't break anything");
         m_swerveLocal.reset();
+        double now = Timer.getFPGATimestamp();
         m_poseEstimator.reset(
                 m_gyro.getYawNWU(),
                 m_gyro.getYawRateNWU(),
                 m_swerveLocal.positions(),
                 new Pose2d(translation, m_gyro.getYawNWU()),
-                Timer.getFPGATimestamp());
+                now);
+        if (m_odometry != null)
+            m_odometry.reset(now);
         m_stateSupplier.reset();
     }
 
     public void resetPose(Pose2d robotPose) {
         Util.warn("Make sure resetting the swerve module collection doesn't break anything");
         m_swerveLocal.reset();
+        double now = Timer.getFPGATimestamp();
         m_poseEstimator.reset(
                 m_gyro.getYawNWU(),
                 m_gyro.getYawRateNWU(),
                 m_swerveLocal.positions(),
                 robotPose,
-                Timer.getFPGATimestamp());
+                now);
+        if (m_odometry != null)
+            m_odometry.reset(now);
         m_stateSupplier.reset();
     }
 
@@ -227,6 +239,10 @@ public class SwerveDriveSubsystem extends SubsystemBase implements Glassy, Drive
      */
     @Override
     public void periodic() {
+        m_span.run(this::doPeriodic);
+    }
+
+    private void doPeriodic() {
         // m_poseEstimator.periodic();
         m_stateSupplier.reset();
         m_log_state.log(this::getState);
@@ -250,7 +266,17 @@ public class SwerveDriveSubsystem extends SubsystemBase implements Glassy, Drive
         m_swerveLocal.periodic();
     }
 
+    /**
+     * Use the supplied thread for odometry instead of sampling once per cycle.
+     * The thread should already be started.
+     */
+    public void setOdometryThread(OdometryThread odometry) {
+        m_odometry = odometry;
+    }
+
     public void close() {
+        if (m_odometry != null)
+            m_odometry.close();
         m_swerveLocal.close();
     }
 
@@ -260,11 +286,15 @@ public class SwerveDriveSubsystem extends SubsystemBase implements Glassy, Drive
     private SwerveState update() {
         double now = Timer.getFPGATimestamp();
         // System.out.println("SwerveDriveSubsystem.update() " + now);
-        m_poseEstimator.put(
-                now,
-                m_gyro.getYawNWU(),
-                m_gyro.getYawRateNWU(),
-                m_swerveLocal.positions());
+        if (m_odometry != null) {
+            m_odometry.drainTo(m_poseEstimator);
+        } else {
+            m_poseEstimator.put(
+                    now,
+                    m_gyro.getYawNWU(),
+                    m_gyro.getYawRateNWU(),
+                    m_swerveLocal.positions());
+        }
         m_cameras.update();
         return m_poseEstimator.get(now);
     }
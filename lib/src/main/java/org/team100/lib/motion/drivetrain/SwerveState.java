@@ -5,6 +5,7 @@ import java.util.Optional;
 import org.team100.lib.geometry.GeometryUtil;
 import org.team100.lib.motion.drivetrain.kinodynamics.FieldRelativeAcceleration;
 import org.team100.lib.motion.drivetrain.kinodynamics.FieldRelativeVelocity;
+import org.team100.lib.motion.drivetrain.struct.SwerveStateStruct;
 import org.team100.lib.state.State100;
 import org.team100.lib.timing.TimedPose;
 
@@ -12,17 +13,21 @@ import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.util.struct.StructSerializable;
 
 /**
  * Describes the state of a holonomic drive in three dimensions,
  * x, y, and theta, each of which is represented by position, velocity,
  * and acceleration.
  */
-public class SwerveState {
+public class SwerveState implements StructSerializable {
     private final State100 m_x;
     private final State100 m_y;
     private final State100 m_theta;
 
+    /** SwerveState struct for serialization. */
+    public static final SwerveStateStruct struct = new SwerveStateStruct();
+
     public SwerveState(State100 x, State100 y, State100 theta) {
         m_x = x;
         m_y = y;
@@ -17,10 +17,18 @@ import edu.wpi.first.math.kinematics.ChassisSpeeds;
  * Note: forward kinematics is never more accurate than the gyro and we
  * absolutely cannot operate without a functional gyro, so we should use the
  * gyro instead. see https://github.com/Team100/all24/issues/350
+ * 
+ * This is only for four modules. The matrix products are unrolled, using
+ * copies of the matrices in flat arrays, so there's no EJML allocation in the
+ * loop. The sums are done in the same order as EJML does them, so the results
+ * are exactly the same.
+ * 
+ * For allocation-free use, see the methods that take a caller-provided output,
+ * e.g. toModuleVectors().
  */
 public class SwerveDriveKinematics100 {
     private static final double kEpsilon = 1e-6;
-    private final int m_numModules;
+    private static final int kModules = 4;
     private final Translation2d[] m_moduleLocations;
 
     /**
@@ -83,6 +91,10 @@ public class SwerveDriveKinematics100 {
      * </pre>
      */
     final SimpleMatrix m_forwardKinematics;
+    /** m_inverseKinematics, row-major (8 x 3) */
+    private final double[] m_ik;
+    /** m_forwardKinematics, row-major (3 x 8) */
+    private final double[] m_fk;
     /**
      * Used when velocity is zero, to keep the steering the same.
      * elements are nullable.
@@ -101,10 +113,11 @@ public class SwerveDriveKinematics100 {
      */
     public SwerveDriveKinematics100(Translation2d... moduleTranslationsM) {
         checkModuleCount(moduleTranslationsM);
-        m_numModules = moduleTranslationsM.length;
-        m_moduleLocations = Arrays.copyOf(moduleTranslationsM, m_numModules);
+        m_moduleLocations = Arrays.copyOf(moduleTranslationsM, kModules);
         m_inverseKinematics = inverseMatrix(m_moduleLocations);
         m_forwardKinematics = m_inverseKinematics.pseudoInverse();
+        m_ik = m_inverseKinematics.getDDRM().getData().clone();
+        m_fk = m_forwardKinematics.getDDRM().getData().clone();
         // nulls avoid startup transient
         m_moduleHeadings = nulls();
     }
@@ -127,14 +140,33 @@ public class SwerveDriveKinematics100 {
         if (fullStop(chassisSpeeds)) {
             return constantModuleHeadings(); // avoid steering when stopped
         }
-        // [vx; vy; omega] (3 x 1)
-        SimpleMatrix chassisSpeedsVector = chassisSpeeds2Vector(chassisSpeeds);
+        double vx = chassisSpeeds.vxMetersPerSecond;
+        double vy = chassisSpeeds.vyMetersPerSecond;
+        double omega = chassisSpeeds.omegaRadiansPerSecond;
         // [v cos; v sin; ...] (2n x 1)
-        SwerveModuleStates states = statesFromVector(chassisSpeedsVector);
+        SwerveModuleStates states = new SwerveModuleStates(
+                stateFromVector(inverse(0, vx, vy, omega), inverse(1, vx, vy, omega)),
+                stateFromVector(inverse(2, vx, vy, omega), inverse(3, vx, vy, omega)),
+                stateFromVector(inverse(4, vx, vy, omega), inverse(5, vx, vy, omega)),
+                stateFromVector(inverse(6, vx, vy, omega), inverse(7, vx, vy, omega)));
         updateHeadings(states);
         return states;
     }
 
+    /**
+     * INVERSE: chassis speeds -> module velocity vectors, without allocating.
+     * 
+     * Unlike toSwerveModuleStates(), this doesn't do anything special when
+     * stopped, and doesn't update the remembered headings.
+     * 
+     * @param out [vx0, vy0, vx1, vy1, vx2, vy2, vx3, vy3]
+     */
+    public void toModuleVectors(double vx, double vy, double omega, double[] out) {
+        for (int i = 0; i < 2 * kModules; ++i) {
+            out[i] = inverse(i, vx, vy, omega);
+        }
+    }
+
     /**
      * INVERSE: twist -> module position deltas
      * 
@@ -144,11 +176,15 @@ public class SwerveDriveKinematics100 {
         if (fullStop(twist)) {
             return constantModulePositions();
         }
-        // [dx; dy; dtheta] (3 x 1)
-        SimpleMatrix twistVector = twist2Vector(twist);
+        double dx = twist.dx;
+        double dy = twist.dy;
+        double dtheta = twist.dtheta;
         // [d cos; d sin; ...] (2n x 1)
-        SimpleMatrix deltaVector = m_inverseKinematics.mult(twistVector);
-        SwerveModuleDeltas deltas = deltasFromVector(deltaVector);
+        SwerveModuleDeltas deltas = new SwerveModuleDeltas(
+                new SwerveModuleDelta(inverse(0, dx, dy, dtheta), inverse(1, dx, dy, dtheta)),
+                new SwerveModuleDelta(inverse(2, dx, dy, dtheta), inverse(3, dx, dy, dtheta)),
+                new SwerveModuleDelta(inverse(4, dx, dy, dtheta), inverse(5, dx, dy, dtheta)),
+                new SwerveModuleDelta(inverse(6, dx, dy, dtheta), inverse(7, dx, dy, dtheta)));
         updateHeadings(deltas);
         return deltas;
     }
@@ -169,12 +205,51 @@ public class SwerveDriveKinematics100 {
      * NOTE: do not use the returned omega, use the gyro instead.
      */
     public ChassisSpeeds toChassisSpeeds(SwerveModuleStates states) {
-        // checkLength(states);
+        ChassisSpeeds result = new ChassisSpeeds();
+        toChassisSpeeds(states, result);
+        return result;
+    }
+
+    /**
+     * FORWARD: module states -> chassis speeds, into the supplied object.
+     */
+    public void toChassisSpeeds(SwerveModuleStates states, ChassisSpeeds out) {
+        SwerveModuleState100 fl = states.frontLeft();
+        SwerveModuleState100 fr = states.frontRight();
+        SwerveModuleState100 rl = states.rearLeft();
+        SwerveModuleState100 rr = states.rearRight();
         // [v cos; v sin; ...] (2n x 1)
-        SimpleMatrix statesVector = states2Vector(states);
-        // [vx; vy; omega]
-        SimpleMatrix chassisSpeedsVector = m_forwardKinematics.mult(statesVector);
-        return vector2ChassisSpeeds(chassisSpeedsVector);
+        double x0 = stateX(fl);
+        double y0 = stateY(fl);
+        double x1 = stateX(fr);
+        double y1 = stateY(fr);
+        double x2 = stateX(rl);
+        double y2 = stateY(rl);
+        double x3 = stateX(rr);
+        double y3 = stateY(rr);
+        out.vxMetersPerSecond = forward(0, x0, y0, x1, y1, x2, y2, x3, y3);
+        out.vyMetersPerSecond = forward(1, x0, y0, x1, y1, x2, y2, x3, y3);
+        out.omegaRadiansPerSecond = forward(2, x0, y0, x1, y1, x2, y2, x3, y3);
+    }
+
+    /**
+     * FORWARD: module vectors -> chassis vector, without allocating.
+     * 
+     * @param moduleVectors [vx0, vy0, vx1, vy1, vx2, vy2, vx3, vy3]
+     * @param out           [vx, vy, omega]
+     */
+    public void toChassisVector(double[] moduleVectors, double[] out) {
+        double x0 = moduleVectors[0];
+        double y0 = moduleVectors[1];
+        double x1 = moduleVectors[2];
+        double y1 = moduleVectors[3];
+        double x2 = moduleVectors[4];
+        double y2 = moduleVectors[5];
+        double x3 = moduleVectors[6];
+        double y3 = moduleVectors[7];
+        out[0] = forward(0, x0, y0, x1, y1, x2, y2, x3, y3);
+        out[1] = forward(1, x0, y0, x1, y1, x2, y2, x3, y3);
+        out[2] = forward(2, x0, y0, x1, y1, x2, y2, x3, y3);
     }
 
     /**
@@ -185,12 +260,31 @@ public class SwerveDriveKinematics100 {
      * NOTE: do not use the returned dtheta, use the gyro instead.
      */
     public Twist2d toTwist2d(SwerveModuleDeltas deltas) {
-        // checkLength(deltas);
+        Twist2d result = new Twist2d();
+        toTwist2d(deltas, result);
+        return result;
+    }
+
+    /**
+     * FORWARD: module deltas -> twist, into the supplied object.
+     */
+    public void toTwist2d(SwerveModuleDeltas deltas, Twist2d out) {
+        SwerveModuleDelta fl = deltas.frontLeft();
+        SwerveModuleDelta fr = deltas.frontRight();
+        SwerveModuleDelta rl = deltas.rearLeft();
+        SwerveModuleDelta rr = deltas.rearRight();
         // [d cos; d sin; ...] (2n x 1)
-        SimpleMatrix deltaVector = deltas2Vector(deltas);
-        // [dx ;dy; dtheta]
-        SimpleMatrix twistVector = m_forwardKinematics.mult(deltaVector);
-        return vector2Twist(twistVector);
+        double x0 = deltaX(fl);
+        double y0 = deltaY(fl);
+        double x1 = deltaX(fr);
+        double y1 = deltaY(fr);
+        double x2 = deltaX(rl);
+        double y2 = deltaY(rl);
+        double x3 = deltaX(rr);
+        double y3 = deltaY(rr);
+        out.dx = forward(0, x0, y0, x1, y1, x2, y2, x3, y3);
+        out.dy = forward(1, x0, y0, x1, y1, x2, y2, x3, y3);
+        out.dtheta = forward(2, x0, y0, x1, y1, x2, y2, x3, y3);
     }
 
     /**
@@ -264,75 +358,63 @@ public class SwerveDriveKinematics100 {
 
     ///////////////////////////////////////
 
-    /** states -> [v cos; v sin; ... v cos; v sin] (2n x 1) */
-    private SimpleMatrix states2Vector(SwerveModuleStates moduleStates) {
-        SwerveModuleState100[] moduleStatesAll = moduleStates.all();
-        SimpleMatrix moduleStatesMatrix = new SimpleMatrix(m_numModules * 2, 1);
-        for (int i = 0; i < m_numModules; i++) {
-            SwerveModuleState100 module = moduleStatesAll[i];
-            if (Math.abs(module.speedMetersPerSecond) < 1e-6 || module.angle.isEmpty()) {
-                // wheel is stopped, or angle is invalid so pretend it's stopped.
-                moduleStatesMatrix.set(i * 2, 0, 0);
-                moduleStatesMatrix.set(i * 2 + 1, 0, 0);
-            } else {
-                moduleStatesMatrix.set(i * 2, 0, module.speedMetersPerSecond * module.angle.get().getCos());
-                moduleStatesMatrix.set(i * 2 + 1, 0, module.speedMetersPerSecond * module.angle.get().getSin());
-
-            }
-        }
-        return moduleStatesMatrix;
+    /**
+     * One row of the inverse kinematics product, (8 x 3) * (3 x 1).
+     * 
+     * The sum order is the same as EJML.
+     */
+    private double inverse(int row, double vx, double vy, double omega) {
+        int i = 3 * row;
+        return m_ik[i] * vx + m_ik[i + 1] * vy + m_ik[i + 2] * omega;
     }
 
     /**
-     * produces a vector of corner dx and dy, assuming the module deltas represent
-     * straight line paths.
+     * One row of the forward kinematics product, (3 x 8) * (8 x 1).
      * 
-     * @param moduleDeltas [d cos; d sin; ... ] (2n x 1)
+     * The sum order is the same as EJML.
      */
-    private SimpleMatrix deltas2Vector(SwerveModuleDeltas moduleDeltas) {
-        SwerveModuleDelta[] deltas = moduleDeltas.all();
-        SimpleMatrix moduleDeltaMatrix = new SimpleMatrix(m_numModules * 2, 1);
-        for (int i = 0; i < m_numModules; i++) {
-            SwerveModuleDelta module = deltas[i];
-            if (Math.abs(module.distanceMeters) < 1e-6 || module.angle.isEmpty()) {
-                moduleDeltaMatrix.set(i * 2, 0, 0);
-                moduleDeltaMatrix.set(i * 2 + 1, 0, 0);
-            } else {
-                moduleDeltaMatrix.set(i * 2, 0, module.distanceMeters * module.angle.get().getCos());
-                moduleDeltaMatrix.set(i * 2 + 1, 0, module.distanceMeters * module.angle.get().getSin());
-            }
-        }
-        return moduleDeltaMatrix;
+    private double forward(
+            int row,
+            double x0, double y0,
+            double x1, double y1,
+            double x2, double y2,
+            double x3, double y3) {
+        int i = 8 * row;
+        return m_fk[i] * x0 + m_fk[i + 1] * y0
+                + m_fk[i + 2] * x1 + m_fk[i + 3] * y1
+                + m_fk[i + 4] * x2 + m_fk[i + 5] * y2
+                + m_fk[i + 6] * x3 + m_fk[i + 7] * y3;
     }
 
-    /** ChassisSpeeds -> [vx; vy; omega] (3 x 1) */
-    private SimpleMatrix chassisSpeeds2Vector(ChassisSpeeds chassisSpeeds) {
-        SimpleMatrix chassisSpeedsVector = new SimpleMatrix(3, 1);
-        chassisSpeedsVector.setColumn(
-                0,
-                0,
-                chassisSpeeds.vxMetersPerSecond,
-                chassisSpeeds.vyMetersPerSecond,
-                chassisSpeeds.omegaRadiansPerSecond);
-        return chassisSpeedsVector;
+    /** v cos, or zero if the wheel is stopped or the angle is invalid. */
+    private static double stateX(SwerveModuleState100 module) {
+        if (Math.abs(module.speedMetersPerSecond) < 1e-6 || module.angle.isEmpty())
+            return 0;
+        return module.speedMetersPerSecond * module.angle.get().getCos();
     }
 
-    /** Twist as a 3x1 column vector: [dx; dy; dtheta] */
-    private static SimpleMatrix twist2Vector(Twist2d twist) {
-        return new SimpleMatrix(new double[] {
-                twist.dx,
-                twist.dy,
-                twist.dtheta });
+    /** v sin, or zero if the wheel is stopped or the angle is invalid. */
+    private static double stateY(SwerveModuleState100 module) {
+        if (Math.abs(module.speedMetersPerSecond) < 1e-6 || module.angle.isEmpty())
+            return 0;
+        return module.speedMetersPerSecond * module.angle.get().getSin();
     }
 
-    /** [vx; vy; omega] (3 x 1) -> ChassisSpeeds */
-    private static ChassisSpeeds vector2ChassisSpeeds(SimpleMatrix v) {
-        return new ChassisSpeeds(v.get(0, 0), v.get(1, 0), v.get(2, 0));
+    /**
+     * d cos, assuming the module delta is a straight line, or zero if the wheel
+     * didn't move or the angle is invalid.
+     */
+    private static double deltaX(SwerveModuleDelta module) {
+        if (Math.abs(module.distanceMeters) < 1e-6 || module.angle.isEmpty())
+            return 0;
+        return module.distanceMeters * module.angle.get().getCos();
     }
 
-    /** [dx; dy; dtheta] (3 x 1) -> Twist2d */
-    private static Twist2d vector2Twist(SimpleMatrix v) {
-        return new Twist2d(v.get(0, 0), v.get(1, 0), v.get(2, 0));
+    /** d sin, see deltaX(). */
+    private static double deltaY(SwerveModuleDelta module) {
+        if (Math.abs(module.distanceMeters) < 1e-6 || module.angle.isEmpty())
+            return 0;
+        return module.distanceMeters * module.angle.get().getSin();
     }
 
     /** True if speeds are (nearly) stopped. Deadband upstream for this to work. */
@@ -365,22 +447,6 @@ public class SwerveDriveKinematics100 {
                 new SwerveModuleDelta(0.0, Optional.ofNullable(m_moduleHeadings.rearRight())));
     }
 
-    /**
-     * [v cos; v sin; ... ] (2n x 1) -> states[]
-     * 
-     * The resulting module speed is always positive.
-     * 
-     * @param chassisSpeedsVector [vx0; vy0; vx1; ...]
-     */
-    SwerveModuleStates statesFromVector(SimpleMatrix chassisSpeedsVector) {
-        SimpleMatrix moduleStatesMatrix = m_inverseKinematics.mult(chassisSpeedsVector);
-        return new SwerveModuleStates(
-                stateFromVector(moduleStatesMatrix.get(0, 0), moduleStatesMatrix.get(1, 0)),
-                stateFromVector(moduleStatesMatrix.get(2, 0), moduleStatesMatrix.get(3, 0)),
-                stateFromVector(moduleStatesMatrix.get(4, 0), moduleStatesMatrix.get(5, 0)),
-                stateFromVector(moduleStatesMatrix.get(6, 0), moduleStatesMatrix.get(7, 0)));
-    }
-
     private SwerveModuleState100 stateFromVector(double x, double y) {
         if (Math.abs(x) < 0.004 && Math.abs(y) < 0.004) {
             return new SwerveModuleState100(0.0, Optional.empty());
@@ -393,20 +459,6 @@ public class SwerveDriveKinematics100 {
         return m_moduleLocations;
     }
 
-    /**
-     * The resulting distance is always positive.
-     * 
-     * @param moduleDeltaVector [d cos; d sin; ...] (2n x 1),
-     *                          equivalently [dx0; dy0; dx1; ...]
-     */
-    private SwerveModuleDeltas deltasFromVector(SimpleMatrix moduleDeltaVector) {
-        return new SwerveModuleDeltas(
-                new SwerveModuleDelta(moduleDeltaVector.get(0, 0), moduleDeltaVector.get(1, 0)),
-                new SwerveModuleDelta(moduleDeltaVector.get(2, 0), moduleDeltaVector.get(3, 0)),
-                new SwerveModuleDelta(moduleDeltaVector.get(4, 0), moduleDeltaVector.get(5, 0)),
-                new SwerveModuleDelta(moduleDeltaVector.get(6, 0), moduleDeltaVector.get(7, 0)));
-    }
-
     /** Keep a copy of headings in case we need them for full-stop. */
     private void updateHeadings(SwerveModuleStates moduleStates) {
         // use new angle if available, otherwise keep the old one
@@ -443,8 +495,8 @@ public class SwerveDriveKinematics100 {
     }
 
     private void checkModuleCount(Translation2d... moduleTranslationsM) {
-        if (moduleTranslationsM.length < 2) {
-            throw new IllegalArgumentException("Swerve requires at least two modules");
+        if (moduleTranslationsM.length != kModules) {
+            throw new IllegalArgumentException("Swerve requires four modules");
         }
     }
 }
@@ -22,7 +22,12 @@ import org.team100.lib.util.Util;
  */
 public class SwerveKinodynamicsFactory {
     public static SwerveKinodynamics get() {
-        switch (Identity.instance) {
+        return get(Identity.instance);
+    }
+
+    /** For some other robot, e.g. when precomputing its trajectories. */
+    public static SwerveKinodynamics get(Identity identity) {
+        switch (identity) {
             case COMP_BOT:
                 // these numbers are a guess based on the betabot numbers.
                 // the comp bot uses the "fast" ratio and FOC falcons
@@ -11,6 +11,8 @@ import org.team100.lib.motion.servo.LinearVelocityServo;
 import org.team100.lib.state.State100;
 import org.team100.lib.util.Util;
 
+import com.ctre.phoenix6.BaseStatusSignal;
+
 import edu.wpi.first.math.geometry.Rotation2d;
 
 /**
@@ -125,6 +127,23 @@ public abstract class SwerveModule100 implements Glassy {
                 Optional.of(new Rotation2d(turningPosition.getAsDouble())));
     }
 
+    /**
+     * Signals the odometry thread should refresh, all together, before calling
+     * samplePosition(). None by default.
+     */
+    BaseStatusSignal[] odometrySignals() {
+        return new BaseStatusSignal[0];
+    }
+
+    /**
+     * Position for the odometry thread, which runs faster than the main loop, so
+     * this must not read through the Memo caches. The simulated sensors aren't
+     * cached, so by default this is the same as getPosition().
+     */
+    SwerveModulePosition100 samplePosition() {
+        return getPosition();
+    }
+
     boolean atSetpoint() {
         return m_turningServo.atSetpoint();
     }
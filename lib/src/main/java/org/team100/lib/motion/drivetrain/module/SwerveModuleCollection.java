@@ -1,5 +1,9 @@
 package org.team100.lib.motion.drivetrain.module;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.team100.lib.config.Identity;
 import org.team100.lib.encoder.AnalogTurningEncoder;
 import org.team100.lib.encoder.DutyCycleRotaryPositionSensor;
@@ -10,9 +14,12 @@ import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModulePositions;
 import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModuleStates;
 import org.team100.lib.motion.drivetrain.module.WCPSwerveModule100.DriveRatio;
 import org.team100.lib.motor.MotorPhase;
+import org.team100.lib.motor.Phoenix100;
 import org.team100.lib.state.State100;
 import org.team100.lib.util.Util;
 
+import com.ctre.phoenix6.BaseStatusSignal;
+
 /** Represents the modules in the drivetrain. */
 public class SwerveModuleCollection {
     private static final String kSwerveModules = "Swerve Modules";
@@ -25,6 +32,8 @@ public class SwerveModuleCollection {
     private final SwerveModule100 m_frontRight;
     private final SwerveModule100 m_rearLeft;
     private final SwerveModule100 m_rearRight;
+    /** All the modules' odometry signals, refreshed in one call. */
+    private final BaseStatusSignal[] m_odometrySignals;
 
     private SwerveModuleCollection(
             SwerveModule100 frontLeft,
@@ -35,6 +44,11 @@ public class SwerveModuleCollection {
         m_frontRight = frontRight;
         m_rearLeft = rearLeft;
         m_rearRight = rearRight;
+        List<BaseStatusSignal> signals = new ArrayList<>();
+        for (SwerveModule100 module : modules()) {
+            signals.addAll(Arrays.asList(module.odometrySignals()));
+        }
+        m_odometrySignals = signals.toArray(new BaseStatusSignal[0]);
     }
 
     /**
@@ -215,6 +229,21 @@ public class SwerveModuleCollection {
                 m_rearRight.getPosition());
     }
 
+    /**
+     * Fresh positions for the odometry thread, not the per-cycle cached ones.
+     * Refreshes the modules' own signals in one call, so they're all from the
+     * same CAN frames.
+     */
+    public SwerveModulePositions samplePositions() {
+        if (m_odometrySignals.length > 0)
+            Phoenix100.warn(() -> BaseStatusSignal.refreshAll(m_odometrySignals));
+        return new SwerveModulePositions(
+                m_frontLeft.samplePosition(),
+                m_frontRight.samplePosition(),
+                m_rearLeft.samplePosition(),
+                m_rearRight.samplePosition());
+    }
+
     public SwerveModuleStates states() {
         return new SwerveModuleStates(
                 m_frontLeft.getState(),
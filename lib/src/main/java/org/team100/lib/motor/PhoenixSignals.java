@@ -0,0 +1,63 @@
+package org.team100.lib.motor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.team100.lib.util.Memo;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+
+/**
+ * Refreshes all the registered Phoenix signals in one batch.
+ * 
+ * Calling refresh() on each signal individually is a separate blocking call
+ * every time, and a swerve drive has dozens of signals, so instead we register
+ * them all here, refresh them together once per cycle (in Memo.resetAll(),
+ * before the memos are reset), and then the memos just read the latched values.
+ */
+public class PhoenixSignals {
+    private static final List<BaseStatusSignal> signals = new ArrayList<>();
+    /** Copy of the list, for refreshAll(). */
+    private static BaseStatusSignal[] signalArray = new BaseStatusSignal[0];
+
+    static {
+        Memo.registerUpdater(PhoenixSignals::refreshAll);
+    }
+
+    /** Add the signal to the batch. Returns the signal, for convenience. */
+    public static synchronized <T extends BaseStatusSignal> T register(T signal) {
+        signals.add(signal);
+        signalArray = signals.toArray(new BaseStatusSignal[0]);
+        return signal;
+    }
+
+    /** Remove the signals from the batch, e.g. when the device is closed. */
+    public static synchronized void unregister(BaseStatusSignal... toRemove) {
+        for (BaseStatusSignal signal : toRemove) {
+            // identity, not equals(), since that's how they were added.
+            signals.removeIf(x -> x == signal);
+        }
+        signalArray = signals.toArray(new BaseStatusSignal[0]);
+    }
+
+    /** Remove all the signals. For testing. */
+    public static synchronized void clear() {
+        signals.clear();
+        signalArray = new BaseStatusSignal[0];
+    }
+
+    /** Refresh all the registered signals. This is called by Memo.resetAll(). */
+    public static synchronized void refreshAll() {
+        if (signalArray.length == 0)
+            return;
+        Phoenix100.warn(() -> BaseStatusSignal.refreshAll(signalArray));
+    }
+
+    public static synchronized int size() {
+        return signals.size();
+    }
+
+    private PhoenixSignals() {
+        //
+    }
+}
@@ -1,5 +1,7 @@
 package org.team100.lib.motor;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.DoubleSupplier;
 
 import org.team100.lib.config.Feedforward100;
@@ -10,6 +12,8 @@ import org.team100.lib.logging.LoggerFactory.DoubleLogger;
 import org.team100.lib.util.Memo;
 import org.team100.lib.util.Util;
 
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.configs.TalonFXConfigurator;
 import com.ctre.phoenix6.controls.DutyCycleOut;
 import com.ctre.phoenix6.controls.PositionVoltage;
@@ -34,6 +38,8 @@ public abstract class Talon6Motor implements BareMotor {
     protected final DoubleSupplier m_stator;
     protected final DoubleSupplier m_temp;
     protected final DoubleSupplier m_torque;
+    /** The signals in the PhoenixSignals batch, to remove on close. */
+    private final List<BaseStatusSignal> m_signals = new ArrayList<>();
 
     // caching the control requests saves allocation
     private final VelocityVoltage m_velocityVoltage = new VelocityVoltage(0);
@@ -83,15 +89,16 @@ public abstract class Talon6Motor implements BareMotor {
         Phoenix100.crash(() -> m_motor.getVelocity().setUpdateFrequency(50));
         Phoenix100.crash(() -> m_motor.getTorqueCurrent().setUpdateFrequency(50));
 
-        // each memo refresh calls the motor refresh method
-        m_position = Memo.ofDouble(() -> m_motor.getPosition().refresh().getValueAsDouble());
-        m_velocity = Memo.ofDouble(() -> m_motor.getVelocity().refresh().getValueAsDouble());
-        m_dutyCycle = Memo.ofDouble(() -> m_motor.getDutyCycle().refresh().getValueAsDouble());
-        m_error = Memo.ofDouble(() -> m_motor.getClosedLoopError().refresh().getValueAsDouble());
-        m_supply = Memo.ofDouble(() -> m_motor.getSupplyCurrent().refresh().getValueAsDouble());
-        m_stator = Memo.ofDouble(() -> m_motor.getStatorCurrent().refresh().getValueAsDouble());
-        m_temp = Memo.ofDouble(() -> m_motor.getDeviceTemp().refresh().getValueAsDouble());
-        m_torque = Memo.ofDouble(() -> m_motor.getTorqueCurrent().refresh().getValueAsDouble());
+        // the signals are refreshed together, once per cycle, in PhoenixSignals, so
+        // the memos just read the latched values.
+        m_position = Memo.ofDouble(register(m_motor.getPosition())::getValueAsDouble);
+        m_velocity = Memo.ofDouble(register(m_motor.getVelocity())::getValueAsDouble);
+        m_dutyCycle = Memo.ofDouble(register(m_motor.getDutyCycle())::getValueAsDouble);
+        m_error = Memo.ofDouble(register(m_motor.getClosedLoopError())::getValueAsDouble);
+        m_supply = Memo.ofDouble(register(m_motor.getSupplyCurrent())::getValueAsDouble);
+        m_stator = Memo.ofDouble(register(m_motor.getStatorCurrent())::getValueAsDouble);
+        m_temp = Memo.ofDouble(register(m_motor.getDeviceTemp())::getValueAsDouble);
+        m_torque = Memo.ofDouble(register(m_motor.getTorqueCurrent())::getValueAsDouble);
 
         m_log_desired_duty = child.doubleLogger(Level.TRACE, "desired duty cycle [-1,1]");
         m_log_desired_position = child.doubleLogger(Level.DEBUG, "desired position (rev)");
@@ -213,9 +220,16 @@ public abstract class Talon6Motor implements BareMotor {
 
     @Override
     public void close() {
+        PhoenixSignals.unregister(m_signals.toArray(new BaseStatusSignal[0]));
         m_motor.close();
     }
 
+    /** Add the signal to the batch, and remember it, so close() can remove it. */
+    private <T extends BaseStatusSignal> T register(T signal) {
+        m_signals.add(signal);
+        return PhoenixSignals.register(signal);
+    }
+
     /**
      * Sets integrated sensor position to zero.
      * 
@@ -260,6 +274,19 @@ public abstract class Talon6Motor implements BareMotor {
         return m_position.getAsDouble();
     }
 
+    /**
+     * A copy of the position signal, in rotations, for another thread to refresh
+     * on its own schedule, e.g. odometry. It's not in the PhoenixSignals batch.
+     */
+    public StatusSignal<Double> newPositionSignal() {
+        return m_motor.getPosition().clone();
+    }
+
+    /** A copy of the velocity signal, in rotations per second, as above. */
+    public StatusSignal<Double> newVelocitySignal() {
+        return m_motor.getVelocity().clone();
+    }
+
     /** wait a long time for a new value, do not use outside testing. */
     public double getPositionBlockingRev() {
         return m_motor.getPosition().waitForUpdate(1).getValueAsDouble();
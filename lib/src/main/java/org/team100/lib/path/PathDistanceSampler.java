@@ -1,14 +1,20 @@
 package org.team100.lib.path;
 
 import org.team100.lib.timing.TimingUtil;
+import org.team100.lib.util.MonotonicSearch;
 
 /**
  * Samples a path by distance along it.
+ * 
+ * The search remembers where it was, so sampling a little further than last
+ * time is O(1).
  */
 public class PathDistanceSampler {
     private final Path100 m_path;
     /** in meters */
     private final double[] m_distances;
+    /** null if the path has only one point */
+    private final MonotonicSearch m_search;
 
     public PathDistanceSampler(final Path100 path) {
         m_path = path;
@@ -18,6 +24,7 @@ public class PathDistanceSampler {
             m_distances[i] = m_distances[i - 1]
                     + m_path.getPoint(i - 1).state().distance(m_path.getPoint(i).state());
         }
+        m_search = m_distances.length < 2 ? null : new MonotonicSearch(m_distances);
     }
 
     /**
@@ -32,21 +39,18 @@ public class PathDistanceSampler {
             PathPoint point = m_path.getPoint(0);
             return new PathSamplePoint(point.state(), point.index(), point.index());
         }
-        for (int i = 1; i < m_distances.length; ++i) {
-            final PathPoint point = m_path.getPoint(i);
-            if (m_distances[i] >= distance) {
-                final PathPoint prev_s = m_path.getPoint(i - 1);
-                if (Math.abs(m_distances[i] - m_distances[i - 1]) <= 1e-12) {
-                    return new PathSamplePoint(point.state(), point.index(), point.index());
-                } else {
-                    return new PathSamplePoint(
-                            prev_s.state().interpolate(point.state(),
-                                    (distance - m_distances[i - 1]) / (m_distances[i] - m_distances[i - 1])),
-                            i - 1, i);
-                }
-            }
+        if (m_search == null || Double.isNaN(distance))
+            throw new TimingUtil.TimingException();
+        int i = m_search.ceiling(distance);
+        final PathPoint point = m_path.getPoint(i);
+        final PathPoint prev_s = m_path.getPoint(i - 1);
+        if (Math.abs(m_distances[i] - m_distances[i - 1]) <= 1e-12) {
+            return new PathSamplePoint(point.state(), point.index(), point.index());
         }
-        throw new TimingUtil.TimingException();
+        return new PathSamplePoint(
+                prev_s.state().interpolate(point.state(),
+                        (distance - m_distances[i - 1]) / (m_distances[i] - m_distances[i - 1])),
+                i - 1, i);
     }
 
     public double getMaxDistance() {
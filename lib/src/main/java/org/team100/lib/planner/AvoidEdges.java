@@ -3,6 +3,7 @@ package org.team100.lib.planner;
 import java.util.function.Supplier;
 
 import org.team100.lib.motion.drivetrain.kinodynamics.FieldRelativeVelocity;
+import org.team100.lib.planner.RepulsionField.Layer;
 
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Translation2d;
@@ -11,20 +12,23 @@ import edu.wpi.first.math.geometry.Translation2d;
  * Avoid the edges of the field.
  */
 public class AvoidEdges implements Tactic {
-    private static final double kWallRepulsion = 5;
-
     private final Supplier<Pose2d> m_poseSupplier;
+    private final RepulsionField m_field;
     private final ForceViz m_viz;
     private final boolean m_debug;
+    private final double[] m_force = new double[2];
 
     /**
      * @param drive provides pose
+     * @param field provides the edge force
      */
     public AvoidEdges(
             Supplier<Pose2d> poseSupplier,
+            RepulsionField field,
             ForceViz viz,
             boolean debug) {
         m_poseSupplier = poseSupplier;
+        m_field = field;
         m_viz = viz;
         m_debug = debug;
 
@@ -33,15 +37,8 @@ public class AvoidEdges implements Tactic {
     @Override
     public FieldRelativeVelocity apply(FieldRelativeVelocity desired) {
         Translation2d translation = m_poseSupplier.get().getTranslation();
-        FieldRelativeVelocity v = new FieldRelativeVelocity(0, 0, 0);
-        if (translation.getX() < 1)
-            v = v.plus(new FieldRelativeVelocity(kWallRepulsion, 0, 0));
-        if (translation.getX() > 15)
-            v = v.plus(new FieldRelativeVelocity(-kWallRepulsion, 0, 0));
-        if (translation.getY() < 1)
-            v = v.plus(new FieldRelativeVelocity(0, kWallRepulsion, 0));
-        if (translation.getY() > 7)
-            v = v.plus(new FieldRelativeVelocity(0, -kWallRepulsion, 0));
+        m_field.sample(Layer.EDGES, translation.getX(), translation.getY(), m_force);
+        FieldRelativeVelocity v = new FieldRelativeVelocity(m_force[0], m_force[1], 0);
         if (m_debug)
             System.out.printf(" avoidEdges (%5.2f, %5.2f)", v.x(), v.y());
         if (m_debug)
@@ -49,4 +46,4 @@ public class AvoidEdges implements Tactic {
         return v;
     }
 
-}
\ No newline at end of file
+}
@@ -1,33 +1,34 @@
 package org.team100.lib.planner;
 
-import java.util.Map;
 import java.util.function.Supplier;
 
-import org.team100.lib.field.FieldMap2024;
 import org.team100.lib.motion.drivetrain.kinodynamics.FieldRelativeVelocity;
+import org.team100.lib.planner.RepulsionField.Layer;
 import org.team100.lib.util.Debug;
 
 import edu.wpi.first.math.geometry.Pose2d;
-import edu.wpi.first.math.geometry.Translation2d;
 
 /**
  * Avoid the subwoofers.
  */
 public class AvoidSubwoofers implements Tactic {
-    private static final double kSubwooferRepulsion = 5;
-
     private final Supplier<Pose2d> m_drive;
+    private final RepulsionField m_field;
     private final ForceViz m_viz;
     private final boolean m_debug;
+    private final double[] m_force = new double[2];
 
     /**
      * @param drive provides pose
+     * @param field provides the subwoofer force
      */
     public AvoidSubwoofers(
             Supplier<Pose2d> drive,
+            RepulsionField field,
             ForceViz viz,
             boolean debug) {
         m_drive = drive;
+        m_field = field;
         m_viz = viz;
         m_debug = debug && Debug.enable();
     }
@@ -35,26 +36,12 @@ public class AvoidSubwoofers implements Tactic {
     @Override
     public FieldRelativeVelocity apply(FieldRelativeVelocity desired) {
         Pose2d pose = m_drive.get();
-        final double maxDistance = 3;
-        FieldRelativeVelocity v = new FieldRelativeVelocity(0, 0, 0);
-        for (Map.Entry<String, Pose2d> entry : FieldMap2024.subwoofers.entrySet()) {
-            Translation2d target = entry.getValue().getTranslation();
-            Translation2d robotRelativeToTarget = pose.getTranslation().minus(target);
-            double norm = robotRelativeToTarget.getNorm();
-            if (norm < maxDistance) {
-                // unit vector in the direction of the force
-                Translation2d normalized = robotRelativeToTarget.div(norm);
-                // scale the force so that it's zero at the maximum distance, i.e. C0 smooth.
-                double scale = kSubwooferRepulsion * (1 / norm - 1 / maxDistance);
-                Translation2d force = normalized.times(scale);
-                if (m_debug)
-                    System.out.printf(" avoidSubwoofers (%5.2f, %5.2f)", force.getX(), force.getY());
-                FieldRelativeVelocity subwooferRepel = new FieldRelativeVelocity(force.getX(), force.getY(), 0);
-                if (m_debug)
-                    m_viz.tactics(pose.getTranslation(), subwooferRepel);
-                v = v.plus(subwooferRepel);
-            }
-        }
+        m_field.sample(Layer.SUBWOOFERS, pose.getX(), pose.getY(), m_force);
+        FieldRelativeVelocity v = new FieldRelativeVelocity(m_force[0], m_force[1], 0);
+        if (m_debug)
+            System.out.printf(" avoidSubwoofers (%5.2f, %5.2f)", v.x(), v.y());
+        if (m_debug)
+            m_viz.tactics(pose.getTranslation(), v);
         return v;
 
     }
@@ -1,11 +1,44 @@
 package org.team100.lib.planner;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
 /**
  * Implements "virtual force field" motion planning, i.e. "drive towards the
  * goal and away from obstacles."
  * 
  * see the study called dyn4j_for_sim for the origin of these ideas.
+ * 
+ * The path follows the static repulsion field downhill towards the goal; see
+ * RepulsionField.descend().
  */
 public class ForceFieldPlanner {
+    private static final double kStepM = 0.1;
+    /** Enough to go around the field. */
+    private static final int kMaxPoints = 500;
+
+    private final RepulsionField m_field;
+    private final double[] m_xy = new double[2 * kMaxPoints];
+
+    public ForceFieldPlanner(RepulsionField field) {
+        m_field = field;
+    }
 
+    /**
+     * Points along the way from start to goal, kStepM apart, or empty if the
+     * descent gets stuck in a local minimum.
+     */
+    public Optional<List<Translation2d>> plan(Translation2d start, Translation2d goal) {
+        int n = m_field.descend(start.getX(), start.getY(), goal.getX(), goal.getY(), kStepM, m_xy);
+        if (!RepulsionField.reached(n, goal.getX(), goal.getY(), m_xy))
+            return Optional.empty();
+        List<Translation2d> path = new ArrayList<>(n);
+        for (int i = 0; i < n; ++i) {
+            path.add(new Translation2d(m_xy[2 * i], m_xy[2 * i + 1]));
+        }
+        return Optional.of(path);
+    }
 }
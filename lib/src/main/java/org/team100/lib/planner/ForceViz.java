@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
+import org.team100.lib.field.FieldMap2024;
 import org.team100.lib.logging.Level;
 import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.logging.LoggerFactory.DoubleArrayLogger;
@@ -17,12 +18,15 @@ public class ForceViz {
 
     private final List<Double> m_tactics = new ArrayList<>();
     private final List<Double> m_desired = new ArrayList<>();
+    private final List<Double> m_field = new ArrayList<>();
     private final DoubleArrayLogger m_log_tactics;
     private final DoubleArrayLogger m_log_desired;
+    private final DoubleArrayLogger m_log_field;
 
     public ForceViz(LoggerFactory fieldLogger) {
         m_log_tactics = fieldLogger.doubleArrayLogger(Level.TRACE, "tactics");
         m_log_desired = fieldLogger.doubleArrayLogger(Level.TRACE, "desired");
+        m_log_field = fieldLogger.doubleArrayLogger(Level.TRACE, "field");
     }
 
     public void tactics(Translation2d p, FieldRelativeVelocity v) {
@@ -33,6 +37,27 @@ public class ForceViz {
         put(m_desired, p, v);
     }
 
+    /**
+     * Sample the sum of all the static layers every spacingM across the whole
+     * field, to show along with the tactics.
+     */
+    public void field(RepulsionField field, double spacingM) {
+        m_field.clear();
+        double[] f = new double[2];
+        for (double x = spacingM / 2; x < FieldMap2024.fieldLengthM; x += spacingM) {
+            for (double y = spacingM / 2; y < FieldMap2024.fieldWidthM; y += spacingM) {
+                double fx = 0;
+                double fy = 0;
+                for (RepulsionField.Layer layer : RepulsionField.Layer.values()) {
+                    field.sample(layer, x, y, f);
+                    fx += f[0];
+                    fy += f[1];
+                }
+                put(m_field, new Translation2d(x, y), new FieldRelativeVelocity(fx, fy, 0));
+            }
+        }
+    }
+
     private void put(List<Double> f, Translation2d p, FieldRelativeVelocity v) {
         // ignore small forces
         if (v.norm() < 0.1)
@@ -51,6 +76,7 @@ public class ForceViz {
     public void render() {
         m_log_tactics.log(() -> m_tactics.stream().mapToDouble(Double::doubleValue).toArray());
         m_log_desired.log(() -> m_desired.stream().mapToDouble(Double::doubleValue).toArray());
+        m_log_field.log(() -> m_field.stream().mapToDouble(Double::doubleValue).toArray());
     }
 
 }
\ No newline at end of file
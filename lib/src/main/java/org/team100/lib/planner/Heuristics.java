@@ -58,6 +58,57 @@ public class Heuristics {
         return new FieldRelativeVelocity(foo.getX(), foo.getY(), 0);
     }
 
+    /**
+     * Same as above, without allocating anything.
+     *
+     * @param out the steering velocity x and y
+     */
+    public void steerToAvoid(
+            double x,
+            double y,
+            double vx,
+            double vy,
+            double targetX,
+            double targetY,
+            double distance,
+            double[] out) {
+        out[0] = 0;
+        out[1] = 0;
+        double speed = Math.hypot(vx, vy);
+        if (speed < 1e-3) {
+            // motionless
+            return;
+        }
+        double nx = vx / speed;
+        double ny = vy / speed;
+        // distance to the closest approach point, along the velocity
+        double distanceToGo = (targetX - x) * nx + (targetY - y) * ny;
+        if (distanceToGo < 1e-3) {
+            // target is behind us, or we're there
+            return;
+        }
+        double timeToGo = distanceToGo / speed;
+
+        if (m_debug)
+            System.out.printf(" timeToGo %5.3f", timeToGo);
+
+        double relativeX = x + nx * distanceToGo - targetX;
+        double relativeY = y + ny * distanceToGo - targetY;
+        double closestApproachDistance = Math.hypot(relativeX, relativeY);
+        // if the closest approach distance is zero, try to stop.
+        if (closestApproachDistance < 1e-3) {
+            out[0] = -vx;
+            out[1] = -vy;
+            return;
+        }
+        double steer = Math.max(0, distance - closestApproachDistance);
+        double steerVelocity = steer / timeToGo;
+        if (m_debug)
+            System.out.printf(" steerVelocity %5.3f", steerVelocity);
+        out[0] = relativeX * steerVelocity / closestApproachDistance;
+        out[1] = relativeY * steerVelocity / closestApproachDistance;
+    }
+
     /**
      * Given our current location/velocity and a fixed target, return the point of
      * closest approach.
@@ -0,0 +1,250 @@
+package org.team100.lib.planner;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+
+import org.team100.lib.camera.RobotSighting;
+import org.team100.lib.field.FieldMap2024;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * Obstacles for the tactics, indexed by location, so that finding the ones near
+ * the robot doesn't mean looking at all of them.
+ *
+ * Both kinds of obstacle live in grids of one-meter cells covering the field.
+ *
+ * The fixed obstacles (the stage posts) are bucketed by cell once, at
+ * construction.
+ *
+ * Each robot cell keeps only the newest sighting in it, with its time, and the
+ * queries ignore sightings older than historyS, so old sightings age out
+ * without a sweep. Since the cells are about the size of a robot, this also
+ * merges the near-duplicate sightings of the same robot, which the tactics used
+ * to remove by comparing every pair.
+ *
+ * The camera supplies sightings newest first, and update() stops at the first
+ * one it's already seen, so an update costs the number of new sightings, not
+ * the size of the camera buffer, and a query costs the number of cells in range.
+ *
+ * Query results go into a buffer owned by the index, read with x(i) and y(i),
+ * and valid until the next query. Nothing allocates after construction. This
+ * isn't thread-safe.
+ */
+public class ObstacleIndex {
+    /** The grid covers the field with this margin around it. */
+    private static final double kMarginM = 1;
+    /** Also the distance within which two sightings are the same robot. */
+    private static final double kCellM = 1;
+    private static final int kMaxResults = 256;
+
+    private final double m_historyS;
+    private final int m_cols;
+    private final int m_rows;
+
+    // fixed obstacles, sorted by cell; those in cell c are [m_fixedStart[c],
+    // m_fixedStart[c+1]).
+    private final int[] m_fixedStart;
+    private final double[] m_fixedX;
+    private final double[] m_fixedY;
+
+    // robots, newest sighting in each cell
+    private final double[] m_robotTime;
+    private final double[] m_robotX;
+    private final double[] m_robotY;
+    /** Time of the newest sighting seen by update(). */
+    private double m_latestS;
+    private double m_nowS;
+
+    // query results
+    private final double[] m_resultX = new double[kMaxResults];
+    private final double[] m_resultY = new double[kMaxResults];
+    private final double[] m_resultTime = new double[kMaxResults];
+
+    /**
+     * Index the stage posts.
+     *
+     * @param historyS ignore robot sightings older than this
+     */
+    public ObstacleIndex(double historyS) {
+        this(historyS, FieldMap2024.stagePosts.values().stream().map(Pose2d::getTranslation).toList());
+    }
+
+    /** Package-private for testing. */
+    ObstacleIndex(double historyS, Collection<Translation2d> fixed) {
+        m_historyS = historyS;
+        m_cols = (int) Math.ceil((FieldMap2024.fieldLengthM + 2 * kMarginM) / kCellM);
+        m_rows = (int) Math.ceil((FieldMap2024.fieldWidthM + 2 * kMarginM) / kCellM);
+        int cells = m_cols * m_rows;
+
+        // counting sort by cell
+        m_fixedStart = new int[cells + 1];
+        for (Translation2d t : fixed) {
+            m_fixedStart[cell(t.getX(), t.getY()) + 1]++;
+        }
+        for (int c = 0; c < cells; ++c) {
+            m_fixedStart[c + 1] += m_fixedStart[c];
+        }
+        m_fixedX = new double[fixed.size()];
+        m_fixedY = new double[fixed.size()];
+        int[] fill = Arrays.copyOf(m_fixedStart, cells);
+        for (Translation2d t : fixed) {
+            int i = fill[cell(t.getX(), t.getY())]++;
+            m_fixedX[i] = t.getX();
+            m_fixedY[i] = t.getY();
+        }
+
+        m_robotTime = new double[cells];
+        m_robotX = new double[cells];
+        m_robotY = new double[cells];
+        clear();
+    }
+
+    /** Forget all the robot sightings. */
+    public void clear() {
+        Arrays.fill(m_robotTime, Double.NEGATIVE_INFINITY);
+        m_latestS = Double.NEGATIVE_INFINITY;
+        m_nowS = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Add the sightings newer than the last update.
+     *
+     * @param sightings keyed by time in seconds, newest first, e.g. the camera's
+     *                  recentSightings()
+     * @param nowS      robot sightings older than nowS - historyS are ignored
+     */
+    public void update(NavigableMap<Double, RobotSighting> sightings, double nowS) {
+        m_nowS = nowS;
+        double latestS = m_latestS;
+        for (Entry<Double, RobotSighting> entry : sightings.entrySet()) {
+            double timeS = entry.getKey();
+            if (timeS <= m_latestS)
+                break;
+            Translation2d p = entry.getValue().position();
+            add(timeS, p.getX(), p.getY());
+            latestS = Math.max(latestS, timeS);
+        }
+        m_latestS = latestS;
+    }
+
+    /** Add a field-relative robot sighting. */
+    public void add(double timeS, double x, double y) {
+        int cell = cell(x, y);
+        if (timeS < m_robotTime[cell])
+            return;
+        m_robotTime[cell] = timeS;
+        m_robotX[cell] = x;
+        m_robotY[cell] = y;
+    }
+
+    /**
+     * Find fixed obstacles within range of (x, y).
+     *
+     * @return the number of results, read them with x(i) and y(i).
+     */
+    public int fixed(double x, double y, double rangeM) {
+        double range2 = rangeM * rangeM;
+        int n = 0;
+        int c0 = col(x - rangeM);
+        int c1 = col(x + rangeM);
+        for (int r = row(y - rangeM); r <= row(y + rangeM); ++r) {
+            for (int c = c0; c <= c1; ++c) {
+                int cell = r * m_cols + c;
+                for (int i = m_fixedStart[cell]; i < m_fixedStart[cell + 1] && n < kMaxResults; ++i) {
+                    double dx = m_fixedX[i] - x;
+                    double dy = m_fixedY[i] - y;
+                    if (dx * dx + dy * dy > range2)
+                        continue;
+                    m_resultX[n] = m_fixedX[i];
+                    m_resultY[n] = m_fixedY[i];
+                    n++;
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Find recently sighted robots within range of (x, y). Sightings in adjacent
+     * cells closer than a cell width are merged, keeping the newest.
+     *
+     * @return the number of results, read them with x(i) and y(i).
+     */
+    public int robots(double x, double y, double rangeM) {
+        double range2 = rangeM * rangeM;
+        double oldestS = m_nowS - m_historyS;
+        int n = 0;
+        int c0 = col(x - rangeM);
+        int c1 = col(x + rangeM);
+        for (int r = row(y - rangeM); r <= row(y + rangeM); ++r) {
+            for (int c = c0; c <= c1; ++c) {
+                int cell = r * m_cols + c;
+                double timeS = m_robotTime[cell];
+                if (timeS < oldestS)
+                    continue;
+                double rx = m_robotX[cell];
+                double ry = m_robotY[cell];
+                double dx = rx - x;
+                double dy = ry - y;
+                if (dx * dx + dy * dy > range2)
+                    continue;
+                int dup = duplicate(n, rx, ry);
+                if (dup >= 0) {
+                    if (timeS > m_resultTime[dup])
+                        put(dup, rx, ry, timeS);
+                    continue;
+                }
+                if (n < kMaxResults)
+                    put(n++, rx, ry, timeS);
+            }
+        }
+        return n;
+    }
+
+    /** X of the i-th result of the last query. */
+    public double x(int i) {
+        return m_resultX[i];
+    }
+
+    /** Y of the i-th result of the last query. */
+    public double y(int i) {
+        return m_resultY[i];
+    }
+
+    ////////////////////////////////////////////////////////////
+
+    /** Index of the first of n results closer than a cell width, or -1. */
+    private int duplicate(int n, double x, double y) {
+        for (int i = 0; i < n; ++i) {
+            double dx = m_resultX[i] - x;
+            double dy = m_resultY[i] - y;
+            if (dx * dx + dy * dy < kCellM * kCellM)
+                return i;
+        }
+        return -1;
+    }
+
+    private void put(int i, double x, double y, double timeS) {
+        m_resultX[i] = x;
+        m_resultY[i] = y;
+        m_resultTime[i] = timeS;
+    }
+
+    private int cell(double x, double y) {
+        return row(y) * m_cols + col(x);
+    }
+
+    private int col(double x) {
+        int c = (int) Math.floor((x + kMarginM) / kCellM);
+        return Math.max(0, Math.min(m_cols - 1, c));
+    }
+
+    private int row(double y) {
+        int r = (int) Math.floor((y + kMarginM) / kCellM);
+        return Math.max(0, Math.min(m_rows - 1, r));
+    }
+}
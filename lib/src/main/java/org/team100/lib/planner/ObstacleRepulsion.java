@@ -2,30 +2,32 @@ package org.team100.lib.planner;
 
 import java.util.function.Supplier;
 
-import org.team100.lib.field.FieldMap2024;
 import org.team100.lib.motion.drivetrain.kinodynamics.FieldRelativeVelocity;
+import org.team100.lib.planner.RepulsionField.Layer;
 
 import edu.wpi.first.math.geometry.Pose2d;
-import edu.wpi.first.math.geometry.Translation2d;
 
 /**
  * Avoid fixed obstacles.
  */
 public class ObstacleRepulsion implements Tactic {
-    private static final double kObstacleRepulsion = 10;
-
     private final Supplier<Pose2d> m_poseSupplier;
+    private final RepulsionField m_field;
     private final ForceViz m_viz;
     private final boolean m_debug;
+    private final double[] m_force = new double[2];
 
     /**
      * @param drive provides pose
+     * @param field provides the obstacle force
      */
     public ObstacleRepulsion(
             Supplier<Pose2d> poseSupplier,
+            RepulsionField field,
             ForceViz viz,
             boolean debug) {
         m_poseSupplier = poseSupplier;
+        m_field = field;
         m_viz = viz;
         m_debug = debug;
     }
@@ -33,28 +35,12 @@ public class ObstacleRepulsion implements Tactic {
     @Override
     public FieldRelativeVelocity apply(FieldRelativeVelocity desired) {
         Pose2d myPosition = m_poseSupplier.get();
-        final double maxDistance = 1.5;
-        FieldRelativeVelocity v = new FieldRelativeVelocity(0, 0, 0);
-        for (Pose2d pose : FieldMap2024.stagePosts.values()) {
-            Translation2d target = pose.getTranslation();
-            Translation2d robotRelativeToTarget = myPosition.getTranslation().minus(target);
-            double norm = robotRelativeToTarget.getNorm();
-            if (norm < maxDistance) {
-                // unit vector in the direction of the force
-                Translation2d normalized = robotRelativeToTarget.div(norm);
-                // scale the force so that it's zero at the maximum distance, i.e. C0 smooth.
-                // the minimum distance is something like 0.75, so
-                // the maximum force is (1.3-0.3) = 0.6 * k
-                double scale = kObstacleRepulsion * (1 / norm - 1 / maxDistance);
-                Translation2d force = normalized.times(scale);
-                if (m_debug)
-                    System.out.printf(" obstacleRepulsion (%5.2f, %5.2f)", force.getX(), force.getY());
-                FieldRelativeVelocity repel = new FieldRelativeVelocity(force.getX(), force.getY(), 0);
-                if (m_debug)
-                    m_viz.tactics(target, repel);
-                v = v.plus(repel);
-            }
-        }
+        m_field.sample(Layer.POSTS, myPosition.getX(), myPosition.getY(), m_force);
+        FieldRelativeVelocity v = new FieldRelativeVelocity(m_force[0], m_force[1], 0);
+        if (m_debug)
+            System.out.printf(" obstacleRepulsion (%5.2f, %5.2f)", v.x(), v.y());
+        if (m_debug)
+            m_viz.tactics(myPosition.getTranslation(), v);
         return v;
     }
-}
\ No newline at end of file
+}
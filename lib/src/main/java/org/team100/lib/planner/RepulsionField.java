@@ -0,0 +1,230 @@
+package org.team100.lib.planner;
+
+import org.team100.lib.field.FieldMap2024;
+
+import edu.wpi.first.math.geometry.Pose2d;
+
+/**
+ * The repulsive forces of the static obstacles, sampled on a grid over the
+ * whole field, so that the force at any point is a bilinear interpolation of
+ * the four nearest samples, instead of a sum over all the obstacles.
+ *
+ * There's a layer for each of the static tactics, since they can be turned on
+ * and off separately: the field edges, the subwoofers, and the stage posts.
+ * The analytic forces used to build the layers are below, and they're what
+ * those tactics used to compute every cycle.
+ *
+ * The grid is 5 cm, so about 55k samples per layer. Building it takes a
+ * fraction of a second, so it's built once, on first use, rather than loaded
+ * from a file.
+ *
+ * The interpolation smooths the steps in the edge force over one cell, and the
+ * point forces are clamped near the obstacles, where the robot can't go
+ * anyway.
+ *
+ * descend() follows the field, plus an attraction to a goal, to find a path
+ * around the obstacles.
+ *
+ * Nothing allocates after construction. This isn't thread-safe.
+ */
+public class RepulsionField {
+    public enum Layer {
+        EDGES,
+        SUBWOOFERS,
+        POSTS
+    }
+
+    private static final Layer[] kLayers = Layer.values();
+    private static final double kResolutionM = 0.05;
+
+    private static final double kWallRepulsion = 5;
+    private static final double kSubwooferRepulsion = 5;
+    private static final double kSubwooferMaxDistance = 3;
+    private static final double kObstacleRepulsion = 10;
+    private static final double kObstacleMaxDistance = 1.5;
+    /** Point forces are clamped inside this distance. */
+    private static final double kMinDistanceM = 0.1;
+    /** Attraction to the goal in descend(), same scale as the walls. */
+    private static final double kAttraction = 5;
+
+    private static RepulsionField instance;
+
+    private final int m_cols;
+    private final int m_rows;
+    /** By layer ordinal, then row * cols + col. */
+    private final float[][] m_x;
+    private final float[][] m_y;
+    private final double[] m_sample = new double[2];
+
+    public static synchronized RepulsionField instance() {
+        if (instance == null)
+            instance = new RepulsionField();
+        return instance;
+    }
+
+    /** Package-private for testing; use instance(). */
+    RepulsionField() {
+        m_cols = (int) Math.ceil(FieldMap2024.fieldLengthM / kResolutionM) + 1;
+        m_rows = (int) Math.ceil(FieldMap2024.fieldWidthM / kResolutionM) + 1;
+        m_x = new float[kLayers.length][m_cols * m_rows];
+        m_y = new float[kLayers.length][m_cols * m_rows];
+        double[] f = new double[2];
+        for (Layer layer : kLayers) {
+            float[] lx = m_x[layer.ordinal()];
+            float[] ly = m_y[layer.ordinal()];
+            for (int r = 0; r < m_rows; ++r) {
+                for (int c = 0; c < m_cols; ++c) {
+                    force(layer, c * kResolutionM, r * kResolutionM, f);
+                    lx[r * m_cols + c] = (float) f[0];
+                    ly[r * m_cols + c] = (float) f[1];
+                }
+            }
+        }
+    }
+
+    /**
+     * The interpolated force of one layer at (x, y). Points off the field get
+     * the force at the nearest edge.
+     *
+     * @param out the force x and y
+     */
+    public void sample(Layer layer, double x, double y, double[] out) {
+        double gx = Math.max(0, Math.min(m_cols - 1, x / kResolutionM));
+        double gy = Math.max(0, Math.min(m_rows - 1, y / kResolutionM));
+        int c = Math.min((int) gx, m_cols - 2);
+        int r = Math.min((int) gy, m_rows - 2);
+        double u = gx - c;
+        double v = gy - r;
+        int i00 = r * m_cols + c;
+        int i10 = i00 + 1;
+        int i01 = i00 + m_cols;
+        int i11 = i01 + 1;
+        double w00 = (1 - u) * (1 - v);
+        double w10 = u * (1 - v);
+        double w01 = (1 - u) * v;
+        double w11 = u * v;
+        float[] lx = m_x[layer.ordinal()];
+        float[] ly = m_y[layer.ordinal()];
+        out[0] = w00 * lx[i00] + w10 * lx[i10] + w01 * lx[i01] + w11 * lx[i11];
+        out[1] = w00 * ly[i00] + w10 * ly[i10] + w01 * ly[i01] + w11 * ly[i11];
+    }
+
+    /**
+     * Gradient descent from start to goal: take steps of stepM along the sum of
+     * all the layers and a constant attraction to the goal, until the goal is
+     * within one step, the force vanishes, or xy is full. This can get stuck in
+     * a local minimum, e.g. behind a post directly in line with the goal.
+     *
+     * @param xy interleaved x and y of the path, starting at start, and ending at
+     *           goal if it gets there
+     * @return the number of points written
+     */
+    public int descend(
+            double startX,
+            double startY,
+            double goalX,
+            double goalY,
+            double stepM,
+            double[] xy) {
+        int maxPoints = xy.length / 2;
+        if (maxPoints == 0)
+            return 0;
+        double x = startX;
+        double y = startY;
+        xy[0] = x;
+        xy[1] = y;
+        int n = 1;
+        while (n < maxPoints) {
+            double dx = goalX - x;
+            double dy = goalY - y;
+            double distance = Math.hypot(dx, dy);
+            if (distance <= stepM) {
+                xy[2 * n] = goalX;
+                xy[2 * n + 1] = goalY;
+                return n + 1;
+            }
+            double fx = kAttraction * dx / distance;
+            double fy = kAttraction * dy / distance;
+            for (Layer layer : kLayers) {
+                sample(layer, x, y, m_sample);
+                fx += m_sample[0];
+                fy += m_sample[1];
+            }
+            double norm = Math.hypot(fx, fy);
+            if (norm < 1e-3) {
+                // stuck
+                return n;
+            }
+            x += stepM * fx / norm;
+            y += stepM * fy / norm;
+            xy[2 * n] = x;
+            xy[2 * n + 1] = y;
+            n++;
+        }
+        return n;
+    }
+
+    /** True if the path from descend() got to the goal. */
+    public static boolean reached(int n, double goalX, double goalY, double[] xy) {
+        return n > 0 && xy[2 * n - 2] == goalX && xy[2 * n - 1] == goalY;
+    }
+
+    ////////////////////////////////////////////////////////////
+    //
+    // analytic forces, package-private for testing.
+
+    /** The analytic force of one layer at (x, y). */
+    static void force(Layer layer, double x, double y, double[] out) {
+        out[0] = 0;
+        out[1] = 0;
+        switch (layer) {
+            case EDGES:
+                edges(x, y, out);
+                break;
+            case SUBWOOFERS:
+                for (Pose2d p : FieldMap2024.subwoofers.values()) {
+                    repel(x, y, p.getX(), p.getY(), kSubwooferRepulsion, kSubwooferMaxDistance, out);
+                }
+                break;
+            case POSTS:
+                for (Pose2d p : FieldMap2024.stagePosts.values()) {
+                    repel(x, y, p.getX(), p.getY(), kObstacleRepulsion, kObstacleMaxDistance, out);
+                }
+                break;
+        }
+    }
+
+    /** Constant push away from the walls, within a meter or so. */
+    private static void edges(double x, double y, double[] out) {
+        if (x < 1)
+            out[0] += kWallRepulsion;
+        if (x > 15)
+            out[0] -= kWallRepulsion;
+        if (y < 1)
+            out[1] += kWallRepulsion;
+        if (y > 7)
+            out[1] -= kWallRepulsion;
+    }
+
+    /**
+     * Add the force away from the target, scaled so that it's zero at the
+     * maximum distance, i.e. C0 smooth.
+     */
+    private static void repel(
+            double x,
+            double y,
+            double targetX,
+            double targetY,
+            double k,
+            double maxDistance,
+            double[] out) {
+        double dx = x - targetX;
+        double dy = y - targetY;
+        double norm = Math.hypot(dx, dy);
+        if (norm >= maxDistance || norm < 1e-6)
+            return;
+        double scale = k * (1 / Math.max(norm, kMinDistanceM) - 1 / maxDistance);
+        out[0] += scale * dx / norm;
+        out[1] += scale * dy / norm;
+    }
+}
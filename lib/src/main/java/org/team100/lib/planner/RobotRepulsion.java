@@ -1,16 +1,11 @@
 package org.team100.lib.planner;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.NavigableMap;
 import java.util.function.Supplier;
 
-import org.team100.lib.camera.RobotSighting;
 import org.team100.lib.motion.drivetrain.kinodynamics.FieldRelativeVelocity;
 import org.team100.lib.util.Debug;
 
 import edu.wpi.first.math.geometry.Pose2d;
-import edu.wpi.first.math.geometry.Translation2d;
 
 /**
  * Avoid other robots.
@@ -20,21 +15,21 @@ public class RobotRepulsion implements Tactic {
     private static final double kRobotRepulsion = 8;
 
     private final Supplier<Pose2d> m_drive;
-    private final Supplier<NavigableMap<Double, RobotSighting>> m_camera;
+    private final ObstacleIndex m_obstacles;
     private final ForceViz m_viz;
     private final boolean m_debug;
 
     /**
-     * @param drive  provides pose
-     * @param camera provides robot sightings
+     * @param drive     provides pose
+     * @param obstacles provides recently sighted robots near us
      */
     public RobotRepulsion(
             Supplier<Pose2d> drive,
-            Supplier<NavigableMap<Double, RobotSighting>> camera,
+            ObstacleIndex obstacles,
             ForceViz viz,
             boolean debug) {
         m_drive = drive;
-        m_camera = camera;
+        m_obstacles = obstacles;
         m_viz = viz;
         m_debug = debug && Debug.enable();
 
@@ -44,46 +39,39 @@ public class RobotRepulsion implements Tactic {
     public FieldRelativeVelocity apply(FieldRelativeVelocity myVelocity) {
         Pose2d myPosition = m_drive.get();
         final double maxDistance = 3;
-        FieldRelativeVelocity v = new FieldRelativeVelocity(0, 0, 0);
-        List<Translation2d> nearby = new ArrayList<>();
-        // look at entries in order of decreasing timestamp
-        NavigableMap<Double, RobotSighting> recentSightings = m_camera.get();
-        for (RobotSighting sight : recentSightings.values()) {
-            Translation2d mostRecent = sight.position();
-            if (!nearby.isEmpty()) {
-                Translation2d nearest = mostRecent.nearest(nearby);
-                if (mostRecent.getDistance(nearest) < 1) {
-                    // ignore near-duplicates
-                    continue;
-                }
-            }
-            nearby.add(mostRecent);
-            double distance = myPosition.getTranslation().getDistance(mostRecent);
-            if (distance > 4) // don't react to far-away obstacles
-                continue;
-            Translation2d robotRelativeToTarget = myPosition.getTranslation().minus(mostRecent);
-            double norm = robotRelativeToTarget.getNorm();
+        double x = myPosition.getX();
+        double y = myPosition.getY();
+        double vx = 0;
+        double vy = 0;
+        // near-duplicates are already merged
+        int n = m_obstacles.robots(x, y, maxDistance);
+        for (int i = 0; i < n; ++i) {
+            double targetX = m_obstacles.x(i);
+            double targetY = m_obstacles.y(i);
+            double dx = x - targetX;
+            double dy = y - targetY;
+            double norm = Math.hypot(dx, dy);
             if (norm < maxDistance) {
-                // unit vector in the direction of the force
-                Translation2d normalized = robotRelativeToTarget.div(norm);
                 // scale the force so that it's zero at the maximum distance, i.e. C0 smooth.
                 // the minimum distance is something like 0.75 or 1, so
                 // the maximum force is (1.3-0.3) = 1 * k
                 double scale = kRobotRepulsion * (1 / norm - 1 / maxDistance);
-                Translation2d force = normalized.times(scale);
+                // in the direction of the unit vector away from the target
+                double fx = scale * dx / norm;
+                double fy = scale * dy / norm;
                 if (m_debug)
                     System.out.printf(" robotRepulsion target (%5.2f, %5.2f) range %5.2f F (%5.2f, %5.2f)",
-                            mostRecent.getX(), mostRecent.getY(), norm, force.getX(), force.getY());
-                FieldRelativeVelocity robotRepel = new FieldRelativeVelocity(force.getX(), force.getY(), 0);
-                if (myVelocity.dot(robotRepel) < 0) {
+                            targetX, targetY, norm, fx, fy);
+                if (myVelocity.x() * fx + myVelocity.y() * fy < 0) {
                     // don't bother repelling if we're heading away
                     if (m_debug)
-                        m_viz.tactics(myPosition.getTranslation(), robotRepel);
-                    v = v.plus(robotRepel);
+                        m_viz.tactics(myPosition.getTranslation(), new FieldRelativeVelocity(fx, fy, 0));
+                    vx += fx;
+                    vy += fy;
                 }
             }
         }
-        return v;
+        return new FieldRelativeVelocity(vx, vy, 0);
     }
 
 }
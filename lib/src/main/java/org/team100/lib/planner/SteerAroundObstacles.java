@@ -2,7 +2,6 @@ package org.team100.lib.planner;
 
 import java.util.function.Supplier;
 
-import org.team100.lib.field.FieldMap2024;
 import org.team100.lib.motion.drivetrain.kinodynamics.FieldRelativeVelocity;
 import org.team100.lib.util.Debug;
 
@@ -16,18 +15,23 @@ public class SteerAroundObstacles implements Tactic {
     private static final double kObstacleSteer = 1;
 
     private final Supplier<Pose2d> m_drive;
+    private final ObstacleIndex m_obstacles;
     private final ForceViz m_viz;
     private final Heuristics m_heuristics;
     private final boolean m_debug;
+    private final double[] m_steer = new double[2];
 
     /**
-     * @param drive provides pose
+     * @param drive     provides pose
+     * @param obstacles provides obstacles near the robot
      */
     public SteerAroundObstacles(
             Supplier<Pose2d> drive,
+            ObstacleIndex obstacles,
             ForceViz viz,
             boolean debug) {
         m_drive = drive;
+        m_obstacles = obstacles;
         m_viz = viz;
         m_heuristics = new Heuristics(debug);
         m_debug = debug && Debug.enable();
@@ -39,31 +43,35 @@ public class SteerAroundObstacles implements Tactic {
         Pose2d myPosition = m_drive.get();
         // only look at obstacles less than 1 second away.
         final double maxDistance = velocity.norm();
-        FieldRelativeVelocity v = new FieldRelativeVelocity(0, 0, 0);
-        for (Pose2d pose : FieldMap2024.stagePosts.values()) {
-            Translation2d obstacleLocation = pose.getTranslation();
-            double distance = myPosition.getTranslation().getDistance(obstacleLocation);
-            if (distance > maxDistance) // ignore far-away obstacles
+        double x = myPosition.getX();
+        double y = myPosition.getY();
+        double vx = 0;
+        double vy = 0;
+        int n = m_obstacles.fixed(x, y, maxDistance);
+        for (int i = 0; i < n; ++i) {
+            double obstacleX = m_obstacles.x(i);
+            double obstacleY = m_obstacles.y(i);
+            m_heuristics.steerToAvoid(
+                    x, y,
+                    velocity.x(), velocity.y(),
+                    obstacleX, obstacleY,
+                    1.0,
+                    m_steer);
+            if (Math.hypot(m_steer[0], m_steer[1]) < 1e-3)
                 continue;
-            FieldRelativeVelocity steer = m_heuristics.steerToAvoid(
-                    myPosition.getTranslation(),
-                    velocity,
-                    obstacleLocation,
-                    1.0);
-            if (steer.norm() < 1e-3)
-                continue;
-            FieldRelativeVelocity force = steer.times(kObstacleSteer);
+            double fx = m_steer[0] * kObstacleSteer;
+            double fy = m_steer[1] * kObstacleSteer;
             if (m_debug)
                 System.out.printf(" steerAroundObstacles target (%5.2f, %5.2f) F (%5.2f, %5.2f)",
-                        obstacleLocation.getX(),
-                        obstacleLocation.getY(),
-                        force.x(),
-                        force.y());
-            FieldRelativeVelocity steering = new FieldRelativeVelocity(force.x(), force.y(), 0);
+                        obstacleX,
+                        obstacleY,
+                        fx,
+                        fy);
             if (m_debug)
-                m_viz.tactics(pose.getTranslation(), steering);
-            v = v.plus(steering);
+                m_viz.tactics(new Translation2d(obstacleX, obstacleY), new FieldRelativeVelocity(fx, fy, 0));
+            vx += fx;
+            vy += fy;
         }
-        return v;
+        return new FieldRelativeVelocity(vx, vy, 0);
     }
 }
@@ -12,6 +12,7 @@ import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
 import org.team100.lib.util.Debug;
 
 import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.Timer;
 
 /**
  * Low level drive motion heuristics that can be used by any command.
@@ -20,9 +21,13 @@ import edu.wpi.first.math.geometry.Pose2d;
  * gravity or electrostatics in two dimensions.
  */
 public class Tactics implements UnaryOperator<FieldRelativeVelocity> {
+    /** About the camera lookback. */
+    private static final double kHistoryS = 0.2;
+
     private final SwerveKinodynamics m_swerveKinodynamics;
     private final Supplier<Pose2d> m_drive;
     private final Supplier<NavigableMap<Double, RobotSighting>> m_camera;
+    private final ObstacleIndex m_obstacles;
     private final List<Tactic> m_tactics;
     private final ForceViz m_viz;
     private final boolean m_debug;
@@ -51,18 +56,20 @@ public class Tactics implements UnaryOperator<FieldRelativeVelocity> {
         m_drive = drive;
         m_camera = camera;
         m_viz = viz;
+        m_obstacles = new ObstacleIndex(kHistoryS);
+        RepulsionField field = RepulsionField.instance();
         m_tactics = new ArrayList<>();
         if (avoidObstacles) {
-            m_tactics.add(new SteerAroundObstacles(m_drive, viz, debug));
-            m_tactics.add(new ObstacleRepulsion(m_drive, viz, debug));
+            m_tactics.add(new SteerAroundObstacles(m_drive, m_obstacles, viz, debug));
+            m_tactics.add(new ObstacleRepulsion(m_drive, field, viz, debug));
         }
         if (avoidEdges) {
-            m_tactics.add(new AvoidEdges(m_drive, viz, debug));
-            m_tactics.add(new AvoidSubwoofers(m_drive, viz, debug));
+            m_tactics.add(new AvoidEdges(m_drive, field, viz, debug));
+            m_tactics.add(new AvoidSubwoofers(m_drive, field, viz, debug));
         }
         if (avoidRobots) {
-            m_tactics.add(new SteerAroundRobots(m_drive, m_camera, viz, debug));
-            m_tactics.add(new RobotRepulsion(m_drive, m_camera, viz, debug));
+            m_tactics.add(new SteerAroundRobots(m_drive, m_obstacles, viz, debug));
+            m_tactics.add(new RobotRepulsion(m_drive, m_obstacles, viz, debug));
         }
         m_debug = debug && Debug.enable();
     }
@@ -84,6 +91,8 @@ public class Tactics implements UnaryOperator<FieldRelativeVelocity> {
     /** Output is clamped to feasible v and omega. */
     @Override
     public FieldRelativeVelocity apply(FieldRelativeVelocity desired) {
+        // new sightings only, so this is cheap
+        m_obstacles.update(m_camera.get(), Timer.getFPGATimestamp());
         FieldRelativeVelocity v = new FieldRelativeVelocity(0, 0, 0);
         for (Tactic t : m_tactics) {
             v = v.plus(t.apply(desired));
@@ -10,6 +10,10 @@ import edu.wpi.first.math.geometry.Rotation2d;
  * TODO: extrapolate measurements to the current instant
  * TODO: make all these optionals in case the gyro fails
  * TODO: maybe include timestamp here somehow?
+ * 
+ * The odometry thread reads the yaw and yaw rate as well as the main loop,
+ * using the sample methods, which must not use caches that only the main loop
+ * resets, or loggers, which aren't thread-safe.
  */
 public interface Gyro extends Glassy {
     /** Yaw in radians, NWU, counterclockwise positive. */
@@ -18,6 +22,22 @@ public interface Gyro extends Glassy {
     /** Yaw rate in rad/s, NWU, counterclockwise positive. */
     double getYawRateNWU();
 
+    /**
+     * Yaw for the odometry thread, fresh and unlogged. The default is
+     * getYawNWU(), for implementations that neither cache nor log.
+     */
+    default Rotation2d sampleYawNWU() {
+        return getYawNWU();
+    }
+
+    /**
+     * Yaw rate for the odometry thread, fresh and unlogged. The default is
+     * getYawRateNWU(), for implementations that neither cache nor log.
+     */
+    default double sampleYawRateNWU() {
+        return getYawRateNWU();
+    }
+
     /** Pitch in radians, NWU, positive-down. */
     Rotation2d getPitchNWU();
 
@@ -23,6 +23,9 @@ import edu.wpi.first.wpilibj.Timer;
  * TODO: convert to Optional
  * TODO: better fusion than just averaging (e.g. detect bad input)
  * TODO: notice if we have stale data
+ * 
+ * The getters are synchronized because the odometry thread reads this too, and
+ * each read drains the poller.
  */
 public class NTGyro implements Gyro {
     private static final String kYaw = "gyro_yaw";
@@ -49,7 +52,7 @@ public class NTGyro implements Gyro {
     }
 
     @Override
-    public Rotation2d getYawNWU() {
+    public synchronized Rotation2d getYawNWU() {
         update();
         // extrapolate to now, assuming the rate is current
         double nowS = Timer.getFPGATimestamp();
@@ -60,21 +63,21 @@ public class NTGyro implements Gyro {
     }
 
     @Override
-    public double getYawRateNWU() {
+    public synchronized double getYawRateNWU() {
         update();
         // TODO: extrapolate based on yaw acceleration?
         return m_yawRate.getValue();
     }
 
     @Override
-    public Rotation2d getPitchNWU() {
+    public synchronized Rotation2d getPitchNWU() {
         update();
         // TODO: extrapolate based on pitch rate
         return new Rotation2d(m_pitch.getValue());
     }
 
     @Override
-    public Rotation2d getRollNWU() {
+    public synchronized Rotation2d getRollNWU() {
         update();
         // TODO: extrapolate based on roll rate
         return new Rotation2d(m_roll.getValue());
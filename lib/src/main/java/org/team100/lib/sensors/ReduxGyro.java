@@ -48,6 +48,17 @@ public class ReduxGyro implements Gyro {
         return yawRateRad_S;
     }
 
+    /** The Redux getters read the most-recent frame, so they're safe here. */
+    @Override
+    public Rotation2d sampleYawNWU() {
+        return Rotation2d.fromRotations(m_gyro.getYaw());
+    }
+
+    @Override
+    public double sampleYawRateNWU() {
+        return Units.rotationsToRadians(m_gyro.getAngularVelocityYaw());
+    }
+
     @Override
     public Rotation2d getPitchNWU() {
         Rotation2d pitchNWU = Rotation2d.fromRotations(m_gyro.getPitch());
@@ -33,6 +33,24 @@ public class SelectGyro implements Gyro {
         }
     }
 
+    @Override
+    public Rotation2d sampleYawNWU() {
+        if (m_selector.getAsBoolean()) {
+            return m_whenTrue.sampleYawNWU();
+        } else {
+            return m_whenFalse.sampleYawNWU();
+        }
+    }
+
+    @Override
+    public double sampleYawRateNWU() {
+        if (m_selector.getAsBoolean()) {
+            return m_whenTrue.sampleYawRateNWU();
+        } else {
+            return m_whenFalse.sampleYawRateNWU();
+        }
+    }
+
     @Override
     public Rotation2d getPitchNWU() {
         if (m_selector.getAsBoolean()) {
@@ -25,8 +25,9 @@ public class SimulatedGyro implements Gyro {
         m_moduleCollection = collection;
     }
 
+    /** Synchronized because the odometry thread reads this too. */
     @Override
-    public Rotation2d getYawNWU() {
+    public synchronized Rotation2d getYawNWU() {
         SwerveModuleStates states = m_moduleCollection.states();
         // discretization is not necessary here because we only use the rotation, which
         // is invariant
@@ -88,7 +88,8 @@ public class SingleNavXGyro implements Gyro {
 
     /** To work around NavX badness, for now. */
     private Rotation2d m_prevYawNWURad = null;
-    private double m_yawRateRad_S = 0;
+    /** Written in periodic(), read by the odometry thread too. */
+    private volatile double m_yawRateRad_S = 0;
 
     /**
      * NOTE: the async is just for logging, maybe don't use a whole thread for it.
@@ -178,6 +179,16 @@ public class SingleNavXGyro implements Gyro {
         // return currentHeadingRateNWU;
     }
 
+    @Override
+    public Rotation2d sampleYawNWU() {
+        return Rotation2d.fromDegrees(-1.0 * m_ahrs.getYaw() * m_yawScaleFactor);
+    }
+
+    @Override
+    public double sampleYawRateNWU() {
+        return m_yawRateRad_S;
+    }
+
     @Override
     public Rotation2d getPitchNWU() {
         Rotation2d pitchNWU = Rotation2d.fromDegrees(-1.0 * getPitchDeg());
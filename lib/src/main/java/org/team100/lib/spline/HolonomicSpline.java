@@ -233,11 +233,25 @@ public class HolonomicSpline {
         return new Translation2d(x.getPosition(t), y.getPosition(t));
     }
 
+    /** Primitive x, for the generator, which avoids making a Pose2d per sample. */
+    double x(double t) {
+        return x.getPosition(t);
+    }
+
+    double y(double t) {
+        return y.getPosition(t);
+    }
+
+    /** Heading in radians, not normalized. */
+    double heading(double t) {
+        return r0.getRadians() + theta.getPosition(t);
+    }
+
     double dx(double t) {
         return x.getVelocity(t);
     }
 
-    private double dy(double t) {
+    double dy(double t) {
         return y.getVelocity(t);
     }
 
@@ -272,8 +286,10 @@ public class HolonomicSpline {
      * but the argument to this function *is* the parameter, p. :-)
      */
     protected double getCurvature(double t) {
-        return (dx(t) * ddy(t) - ddx(t) * dy(t))
-                / ((dx(t) * dx(t) + dy(t) * dy(t)) * Math.sqrt((dx(t) * dx(t) + dy(t) * dy(t))));
+        double dx = dx(t);
+        double dy = dy(t);
+        double dx2dy2 = (dx * dx + dy * dy);
+        return (dx * ddy(t) - ddx(t) * dy) / (dx2dy2 * Math.sqrt(dx2dy2));
     }
 
     /**
@@ -282,21 +298,31 @@ public class HolonomicSpline {
      * If you want change in curvature per meter, use getDCurvatureDs.
      */
     protected double getDCurvature(double t) {
-        double dx2dy2 = (dx(t) * dx(t) + dy(t) * dy(t));
-        double num = (dx(t) * dddy(t) - dddx(t) * dy(t)) * dx2dy2
-                - 3 * (dx(t) * ddy(t) - ddx(t) * dy(t)) * (dx(t) * ddx(t) + dy(t) * ddy(t));
+        double dx = dx(t);
+        double dy = dy(t);
+        double dx2dy2 = (dx * dx + dy * dy);
+        double num = dCurvatureNum(t, dx, dy, dx2dy2);
         return num / (dx2dy2 * dx2dy2 * Math.sqrt(dx2dy2));
     }
 
     private double dCurvature2(double t) {
-        double dx2dy2 = (dx(t) * dx(t) + dy(t) * dy(t));
+        double dx = dx(t);
+        double dy = dy(t);
+        double dx2dy2 = (dx * dx + dy * dy);
         if (dx2dy2 == 0)
             throw new IllegalArgumentException();
-        double num = (dx(t) * dddy(t) - dddx(t) * dy(t)) * dx2dy2
-                - 3 * (dx(t) * ddy(t) - ddx(t) * dy(t)) * (dx(t) * ddx(t) + dy(t) * ddy(t));
+        double num = dCurvatureNum(t, dx, dy, dx2dy2);
         return num * num / (dx2dy2 * dx2dy2 * dx2dy2 * dx2dy2 * dx2dy2);
     }
 
+    /** Numerator of dk/dp, with the first derivatives already evaluated. */
+    private double dCurvatureNum(double t, double dx, double dy, double dx2dy2) {
+        double ddx = ddx(t);
+        double ddy = ddy(t);
+        return (dx * dddy(t) - dddx(t) * dy) * dx2dy2
+                - 3 * (dx * ddy - ddx * dy) * (dx * ddx + dy * ddy);
+    }
+
     /** integrate curvature over the length of the spline. */
     double maxCurvature() {
         double dt = 1.0 / kSamples;
@@ -4,6 +4,9 @@ package org.team100.lib.spline;
  * One-dimensional quintic spline, representing five derivatives of position.
  * 
  * The "t" parameter here is not time, its just a parameter.
+ * 
+ * The derivative coefficients are computed once, in the constructor, and all
+ * the evaluations use Horner form, so each one is a handful of multiply-adds.
  */
 public class Spline1d {
     /** crackle */
@@ -19,6 +22,17 @@ public class Spline1d {
     /** position */
     private final double f;
 
+    // derivative coefficients
+    private final double da;
+    private final double db;
+    private final double dc;
+    private final double dd;
+    private final double dda;
+    private final double ddb;
+    private final double ddc;
+    private final double ddda;
+    private final double dddb;
+
     private Spline1d(double a, double b, double c, double d, double e, double f) {
         if (Double.isNaN(a))
             throw new IllegalArgumentException();
@@ -38,6 +52,15 @@ public class Spline1d {
         this.d = d;
         this.e = e;
         this.f = f;
+        this.da = 5 * a;
+        this.db = 4 * b;
+        this.dc = 3 * c;
+        this.dd = 2 * d;
+        this.dda = 20 * a;
+        this.ddb = 12 * b;
+        this.ddc = 6 * c;
+        this.ddda = 60 * a;
+        this.dddb = 24 * b;
     }
 
     public static Spline1d newSpline1d(double x0, double x1, double dx0, double dx1, double ddx0, double ddx1) {
@@ -78,28 +101,28 @@ public class Spline1d {
      * @return the point on the spline for that t value
      */
     public double getPosition(double t) {
-        return a * t * t * t * t * t + b * t * t * t * t + c * t * t * t + d * t * t + e * t + f;
+        return ((((a * t + b) * t + c) * t + d) * t + e) * t + f;
     }
 
     /**
      * @return rate of change of position with respect to parameter, i.e. ds/dt
      */
     public double getVelocity(double t) {
-        return 5 * a * t * t * t * t + 4 * b * t * t * t + 3 * c * t * t + 2 * d * t + e;
+        return (((da * t + db) * t + dc) * t + dd) * t + e;
     }
 
     /**
      * @return acceleration of position with respect to parameter, i.e. d^2s/dt^2
      */
     public double getAcceleration(double t) {
-        return 20 * a * t * t * t + 12 * b * t * t + 6 * c * t + 2 * d;
+        return ((dda * t + ddb) * t + ddc) * t + dd;
     }
 
     /**
      * @return jerk of position with respect to parameter, i.e. d^3s/dt^3.
      */
     public double getJerk(double t) {
-        return 60 * a * t * t + 24 * b * t + 6 * c;
+        return (ddda * t + dddb) * t + ddc;
     }
 
 }
\ No newline at end of file
@@ -1,16 +1,29 @@
 package org.team100.lib.spline;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
-import org.team100.lib.geometry.GeometryUtil;
 import org.team100.lib.geometry.Pose2dWithMotion;
+import org.team100.lib.util.Math100;
 
-import edu.wpi.first.math.geometry.Pose2d;
-import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.math.geometry.Twist2d;
+import edu.wpi.first.math.MathUtil;
 
+/**
+ * Samples splines finely enough that the chord between samples stays within
+ * the dx, dy, and dtheta tolerances.
+ *
+ * This used to recurse, making a handful of Pose2d and Twist2d objects per
+ * segment. Now it uses an explicit work stack of primitive segments, each
+ * carrying its endpoint poses, so each segment only evaluates the spline at
+ * its midpoint, and the only objects made are the samples themselves.
+ */
 public class SplineGenerator {
+    /** Segment fields: t0, x0, y0, h0, t1, x1, y1, h1. */
+    private static final int kStride = 8;
+    /** Initial stack size, in segments; it grows if needed. */
+    private static final int kInitialDepth = 32;
+
     /**
      * Converts a spline into a list of Twist2d's.
      *
@@ -28,10 +41,7 @@ public class SplineGenerator {
             double t1) {
         List<Pose2dWithMotion> rv = new ArrayList<>();
         rv.add(s.getPose2dWithMotion(0.0));
-        double dt = (t1 - t0);
-        for (double t = 0; t < t1; t += dt) {
-            getSegmentArc(s, rv, t, t + dt, maxDx, maxDy, maxDTheta);
-        }
+        parameterizeSpline(s, rv, new WorkStack(), maxDx, maxDy, maxDTheta, t0, t1);
         return rv;
     }
 
@@ -44,48 +54,154 @@ public class SplineGenerator {
         if (splines.isEmpty())
             return rv;
         rv.add(splines.get(0).getPose2dWithMotion(0.0));
+        WorkStack stack = new WorkStack();
         for (int i = 0; i < splines.size(); i++) {
-            HolonomicSpline s = splines.get(i);
-            List<Pose2dWithMotion> samples = parameterizeSpline(s, maxDx, maxDy, maxDTheta, 0.0, 1.0);
-            samples.remove(0);
-            rv.addAll(samples);
+            // the start of each spline is the end of the previous one, so skip it.
+            parameterizeSpline(splines.get(i), rv, stack, maxDx, maxDy, maxDTheta, 0.0, 1.0);
         }
         return rv;
     }
 
+    /** Adds the samples after the start. */
+    private static void parameterizeSpline(
+            HolonomicSpline s,
+            List<Pose2dWithMotion> rv,
+            WorkStack stack,
+            double maxDx,
+            double maxDy,
+            double maxDTheta,
+            double t0,
+            double t1) {
+        double dt = (t1 - t0);
+        for (double t = 0; t < t1; t += dt) {
+            getSegmentArc(s, rv, stack, t, t + dt, maxDx, maxDy, maxDTheta);
+        }
+    }
+
+    /**
+     * Splits [t0, t1] until each piece is close enough to the arc through its
+     * endpoints, and adds the end of each piece, in order.
+     */
     private static void getSegmentArc(
             HolonomicSpline s,
             List<Pose2dWithMotion> rv,
+            WorkStack stack,
             double t0,
             double t1,
             double maxDx,
             double maxDy,
             double maxDTheta) {
-        Pose2d p0 = s.getPose2d(t0);
-        Pose2d phalf = s.getPose2d(t0 + (t1 - t0) * .5);
-        Pose2d p1 = s.getPose2d(t1);
-        Twist2d twist_full = GeometryUtil.kPoseZero.log(GeometryUtil.transformBy(GeometryUtil.inverse(p0), p1));
-        Pose2d phalf_predicted = GeometryUtil.transformBy(p0,
-                GeometryUtil.kPoseZero.exp(GeometryUtil.scale(twist_full, 0.5)));
-        Pose2d error = GeometryUtil.transformBy(GeometryUtil.inverse(phalf), phalf_predicted);
-        
-        if (GeometryUtil.norm(twist_full) < 1e-6) {
-            // the Rotation2d below will be garbage in this case so give up.
-            return;
+        stack.push(t0, s.x(t0), s.y(t0), s.heading(t0), t1, s.x(t1), s.y(t1), s.heading(t1));
+        double[] w = stack.m_segments;
+        while (stack.m_size > 0) {
+            // pop
+            int i = --stack.m_size * kStride;
+            double ta = w[i];
+            double x0 = w[i + 1];
+            double y0 = w[i + 2];
+            double h0 = w[i + 3];
+            double tb = w[i + 4];
+            double x1 = w[i + 5];
+            double y1 = w[i + 6];
+            double h1 = w[i + 7];
+
+            double tm = ta + (tb - ta) * .5;
+            double xm = s.x(tm);
+            double ym = s.y(tm);
+            double hm = s.heading(tm);
+
+            // the twist from p0 to p1, i.e. log(p0^-1 p1)
+            double c0 = Math.cos(h0);
+            double s0 = Math.sin(h0);
+            double dx = x1 - x0;
+            double dy = y1 - y0;
+            double tx = c0 * dx + s0 * dy;
+            double ty = -s0 * dx + c0 * dy;
+            double dtheta = MathUtil.angleModulus(h1 - h0);
+            double halfDtheta = dtheta / 2.0;
+            double cosMinusOne = Math.cos(dtheta) - 1;
+            double halfThetaByTanOfHalfDtheta;
+            if (Math.abs(cosMinusOne) < 1e-9) {
+                halfThetaByTanOfHalfDtheta = 1.0 - 1.0 / 12.0 * dtheta * dtheta;
+            } else {
+                halfThetaByTanOfHalfDtheta = -(halfDtheta * Math.sin(dtheta)) / cosMinusOne;
+            }
+            double twistX = tx * halfThetaByTanOfHalfDtheta + ty * halfDtheta;
+            double twistY = -tx * halfDtheta + ty * halfThetaByTanOfHalfDtheta;
+
+            if (Math.hypot(twistX, twistY) < 1e-6) {
+                // the course below will be garbage in this case so give up.
+                continue;
+            }
+
+            // the predicted midpoint, p0 exp(twist/2)
+            double hx = twistX * 0.5;
+            double hy = twistY * 0.5;
+            double hTheta = dtheta * 0.5;
+            double sinc;
+            double cosc;
+            if (Math.abs(hTheta) < 1e-9) {
+                sinc = 1.0 - 1.0 / 6.0 * hTheta * hTheta;
+                cosc = 0.5 * hTheta;
+            } else {
+                sinc = Math.sin(hTheta) / hTheta;
+                cosc = (1 - Math.cos(hTheta)) / hTheta;
+            }
+            double ex = hx * sinc - hy * cosc;
+            double ey = hx * cosc + hy * sinc;
+            double xp = x0 + c0 * ex - s0 * ey;
+            double yp = y0 + s0 * ex + c0 * ey;
+            double hp = h0 + hTheta;
+
+            // the predicted midpoint relative to the actual one
+            double cm = Math.cos(hm);
+            double sm = Math.sin(hm);
+            double errX = cm * (xp - xm) + sm * (yp - ym);
+            double errY = -sm * (xp - xm) + cm * (yp - ym);
+            double errTheta = MathUtil.angleModulus(hp - hm);
+
+            double coursePredicted = Math.atan2(twistY, twistX) + hp;
+            double dxm = s.dx(tm);
+            double dym = s.dy(tm);
+            double courseError = 0;
+            if (!(Math100.epsilonEquals(dxm, 0.0) && Math100.epsilonEquals(dym, 0.0))) {
+                courseError = MathUtil.angleModulus(Math.atan2(dym, dxm) - coursePredicted);
+            }
+
+            if (Math.abs(errY) > maxDy ||
+                    Math.abs(errX) > maxDx ||
+                    Math.abs(errTheta) > maxDTheta ||
+                    Math.abs(courseError) > maxDTheta) {
+                // right half first, so the left half is popped first.
+                stack.push(tm, xm, ym, hm, tb, x1, y1, h1);
+                stack.push(ta, x0, y0, h0, tm, xm, ym, hm);
+                w = stack.m_segments;
+            } else {
+                rv.add(s.getPose2dWithMotion(tb));
+            }
         }
-        Rotation2d course_predicted = (new Rotation2d(twist_full.dx, twist_full.dy))
-                .rotateBy(phalf_predicted.getRotation());
-
-        Rotation2d course_half = s.getCourse(t0 + (t1 - t0) * .5).orElse(course_predicted);
-        double course_error = course_predicted.unaryMinus().rotateBy(course_half).getRadians();
-        if (Math.abs(error.getTranslation().getY()) > maxDy ||
-                Math.abs(error.getTranslation().getX()) > maxDx ||
-                Math.abs(error.getRotation().getRadians()) > maxDTheta ||
-                Math.abs(course_error) > maxDTheta) {
-            getSegmentArc(s, rv, t0, (t0 + t1) / 2, maxDx, maxDy, maxDTheta);
-            getSegmentArc(s, rv, (t0 + t1) / 2, t1, maxDx, maxDy, maxDTheta);
-        } else {
-            rv.add(s.getPose2dWithMotion(t1));
+    }
+
+    /** Segments waiting to be checked, packed into one array. */
+    private static class WorkStack {
+        private double[] m_segments = new double[kInitialDepth * kStride];
+        private int m_size = 0;
+
+        void push(
+                double t0, double x0, double y0, double h0,
+                double t1, double x1, double y1, double h1) {
+            int i = m_size * kStride;
+            if (i + kStride > m_segments.length)
+                m_segments = Arrays.copyOf(m_segments, m_segments.length * 2);
+            m_segments[i] = t0;
+            m_segments[i + 1] = x0;
+            m_segments[i + 2] = y0;
+            m_segments[i + 3] = h0;
+            m_segments[i + 4] = t1;
+            m_segments[i + 5] = x1;
+            m_segments[i + 6] = y1;
+            m_segments[i + 7] = h1;
+            m_size++;
         }
     }
 
@@ -2,7 +2,10 @@ package org.team100.lib.state;
 
 import java.util.Objects;
 
+import org.team100.lib.state.struct.State100Struct;
+
 import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.util.struct.StructSerializable;
 
 /**
  * One-dimensional system state, used for measurement and reference.
@@ -12,11 +15,14 @@ import edu.wpi.first.math.MathUtil;
  * The usual state-space representation would be X = (x,v) and Xdot = (v,a).
  * Units are meters, radians, and seconds.
  */
-public class State100 {
+public class State100 implements StructSerializable {
     private final double m_x;
     private final double m_v;
     private final double m_a;
 
+    /** State100 struct for serialization. */
+    public static final State100Struct struct = new State100Struct();
+
     /** Specify position, velocity, and acceleration. */
     public State100(double x, double v, double a) {
         m_x = x;
@@ -1,5 +1,6 @@
 package org.team100.lib.swerve;
 
+import java.util.Arrays;
 import java.util.Optional;
 import java.util.function.DoubleSupplier;
 
@@ -33,6 +34,7 @@ public class AsymSwerveSetpointGenerator implements Glassy {
     // turns greater than this will flip
     // this used to be pi/2, which resulted in "square corner" paths
     private static final double flipLimitRad = 3 * Math.PI / 4;
+    private static final int kModules = 4;
 
     private final SwerveKinodynamics m_limits;
 
@@ -42,6 +44,17 @@ public class AsymSwerveSetpointGenerator implements Glassy {
     private final DriveAccelerationLimiter m_DriveAccelerationLimiter;
     private final BatterySagLimiter m_BatterySagLimiter;
 
+    // Workspace, reused every call, to avoid garbage in the control loop.
+    // This means the generator isn't thread-safe, which is fine, since there's
+    // one per drivetrain.
+    private final double[] m_prevVx = new double[kModules];
+    private final double[] m_prevVy = new double[kModules];
+    private final Rotation2d[] m_prevHeading = new Rotation2d[kModules];
+    private final double[] m_desiredVx = new double[kModules];
+    private final double[] m_desiredVy = new double[kModules];
+    private final Rotation2d[] m_desiredHeading = new Rotation2d[kModules];
+    private final Rotation2d[] m_overrideSteering = new Rotation2d[kModules];
+
     public AsymSwerveSetpointGenerator(
             LoggerFactory parent,
             SwerveKinodynamics limits,
@@ -69,30 +82,32 @@ public class AsymSwerveSetpointGenerator implements Glassy {
             SwerveSetpoint prevSetpoint,
             ChassisSpeeds desiredState) {
         SwerveModuleStates prevModuleStates = prevSetpoint.getModuleStates();
+        SwerveModuleState100[] prevModuleStatesAll = prevModuleStates.all();
+
+        // For each module, compute local Vx and Vy vectors.
+        computeVx(prevModuleStatesAll, m_prevVx);
+        computeVy(prevModuleStatesAll, m_prevVy);
+        // elements may be null.
+        computeHeading(prevModuleStatesAll, m_prevHeading);
+
         // the desired module state speeds are always positive.
         SwerveModuleStates desiredModuleStates = m_limits.toSwerveModuleStatesWithoutDiscretization(
                 desiredState);
         desiredState = desaturate(desiredState, desiredModuleStates);
         boolean desiredIsStopped = SwerveUtil.desiredIsStopped(desiredState, desiredModuleStates, prevModuleStates);
+        computeDesired(desiredModuleStates);
 
-        // For each module, compute local Vx and Vy vectors.
-        double[] prev_vx = computeVx(prevModuleStates);
-        double[] prev_vy = computeVy(prevModuleStates);
-        // elements may be null.
-        Rotation2d[] prev_heading = computeHeading(prevModuleStates);
-
-        double[] desired_vx = computeVx(desiredModuleStates);
-        double[] desired_vy = computeVy(desiredModuleStates);
-        // elements may be null.
-        Rotation2d[] desired_heading = computeHeading(desiredModuleStates);
-
-        boolean shouldStopAndReverse = shouldStopAndReverse(prev_heading, desired_heading);
-        if (shouldStopAndReverse
+        if (shouldStopAndReverse(m_prevHeading, m_desiredHeading)
                 && !GeometryUtil.isZero(prevSetpoint.getChassisSpeeds())
                 && !GeometryUtil.isZero(desiredState)) {
             // It will (likely) be faster to stop the robot, rotate the modules in place to
             // the complement of the desired angle, and accelerate again.
-            return generateSetpoint(prevSetpoint, new ChassisSpeeds());
+            // This used to recurse, which computed the prev arrays again.
+            desiredState = new ChassisSpeeds();
+            desiredModuleStates = m_limits.toSwerveModuleStatesWithoutDiscretization(desiredState);
+            desiredState = desaturate(desiredState, desiredModuleStates);
+            desiredIsStopped = SwerveUtil.desiredIsStopped(desiredState, desiredModuleStates, prevModuleStates);
+            computeDesired(desiredModuleStates);
         }
 
         // Compute the deltas between start and goal. We can then interpolate from the
@@ -116,40 +131,39 @@ public class AsymSwerveSetpointGenerator implements Glassy {
         // steering angle to command (since
         // inverse kinematics doesn't care about angle, we can be opportunistically
         // lazy).
-        SwerveModuleState100[] prevModuleStatesAll = prevModuleStates.all();
-        Rotation2d[] overrideSteering = new Rotation2d[prevModuleStatesAll.length];
+        Arrays.fill(m_overrideSteering, null);
 
         if (desiredIsStopped) {
             for (int i = 0; i < prevModuleStatesAll.length; ++i) {
                 if (prevModuleStatesAll[i].angle.isEmpty()) {
-                    overrideSteering[i] = null;
+                    m_overrideSteering[i] = null;
                 } else {
-                    overrideSteering[i] = prevModuleStatesAll[i].angle.get();
+                    m_overrideSteering[i] = prevModuleStatesAll[i].angle.get();
                 }
             }
         } else {
             double override_min_s = m_SteeringOverride.overrideIfStopped(
                     desiredModuleStates,
                     prevModuleStates,
-                    overrideSteering);
+                    m_overrideSteering);
             min_s = Math.min(min_s, override_min_s);
 
             double steering_min_s = m_steeringRateLimiter.enforceSteeringLimit(
-                    prev_vx,
-                    prev_vy,
-                    prev_heading,
-                    desired_vx,
-                    desired_vy,
-                    desired_heading,
-                    overrideSteering);
+                    m_prevVx,
+                    m_prevVy,
+                    m_prevHeading,
+                    m_desiredVx,
+                    m_desiredVy,
+                    m_desiredHeading,
+                    m_overrideSteering);
             min_s = Math.min(min_s, steering_min_s);
         }
 
         double accel_min_s = m_DriveAccelerationLimiter.enforceWheelAccelLimit(
-                prev_vx,
-                prev_vy,
-                desired_vx,
-                desired_vy);
+                m_prevVx,
+                m_prevVy,
+                m_desiredVx,
+                m_desiredVy);
 
         min_s = Math.min(min_s, accel_min_s);
 
@@ -158,19 +172,26 @@ public class AsymSwerveSetpointGenerator implements Glassy {
 
         return makeSetpoint(
                 prevSetpoint,
-                prevModuleStates,
+                prevModuleStatesAll,
                 dx,
                 dy,
                 dtheta,
                 min_s,
-                overrideSteering);
+                m_overrideSteering);
     }
 
     ///////////////////////////////////////////////////////
 
-    private double[] computeVx(SwerveModuleStates states) {
-        SwerveModuleState100[] statesAll = states.all();
-        double[] vx = new double[statesAll.length];
+    /** Fill the desired workspace arrays. */
+    private void computeDesired(SwerveModuleStates desiredModuleStates) {
+        SwerveModuleState100[] desiredModuleStatesAll = desiredModuleStates.all();
+        computeVx(desiredModuleStatesAll, m_desiredVx);
+        computeVy(desiredModuleStatesAll, m_desiredVy);
+        // elements may be null.
+        computeHeading(desiredModuleStatesAll, m_desiredHeading);
+    }
+
+    private static void computeVx(SwerveModuleState100[] statesAll, double[] vx) {
         for (int i = 0; i < statesAll.length; ++i) {
             SwerveModuleState100 state = statesAll[i];
             if (Math.abs(state.speedMetersPerSecond) < 1e-6 || state.angle.isEmpty()) {
@@ -179,12 +200,9 @@ public class AsymSwerveSetpointGenerator implements Glassy {
                 vx[i] = state.angle.get().getCos() * state.speedMetersPerSecond;
             }
         }
-        return vx;
     }
 
-    private double[] computeVy(SwerveModuleStates states) {
-        SwerveModuleState100[] statesAll = states.all();
-        double[] vy = new double[statesAll.length];
+    private static void computeVy(SwerveModuleState100[] statesAll, double[] vy) {
         for (int i = 0; i < statesAll.length; ++i) {
             SwerveModuleState100 state = statesAll[i];
             if (Math.abs(state.speedMetersPerSecond) < 1e-6 || state.angle.isEmpty()) {
@@ -193,17 +211,14 @@ public class AsymSwerveSetpointGenerator implements Glassy {
                 vy[i] = state.angle.get().getSin() * state.speedMetersPerSecond;
             }
         }
-        return vy;
     }
 
     /**
      * Which way each module is actually going, taking speed polarity into account.
      * 
-     * @return elements are nullable.
+     * Elements of heading are nullable.
      */
-    private Rotation2d[] computeHeading(SwerveModuleStates states) {
-        SwerveModuleState100[] statesAll = states.all();
-        Rotation2d[] heading = new Rotation2d[statesAll.length];
+    private static void computeHeading(SwerveModuleState100[] statesAll, Rotation2d[] heading) {
         for (int i = 0; i < statesAll.length; ++i) {
             if (statesAll[i].angle.isEmpty()) {
                 heading[i] = null;
@@ -214,7 +229,6 @@ public class AsymSwerveSetpointGenerator implements Glassy {
                 heading[i] = GeometryUtil.flip(heading[i]);
             }
         }
-        return heading;
     }
 
     /**
@@ -250,7 +264,7 @@ public class AsymSwerveSetpointGenerator implements Glassy {
 
     private SwerveSetpoint makeSetpoint(
             final SwerveSetpoint prevSetpoint,
-            SwerveModuleStates prevModuleStates,
+            SwerveModuleState100[] prevModuleStatesAll,
             double dx,
             double dy,
             double dtheta,
@@ -267,7 +281,7 @@ public class AsymSwerveSetpointGenerator implements Glassy {
                 setpointSpeeds,
                 setpointSpeeds.omegaRadiansPerSecond);
         applyOverrides(overrideSteering, setpointStates);
-        flipIfRequired(prevModuleStates, setpointStates);
+        flipIfRequired(prevModuleStatesAll, setpointStates);
 
         return new SwerveSetpoint(setpointSpeeds, setpointStates);
     }
@@ -290,8 +304,7 @@ public class AsymSwerveSetpointGenerator implements Glassy {
         }
     }
 
-    private void flipIfRequired(SwerveModuleStates prevStates, SwerveModuleStates setpointStates) {
-        SwerveModuleState100[] prevStatesAll = prevStates.all();
+    private void flipIfRequired(SwerveModuleState100[] prevStatesAll, SwerveModuleStates setpointStates) {
         SwerveModuleState100[] setpointStatesAll = setpointStates.all();
 
         for (int i = 0; i < prevStatesAll.length; ++i) {
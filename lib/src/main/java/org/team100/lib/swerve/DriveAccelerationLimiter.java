@@ -11,8 +11,6 @@ import org.team100.lib.util.Math100;
  * Enforces drive motor torque constraints.
  */
 public class DriveAccelerationLimiter implements Glassy {
-    private static final int kMaxIterations = 10;
-
     private final SwerveKinodynamics m_limits;
     // LOGGERS
     private final DoubleLogger m_log_max_step;
@@ -38,7 +36,8 @@ public class DriveAccelerationLimiter implements Glassy {
                     prev_vy[i],
                     desired_vx[i],
                     desired_vy[i]);
-            m_log_max_step.log(() -> max_vel_step);
+            // no lambda here, it would be allocated for every module
+            m_log_max_step.log(max_vel_step);
 
             // reduces the size of the search space if min_s is already constrained (by
             // earlier modules)
@@ -50,15 +49,13 @@ public class DriveAccelerationLimiter implements Glassy {
                     prev_vy[i],
                     vx_min_s,
                     vy_min_s,
-                    max_vel_step,
-                    kMaxIterations);
+                    max_vel_step);
             min_s = Math.min(min_s, s);
             if (min_s == 0.0) {
                 break;
             }
         }
-        final double s = min_s;
-        m_log_s.log(() -> s);
+        m_log_s.log(min_s);
         return min_s;
     }
 
@@ -17,8 +17,6 @@ import edu.wpi.first.math.geometry.Rotation2d;
  * minimum across all modules, since that is the active constraint.
  */
 public class SteeringRateLimiter implements Glassy {
-    private static final int kMaxIterations = 10;
-
     private final SwerveKinodynamics m_limits;
     // LOGGER
     private final DoubleLogger m_log_s;
@@ -56,13 +54,11 @@ public class SteeringRateLimiter implements Glassy {
                     desired_vx[i],
                     desired_vy[i],
                     desired_heading[i].getRadians(),
-                    TimedRobot100.LOOP_PERIOD_S * m_limits.getMaxSteeringVelocityRad_S(),
-                    kMaxIterations);
+                    TimedRobot100.LOOP_PERIOD_S * m_limits.getMaxSteeringVelocityRad_S());
 
             min_s = Math.min(min_s, s);
         }
-        double s = min_s;
-        m_log_s.log(() -> s);
+        m_log_s.log(min_s);
         return min_s;
     }
 
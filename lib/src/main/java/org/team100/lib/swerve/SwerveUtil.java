@@ -1,6 +1,5 @@
 package org.team100.lib.swerve;
 
-import java.util.function.DoubleBinaryOperator;
 
 import org.team100.lib.framework.TimedRobot100;
 import org.team100.lib.geometry.GeometryUtil;
@@ -38,16 +37,22 @@ public class SwerveUtil {
     }
 
     /**
+     * Find the interpolant, s, at which the steering angle of the module has moved
+     * max_deviation from the previous angle, toward the desired angle.
      * 
-     * @param x_0            previous vx
-     * @param y_0            previoux vy
-     * @param f_0            previous steering angle
-     * @param x_1            desired vx
-     * @param y_1            desired vy
-     * @param f_1            desired steering angle
-     * @param max_deviation  max angle step
-     * @param max_iterations
-     * @return
+     * The velocity is interpolated linearly, so this is the intersection of the
+     * line from the previous velocity to the desired velocity with the ray at the
+     * target angle, which has a closed-form solution. This used to be a
+     * regula-falsi search, which could run out of iterations and return 1.
+     * 
+     * @param x_0           previous vx
+     * @param y_0           previoux vy
+     * @param f_0           previous steering angle
+     * @param x_1           desired vx
+     * @param y_1           desired vy
+     * @param f_1           desired steering angle
+     * @param max_deviation max angle step
+     * @return s in [0,1]
      */
     public static double findSteeringMaxS(
             double x_0,
@@ -56,8 +61,7 @@ public class SwerveUtil {
             double x_1,
             double y_1,
             double f_1,
-            double max_deviation,
-            int max_iterations) {
+            double max_deviation) {
         f_1 = SwerveUtil.unwrapAngle(f_0, f_1);
 
         double diff = f_1 - f_0;
@@ -69,22 +73,38 @@ public class SwerveUtil {
 
         double offset = f_0 + Math.signum(diff) * max_deviation;
 
-        DoubleBinaryOperator func = (x, y) -> SwerveUtil.unwrapAngle(f_0, Math.atan2(y, x)) - offset;
-
-        return Math100.findRoot(
-                func,
-                x_0, y_0, f_0 - offset,
-                x_1, y_1, f_1 - offset,
-                max_iterations);
+        // unit vector at the target angle
+        double ux = Math.cos(offset);
+        double uy = Math.sin(offset);
+        double dx = x_1 - x_0;
+        double dy = y_1 - y_0;
+        // cross(u, p0 + s * d) = 0
+        double cross = ux * dy - uy * dx;
+        if (Math.abs(cross) < 1e-12) {
+            // parallel, so the angle never changes.
+            return 1.0;
+        }
+        double s = (uy * x_0 - ux * y_0) / cross;
+        return Math100.limit(s, 0, 1);
     }
 
+    /**
+     * Find the interpolant, s, at which the speed of the module has changed by
+     * max_vel_step from the previous speed, toward the desired speed.
+     * 
+     * The velocity is interpolated linearly, so this is the intersection of the
+     * line from the previous velocity to the desired velocity with the circle of
+     * the target speed, which is a quadratic. If the line crosses the circle
+     * twice, this is the first crossing.
+     * 
+     * @return s in [0,1]
+     */
     public static double findDriveMaxS(
             double x_0,
             double y_0,
             double x_1,
             double y_1,
-            double max_vel_step,
-            int max_iterations) {
+            double max_vel_step) {
         double f_0 = Math.hypot(x_0, y_0);
         double f_1 = Math.hypot(x_1, y_1);
 
@@ -94,8 +114,18 @@ public class SwerveUtil {
             return 1.0;
         }
         double offset = f_0 + Math.signum(diff) * max_vel_step;
-        DoubleBinaryOperator func = (x, y) -> (Math.hypot(x, y) - offset);
-        return Math100.findRoot(func, x_0, y_0, f_0 - offset, x_1, y_1, f_1 - offset, max_iterations);
+        // |p0 + s * d|^2 = offset^2
+        // a s^2 + 2 b s + c = 0
+        double dx = x_1 - x_0;
+        double dy = y_1 - y_0;
+        double a = dx * dx + dy * dy;
+        double b = x_0 * dx + y_0 * dy;
+        double c = f_0 * f_0 - offset * offset;
+        double sqrtDisc = Math.sqrt(Math.max(0, b * b - a * c));
+        // speeding up starts inside the circle, so the crossing is the larger root;
+        // slowing down starts outside, so it's the smaller one.
+        double s = c < 0 ? (-b + sqrtDisc) / a : (-b - sqrtDisc) / a;
+        return Math100.limit(s, 0, 1);
     }
 
     /**
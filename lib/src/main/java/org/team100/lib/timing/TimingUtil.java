@@ -2,6 +2,9 @@ package org.team100.lib.timing;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
 
 import org.team100.lib.geometry.Pose2dWithMotion;
 import org.team100.lib.path.PathDistanceSampler;
@@ -9,6 +12,10 @@ import org.team100.lib.trajectory.Trajectory100;
 import org.team100.lib.util.Util;
 
 /**
+ * The states are kept in parallel primitive arrays, and the velocity
+ * constraints, which only depend on the path, are evaluated up front, in
+ * parallel for long paths planned by TrajectoryPlanService.
+ * 
  * Distance is always positive.
  * Velocity is always positive.
  * Max accel is positive.
@@ -18,6 +25,8 @@ public class TimingUtil {
     private static final double kEpsilon = 1e-6;
     /** this is the default, in order to make the constraints set the actual */
     private static final double HIGH_ACCEL = 1000;
+    /** Below this, the parallel overhead isn't worth it. */
+    private static final int kParallelThreshold = 512;
 
     private final List<TimingConstraint> m_constraints;
 
@@ -60,10 +69,65 @@ public class TimingUtil {
             List<Pose2dWithMotion> samples,
             double start_vel,
             double end_vel) throws TimingException {
-        List<ConstrainedState> constrainedStates = forwardPass(samples, start_vel);
-        Pose2dWithMotion lastState = samples.get(samples.size() - 1);
-        backwardsPass(lastState, end_vel, constrainedStates);
-        return integrate(constrainedStates);
+        States states = new States(samples);
+        precompute(states);
+        forwardPass(states, start_vel);
+        backwardsPass(states, end_vel);
+        return integrate(states);
+    }
+
+    /**
+     * The schedule, as parallel arrays, one entry per sample.
+     */
+    private static class States {
+        final int n;
+        final Pose2dWithMotion[] samples;
+        /** Distance from the previous sample. */
+        final double[] ds;
+        /** Cumulative distance along the path. */
+        final double[] distance;
+        /** Min of the velocity constraints, which depend only on the sample. */
+        final double[] maxVel;
+        final double[] vel;
+        final double[] minAccel;
+        final double[] maxAccel;
+
+        States(List<Pose2dWithMotion> samples) {
+            this.samples = samples.toArray(new Pose2dWithMotion[0]);
+            n = this.samples.length;
+            ds = new double[n];
+            distance = new double[n];
+            maxVel = new double[n];
+            vel = new double[n];
+            minAccel = new double[n];
+            maxAccel = new double[n];
+        }
+    }
+
+    /**
+     * The distances and the velocity constraints don't depend on anything else, so
+     * compute them all up front, in parallel if there are many. The constraints are
+     * immutable, so this is safe.
+     */
+    private void precompute(States s) {
+        IntStream indices = IntStream.range(0, s.n);
+        if (s.n >= kParallelThreshold && inPlannerPool())
+            indices = indices.parallel();
+        indices.forEach(i -> {
+            Pose2dWithMotion sample = s.samples[i];
+            s.ds[i] = sample.distance(s.samples[Math.max(0, i - 1)]);
+            double maxVel = Double.POSITIVE_INFINITY;
+            for (TimingConstraint constraint : m_constraints) {
+                // NaN propagates, and fails in checkVel().
+                maxVel = Math.min(maxVel, constraint.getMaxVelocity(sample).getValue());
+            }
+            s.maxVel[i] = maxVel;
+        });
+        double distance = 0;
+        for (int i = 0; i < s.n; ++i) {
+            distance += s.ds[i];
+            s.distance[i] = distance;
+        }
     }
 
     /**
@@ -77,146 +141,170 @@ public class TimingUtil {
      * end velocity to the state's maximum allowed velocity and will repair the
      * acceleration during the backward pass (by slowing down the predecessor).
      */
-    private List<ConstrainedState> forwardPass(List<Pose2dWithMotion> samples, double start_vel) {
-        ConstrainedState predecessor = new ConstrainedState(samples.get(0), 0);
-        predecessor.setVel(start_vel);
-        predecessor.setMin_acceleration(-HIGH_ACCEL);
-        predecessor.setMax_acceleration(HIGH_ACCEL);
+    private void forwardPass(States s, double start_vel) {
+        // the predecessor of the first state is a copy of it with the start
+        // velocity.
+        double v0 = start_vel;
+        double min_a0 = -HIGH_ACCEL;
+        double max_a0 = HIGH_ACCEL;
 
         // work forward through the samples
-        List<ConstrainedState> constrainedStates = new ArrayList<>(samples.size());
-        for (Pose2dWithMotion sample : samples) {
-            double ds = sample.distance(predecessor.getState());
-            ConstrainedState constrainedState = new ConstrainedState(sample, ds + predecessor.getDistance());
-            constrainedStates.add(constrainedState);
-            forwardWork(predecessor, constrainedState);
-            predecessor = constrainedState;
-        }
-        return constrainedStates;
-    }
+        for (int i = 0; i < s.n; ++i) {
+            // constant-twist path length between states
+            // note this is zero for turn-in-place.
+            double ds = s.ds[i];
 
-    private void forwardWork(ConstrainedState s0, ConstrainedState s1) {
-        // constant-twist path length between states
-        // note this is zero for turn-in-place.
-        double ds = s1.getState().distance(s0.getState());
+            // We may need to iterate to find the maximum end velocity and common
+            // acceleration, since acceleration limits may be a function of velocity.
+            while (true) {
+                // first try the previous state accel to get the new state velocity
+                s.vel[i] = checkVel(v1(v0, max_a0, ds));
 
-        // We may need to iterate to find the maximum end velocity and common
-        // acceleration, since acceleration limits may be a function of velocity.
-        while (true) {
-            // first try the previous state accel to get the new state velocity
-            double v1 = v1(s0.getVel(), s0.getMax_acceleration(), ds);
-            s1.setVel(v1);
+                // also use max accels for the new state accels
+                s.minAccel[i] = -HIGH_ACCEL;
+                s.maxAccel[i] = HIGH_ACCEL;
 
-            // also use max accels for the new state accels
-            s1.setMin_acceleration(-HIGH_ACCEL);
-            s1.setMax_acceleration(HIGH_ACCEL);
+                // reduce velocity according to constraints
+                s.vel[i] = checkVel(Math.min(s.vel[i], s.maxVel[i]));
 
-            // reduce velocity according to constraints
-            s1.clampVelocity(m_constraints);
+                // reduce accel according to constraints
+                clampAccel(s, i);
 
-            // reduce accel according to constraints
-            s1.clampAccel(m_constraints);
+                // motionless
+                if (Math.abs(ds) < kEpsilon) {
+                    break;
+                }
 
-            // motionless
-            if (Math.abs(ds) < kEpsilon) {
-                return;
+                double accel = accel(v0, s.vel[i], ds);
+                if (accel > s.maxAccel[i] + kEpsilon) {
+                    // implied accel is too high because v1 is too high, perhaps because
+                    // a0 was too high, try again with the (lower) constrained value
+                    max_a0 = s.maxAccel[i];
+                    continue;
+                }
+                if (accel > min_a0 + kEpsilon) {
+                    // set the previous state accel to whatever the constrained velocity implies
+                    max_a0 = accel;
+                }
+                break;
             }
-
-            double accel = accel(s0.getVel(), s1.getVel(), ds);
-            if (accel > s1.getMax_acceleration() + kEpsilon) {
-                // implied accel is too high because v1 is too high, perhaps because
-                // a0 was too high, try again with the (lower) constrained value
-                s0.setMax_acceleration(s1.getMax_acceleration());
-                continue;
-            }
-            if (accel > s0.getMin_acceleration() + kEpsilon) {
-                // set the previous state accel to whatever the constrained velocity implies
-                s0.setMax_acceleration(accel);
-            }
-            return;
+            if (i > 0)
+                s.maxAccel[i - 1] = max_a0;
+            v0 = s.vel[i];
+            min_a0 = s.minAccel[i];
+            max_a0 = s.maxAccel[i];
         }
     }
 
     /**
      * Backwards pass
      */
-    private void backwardsPass(
-            Pose2dWithMotion lastState,
-            double end_velocity,
-            List<ConstrainedState> constrainedStates) {
-        // "successor" comes before in the backwards walk. start with the last state.
-        ConstrainedState endState = constrainedStates.get(constrainedStates.size() - 1);
-        ConstrainedState successor = new ConstrainedState(lastState, endState.getDistance());
-        successor.setVel(end_velocity);
-        successor.setMin_acceleration(-HIGH_ACCEL);
-        successor.setMax_acceleration(HIGH_ACCEL);
+    private void backwardsPass(States s, double end_velocity) {
+        // "successor" comes before in the backwards walk. start with a copy of the
+        // last state, with the end velocity.
+        double v1 = end_velocity;
+        double min_a1 = -HIGH_ACCEL;
+        double distance1 = s.distance[s.n - 1];
 
         // work backwards through the states list
-        for (int i = constrainedStates.size() - 1; i >= 0; --i) {
-            ConstrainedState constrainedState = constrainedStates.get(i);
-            backwardsWork(constrainedState, successor);
-            successor = constrainedState;
-        }
-    }
+        for (int i = s.n - 1; i >= 0; --i) {
+            // backwards (negative) distance from successor to initial state.
+            double ds = s.distance[i] - distance1;
+            if (ds > 0) {
+                // must be negative if we're walking backwards.
+                throw new IllegalStateException();
+            }
 
-    /** s0 is earlier, s1 is "successor", we're walking backwards. */
-    private void backwardsWork(ConstrainedState s0, ConstrainedState s1) {
-        // backwards (negative) distance from successor to initial state.
-        double ds = s0.getDistance() - s1.getDistance();
-        if (ds > 0) {
-            // must be negative if we're walking backwards.
-            throw new IllegalStateException();
-        }
+            while (true) {
+                // s0 velocity can't be more than the accel implies
+                // so this is actually an estimate for v0
+                // min a is negative, ds is negative, so v0 is faster than v1
+                double v0 = v1(v1, min_a1, ds);
 
-        while (true) {
-            // s0 velocity can't be more than the accel implies
-            // so this is actually an estimate for v0
-            // min a is negative, ds is negative, so v0 is faster than v1
-            double v0 = v1(s1.getVel(), s1.getMin_acceleration(), ds);
-
-            if (s0.getVel() <= v0) {
-                // s0 v is slower than implied v0, which means
-                // that actual accel is larger than the min, so we're fine
-                // No new limits to impose.
-                return;
-            }
-            // s0 v is too fast, turn it down to obey v1 min accel.
-            s0.setVel(v0);
+                if (s.vel[i] <= v0) {
+                    // s0 v is slower than implied v0, which means
+                    // that actual accel is larger than the min, so we're fine
+                    // No new limits to impose.
+                    break;
+                }
+                // s0 v is too fast, turn it down to obey v1 min accel.
+                s.vel[i] = checkVel(v0);
 
-            s0.clampAccel(m_constraints);
+                clampAccel(s, i);
 
-            // motionless
-            if (Math.abs(ds) < kEpsilon) {
-                return;
-            }
+                // motionless
+                if (Math.abs(ds) < kEpsilon) {
+                    break;
+                }
 
-            // implied accel using the constrained v0
-            double accel = accel(s1.getVel(), s0.getVel(), ds);
-            if (accel < s0.getMin_acceleration() - kEpsilon) {
-                // accel is too low which implies that s1 accel is too low, try again
-                s1.setMin_acceleration(s0.getMin_acceleration());
-                continue;
+                // implied accel using the constrained v0
+                double accel = accel(v1, s.vel[i], ds);
+                if (accel < s.minAccel[i] - kEpsilon) {
+                    // accel is too low which implies that s1 accel is too low, try again
+                    min_a1 = s.minAccel[i];
+                    continue;
+                }
+                // set final accel to the implied value
+                min_a1 = accel;
+                break;
             }
-            // set final accel to the implied value
-            s1.setMin_acceleration(accel);
-            return;
+            if (i < s.n - 1)
+                s.minAccel[i + 1] = min_a1;
+            v1 = s.vel[i];
+            min_a1 = s.minAccel[i];
+            distance1 = s.distance[i];
+        }
+    }
+
+    /**
+     * Clamp state accelerations to the constraints. These depend on velocity, so
+     * they can't be precomputed.
+     */
+    private void clampAccel(States s, int i) {
+        for (TimingConstraint constraint : m_constraints) {
+            TimingConstraint.MinMaxAcceleration min_max_accel = constraint
+                    .getMinMaxAcceleration(s.samples[i], s.vel[i]);
+            double minAccel = min_max_accel.getMinAccel();
+            if (Double.isNaN(minAccel))
+                throw new IllegalArgumentException();
+            s.minAccel[i] = Math.max(s.minAccel[i], minAccel);
+            double maxAccel = min_max_accel.getMaxAccel();
+            if (Double.isNaN(maxAccel))
+                throw new IllegalArgumentException();
+            s.maxAccel[i] = Math.min(s.maxAccel[i], maxAccel);
         }
     }
 
+    /**
+     * A parallel stream runs in the pool of the thread that starts it, or in the
+     * common pool, at normal priority, if the thread isn't in a pool. So only go
+     * parallel in a pool someone made on purpose, like the one in
+     * TrajectoryPlanService; the main loop and the common pool stay serial.
+     */
+    private static boolean inPlannerPool() {
+        ForkJoinPool pool = ForkJoinTask.getPool();
+        return pool != null && pool != ForkJoinPool.commonPool();
+    }
+
+    private static double checkVel(double vel) {
+        if (Double.isNaN(vel))
+            throw new IllegalArgumentException();
+        return vel;
+    }
+
     /**
      * Integrate the constrained states forward in time to obtain the TimedStates.
      * 
      * last state accel is always zero, which might be wrong.
      */
-    private static Trajectory100 integrate(List<ConstrainedState> states) throws TimingException {
-        List<TimedPose> poses = new ArrayList<>(states.size());
+    private static Trajectory100 integrate(States s) throws TimingException {
+        List<TimedPose> poses = new ArrayList<>(s.n);
         double time = 0.0; // time along path
         double distance = 0.0; // distance along path
         double v0 = 0.0;
-        for (int i = 0; i < states.size(); ++i) {
-            ConstrainedState state = states.get(i);
-            final double ds = state.getDistance() - distance;
-            final double v1 = state.getVel();
+        for (int i = 0; i < s.n; ++i) {
+            final double ds = s.distance[i] - distance;
+            final double v1 = s.vel[i];
             double dt = 0.0;
             if (i > 0) {
                 double prevAccel = accel(v0, v1, ds);
@@ -227,9 +315,9 @@ public class TimingUtil {
             if (Double.isNaN(time) || Double.isInfinite(time)) {
                 throw new TimingException();
             }
-            poses.add(new TimedPose(state.getState(), time, v1, 0));
+            poses.add(new TimedPose(s.samples[i], time, v1, 0));
             v0 = v1;
-            distance = state.getDistance();
+            distance = s.distance[i];
         }
         return new Trajectory100(poses);
     }
@@ -0,0 +1,330 @@
+package org.team100.lib.trajectory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+import org.team100.lib.geometry.Pose2dWithMotion;
+import org.team100.lib.timing.TimingConstraint;
+import org.team100.lib.timing.TimedPose;
+import org.team100.lib.util.Util;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Twist2d;
+
+/**
+ * Trajectories planned ahead of time, so the robot doesn't spend seconds at
+ * startup planning every auton for both alliances.
+ *
+ * A build step runs the auton code with an empty library, which plans
+ * everything live, and writes the result to the deploy directory. The robot
+ * memory-maps that file at startup, and getOrPlan() is a hash lookup.
+ *
+ * Each trajectory is stored with a fingerprint of its inputs, and looked up by
+ * name and fingerprint. If the inputs have changed since the file was made,
+ * there won't be a match, and getOrPlan() plans it live, like it would with no
+ * file at all. Since the fingerprint includes the drivetrain limits, the same
+ * name can appear more than once, once per robot. A file that's truncated or
+ * corrupt is ignored entirely.
+ *
+ * The fingerprint can't see the planner or constraint code directly, so the
+ * caller includes constraintFingerprint(), which plans a short probe path and
+ * hashes the result: changing the planner, the constraints, or their limits
+ * changes the probe, and makes the stored trajectories stale. Bump kVersion
+ * only if you change the file format.
+ *
+ * The format is big-endian:
+ *
+ * <pre>
+ * int magic, int version, int count, long crc32 of the rest
+ * count entries of:
+ *   short name length, name bytes (UTF-8), long fingerprint, int points
+ *   points x 11 doubles:
+ *     x, y, heading, motion dx, motion dy, motion dtheta,
+ *     curvature, dcurvature, time, velocity, acceleration
+ * </pre>
+ */
+public class TrajectoryLibrary {
+    private static final int kMagic = 0x54313030; // "T100"
+    private static final int kVersion = 1;
+    private static final int kHeaderBytes = 4 + 4 + 4 + 8;
+    private static final int kPointDoubles = 11;
+    /** A curve with a turn, so the probe exercises every kind of constraint. */
+    private static final List<Pose2d> kProbeWaypoints = List.of(
+            new Pose2d(0, 0, new Rotation2d()),
+            new Pose2d(2, 1, new Rotation2d(Math.PI / 2)));
+    private static final List<Rotation2d> kProbeHeadings = List.of(
+            new Rotation2d(),
+            new Rotation2d(Math.PI / 2));
+    /**
+     * The probe is rounded to this before hashing, because the RoboRIO's math
+     * intrinsics may differ from the desktop's in the last bit.
+     */
+    private static final double kProbeResolution = 1e-6;
+
+    private record Key(String name, long fingerprint) {
+    }
+
+    /** Where an entry's points start in the mapped file. */
+    private record Index(int offset, int points) {
+    }
+
+    /** The mapped file, or null if there isn't one. */
+    private final ByteBuffer m_buffer;
+    private final Map<Key, Index> m_index;
+    /** Decoded or live-planned trajectories. Guarded by this. */
+    private final Map<Key, Trajectory100> m_entries;
+    /** Guarded by this. */
+    private int m_planned;
+
+    private TrajectoryLibrary(ByteBuffer buffer, Map<Key, Index> index) {
+        m_buffer = buffer;
+        m_index = index;
+        m_entries = new LinkedHashMap<>();
+        m_planned = 0;
+    }
+
+    /** No precomputed trajectories: everything is planned live. */
+    public static TrajectoryLibrary empty() {
+        return new TrajectoryLibrary(null, Map.of());
+    }
+
+    /**
+     * Maps the file and reads its index. If the file is missing or bad, this
+     * warns and returns an empty library.
+     */
+    public static TrajectoryLibrary load(Path path) {
+        if (!Files.exists(path)) {
+            Util.warn("No trajectory library at " + path + ", planning live");
+            return empty();
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            Map<Key, Index> index = readIndex(buffer);
+            if (index == null) {
+                Util.warn("Bad trajectory library at " + path + ", planning live");
+                return empty();
+            }
+            Util.printf("Loaded %d trajectories from %s\n", index.size(), path);
+            return new TrajectoryLibrary(buffer, index);
+        } catch (IOException | RuntimeException e) {
+            Util.warn("Can't read trajectory library at " + path + ": " + e);
+            return empty();
+        }
+    }
+
+    /**
+     * Returns the stored trajectory with this name and fingerprint, or plans it
+     * live and keeps it, so the next call (and write()) will have it.
+     */
+    public synchronized Trajectory100 getOrPlan(
+            String name,
+            long fingerprint,
+            Supplier<Trajectory100> planner) {
+        Key key = new Key(name, fingerprint);
+        Trajectory100 trajectory = m_entries.get(key);
+        if (trajectory != null)
+            return trajectory;
+        Index index = m_index.get(key);
+        if (index != null) {
+            trajectory = decode(m_buffer, index);
+        } else {
+            if (m_buffer != null)
+                Util.warn("Missing or stale trajectory " + name + ", planning live");
+            trajectory = planner.get();
+            m_planned++;
+        }
+        m_entries.put(key, trajectory);
+        return trajectory;
+    }
+
+    /** Number of trajectories in the file. */
+    public int size() {
+        return m_index.size();
+    }
+
+    /** Number of trajectories planned live, because they weren't in the file. */
+    public synchronized int planned() {
+        return m_planned;
+    }
+
+    /** Writes every trajectory returned by getOrPlan() so far. */
+    public synchronized void write(Path path) throws IOException {
+        try (OutputStream out = Files.newOutputStream(path)) {
+            out.write(encode(m_entries));
+        }
+    }
+
+    /**
+     * Hash of the planner inputs. Constraints should come from
+     * constraintFingerprint(), and params should include anything else that
+     * affects the result, e.g. the drivetrain limits.
+     */
+    public static long fingerprint(
+            List<Pose2d> waypoints,
+            List<Rotation2d> headings,
+            long constraints,
+            double... params) {
+        long h = kVersion ^ constraints;
+        for (Pose2d p : waypoints) {
+            h = mix(h, p.getX());
+            h = mix(h, p.getY());
+            h = mix(h, p.getRotation().getRadians());
+        }
+        for (Rotation2d r : headings) {
+            h = mix(h, r.getRadians());
+        }
+        for (double x : params) {
+            h = mix(h, x);
+        }
+        return h;
+    }
+
+    /**
+     * Hash of what the planner does with these constraints, found by planning a
+     * probe path. This takes a few milliseconds, so compute it once per set of
+     * constraints.
+     */
+    public static long constraintFingerprint(List<TimingConstraint> constraints) {
+        Trajectory100 probe = TrajectoryPlanner.restToRest(kProbeWaypoints, kProbeHeadings, constraints);
+        long h = kVersion;
+        for (TrajectoryPoint p : probe.getPoints()) {
+            TimedPose s = p.state();
+            h = mix(h, round(s.state().getPose().getX()));
+            h = mix(h, round(s.state().getPose().getY()));
+            h = mix(h, round(s.state().getHeading().getRadians()));
+            h = mix(h, round(s.getTimeS()));
+            h = mix(h, round(s.velocityM_S()));
+        }
+        return h;
+    }
+
+    ////////////////////////////////////////////////////////////////////////
+
+    private static double round(double x) {
+        return Math.round(x / kProbeResolution) * kProbeResolution;
+    }
+
+    private static long mix(long h, double x) {
+        h ^= Double.doubleToLongBits(x);
+        h *= 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    /** Returns null if the header or checksum is wrong. */
+    private static Map<Key, Index> readIndex(ByteBuffer buffer) {
+        if (buffer.limit() < kHeaderBytes)
+            return null;
+        if (buffer.getInt(0) != kMagic || buffer.getInt(4) != kVersion)
+            return null;
+        int count = buffer.getInt(8);
+        long crc = buffer.getLong(12);
+        CRC32 actual = new CRC32();
+        actual.update(buffer.duplicate().position(kHeaderBytes));
+        if (actual.getValue() != crc)
+            return null;
+        Map<Key, Index> index = new HashMap<>();
+        int offset = kHeaderBytes;
+        for (int i = 0; i < count; ++i) {
+            int nameLength = Short.toUnsignedInt(buffer.getShort(offset));
+            offset += 2;
+            byte[] nameBytes = new byte[nameLength];
+            buffer.get(offset, nameBytes);
+            offset += nameLength;
+            long fingerprint = buffer.getLong(offset);
+            offset += 8;
+            int points = buffer.getInt(offset);
+            offset += 4;
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+            index.put(new Key(name, fingerprint), new Index(offset, points));
+            offset += points * kPointDoubles * 8;
+        }
+        return index;
+    }
+
+    /** Uses absolute reads only, so the shared buffer is never modified. */
+    private static Trajectory100 decode(ByteBuffer buffer, Index index) {
+        List<TimedPose> states = new ArrayList<>(index.points());
+        int offset = index.offset();
+        for (int i = 0; i < index.points(); ++i) {
+            double x = buffer.getDouble(offset);
+            double y = buffer.getDouble(offset + 8);
+            double heading = buffer.getDouble(offset + 16);
+            double dx = buffer.getDouble(offset + 24);
+            double dy = buffer.getDouble(offset + 32);
+            double dtheta = buffer.getDouble(offset + 40);
+            double curvature = buffer.getDouble(offset + 48);
+            double dcurvature = buffer.getDouble(offset + 56);
+            double t = buffer.getDouble(offset + 64);
+            double v = buffer.getDouble(offset + 72);
+            double a = buffer.getDouble(offset + 80);
+            offset += kPointDoubles * 8;
+            states.add(new TimedPose(
+                    new Pose2dWithMotion(
+                            new Pose2d(x, y, new Rotation2d(heading)),
+                            new Twist2d(dx, dy, dtheta),
+                            curvature,
+                            dcurvature),
+                    t, v, a));
+        }
+        return new Trajectory100(states);
+    }
+
+    private static byte[] encode(Map<Key, Trajectory100> entries) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(body);
+        for (Map.Entry<Key, Trajectory100> e : entries.entrySet()) {
+            byte[] name = e.getKey().name().getBytes(StandardCharsets.UTF_8);
+            out.writeShort(name.length);
+            out.write(name);
+            out.writeLong(e.getKey().fingerprint());
+            List<TrajectoryPoint> points = e.getValue().getPoints();
+            out.writeInt(points.size());
+            for (TrajectoryPoint p : points) {
+                TimedPose s = p.state();
+                Pose2dWithMotion m = s.state();
+                Twist2d motion = m.getFieldRelativeMotionDirection();
+                out.writeDouble(m.getPose().getX());
+                out.writeDouble(m.getPose().getY());
+                out.writeDouble(m.getHeading().getRadians());
+                out.writeDouble(motion.dx);
+                out.writeDouble(motion.dy);
+                out.writeDouble(motion.dtheta);
+                out.writeDouble(m.getCurvature());
+                out.writeDouble(m.getDCurvatureDs());
+                out.writeDouble(s.getTimeS());
+                out.writeDouble(s.velocityM_S());
+                out.writeDouble(s.acceleration());
+            }
+        }
+        out.flush();
+        byte[] bodyBytes = body.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bodyBytes);
+        ByteBuffer header = ByteBuffer.allocate(kHeaderBytes);
+        header.putInt(kMagic);
+        header.putInt(kVersion);
+        header.putInt(entries.size());
+        header.putLong(crc.getValue());
+        byte[] result = new byte[kHeaderBytes + bodyBytes.length];
+        System.arraycopy(header.array(), 0, result, 0, kHeaderBytes);
+        System.arraycopy(bodyBytes, 0, result, kHeaderBytes, bodyBytes.length);
+        return result;
+    }
+}
@@ -0,0 +1,197 @@
+package org.team100.lib.trajectory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+import org.team100.lib.timing.TimingConstraint;
+import org.team100.lib.util.Util;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * Runs TrajectoryPlanner in background threads, so commands don't overrun the
+ * loop in initialize(), and remembers recent results, so asking for the same
+ * trajectory again is just a map lookup.
+ *
+ * The threads are a small ForkJoinPool below the main loop priority, which
+ * always leaves a core for the main loop. TimingUtil only uses parallel streams
+ * inside a pool like this one, so its parallel work stays on these threads too,
+ * rather than in the common pool at normal priority.
+ *
+ * Commands should call one of the planning methods in initialize(), and then
+ * check isDone() in execute(). The future never completes exceptionally: bad
+ * input produces an empty trajectory, just like TrajectoryPlanner. Empty
+ * results aren't kept, so a failure is retried next time.
+ *
+ * Each caller gets its own copy of the future, so a command can cancel() its
+ * copy in end() without spoiling the cached result for the next caller. The
+ * planning itself keeps running; the next request is likely to want it.
+ *
+ * The cache key is the inputs, compared with equals(), except that the start
+ * (the first waypoint and heading, and the start velocity) is rounded (see
+ * kTranslationQuantumM etc). A command that plans from the current pose would
+ * otherwise never hit, since the pose estimate is never exactly the same twice;
+ * a start a cm away is well inside what the follower corrects. The rest of the
+ * waypoints are exact, so the goal is always exactly the one asked for, and
+ * the planner always gets the exact inputs. The constraints don't implement
+ * equals(), so they're compared by identity; to get cache hits, make the
+ * constraint list once (e.g. in the command constructor) and reuse it.
+ */
+public class TrajectoryPlanService implements AutoCloseable {
+    private static final int kCacheSize = 64;
+    private static final int kMaxThreads = 4;
+    private static final double kTranslationQuantumM = 0.02;
+    private static final double kRotationQuantumRad = 0.01;
+    private static final double kVelocityQuantumM_S = 0.05;
+    private static final TrajectoryPlanService instance = new TrajectoryPlanService(kCacheSize);
+
+    private record Key(
+            List<Pose2d> waypoints,
+            List<Rotation2d> headings,
+            List<TimingConstraint> constraints,
+            double startVel,
+            double endVel) {
+    }
+
+    private final ForkJoinPool m_executor;
+    /** Least-recently-used first. Guarded by this. */
+    private final Map<Key, CompletableFuture<Trajectory100>> m_cache;
+
+    public TrajectoryPlanService(int cacheSize) {
+        int threads = Math.min(kMaxThreads, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+        m_executor = new ForkJoinPool(threads, pool -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            t.setName("Trajectory Planner " + t.getPoolIndex());
+            // below the main loop
+            t.setPriority(Thread.NORM_PRIORITY - 1);
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+        m_cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CompletableFuture<Trajectory100>> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /** The shared instance used by the commands. */
+    public static TrajectoryPlanService instance() {
+        return instance;
+    }
+
+    /** See TrajectoryPlanner.restToRest() */
+    public CompletableFuture<Trajectory100> restToRest(
+            List<Pose2d> waypoints,
+            List<Rotation2d> headings,
+            List<TimingConstraint> constraints) {
+        return generateTrajectory(waypoints, headings, constraints, 0.0, 0.0);
+    }
+
+    /**
+     * See TrajectoryPlanner.generateTrajectory(). Returns a copy of the cached
+     * future if there is one, even if it's still running, so identical requests
+     * share the work.
+     */
+    public CompletableFuture<Trajectory100> generateTrajectory(
+            List<Pose2d> waypoints,
+            List<Rotation2d> headings,
+            List<TimingConstraint> constraints,
+            double start_vel,
+            double end_vel) {
+        List<Pose2d> exactWaypoints = List.copyOf(waypoints);
+        List<Rotation2d> exactHeadings = List.copyOf(headings);
+        List<TimingConstraint> exactConstraints = List.copyOf(constraints);
+        Key key = new Key(
+                quantizeStart(exactWaypoints),
+                quantizeStartRotation(exactHeadings),
+                exactConstraints,
+                quantize(start_vel, kVelocityQuantumM_S),
+                end_vel);
+        synchronized (this) {
+            CompletableFuture<Trajectory100> cached = m_cache.get(key);
+            if (cached != null)
+                return cached.copy();
+            CompletableFuture<Trajectory100> result = new CompletableFuture<>();
+            m_cache.put(key, result);
+            m_executor.execute(() -> {
+                Trajectory100 trajectory;
+                try {
+                    trajectory = TrajectoryPlanner.generateTrajectory(
+                            exactWaypoints,
+                            exactHeadings,
+                            exactConstraints,
+                            start_vel,
+                            end_vel);
+                } catch (RuntimeException e) {
+                    Util.warn("Trajectory planning failed!!");
+                    e.printStackTrace();
+                    trajectory = new Trajectory100();
+                }
+                // evict before completing, so the next request plans again.
+                if (trajectory.isEmpty())
+                    evict(key, result);
+                result.complete(trajectory);
+            });
+            return result.copy();
+        }
+    }
+
+    /** Number of cached trajectories, including the ones still running. */
+    public synchronized int size() {
+        return m_cache.size();
+    }
+
+    public synchronized void clear() {
+        m_cache.clear();
+    }
+
+    /** Stops the planner threads. Tests that make their own service should close it. */
+    @Override
+    public void close() {
+        m_executor.shutdownNow();
+    }
+
+    ////////////////////////////////////////////////////
+
+    /** Removes the entry, unless it's been replaced since. */
+    private synchronized void evict(Key key, CompletableFuture<Trajectory100> result) {
+        m_cache.remove(key, result);
+    }
+
+    /** Rounds the first pose, leaves the rest. */
+    private static List<Pose2d> quantizeStart(List<Pose2d> poses) {
+        if (poses.isEmpty())
+            return poses;
+        List<Pose2d> result = new ArrayList<>(poses);
+        Pose2d p = poses.get(0);
+        result.set(0, new Pose2d(
+                quantize(p.getX(), kTranslationQuantumM),
+                quantize(p.getY(), kTranslationQuantumM),
+                quantize(p.getRotation())));
+        return List.copyOf(result);
+    }
+
+    /** Rounds the first rotation, leaves the rest. */
+    private static List<Rotation2d> quantizeStartRotation(List<Rotation2d> rotations) {
+        if (rotations.isEmpty())
+            return rotations;
+        List<Rotation2d> result = new ArrayList<>(rotations);
+        result.set(0, quantize(rotations.get(0)));
+        return List.copyOf(result);
+    }
+
+    private static Rotation2d quantize(Rotation2d r) {
+        return new Rotation2d(quantize(r.getRadians(), kRotationQuantumRad));
+    }
+
+    private static double quantize(double x, double quantum) {
+        return Math.round(x / quantum) * quantum;
+    }
+}
@@ -2,19 +2,35 @@ package org.team100.lib.trajectory;
 
 import java.util.Optional;
 
+import org.team100.lib.util.MonotonicSearch;
+
 /**
  * Allows sampling a trajectory by its schedule.
  * Derived from 254 TimedView.
+ * 
+ * The point times are kept in an array, and the search remembers where it
+ * was, so sampling a little later than last time is O(1).
  */
 public class TrajectoryTimeSampler {
     private final Trajectory100 m_trajectory;
     private final double m_startS;
     private final double m_endS;
+    /** null if the trajectory has only one point */
+    private final MonotonicSearch m_search;
 
     public TrajectoryTimeSampler(Trajectory100 trajectory) {
         m_trajectory = trajectory;
         m_startS = m_trajectory.getPoint(0).state().getTimeS();
         m_endS = m_trajectory.getPoint(m_trajectory.length() - 1).state().getTimeS();
+        if (m_trajectory.length() < 2) {
+            m_search = null;
+        } else {
+            double[] times = new double[m_trajectory.length()];
+            for (int i = 0; i < times.length; ++i) {
+                times[i] = m_trajectory.getPoint(i).state().getTimeS();
+            }
+            m_search = new MonotonicSearch(times);
+        }
     }
 
     public double getStartS() {
@@ -43,21 +59,19 @@ public class TrajectoryTimeSampler {
             TrajectoryPoint point = m_trajectory.getPoint(0);
             return Optional.of(new TrajectorySamplePoint(point.state(), point.index(), point.index()));
         }
-        for (int i = 1; i < m_trajectory.length(); ++i) {
-            final TrajectoryPoint point = m_trajectory.getPoint(i);
-            if (point.state().getTimeS() >= timeS) {
-                final TrajectoryPoint prev_s = m_trajectory.getPoint(i - 1);
-                if (Math.abs(point.state().getTimeS() - prev_s.state().getTimeS()) <= 1e-12) {
-                    return Optional.of(new TrajectorySamplePoint(point.state(), point.index(), point.index()));
-                }
-                return Optional.of(new TrajectorySamplePoint(
-                        prev_s.state().interpolate2(point.state(),
-                                (timeS - prev_s.state().getTimeS())
-                                        / (point.state().getTimeS() - prev_s.state().getTimeS())),
-                        i - 1, i));
-            }
+        if (m_search == null)
+            return Optional.empty();
+        int i = m_search.ceiling(timeS);
+        final TrajectoryPoint point = m_trajectory.getPoint(i);
+        final TrajectoryPoint prev_s = m_trajectory.getPoint(i - 1);
+        if (Math.abs(point.state().getTimeS() - prev_s.state().getTimeS()) <= 1e-12) {
+            return Optional.of(new TrajectorySamplePoint(point.state(), point.index(), point.index()));
         }
-        return Optional.empty();
+        return Optional.of(new TrajectorySamplePoint(
+                prev_s.state().interpolate2(point.state(),
+                        (timeS - prev_s.state().getTimeS())
+                                / (point.state().getTimeS() - prev_s.state().getTimeS())),
+                i - 1, i));
     }
 
     public Trajectory100 trajectory() {
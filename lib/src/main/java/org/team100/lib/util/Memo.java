@@ -1,7 +1,7 @@
 package org.team100.lib.util;
 
 import java.util.List;
-import java.util.ArrayList;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.DoubleSupplier;
 import java.util.function.Supplier;
 
@@ -17,77 +17,126 @@ import java.util.function.Supplier;
  * thing in the middle of the sandwich is simple arithmetic. So if a "motor"
  * implements caching of its sensors, then the "sensor" that uses the "motor"
  * doesn't need to apply its own cache layer.
+ * 
+ * Updaters are run by resetAll(), before the caches are cleared, so they can
+ * fetch fresh values in bulk (e.g. one CAN refresh for all the signals on the
+ * bus) and the caches will read the fresh values on demand. If the caches were
+ * cleared first, a reader in another thread could latch a stale value for the
+ * whole cycle.
+ * 
+ * Instead of visiting every cache, resetAll() just bumps a global epoch, and
+ * each cache remembers the epoch of its value, so a cache hit is a couple of
+ * volatile reads, with no lock. The lock is only taken on a miss, so it's still
+ * safe for other threads to read.
  */
 public class Memo {
-    private static final List<Runnable> resetters = new ArrayList<>();
+    /** Never equal to the epoch, in practice (it would take years to wrap). */
+    private static final int kInvalid = -1;
+    private static final List<Runnable> updaters = new CopyOnWriteArrayList<>();
+    private static volatile int epoch = 0;
 
     public static <T> CotemporalCache<T> of(Supplier<T> delegate) {
-        CotemporalCache<T> cache = new CotemporalCache<>(delegate);
-        resetters.add(cache::reset);
-        return cache;
+        return new CotemporalCache<>(delegate);
     }
 
     public static DoubleCache ofDouble(DoubleSupplier delegate) {
-        DoubleCache cache = new DoubleCache(delegate);
-        resetters.add(cache::reset);
-        return cache;
+        return new DoubleCache(delegate);
+    }
+
+    /**
+     * Run the updater in every resetAll(), before any of the caches are reset.
+     */
+    public static void registerUpdater(Runnable updater) {
+        updaters.add(updater);
+    }
+
+    /** Stop running the updater. */
+    public static void unregisterUpdater(Runnable updater) {
+        updaters.remove(updater);
     }
 
     /**
      * This should be run in Robot.robotPeriodic().
      */
     public static void resetAll() {
-        for (Runnable r : resetters) {
+        for (Runnable r : updaters) {
             r.run();
         }
+        synchronized (Memo.class) {
+            // volatile increment isn't atomic, and resetAll() is sometimes called
+            // from other threads.
+            epoch++;
+        }
     }
 
     public static class CotemporalCache<T> implements Supplier<T> {
         private final Supplier<T> m_delegate;
-        private T m_value;
+        /** Volatile so other threads see a fully-constructed value. */
+        private volatile T m_value;
+        /** Written after m_value, so reading it first makes m_value visible. */
+        private volatile int m_epoch;
 
         public CotemporalCache(Supplier<T> delegate) {
             m_delegate = delegate;
             m_value = null;
+            m_epoch = kInvalid;
         }
 
         @Override
-        public synchronized T get() {
-            // synchronized adds ~20ns.
-            if (m_value == null)
-                m_value = m_delegate.get();
-                
-            return m_value;
+        public T get() {
+            if (m_epoch == epoch)
+                return m_value;
+            return update();
         }
 
         public synchronized void reset() {
-            // System.out.println("CotemporalCache.reset()");
-            m_value = null;
+            m_epoch = kInvalid;
+        }
+
+        private synchronized T update() {
+            int e = epoch;
+            if (m_epoch == e)
+                return m_value;
+            T value = m_delegate.get();
+            m_value = value;
+            // null means "try again next time"
+            if (value != null)
+                m_epoch = e;
+            return value;
         }
     }
 
     public static class DoubleCache implements DoubleSupplier {
         private final DoubleSupplier m_delegate;
-        private double m_value;
-        private boolean m_valid;
+        /** Volatile so it can't tear on 32-bit platforms, like the RoboRIO. */
+        private volatile double m_value;
+        /** Written after m_value, so reading it first makes m_value visible. */
+        private volatile int m_epoch;
 
         public DoubleCache(DoubleSupplier delegate) {
             m_delegate = delegate;
-            m_valid = false;
+            m_epoch = kInvalid;
         }
 
         @Override
-        public synchronized double getAsDouble() {
-            // synchronized adds ~20ns.
-            if (m_valid)
+        public double getAsDouble() {
+            if (m_epoch == epoch)
                 return m_value;
-            m_value = m_delegate.getAsDouble();
-            m_valid = true;
-            return m_value;
+            return update();
         }
 
         public synchronized void reset() {
-            m_valid = false;
+            m_epoch = kInvalid;
+        }
+
+        private synchronized double update() {
+            int e = epoch;
+            if (m_epoch == e)
+                return m_value;
+            double value = m_delegate.getAsDouble();
+            m_value = value;
+            m_epoch = e;
+            return value;
         }
     }
 
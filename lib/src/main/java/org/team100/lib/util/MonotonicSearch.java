@@ -0,0 +1,58 @@
+package org.team100.lib.util;
+
+/**
+ * Finds the segment containing a query in a sorted array, e.g. of trajectory
+ * times or path distances.
+ *
+ * Queries usually advance a little each time (e.g. every 20 ms along a
+ * trajectory), so this remembers the last answer, and checks it and the next
+ * one before falling back to binary search. So the usual case is O(1), and
+ * the worst case is O(log n).
+ *
+ * Not thread-safe, because of the cursor.
+ */
+public class MonotonicSearch {
+    private final double[] m_keys;
+    /** The last answer. */
+    private int m_cursor;
+
+    /** @param keys sorted ascending, length at least 2. Not copied. */
+    public MonotonicSearch(double[] keys) {
+        if (keys.length < 2)
+            throw new IllegalArgumentException("need at least two keys");
+        m_keys = keys;
+        m_cursor = 1;
+    }
+
+    /**
+     * The first index i >= 1 such that keys[i] >= q, i.e. the end of the segment
+     * containing q, the same answer as a linear scan from index 1.
+     *
+     * The caller should handle queries outside (keys[0], keys[n-1]]; for those
+     * this returns 1 or n-1.
+     */
+    public int ceiling(double q) {
+        if (contains(m_cursor, q))
+            return m_cursor;
+        if (m_cursor + 1 < m_keys.length && contains(m_cursor + 1, q)) {
+            m_cursor++;
+            return m_cursor;
+        }
+        int lo = 1;
+        int hi = m_keys.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (m_keys[mid] < q)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        m_cursor = lo;
+        return lo;
+    }
+
+    /** True if i is the first index with keys[i] >= q. */
+    private boolean contains(int i, double q) {
+        return m_keys[i - 1] < q && q <= m_keys[i];
+    }
+}
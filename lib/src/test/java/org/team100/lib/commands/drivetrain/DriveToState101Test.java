@@ -0,0 +1,68 @@
+package org.team100.lib.commands.drivetrain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.follower.DrivePIDFFollower;
+import org.team100.lib.follower.DriveTrajectoryFollower;
+import org.team100.lib.follower.DriveTrajectoryFollowerFactory;
+import org.team100.lib.follower.DriveTrajectoryFollowerUtil;
+import org.team100.lib.geometry.GeometryUtil;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.motion.drivetrain.Fixtured;
+import org.team100.lib.motion.drivetrain.kinodynamics.FieldRelativeVelocity;
+import org.team100.lib.testing.Timeless;
+import org.team100.lib.visualization.TrajectoryVisualization;
+
+import edu.wpi.first.math.geometry.Pose2d;
+
+class DriveToState101Test extends Fixtured implements Timeless {
+    private static final double kDtS = 0.02;
+    private static final LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
+    private static final TrajectoryVisualization viz = new TrajectoryVisualization(logger);
+
+    @Test
+    void testWithPID() {
+        DriveTrajectoryFollowerUtil util = new DriveTrajectoryFollowerUtil(logger);
+        DriveTrajectoryFollowerFactory driveControllerFactory = new DriveTrajectoryFollowerFactory(util);
+        DrivePIDFFollower.Log PIDFlog = new DrivePIDFFollower.Log(logger);
+        DriveTrajectoryFollower controller = driveControllerFactory.testPIDF(PIDFlog);
+        Pose2d goal = new Pose2d(1, 0, GeometryUtil.kRotationZero);
+        DriveToState101 command = new DriveToState101(
+                logger,
+                goal,
+                FieldRelativeVelocity.zero(),
+                fixture.drive,
+                controller,
+                fixture.swerveKinodynamics,
+                viz);
+        command.initialize();
+        // the robot holds still while the plan is pending
+        command.execute();
+        assertEquals(0, fixture.drive.getState().pose().getX(), 0.001);
+        command.awaitPlan();
+        command.execute();
+        assertFalse(command.isFinished());
+
+        int steps = 0;
+        double maxX = 0;
+        while (!command.isFinished()) {
+            assertTrue(++steps < 500, "took too long");
+            stepTime(kDtS);
+            fixture.drive.periodic();
+            command.execute();
+            double x = fixture.drive.getState().pose().getX();
+            // never goes backwards, or past the goal
+            assertTrue(x > maxX - 0.01, String.format("x=%5.3f max=%5.3f", x, maxX));
+            assertTrue(x < 1.1, String.format("x=%5.3f", x));
+            maxX = Math.max(maxX, x);
+        }
+        command.end(false);
+        assertEquals(1.0, fixture.drive.getState().pose().getX(), 0.1);
+        assertEquals(0.0, fixture.drive.getState().pose().getY(), 0.1);
+    }
+}
@@ -1,6 +1,10 @@
 package org.team100.lib.commands.drivetrain;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Optional;
 
 import org.junit.jupiter.api.Test;
 import org.team100.lib.follower.DrivePIDFFollower;
@@ -12,61 +16,62 @@ import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.logging.TestLoggerFactory;
 import org.team100.lib.logging.primitive.TestPrimitiveLogger;
 import org.team100.lib.motion.drivetrain.Fixtured;
+import org.team100.lib.testing.Timeless;
+import org.team100.lib.timing.TimingConstraintFactory;
+import org.team100.lib.trajectory.Trajectory100;
+import org.team100.lib.trajectory.TrajectoryPlanner;
+import org.team100.lib.trajectory.TrajectorySamplePoint;
+import org.team100.lib.trajectory.TrajectoryTimeSampler;
 import org.team100.lib.visualization.TrajectoryVisualization;
 
+import edu.wpi.first.math.geometry.Pose2d;
+
 /**
- * These just exercise the code, they don't really test anything.
+ * Drive one meter ahead with each kind of follower, and check that the robot
+ * stays near the trajectory the whole way.
  */
-class DriveToWaypoint100Test extends Fixtured {
-    private static final double kDelta = 0.001;
+class DriveToWaypoint100Test extends Fixtured implements Timeless {
+    private static final double kDtS = 0.02;
     private static final LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
     private static final TrajectoryVisualization viz = new TrajectoryVisualization(logger);
+    private static final Pose2d kGoal = new Pose2d(1, 0, GeometryUtil.kRotationZero);
 
     @Test
     void testWithPID() {
         DriveTrajectoryFollowerUtil util = new DriveTrajectoryFollowerUtil(logger);
         DriveTrajectoryFollowerFactory driveControllerFactory = new DriveTrajectoryFollowerFactory(util);
         DrivePIDFFollower.Log PIDFlog = new DrivePIDFFollower.Log(logger);
-
         DriveTrajectoryFollower controller = driveControllerFactory.testPIDF(PIDFlog);
-        // the trajectory here should be a no-op.
-        DriveToWaypoint100 command = new DriveToWaypoint100(
-                logger,
-                GeometryUtil.kPoseZero,
-                fixture.drive,
-                controller,
-                fixture.swerveKinodynamics,
-                0,
-                viz);
-        command.initialize();
-        assertEquals(0, fixture.drive.getState().pose().getX(), kDelta);
-        command.execute();
-        command.end(false);
+        track(controller, 0.1);
     }
 
     @Test
     void testWithPursuit() {
-        DriveTrajectoryFollower controller = DriveTrajectoryFollowerFactory.purePursuit(logger, fixture.swerveKinodynamics);
-        // the trajectory here should be a no-op.
-        DriveToWaypoint100 command = new DriveToWaypoint100(
-                logger,
-                GeometryUtil.kPoseZero,
-                fixture.drive,
-                controller,
-                fixture.swerveKinodynamics,
-                0,
-                viz);
-        assertEquals(GeometryUtil.kPoseZero, fixture.drive.getState().pose());
-        command.initialize();
-        assertEquals(0, fixture.drive.getState().pose().getX(), kDelta);
-        command.execute();
-        command.end(false);
+        DriveTrajectoryFollower controller = DriveTrajectoryFollowerFactory.purePursuit(
+                logger, fixture.swerveKinodynamics);
+        // pursuit looks ahead, and has a minimum speed, so it leads a little.
+        track(controller, 0.25);
     }
 
     @Test
     void testWithRamsete() {
         DriveTrajectoryFollower controller = DriveTrajectoryFollowerFactory.ramsete(logger);
-        // the trajectory here should be a no-op.
+        track(controller, 0.2);
+    }
+
+    @Test
+    void testWithFF() {
+        DriveTrajectoryFollowerUtil util = new DriveTrajectoryFollowerUtil(logger);
+        DriveTrajectoryFollowerFactory driveControllerFactory = new DriveTrajectoryFollowerFactory(util);
+        DrivePIDFFollower.Log PIDFlog = new DrivePIDFFollower.Log(logger);
+        DriveTrajectoryFollower controller = driveControllerFactory.testFFOnly(PIDFlog);
+        track(controller, 0.1);
+    }
+
+    /** The goal is the start, so there's nothing to do. */
+    @Test
+    void testNoop() {
+        DriveTrajectoryFollower controller = DriveTrajectoryFollowerFactory.ramsete(logger);
         DriveToWaypoint100 command = new DriveToWaypoint100(
                 logger,
                 GeometryUtil.kPoseZero,
@@ -76,29 +81,54 @@ class DriveToWaypoint100Test extends Fixtured {
                 0,
                 viz);
         command.initialize();
-        assertEquals(0, fixture.drive.getState().pose().getX(), kDelta);
+        command.awaitPlan();
         command.execute();
+        assertTrue(command.isFinished());
         command.end(false);
+        assertEquals(0, fixture.drive.getState().pose().getX(), 0.001);
     }
 
-    @Test
-    void testWithFF() {
-        DriveTrajectoryFollowerUtil util = new DriveTrajectoryFollowerUtil(logger);
-        DriveTrajectoryFollowerFactory driveControllerFactory = new DriveTrajectoryFollowerFactory(util);
-        DrivePIDFFollower.Log PIDFlog = new DrivePIDFFollower.Log(logger);
-        DriveTrajectoryFollower controller = driveControllerFactory.testFFOnly(PIDFlog);
-        // the trajectory here should be a no-op.
+    private void track(DriveTrajectoryFollower controller, double toleranceM) {
+        assertEquals(GeometryUtil.kPoseZero, fixture.drive.getState().pose());
+        // the same plan the command makes
+        Trajectory100 expected = TrajectoryPlanner.restToRest(
+                List.of(GeometryUtil.kPoseZero, kGoal),
+                List.of(GeometryUtil.kRotationZero, GeometryUtil.kRotationZero),
+                new TimingConstraintFactory(fixture.swerveKinodynamics).allGood());
+        assertTrue(expected.length() > 0);
+        TrajectoryTimeSampler sampler = new TrajectoryTimeSampler(expected);
+
         DriveToWaypoint100 command = new DriveToWaypoint100(
                 logger,
-                GeometryUtil.kPoseZero,
+                kGoal,
                 fixture.drive,
                 controller,
                 fixture.swerveKinodynamics,
                 0,
                 viz);
         command.initialize();
-        assertEquals(0, fixture.drive.getState().pose().getX(), kDelta);
+        command.awaitPlan();
+        // picks up the plan and starts the timer
         command.execute();
+        assertEquals(0, fixture.drive.getState().pose().getX(), 0.001);
+
+        double t = 0;
+        int steps = 0;
+        while (!command.isFinished()) {
+            assertTrue(++steps < 500, "took too long");
+            stepTime(kDtS);
+            t += kDtS;
+            fixture.drive.periodic();
+            command.execute();
+            Optional<TrajectorySamplePoint> sample = sampler.sample(Math.min(t, sampler.getEndS()));
+            assertTrue(sample.isPresent());
+            Pose2d reference = sample.get().state().state().getPose();
+            Pose2d actual = fixture.drive.getState().pose();
+            assertEquals(reference.getX(), actual.getX(), toleranceM, String.format("t=%5.3f", t));
+            assertEquals(reference.getY(), actual.getY(), toleranceM, String.format("t=%5.3f", t));
+        }
         command.end(false);
+        assertEquals(1.0, fixture.drive.getState().pose().getX(), toleranceM);
+        assertEquals(0.0, fixture.drive.getState().pose().getY(), toleranceM);
     }
 }
@@ -0,0 +1,221 @@
+package org.team100.lib.framework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.InstantCommand;
+
+class LoopProfilerTest {
+    /** Fake clock, in nanoseconds. */
+    private long m_now = 0;
+
+    @Test
+    void testNesting() {
+        LoopProfiler p = new LoopProfiler(() -> m_now);
+        LoopProfiler.Span outer = p.span("outer");
+        LoopProfiler.Span inner = p.span("inner");
+        outer.start();
+        m_now += 100;
+        inner.start();
+        m_now += 300;
+        inner.stop();
+        m_now += 50;
+        outer.stop();
+        assertEquals(150, p.loopSelfNs(outer));
+        assertEquals(300, p.loopSelfNs(inner));
+
+        List<String> names = new ArrayList<>();
+        List<Integer> depths = new ArrayList<>();
+        List<Long> durations = new ArrayList<>();
+        p.forEachRecent((name, depth, startNs, durationNs) -> {
+            names.add(name);
+            depths.add(depth);
+            durations.add(durationNs);
+        });
+        // inner finishes first
+        assertEquals(List.of("inner", "outer"), names);
+        assertEquals(List.of(1, 0), depths);
+        assertEquals(List.of(300l, 450l), durations);
+    }
+
+    @Test
+    void testTop() {
+        LoopProfiler p = new LoopProfiler(() -> m_now);
+        p.setLogger(new TestLoggerFactory(new TestPrimitiveLogger()));
+        LoopProfiler.Span a = p.span("a");
+        LoopProfiler.Span b = p.span("b");
+        LoopProfiler.Span c = p.span("c");
+        a.start();
+        m_now += 10;
+        a.stop();
+        b.start();
+        m_now += 30;
+        b.stop();
+        c.start();
+        m_now += 20;
+        c.stop();
+        p.endLoop();
+        assertEquals("b", p.top(0));
+        assertEquals("c", p.top(1));
+        assertEquals("a", p.top(2));
+        assertNull(p.top(3));
+        // the loop totals are cleared
+        assertEquals(0, p.loopSelfNs(b));
+    }
+
+    /** The command-style lap measures from the last start or stop. */
+    @Test
+    void testLap() {
+        LoopProfiler p = new LoopProfiler(() -> m_now);
+        LoopProfiler.Span scheduler = p.span("scheduler");
+        LoopProfiler.Span subsystem = p.span("subsystem");
+        LoopProfiler.Span command = p.span("command");
+        scheduler.start();
+        subsystem.start();
+        m_now += 100;
+        subsystem.stop();
+        m_now += 200;
+        command.lap();
+        scheduler.stop();
+        assertEquals(100, p.loopSelfNs(subsystem));
+        assertEquals(200, p.loopSelfNs(command));
+        assertEquals(0, p.loopSelfNs(scheduler));
+    }
+
+    @Test
+    void testPercentiles() {
+        LoopProfiler p = new LoopProfiler(() -> m_now);
+        LoopProfiler.Span s = p.span("s");
+        // 1 ms, 99 times, and 10 ms once.
+        for (int i = 0; i < 100; ++i) {
+            s.start();
+            m_now += (i == 99) ? 10_000_000 : 1_000_000;
+            s.stop();
+        }
+        assertEquals(100, p.count(s));
+        // middle of the 1.0-1.05 ms bucket
+        assertEquals(1_025_000, p.percentileNs(s, 0.5));
+        assertEquals(1_025_000, p.percentileNs(s, 0.99));
+        assertEquals(10_000_000, p.percentileNs(s, 1.0));
+        assertEquals(10_000_000, p.maxNs(s));
+    }
+
+    @Test
+    void testWindow() {
+        LoopProfiler p = new LoopProfiler(() -> m_now);
+        LoopProfiler.Span s = p.span("s");
+        s.start();
+        m_now += 1000;
+        s.stop();
+        // the window is 50 loops
+        for (int i = 0; i < 49; ++i) {
+            p.endLoop();
+        }
+        assertEquals(1, p.count(s));
+        p.endLoop();
+        assertEquals(0, p.count(s));
+        assertEquals(0, p.maxNs(s));
+    }
+
+    @Test
+    void testMismatch() {
+        LoopProfiler p = new LoopProfiler(() -> m_now);
+        LoopProfiler.Span s = p.span("s");
+        // stop without start is ignored
+        s.stop();
+        s.start();
+        m_now += 10;
+        s.stop();
+        assertEquals(10, p.loopSelfNs(s));
+    }
+
+    /** run() closes the span even if the work throws. */
+    @Test
+    void testRun() {
+        LoopProfiler p = new LoopProfiler(() -> m_now);
+        LoopProfiler.Span outer = p.span("outer");
+        LoopProfiler.Span inner = p.span("inner");
+        outer.run(() -> {
+            m_now += 10;
+            inner.run(() -> m_now += 20);
+        });
+        assertEquals(10, p.loopSelfNs(outer));
+        assertEquals(20, p.loopSelfNs(inner));
+        assertThrows(IllegalStateException.class, () -> inner.run(() -> {
+            m_now += 5;
+            throw new IllegalStateException();
+        }));
+        assertEquals(25, p.loopSelfNs(inner));
+        p.endLoop();
+        assertEquals(35, p.maxNs(p.span("loop")));
+    }
+
+    @Test
+    void testSameName() {
+        LoopProfiler p = new LoopProfiler(() -> m_now);
+        LoopProfiler.Span a = p.span("a");
+        assertSame(a, p.span("a"));
+    }
+
+    /**
+     * Commands are keyed by name, so a new instance doesn't use up another span,
+     * and the first lap doesn't make the span.
+     */
+    @Test
+    void testCommandName() {
+        LoopProfiler p = new LoopProfiler(() -> m_now);
+        Command c1 = new InstantCommand();
+        c1.setName("foo");
+        Command c2 = new InstantCommand();
+        c2.setName("foo");
+        LoopProfiler.Span scheduler = p.span("scheduler");
+        scheduler.start();
+        m_now += 100;
+        p.lapCommand(c1);
+        scheduler.stop();
+        // the first lap goes to the "new" span
+        assertEquals(100, p.loopSelfNs(p.span("command/(new)")));
+        p.endLoop();
+        LoopProfiler.Span foo = p.span("command/foo");
+        scheduler.start();
+        m_now += 200;
+        p.lapCommand(c2);
+        scheduler.stop();
+        assertEquals(200, p.loopSelfNs(foo));
+        // a subsystem with the same name is separate
+        LoopProfiler.Span subsystem = p.span("foo");
+        assertEquals(0, p.loopSelfNs(subsystem));
+    }
+
+    /** A span left open doesn't spoil the next loop. */
+    @Test
+    void testUnclosed() {
+        LoopProfiler p = new LoopProfiler(() -> m_now);
+        LoopProfiler.Span outer = p.span("outer");
+        LoopProfiler.Span inner = p.span("inner");
+        outer.start();
+        inner.start();
+        m_now += 10;
+        inner.stop();
+        p.endLoop();
+        // outer never closed, so the first loop wasn't busy at all
+        LoopProfiler.Span loop = p.span("loop");
+        assertEquals(0, p.maxNs(loop));
+        inner.start();
+        m_now += 10;
+        inner.stop();
+        p.endLoop();
+        // inner is outermost now, so it counts as busy
+        assertEquals(10, p.maxNs(loop));
+    }
+}
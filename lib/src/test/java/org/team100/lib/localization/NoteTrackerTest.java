@@ -0,0 +1,175 @@
+package org.team100.lib.localization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.config.SimulatedCamera;
+import org.team100.lib.field.FieldPoint2024;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+
+class NoteTrackerTest {
+    private static final double kDelta = 0.001;
+
+    @Test
+    void testCluster() {
+        NoteTracker t = new NoteTracker(1, 0.3, 1, 100);
+        t.add(0, 1, 1);
+        t.add(0, 1.1, 1);
+        t.add(0, 3, 3);
+        assertEquals(3, t.sightings());
+        assertEquals(2, t.tracks());
+        double[] xy = new double[2];
+        assertTrue(t.closest(0, 0, xy));
+        // mean of the first two
+        assertEquals(1.05, xy[0], kDelta);
+        assertEquals(1, xy[1], kDelta);
+    }
+
+    @Test
+    void testMinSightings() {
+        NoteTracker t = new NoteTracker(1, 0.3, 2, 100);
+        double[] xy = new double[2];
+        t.add(0, 1, 1);
+        assertEquals(0, t.tracks());
+        assertFalse(t.closest(0, 0, xy));
+        t.add(0.02, 1, 1);
+        assertEquals(1, t.tracks());
+        assertTrue(t.closest(0, 0, xy));
+    }
+
+    @Test
+    void testExpire() {
+        NoteTracker t = new NoteTracker(1, 0.3, 1, 100);
+        t.add(0, 1, 1);
+        t.add(0.5, 1.2, 1);
+        t.expire(1.2);
+        // the first one is gone, so the track moves to the second one.
+        assertEquals(1, t.sightings());
+        double[] xy = new double[2];
+        assertTrue(t.closest(0, 0, xy));
+        assertEquals(1.2, xy[0], kDelta);
+        t.expire(2);
+        assertEquals(0, t.sightings());
+        assertEquals(0, t.tracks());
+        assertFalse(t.closest(0, 0, xy));
+    }
+
+    /** When the ring is full the oldest sighting goes. */
+    @Test
+    void testCapacity() {
+        NoteTracker t = new NoteTracker(100, 0.3, 1, 4);
+        for (int i = 0; i < 10; ++i) {
+            t.add(i, i, 0);
+        }
+        assertEquals(4, t.sightings());
+        assertEquals(4, t.tracks());
+        double[] xy = new double[2];
+        assertTrue(t.closest(0, 0, xy));
+        assertEquals(6, xy[0], kDelta);
+    }
+
+    /** Two notes about the same distance away: stick with the first one. */
+    @Test
+    void testHysteresis() {
+        NoteTracker t = new NoteTracker(1, 0.3, 1, 100);
+        t.add(0, 2, 0);
+        t.add(0, -2, 0);
+        double[] xy = new double[2];
+        assertTrue(t.closest(0.1, 0, xy));
+        assertEquals(2, xy[0], kDelta);
+        // a little closer to the other one, but not enough to switch
+        assertTrue(t.closest(-0.1, 0, xy));
+        assertEquals(2, xy[0], kDelta);
+        // much closer
+        assertTrue(t.closest(-1, 0, xy));
+        assertEquals(-2, xy[0], kDelta);
+    }
+
+    /** The target's id is reused by a new note: that's not the target. */
+    @Test
+    void testReusedId() {
+        NoteTracker t = new NoteTracker(1, 0.3, 1, 100);
+        t.add(0, 1, 0);
+        double[] xy = new double[2];
+        assertTrue(t.closest(0, 0, xy));
+        assertEquals(1, xy[0], kDelta);
+        // the target expires, and new notes take its id, and the next one.
+        t.add(1.5, 1.35, 0);
+        t.add(1.5, -1.2, 0);
+        assertTrue(t.closest(0, 0, xy));
+        assertEquals(-1.2, xy[0], kDelta);
+    }
+
+    /** The grid search finds the same track as looking at all of them. */
+    @Test
+    void testClosestMatchesScan() {
+        Random random = new Random(0);
+        for (int i = 0; i < 100; ++i) {
+            NoteTracker t = new NoteTracker(1, 0.3, 1, 100);
+            for (int j = 0; j < 20; ++j) {
+                t.add(0, random.nextDouble() * 16, random.nextDouble() * 8);
+            }
+            double x = random.nextDouble() * 20 - 2;
+            double y = random.nextDouble() * 12 - 2;
+            double[] all = new double[200];
+            int n = t.tracks(all);
+            double minD2 = Double.MAX_VALUE;
+            for (int j = 0; j < n; ++j) {
+                double dx = all[2 * j] - x;
+                double dy = all[2 * j + 1] - y;
+                minD2 = Math.min(minD2, dx * dx + dy * dy);
+            }
+            double[] xy = new double[2];
+            assertTrue(t.closest(x, y, xy));
+            double dx = xy[0] - x;
+            double dy = xy[1] - y;
+            assertEquals(minD2, dx * dx + dy * dy, 1e-9);
+        }
+    }
+
+    /**
+     * Noisy sights of the real notes, from a moving robot, cluster into one track
+     * per note.
+     */
+    @Test
+    void testSimulated() {
+        SimulatedCamera camera = SimulatedCamera.getGamePieceCamera();
+        NoteTracker t = new NoteTracker(0.5, 0.3, 2, 256);
+        Random random = new Random(0);
+        for (int i = 0; i < 50; ++i) {
+            double timeS = 0.02 * i;
+            Pose2d robotPose = new Pose2d(1 + 0.02 * i, 4, Rotation2d.fromDegrees(180));
+            List<Rotation3d> sights = camera.getKnownLocations(Alliance.Blue, robotPose);
+            for (Rotation3d sight : sights) {
+                TargetLocalizer.cameraRotToFieldRelative(robotPose, camera.getOffset(), sight)
+                        .ifPresent(p -> t.add(
+                                timeS,
+                                p.getX() + random.nextGaussian() * 0.02,
+                                p.getY() + random.nextGaussian() * 0.02));
+            }
+        }
+        Translation2d[] notes = FieldPoint2024.allNotes(Alliance.Blue);
+        double[] xy = new double[2 * notes.length];
+        int n = t.tracks(xy);
+        assertTrue(n > 0);
+        // every track is near a real note
+        for (int i = 0; i < n; ++i) {
+            Translation2d track = new Translation2d(xy[2 * i], xy[2 * i + 1]);
+            double minDistance = Double.MAX_VALUE;
+            for (Translation2d note : notes) {
+                minDistance = Math.min(minDistance, track.getDistance(note));
+            }
+            assertEquals(0, minDistance, 0.05);
+        }
+    }
+}
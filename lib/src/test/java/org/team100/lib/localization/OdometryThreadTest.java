@@ -0,0 +1,241 @@
+package org.team100.lib.localization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.team100.lib.geometry.GeometryUtil;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamicsFactory;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModulePosition100;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModulePositions;
+import org.team100.lib.motion.drivetrain.module.SwerveModuleCollection;
+import org.team100.lib.sensors.SimulatedGyro;
+import org.team100.lib.testing.Timeless;
+import org.team100.lib.util.Util;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.Timer;
+
+class OdometryThreadTest implements Timeless {
+    private static final LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
+    private static final boolean kPrint = false;
+
+    // Strafe around a 1 m circle at 4 m/s, keeping the heading fixed, so the
+    // wheels turn at 4 rad/s.
+    private static final double kRadius = 1;
+    private static final double kSpeed = 4;
+    private static final double kOmega = kSpeed / kRadius;
+
+    // The simulated drive is slower, so use a 0.5 m circle at 2 m/s, which
+    // steers the wheels at the same rate.
+    private static final double kSimSpeed = 2;
+    private static final double kSimOmega = kSimSpeed / 0.5;
+
+    private final SwerveKinodynamics kinodynamics = SwerveKinodynamicsFactory.forTest();
+
+    @BeforeEach
+    void nolog() {
+        DataLogManager.stop();
+    }
+
+    /** All the wheels are the same, pointing along the circle. */
+    private static OdometrySample circle(double t) {
+        Rotation2d angle = new Rotation2d(kOmega * t + Math.PI / 2);
+        SwerveModulePosition100 p = new SwerveModulePosition100(kSpeed * t, Optional.of(angle));
+        return new OdometrySample(t, GeometryUtil.kRotationZero, 0,
+                new SwerveModulePositions(p, p, p, p));
+    }
+
+    private static Pose2d truth(double t) {
+        return new Pose2d(
+                kRadius * Math.cos(kOmega * t) - kRadius,
+                kRadius * Math.sin(kOmega * t),
+                GeometryUtil.kRotationZero);
+    }
+
+    private SwerveDrivePoseEstimator100 estimator() {
+        OdometrySample s = circle(0);
+        return kinodynamics.newPoseEstimator(
+                logger,
+                s.gyroAngle(),
+                s.gyroRateRad_S(),
+                s.positions(),
+                GeometryUtil.kPoseZero,
+                0);
+    }
+
+    /** Distance from the truth after one second. */
+    private double error(SwerveDrivePoseEstimator100 estimator) {
+        Pose2d pose = estimator.get(1.0).pose();
+        return pose.getTranslation().getDistance(truth(1.0).getTranslation());
+    }
+
+    @Test
+    void testCircle() {
+        // once per main loop
+        SwerveDrivePoseEstimator100 slow = estimator();
+        for (int i = 1; i <= 50; ++i) {
+            OdometrySample s = circle(i * 0.02);
+            slow.put(s.timestampS(), s.gyroAngle(), s.gyroRateRad_S(), s.positions());
+        }
+
+        // 250 Hz, drained once per main loop
+        SwerveDrivePoseEstimator100 fast = estimator();
+        double[] time = new double[1];
+        OdometryThread thread = new OdometryThread(() -> circle(time[0]), 0.004);
+        int count = 0;
+        for (int i = 1; i <= 50; ++i) {
+            for (int j = 1; j <= 5; ++j) {
+                time[0] = (i - 1) * 0.02 + j * 0.004;
+                thread.sample();
+            }
+            count += thread.drainTo(fast);
+        }
+        assertEquals(250, count);
+
+        double slowError = error(slow);
+        double fastError = error(fast);
+        if (kPrint)
+            Util.printf("error slow %6.3f fast %6.3f\n", slowError, fastError);
+        assertEquals(0.073, slowError, 0.005);
+        assertEquals(0.015, fastError, 0.005);
+    }
+
+    /**
+     * Strafe the simulated modules around a circle for one second, sampling
+     * odometry the given number of times per cycle, and return the distance from
+     * the pose estimated by sampling at 1 kHz.
+     */
+    private double simulatedError(int samplesPerCycle) {
+        Pose2d reference = simulatedCircle(20);
+        Pose2d pose = simulatedCircle(samplesPerCycle);
+        return pose.getTranslation().getDistance(reference.getTranslation());
+    }
+
+    private Pose2d simulatedCircle(int samplesPerCycle) {
+        SwerveKinodynamics kinodynamics = SwerveKinodynamicsFactory.get();
+        SwerveModuleCollection modules = SwerveModuleCollection.get(logger, 10, 20, kinodynamics);
+        SimulatedGyro gyro = new SimulatedGyro(kinodynamics, modules);
+        modules.reset();
+        SwerveOdometrySampler sampler = new SwerveOdometrySampler(gyro, modules);
+        OdometrySample start = sampler.get();
+        SwerveDrivePoseEstimator100 estimator = kinodynamics.newPoseEstimator(
+                logger,
+                start.gyroAngle(),
+                start.gyroRateRad_S(),
+                start.positions(),
+                GeometryUtil.kPoseZero,
+                start.timestampS());
+        double dt = 0.02 / samplesPerCycle;
+        OdometryThread thread = new OdometryThread(sampler, dt);
+        for (int i = 0; i < 50; ++i) {
+            // velocity tangent to the circle, with the heading fixed, so the
+            // wheels steer steadily.
+            double angle = kSimOmega * i * 0.02;
+            ChassisSpeeds speeds = new ChassisSpeeds(
+                    -kSimSpeed * Math.sin(angle),
+                    kSimSpeed * Math.cos(angle),
+                    0);
+            modules.setDesiredStates(kinodynamics.toSwerveModuleStatesWithoutDiscretization(speeds));
+            for (int j = 0; j < samplesPerCycle; ++j) {
+                stepTime(dt);
+                thread.sample();
+            }
+            thread.drainTo(estimator);
+        }
+        Pose2d pose = estimator.get(Timer.getFPGATimestamp()).pose();
+        modules.close();
+        return pose;
+    }
+
+    /** The real sampler, reading the simulated modules and gyro. */
+    @Test
+    void testSimulatedModules() {
+        double slowError = simulatedError(1);
+        double fastError = simulatedError(5);
+        if (kPrint)
+            Util.printf("error slow %6.3f fast %6.3f\n", slowError, fastError);
+        // the simulated wheels steer continuously within each cycle, so sampling
+        // only at the end of each cycle has the same chord error as above.
+        assertTrue(slowError > 0.01);
+        assertTrue(fastError < slowError / 2);
+    }
+
+    /** Samples from before a reset are ignored. */
+    @Test
+    void testReset() {
+        SwerveDrivePoseEstimator100 estimator = estimator();
+        double[] time = new double[1];
+        OdometryThread thread = new OdometryThread(() -> circle(time[0]), 0.004);
+        time[0] = 0.004;
+        thread.sample();
+        time[0] = 0.008;
+        thread.sample();
+        thread.reset(0.006);
+        assertEquals(0, thread.drainTo(estimator));
+        // a sample from before the reset arrives late
+        time[0] = 0.005;
+        thread.sample();
+        time[0] = 0.010;
+        thread.sample();
+        assertEquals(1, thread.drainTo(estimator));
+    }
+
+    /**
+     * Resetting while the sampler is running keeps the queue count consistent,
+     * so the bound still holds afterwards.
+     */
+    @Test
+    void testResetWhileSampling() throws InterruptedException {
+        SwerveDrivePoseEstimator100 estimator = estimator();
+        AtomicInteger ticks = new AtomicInteger();
+        OdometryThread thread = new OdometryThread(
+                () -> circle(ticks.incrementAndGet() * 1e-6), 0.004);
+        AtomicBoolean done = new AtomicBoolean();
+        Thread producer = new Thread(() -> {
+            while (!done.get())
+                thread.sample();
+        });
+        producer.start();
+        for (int i = 0; i < 10000; ++i) {
+            thread.reset(-1);
+        }
+        done.set(true);
+        producer.join();
+        thread.reset(-1);
+        for (int i = 0; i < 200; ++i) {
+            thread.sample();
+        }
+        // the queue keeps the newest 100
+        assertEquals(100, thread.drainTo(estimator));
+    }
+
+    /** The real thread, using the wall clock. */
+    @Test
+    void testThread() throws InterruptedException {
+        SwerveDrivePoseEstimator100 estimator = estimator();
+        long start = System.nanoTime();
+        try (OdometryThread thread = new OdometryThread(
+                () -> circle((System.nanoTime() - start) / 1e9), 0.004)) {
+            thread.start();
+            Thread.sleep(100);
+            int count = thread.drainTo(estimator);
+            if (kPrint)
+                Util.printf("samples %d\n", count);
+            // nominally 25, but the scheduler isn't precise.
+            assertTrue(count > 5);
+        }
+    }
+}
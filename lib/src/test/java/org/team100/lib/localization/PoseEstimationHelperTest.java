@@ -1,11 +1,14 @@
 package org.team100.lib.localization;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
 import java.nio.file.Path;
 
 import org.junit.jupiter.api.Test;
+import org.team100.lib.config.Camera;
 import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.logging.TestLoggerFactory;
 import org.team100.lib.logging.primitive.TestPrimitiveLogger;
@@ -539,4 +542,36 @@ class PoseEstimationHelperTest {
         }
     }
 
+    /** The fused version matches the chain of transforms. */
+    @Test
+    void testFusedMatchesTransforms() throws IOException {
+        AprilTagFieldLayoutWithCorrectOrientation layout = new AprilTagFieldLayoutWithCorrectOrientation();
+        TagTransformCache cache = new TagTransformCache(layout);
+        LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
+        PoseEstimationHelper helper = new PoseEstimationHelper(logger);
+        Blip24 blip = new Blip24(7,
+                new Transform3d(
+                        new Translation3d(0.3, -0.2, 2),
+                        new Rotation3d(0.1, -0.2, 0.3)));
+        double[] out = new double[2];
+        for (Camera camera : Camera.values()) {
+            for (Alliance alliance : Alliance.values()) {
+                for (double yaw = -3; yaw < 3; yaw += 0.5) {
+                    Pose3d expected = helper.getRobotPoseInFieldCoords(
+                            camera.getOffset(),
+                            layout.getTagPose(alliance, 7).get(),
+                            blip,
+                            new Rotation3d(0, 0, yaw));
+                    assertTrue(helper.getRobotTranslationInFieldCoords(
+                            cache, camera, alliance, blip, yaw, out));
+                    assertEquals(expected.getX(), out[0], 1e-9);
+                    assertEquals(expected.getY(), out[1], 1e-9);
+                }
+            }
+        }
+        // no such tag
+        assertFalse(helper.getRobotTranslationInFieldCoords(
+                cache, Camera.UNKNOWN, Alliance.Red, new Blip24(99, new Transform3d()), 0, out));
+    }
+
 }
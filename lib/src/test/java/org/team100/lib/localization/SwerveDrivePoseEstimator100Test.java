@@ -3,6 +3,7 @@ package org.team100.lib.localization;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Random;
@@ -841,4 +842,143 @@ class SwerveDrivePoseEstimator100Test {
                 odometryPose.getRotation().getRadians(),
                 visionPose.getRotation().getRadians(), kDelta);
     }
-}
\ No newline at end of file
+
+    /** Incremental replay should give the same answer as full replay. */
+    @Test
+    void testIncrementalReplayEquivalence() {
+        SwerveKinodynamics kinodynamics = SwerveKinodynamicsFactory.forTest();
+        SwerveDrivePoseEstimator100 incremental = replayEstimator(kinodynamics, true);
+        SwerveDrivePoseEstimator100 full = replayEstimator(kinodynamics, false);
+        Random random = new Random(0);
+        double[] stateSigma = new double[] { 0.1, 0.1, 0.1 };
+        double[] visionSigma = new double[] { 0.5, 0.5, 0.5 };
+        for (int i = 1; i < 200; ++i) {
+            double t = 0.02 * i;
+            Rotation2d gyro = new Rotation2d(0.5 * t);
+            SwerveModulePositions positions = replayPositions(t);
+            incremental.put(t, gyro, 0.5, positions);
+            full.put(t, gyro, 0.5, positions);
+            for (int camera = 0; camera < 3; ++camera) {
+                double latency = 0.02 + 0.08 * random.nextDouble();
+                Pose2d measurement = new Pose2d(
+                        t + random.nextGaussian() * 0.1,
+                        random.nextGaussian() * 0.1,
+                        new Rotation2d(0.5 * t + random.nextGaussian() * 0.05));
+                incremental.put(t - latency, measurement, stateSigma, visionSigma);
+                full.put(t - latency, measurement, stateSigma, visionSigma);
+            }
+            for (double q = t - 0.2; q <= t; q += 0.005) {
+                SwerveState a = incremental.get(q);
+                SwerveState b = full.get(q);
+                assertEquals(b.pose().getX(), a.pose().getX(), 1e-9);
+                assertEquals(b.pose().getY(), a.pose().getY(), 1e-9);
+                assertEquals(b.pose().getRotation().getRadians(), a.pose().getRotation().getRadians(), 1e-9);
+                assertEquals(b.velocity().x(), a.velocity().x(), 1e-6);
+                assertEquals(b.velocity().y(), a.velocity().y(), 1e-6);
+                assertEquals(b.acceleration().x(), a.acceleration().x(), 1e-6);
+                assertEquals(b.acceleration().y(), a.acceleration().y(), 1e-6);
+            }
+        }
+    }
+
+    /** A batch of measurements should be the same as putting them one at a time. */
+    @Test
+    void testBatchEquivalence() {
+        SwerveKinodynamics kinodynamics = SwerveKinodynamicsFactory.forTest();
+        SwerveDrivePoseEstimator100 batched = replayEstimator(kinodynamics, true);
+        SwerveDrivePoseEstimator100 single = replayEstimator(kinodynamics, true);
+        Random random = new Random(1);
+        double[] stateSigma = new double[] { 0.1, 0.1, 0.1 };
+        double[] visionSigma = new double[] { 0.5, 0.5, 0.5 };
+        for (int i = 1; i < 200; ++i) {
+            double t = 0.02 * i;
+            Rotation2d gyro = new Rotation2d(0.5 * t);
+            SwerveModulePositions positions = replayPositions(t);
+            batched.put(t, gyro, 0.5, positions);
+            single.put(t, gyro, 0.5, positions);
+            List<VisionMeasurement> batch = new ArrayList<>();
+            for (int camera = 0; camera < 4; ++camera) {
+                // some of them at the same time, and none of them on the
+                // odometry period, so the corrections interpolate.
+                double latency = 0.013 * (1 + random.nextInt(4));
+                batch.add(new VisionMeasurement(
+                        t - latency,
+                        new Pose2d(
+                                t + random.nextGaussian() * 0.1,
+                                random.nextGaussian() * 0.1,
+                                new Rotation2d(0.5 * t + random.nextGaussian() * 0.05)),
+                        stateSigma,
+                        visionSigma));
+            }
+            batch.sort((a, b) -> Double.compare(a.timestampS(), b.timestampS()));
+            batched.put(batch);
+            for (VisionMeasurement m : batch) {
+                single.put(m.timestampS(), m.pose(), m.stateSigma(), m.visionSigma());
+            }
+            for (double q = t - 0.2; q <= t; q += 0.005) {
+                SwerveState a = batched.get(q);
+                SwerveState b = single.get(q);
+                assertEquals(b.pose().getX(), a.pose().getX(), 1e-9);
+                assertEquals(b.pose().getY(), a.pose().getY(), 1e-9);
+                assertEquals(b.pose().getRotation().getRadians(), a.pose().getRotation().getRadians(), 1e-9);
+            }
+        }
+    }
+
+    /** Replay cost per loop, for a few camera counts and latencies. */
+    @Test
+    void testReplayPerformance() {
+        SwerveKinodynamics kinodynamics = SwerveKinodynamicsFactory.forTest();
+        double[] stateSigma = new double[] { 0.1, 0.1, 0.1 };
+        double[] visionSigma = new double[] { 0.5, 0.5, 0.5 };
+        final int loops = 500;
+        for (int cameras : new int[] { 1, 2, 4 }) {
+            for (double latency : new double[] { 0.02, 0.05, 0.1 }) {
+                long[] ns = new long[2];
+                for (int mode = 0; mode < 2; ++mode) {
+                    SwerveDrivePoseEstimator100 estimator = replayEstimator(kinodynamics, mode == 0);
+                    long elapsed = 0;
+                    for (int i = 1; i < loops; ++i) {
+                        double t = 0.02 * i;
+                        estimator.put(t, new Rotation2d(0.5 * t), 0.5, replayPositions(t));
+                        Pose2d measurement = new Pose2d(t, 0, new Rotation2d(0.5 * t));
+                        long t0 = System.nanoTime();
+                        for (int camera = 0; camera < cameras; ++camera) {
+                            estimator.put(t - latency, measurement, stateSigma, visionSigma);
+                        }
+                        // don't count the warm-up
+                        if (i > loops / 2)
+                            elapsed += System.nanoTime() - t0;
+                    }
+                    ns[mode] = elapsed / (loops / 2);
+                }
+                Util.printf("cameras %d latency %5.3f incremental (us) %6.1f full (us) %6.1f\n",
+                        cameras, latency, ns[0] / 1000.0, ns[1] / 1000.0);
+            }
+        }
+    }
+
+    private static SwerveDrivePoseEstimator100 replayEstimator(
+            SwerveKinodynamics kinodynamics, boolean incremental) {
+        SwerveDrivePoseEstimator100 estimator = new SwerveDrivePoseEstimator100(
+                logger,
+                kinodynamics,
+                GeometryUtil.kRotationZero,
+                0,
+                replayPositions(0),
+                GeometryUtil.kPoseZero,
+                0);
+        estimator.setIncrementalReplay(incremental);
+        return estimator;
+    }
+
+    /** Driving forward and turning a bit. */
+    private static SwerveModulePositions replayPositions(double t) {
+        Optional<Rotation2d> angle = Optional.of(new Rotation2d(0.2 * Math.sin(t)));
+        return new SwerveModulePositions(
+                new SwerveModulePosition100(0.9 * t, angle),
+                new SwerveModulePosition100(1.1 * t, angle),
+                new SwerveModulePosition100(0.9 * t, angle),
+                new SwerveModulePosition100(1.1 * t, angle));
+    }
+}
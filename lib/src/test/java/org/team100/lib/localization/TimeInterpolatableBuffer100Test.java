@@ -1,6 +1,17 @@
 package org.team100.lib.localization;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import org.junit.jupiter.api.Test;
 import org.team100.lib.logging.LoggerFactory;
@@ -45,4 +56,100 @@ class TimeInterpolatableBuffer100Test {
         b.put(1, new Item(10));
         assertEquals(10, b.get(1.5).value, kDelta);
     }
+
+    /** Old entries are pruned, relative to the new entry. */
+    @Test
+    void testPrune() {
+        TimeInterpolatableBuffer100<Item> b = new TimeInterpolatableBuffer100<>(logger, 1, 0, new Item(0));
+        for (int i = 1; i <= 300; ++i) {
+            b.put(0.01 * i, new Item(i));
+        }
+        // entries from 2.0 through 3.0 exclusive are gone
+        assertEquals(201, b.ceilingEntry(0).getValue().value, kDelta);
+        assertTrue(b.tooOld(1.99));
+        assertFalse(b.tooOld(2.01));
+    }
+
+    /** Insert in the middle, replace existing. */
+    @Test
+    void testInsert() {
+        TimeInterpolatableBuffer100<Item> b = new TimeInterpolatableBuffer100<>(logger, 10, 0, new Item(0));
+        b.put(2, new Item(20));
+        b.put(1, new Item(100));
+        assertEquals(50, b.get(0.5).value, kDelta);
+        assertEquals(60, b.get(1.5).value, kDelta);
+        b.put(1, new Item(10));
+        assertEquals(5, b.get(0.5).value, kDelta);
+        assertEquals(3, b.tailMap(0, true).size());
+        assertEquals(2, b.tailMap(0, false).size());
+        assertEquals(1.0, b.tailMap(0, false).firstKey(), kDelta);
+        assertEquals(2.0, b.tailMap(0, false).lastKey(), kDelta);
+        assertNull(b.lowerEntry(0));
+        assertNull(b.ceilingEntry(2.5));
+    }
+
+    @Test
+    void testConsistentPair() {
+        TimeInterpolatableBuffer100<Item> b = new TimeInterpolatableBuffer100<>(logger, 10, 0, new Item(0));
+        assertEquals(0, b.consistentPair(0, 0.02).size());
+        assertEquals(1, b.consistentPair(0.01, 0.02).size());
+        b.put(0.02, new Item(2));
+        List<Entry<Double, Item>> pair = b.consistentPair(0.03, 0.015);
+        assertEquals(2, pair.size());
+        assertEquals(0.02, pair.get(0).getKey(), kDelta);
+        assertEquals(0.0, pair.get(1).getKey(), kDelta);
+    }
+
+    /** Replacing entries during iteration, as the pose estimator does. */
+    @Test
+    void testPutWhileIterating() {
+        TimeInterpolatableBuffer100<Item> b = new TimeInterpolatableBuffer100<>(logger, 10, 0, new Item(0));
+        for (int i = 1; i < 10; ++i) {
+            b.put(i, new Item(i));
+        }
+        int count = 0;
+        for (Map.Entry<Double, Item> entry : b.tailMap(4, false).entrySet()) {
+            b.put(entry.getKey(), new Item(-entry.getValue().value));
+            count++;
+        }
+        assertEquals(5, count);
+        assertEquals(4, b.get(4).value, kDelta);
+        assertEquals(-9, b.get(9).value, kDelta);
+    }
+
+    /** Same results as the skip list, for random operations. */
+    @Test
+    void testSameAsSkipList() {
+        Random random = new Random(0);
+        final double history = 1;
+        TimeInterpolatableBuffer100<Item> b = new TimeInterpolatableBuffer100<>(logger, history, 0, new Item(0));
+        NavigableMap<Double, Item> m = new ConcurrentSkipListMap<>();
+        m.put(0.0, new Item(0));
+        double now = 0;
+        for (int i = 0; i < 10000; ++i) {
+            double t;
+            if (random.nextDouble() < 0.8) {
+                now += 0.02 * random.nextDouble();
+                t = now;
+            } else {
+                // sometimes in the past, like vision
+                t = now - 0.5 * random.nextDouble();
+            }
+            Item item = new Item(random.nextDouble());
+            b.put(t, item);
+            while (!m.isEmpty() && t - m.firstKey() >= history)
+                m.remove(m.firstKey());
+            m.put(t, item);
+
+            double q = now - 1.2 * random.nextDouble();
+            assertEquals(entryKey(m.lowerEntry(q)), entryKey(b.lowerEntry(q)));
+            assertEquals(entryKey(m.ceilingEntry(q)), entryKey(b.ceilingEntry(q)));
+            assertEquals(new ArrayList<>(m.tailMap(q, false).keySet()),
+                    new ArrayList<>(b.tailMap(q, false).keySet()));
+        }
+    }
+
+    private static Double entryKey(Entry<Double, Item> e) {
+        return e == null ? null : e.getKey();
+    }
 }
@@ -8,10 +8,12 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.jupiter.api.Test;
+import org.team100.lib.config.Camera;
 import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.logging.TestLoggerFactory;
 import org.team100.lib.logging.primitive.TestPrimitiveLogger;
 import org.team100.lib.motion.drivetrain.SwerveState;
+import org.team100.lib.util.Util;
 
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Pose3d;
@@ -79,4 +81,69 @@ class VisionDataProviderPerformanceTest {
         assertTrue(true);
     }
 
+    /**
+     * Compares the chain of transforms with the precomputed, fused version, for
+     * the gyro case, which is the one we use.
+     */
+    @Test
+    void testFusedTransformSpeed() throws IOException {
+        AprilTagFieldLayoutWithCorrectOrientation layout = new AprilTagFieldLayoutWithCorrectOrientation();
+        TagTransformCache cache = new TagTransformCache(layout);
+        PoseEstimationHelper helper = new PoseEstimationHelper(logger);
+        Camera camera = Camera.SHOOTER;
+        Blip24 blip = new Blip24(7,
+                new Transform3d(
+                        new Translation3d(0.3, -0.2, 2),
+                        new Rotation3d()));
+        final int n = 200000;
+        double[] out = new double[2];
+        // warm up
+        runTransforms(helper, layout, camera, blip, n);
+        runFused(helper, cache, camera, blip, out, n);
+        long t0 = System.nanoTime();
+        double expected = runTransforms(helper, layout, camera, blip, n);
+        long t1 = System.nanoTime();
+        double actual = runFused(helper, cache, camera, blip, out, n);
+        long t2 = System.nanoTime();
+        Util.printf("transforms (ns/blip) %6d fused (ns/blip) %6d\n",
+                (t1 - t0) / n, (t2 - t1) / n);
+        assertEquals(expected, actual, n * 1e-9);
+    }
+
+    private static double runTransforms(
+            PoseEstimationHelper helper,
+            AprilTagFieldLayoutWithCorrectOrientation layout,
+            Camera camera,
+            Blip24 blip,
+            int n) {
+        double total = 0;
+        for (int i = 0; i < n; ++i) {
+            double yaw = i * 1e-5;
+            Pose3d tagInFieldCoords = layout.getTagPose(Alliance.Red, blip.getId()).get();
+            Pose3d p = helper.getRobotPoseInFieldCoords(
+                    camera.getOffset(),
+                    tagInFieldCoords,
+                    blip,
+                    new Rotation3d(0, 0, yaw));
+            total += p.getX() + p.getY();
+        }
+        return total;
+    }
+
+    private static double runFused(
+            PoseEstimationHelper helper,
+            TagTransformCache cache,
+            Camera camera,
+            Blip24 blip,
+            double[] out,
+            int n) {
+        double total = 0;
+        for (int i = 0; i < n; ++i) {
+            double yaw = i * 1e-5;
+            helper.getRobotTranslationInFieldCoords(cache, camera, Alliance.Red, blip, yaw, out);
+            total += out[0] + out[1];
+        }
+        return total;
+    }
+
 }
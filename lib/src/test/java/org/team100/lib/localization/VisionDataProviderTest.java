@@ -582,4 +582,149 @@ class VisionDataProviderTest implements Timeless {
         vdp.estimateRobotPose(cameraSerialNumber, tags, Timer.getFPGATimestamp(), Alliance.Red);
         vdp.estimateRobotPose(cameraSerialNumber, tags, Timer.getFPGATimestamp(), Alliance.Red);
     }
-}
\ No newline at end of file
+
+    /**
+     * Estimates from different cameras at the same instant are fused, weighted by
+     * range, and the estimator gets one batch, oldest first.
+     */
+    @Test
+    void testFusion() throws IOException {
+        AprilTagFieldLayoutWithCorrectOrientation layout = new AprilTagFieldLayoutWithCorrectOrientation();
+        final List<List<VisionMeasurement>> batches = new ArrayList<>();
+        PoseEstimator100 poseEstimator = new PoseEstimator100() {
+            @Override
+            public void put(double t, Pose2d p, double[] sd1, double[] sd2) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void put(List<VisionMeasurement> measurements) {
+                batches.add(new ArrayList<>(measurements));
+            }
+
+            @Override
+            public SwerveState get(double timestampSeconds) {
+                return new SwerveState(GeometryUtil.kRotationZero);
+            }
+        };
+        VisionDataProvider24 vdp = new VisionDataProvider24(logger, layout, poseEstimator);
+        double tagX = layout.getTagPose(Alliance.Red, 7).get().getX();
+        // the first one just primes the filter
+        vdp.collect("foo", tagAt(1.0), 1.0, Alliance.Red);
+        // two cameras at the same time
+        vdp.collect("foo", tagAt(1.04), 2.0, Alliance.Red);
+        vdp.collect("bar", tagAt(1.02), 2.0, Alliance.Red);
+        // and an older one, which arrives later.
+        vdp.collect("foo", tagAt(1.0), 1.5, Alliance.Red);
+        assertEquals(0, batches.size());
+        vdp.flush();
+        assertEquals(1, batches.size());
+        List<VisionMeasurement> batch = batches.get(0);
+        assertEquals(2, batch.size());
+        assertEquals(1.5, batch.get(0).timestampS(), kDelta);
+        assertEquals(15.5791, batch.get(0).pose().getX(), kDelta);
+        assertEquals(2.0, batch.get(1).timestampS(), kDelta);
+        // weighted towards the closer one
+        double w1 = 1 / (1.04 * 1.04);
+        double w2 = 1 / (1.02 * 1.02);
+        assertEquals(tagX - (w1 * 1.04 + w2 * 1.02) / (w1 + w2), batch.get(1).pose().getX(), 0.0001);
+        assertEquals(2.663, batch.get(1).pose().getY(), kDelta);
+        // fused sigma is smaller than either; sigma is proportional to range.
+        assertEquals(VisionDataProvider24.visionMeasurementStdDevs(1 / Math.sqrt(w1 + w2))[0],
+                batch.get(1).visionSigma()[0], 0.0001);
+        // nothing pending now
+        vdp.flush();
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    void testFusionWindow() throws IOException {
+        AprilTagFieldLayoutWithCorrectOrientation layout = new AprilTagFieldLayoutWithCorrectOrientation();
+        final List<List<VisionMeasurement>> batches = new ArrayList<>();
+        PoseEstimator100 poseEstimator = new PoseEstimator100() {
+            @Override
+            public void put(double t, Pose2d p, double[] sd1, double[] sd2) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void put(List<VisionMeasurement> measurements) {
+                batches.add(new ArrayList<>(measurements));
+            }
+
+            @Override
+            public SwerveState get(double timestampSeconds) {
+                // odometry says the robot is moving +x at 1 m/s
+                return new SwerveState(new Pose2d(timestampSeconds, 0, GeometryUtil.kRotationZero));
+            }
+        };
+        VisionDataProvider24 vdp = new VisionDataProvider24(logger, layout, poseEstimator);
+        double tagX = layout.getTagPose(Alliance.Red, 7).get().getX();
+        // the first one just primes the filter
+        vdp.collect("foo", tagAt(1.0), 1.0, Alliance.Red);
+        // two unsynchronized cameras within one frame
+        vdp.collect("foo", tagAt(1.04), 2.0, Alliance.Red);
+        vdp.collect("bar", tagAt(1.02), 2.015, Alliance.Red);
+        // and the next frame
+        vdp.collect("foo", tagAt(1.02), 2.05, Alliance.Red);
+        vdp.flush();
+        assertEquals(1, batches.size());
+        List<VisionMeasurement> batch = batches.get(0);
+        assertEquals(2, batch.size());
+        // fused at the later time
+        assertEquals(2.015, batch.get(0).timestampS(), kDelta);
+        // the earlier one is moved forward by the odometry displacement, 0.015 m.
+        double w1 = 1 / (1.04 * 1.04);
+        double w2 = 1 / (1.02 * 1.02);
+        assertEquals(tagX - (w1 * (1.04 - 0.015) + w2 * 1.02) / (w1 + w2),
+                batch.get(0).pose().getX(), 0.0001);
+        assertEquals(2.663, batch.get(0).pose().getY(), kDelta);
+        assertEquals(2.05, batch.get(1).timestampS(), kDelta);
+        assertEquals(tagX - 1.02, batch.get(1).pose().getX(), 0.0001);
+    }
+
+    /** Consecutive frames from one camera aren't fused, even within the window. */
+    @Test
+    void testSameCamera() throws IOException {
+        AprilTagFieldLayoutWithCorrectOrientation layout = new AprilTagFieldLayoutWithCorrectOrientation();
+        final List<List<VisionMeasurement>> batches = new ArrayList<>();
+        PoseEstimator100 poseEstimator = new PoseEstimator100() {
+            @Override
+            public void put(double t, Pose2d p, double[] sd1, double[] sd2) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void put(List<VisionMeasurement> measurements) {
+                batches.add(new ArrayList<>(measurements));
+            }
+
+            @Override
+            public SwerveState get(double timestampSeconds) {
+                return new SwerveState(GeometryUtil.kRotationZero);
+            }
+        };
+        VisionDataProvider24 vdp = new VisionDataProvider24(logger, layout, poseEstimator);
+        double tagX = layout.getTagPose(Alliance.Red, 7).get().getX();
+        vdp.collect("foo", tagAt(1.0), 1.0, Alliance.Red);
+        // the same camera twice within one window
+        vdp.collect("foo", tagAt(1.0), 2.0, Alliance.Red);
+        vdp.collect("foo", tagAt(1.02), 2.01, Alliance.Red);
+        vdp.flush();
+        assertEquals(1, batches.size());
+        List<VisionMeasurement> batch = batches.get(0);
+        assertEquals(2, batch.size());
+        assertEquals(2.0, batch.get(0).timestampS(), kDelta);
+        assertEquals(tagX - 1.0, batch.get(0).pose().getX(), 0.0001);
+        assertEquals(VisionDataProvider24.visionMeasurementStdDevs(1.0)[0],
+                batch.get(0).visionSigma()[0], 0.0001);
+        assertEquals(2.01, batch.get(1).timestampS(), 0.001);
+        assertEquals(tagX - 1.02, batch.get(1).pose().getX(), 0.0001);
+    }
+
+    /** Tag 7 straight ahead at the given range */
+    private static Blip24[] tagAt(double rangeM) {
+        return new Blip24[] {
+                new Blip24(7, new Transform3d(new Translation3d(0, 0, rangeM), new Rotation3d())) };
+    }
+}
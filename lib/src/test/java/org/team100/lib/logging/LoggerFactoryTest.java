@@ -1,11 +1,169 @@
 package org.team100.lib.logging;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 import org.junit.jupiter.api.Test;
+import org.team100.lib.logging.LoggerFactory.BooleanLogger;
+import org.team100.lib.logging.LoggerFactory.DoubleLogger;
+import org.team100.lib.logging.LoggerFactory.IntLogger;
+import org.team100.lib.logging.LoggerFactory.Pose2dLogger;
+import org.team100.lib.logging.LoggerFactory.Rotation3dLogger;
+import org.team100.lib.logging.LoggerFactory.State100Logger;
+import org.team100.lib.logging.LoggerFactory.SwerveStateLogger;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.logging.primitive.UdpPrimitiveLogger;
+import org.team100.lib.logging.primitive.UdpPrimitiveProtocol;
+import org.team100.lib.logging.primitive.UdpPrimitiveProtocol.ProtocolException;
+import org.team100.lib.logging.primitive.UdpType;
+import org.team100.lib.motion.drivetrain.SwerveState;
+import org.team100.lib.state.State100;
+
+import com.sun.management.ThreadMXBean;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation3d;
 
 public class LoggerFactoryTest {
+    private static final int N = 100000;
+    private static final double kDelta = 0.001;
+
     @Test
     void testSimple() {
-        
+
+    }
+
+    @Test
+    void testEnabled() {
+        LoggerFactory logger = new LoggerFactory(() -> Level.COMP, "root", new UdpPrimitiveLogger(x -> {
+        }, x -> {
+        }));
+        assertTrue(logger.doubleLogger(Level.COMP, "comp").enabled());
+        assertFalse(logger.doubleLogger(Level.DEBUG, "debug").enabled());
+        assertFalse(logger.pose2dLogger(Level.TRACE, "trace").enabled());
+    }
+
+    /** Compound values are one key each. */
+    @Test
+    void testStructKeys() {
+        TestPrimitiveLogger primitiveLogger = new TestPrimitiveLogger();
+        LoggerFactory logger = new LoggerFactory(() -> Level.COMP, "root", primitiveLogger);
+        logger.pose2dLogger(Level.COMP, "pose");
+        logger.swerveStateLogger(Level.COMP, "swerve");
+        logger.transform3dLogger(Level.COMP, "transform");
+        // these used to be 3 + 9 + 6 keys.
+        assertEquals(3, primitiveLogger.keyCount());
+    }
+
+    /** The primitive overloads pack the same bytes as the structs. */
+    @Test
+    void testStructPrimitives() throws ProtocolException {
+        ByteBuffer[] data = new ByteBuffer[1];
+        UdpPrimitiveLogger udpLogger = new UdpPrimitiveLogger(x -> data[0] = x, x -> {
+        });
+        LoggerFactory logger = new LoggerFactory(() -> Level.COMP, "root", udpLogger);
+
+        Pose2dLogger poseLogger = logger.pose2dLogger(Level.COMP, "pose");
+        poseLogger.log(1, 2, 3);
+        Pose2d pose = Pose2d.struct.unpack(flush(udpLogger, data));
+        assertEquals(1, pose.getX(), kDelta);
+        assertEquals(2, pose.getY(), kDelta);
+        assertEquals(3, pose.getRotation().getRadians(), kDelta);
+
+        Rotation3dLogger rotationLogger = logger.rotation3dLogger(Level.COMP, "rotation");
+        rotationLogger.log(0.1, 0.2, 0.3);
+        Rotation3d rotation = Rotation3d.struct.unpack(flush(udpLogger, data));
+        assertEquals(0.1, rotation.getX(), kDelta);
+        assertEquals(0.2, rotation.getY(), kDelta);
+        assertEquals(0.3, rotation.getZ(), kDelta);
+
+        SwerveStateLogger swerveLogger = logger.swerveStateLogger(Level.COMP, "swerve");
+        swerveLogger.log(() -> new SwerveState(
+                new State100(1, 2, 3),
+                new State100(4, 5, 6),
+                new State100(7, 8, 9)));
+        ByteBuffer swerve = flush(udpLogger, data);
+        assertEquals(72, swerve.remaining());
+        SwerveState state = SwerveState.struct.unpack(swerve);
+        assertEquals(3, state.x().a(), kDelta);
+        assertEquals(5, state.y().v(), kDelta);
+        assertEquals(7, state.theta().x(), kDelta);
+    }
+
+    /**
+     * The primitive log methods should not allocate anything, whether the level
+     * admits the value or not.
+     *
+     * The allocation counter also sees one-off allocations, e.g. by the JIT
+     * compiler finishing up on this thread, so this warms up explicitly, takes
+     * the best of a few rounds, and allows less than one byte per iteration. Any
+     * per-call allocation is at least 16 bytes per iteration, so it still fails.
+     */
+    @Test
+    void testZeroAllocation() {
+        ThreadMXBean bean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        LoggerFactory logger = new LoggerFactory(() -> Level.COMP, "root", new UdpPrimitiveLogger(x -> {
+        }, x -> {
+        }));
+        DoubleLogger doubleLogger = logger.doubleLogger(Level.COMP, "double");
+        BooleanLogger booleanLogger = logger.booleanLogger(Level.COMP, "boolean");
+        IntLogger intLogger = logger.intLogger(Level.COMP, "int");
+        Pose2dLogger poseLogger = logger.pose2dLogger(Level.COMP, "pose");
+        State100Logger stateLogger = logger.state100Logger(Level.COMP, "state");
+        DoubleLogger traceLogger = logger.doubleLogger(Level.TRACE, "trace");
+
+        // warm up, so the measurement doesn't include class loading or
+        // interpreted code.
+        bean.getCurrentThreadAllocatedBytes();
+        for (int round = 0; round < 5; ++round) {
+            for (int i = 0; i < N; ++i) {
+                logAll(i, doubleLogger, booleanLogger, intLogger, poseLogger, stateLogger, traceLogger);
+            }
+        }
+
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 3; ++round) {
+            long before = bean.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < N; ++i) {
+                logAll(i, doubleLogger, booleanLogger, intLogger, poseLogger, stateLogger, traceLogger);
+            }
+            long after = bean.getCurrentThreadAllocatedBytes();
+            best = Math.min(best, after - before);
+        }
+        assertTrue(best < N, String.format("%d bytes allocated in %d iterations", best, N));
+    }
+
+    /** Flush, and return the value of the only struct in the packet. */
+    private static ByteBuffer flush(UdpPrimitiveLogger logger, ByteBuffer[] data) throws ProtocolException {
+        logger.flush();
+        ByteBuffer bb = data[0];
+        bb.getLong(); // timestamp
+        UdpPrimitiveProtocol.decodeKey(bb);
+        assertEquals(UdpType.STRUCT, UdpPrimitiveProtocol.decodeType(bb));
+        byte[] val = UdpPrimitiveProtocol.decodeStruct(bb);
+        assertFalse(bb.hasRemaining());
+        return ByteBuffer.wrap(val).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void logAll(
+            int i,
+            DoubleLogger doubleLogger,
+            BooleanLogger booleanLogger,
+            IntLogger intLogger,
+            Pose2dLogger poseLogger,
+            State100Logger stateLogger,
+            DoubleLogger traceLogger) {
+        doubleLogger.log(i);
+        booleanLogger.log(i % 2 == 0);
+        intLogger.log(i);
+        poseLogger.log(i, 2 * i, 0.1 * i);
+        stateLogger.log(i, 1, 0);
+        if (traceLogger.enabled())
+            traceLogger.log(Math.sqrt(i));
     }
-    
 }
@@ -0,0 +1,280 @@
+package org.team100.lib.logging.primitive;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.logging.primitive.PrimitiveLogger.PrimitiveDoubleLogger;
+import org.team100.lib.logging.primitive.UdpPrimitiveProtocol.ProtocolException;
+import org.team100.lib.util.Util;
+
+import edu.wpi.first.math.geometry.Pose2d;
+
+class AsyncUdpPrimitiveLoggerTest {
+
+    ByteBuffer bb; // data
+    ByteBuffer mb; // metadata
+
+    /** The sender thread should produce the same bytes as the synchronous one. */
+    @Test
+    void testSameAsSynchronous() {
+        try (AsyncUdpPrimitiveLogger asyncLogger = new AsyncUdpPrimitiveLogger(
+                x -> bb = copy(x), x -> mb = copy(x))) {
+            asyncLogger.booleanLogger("boolkey").log(true);
+            asyncLogger.doubleLogger("doublekey").log(100.0);
+            asyncLogger.intLogger("intkey").log(100);
+            asyncLogger.doubleArrayLogger("doublearraykey").log(new double[] { 1.0, 2.0 });
+            asyncLogger.longLogger("longkey").log(100);
+            asyncLogger.stringLogger("stringkey").log("value");
+            assertTrue(asyncLogger.swap());
+            asyncLogger.awaitSender();
+
+            ByteBuffer[] syncHolder = new ByteBuffer[2];
+            UdpPrimitiveLogger syncLogger = new UdpPrimitiveLogger(
+                    x -> syncHolder[0] = copy(x), x -> syncHolder[1] = copy(x));
+            syncLogger.booleanLogger("boolkey").log(true);
+            syncLogger.doubleLogger("doublekey").log(100.0);
+            syncLogger.intLogger("intkey").log(100);
+            syncLogger.doubleArrayLogger("doublearraykey").log(new double[] { 1.0, 2.0 });
+            syncLogger.longLogger("longkey").log(100);
+            syncLogger.stringLogger("stringkey").log("value");
+            syncLogger.flush();
+            syncLogger.dumpLabels();
+
+            assertEquals(70, bb.remaining());
+            assertEquals(syncHolder[0], bb);
+            assertEquals(syncHolder[1], mb);
+            assertEquals(6, asyncLogger.keyCount());
+
+            // nothing is dirty now, so just the timestamp.
+            assertTrue(asyncLogger.swap());
+            asyncLogger.awaitSender();
+            assertEquals(8, bb.remaining());
+        }
+    }
+
+    /** Values logged while the sender is busy wait for the next swap. */
+    @Test
+    void testNewestWins() throws ProtocolException {
+        try (AsyncUdpPrimitiveLogger logger = new AsyncUdpPrimitiveLogger(
+                x -> bb = copy(x), x -> mb = copy(x))) {
+            PrimitiveDoubleLogger d = logger.doubleLogger("doublekey");
+            d.log(1.0);
+            d.log(2.0);
+            assertTrue(logger.swap());
+            logger.awaitSender();
+            bb.getLong(); // timestamp
+            assertEquals(1, UdpPrimitiveProtocol.decodeKey(bb));
+            assertEquals(UdpType.DOUBLE, UdpPrimitiveProtocol.decodeType(bb));
+            assertEquals(2.0, UdpPrimitiveProtocol.decodeDouble(bb));
+            assertFalse(bb.hasRemaining());
+
+            // after the swap, the logger writes into the other arena.
+            d.log(3.0);
+            assertTrue(logger.swap());
+            logger.awaitSender();
+            bb.getLong(); // timestamp
+            assertEquals(1, UdpPrimitiveProtocol.decodeKey(bb));
+            assertEquals(UdpType.DOUBLE, UdpPrimitiveProtocol.decodeType(bb));
+            assertEquals(3.0, UdpPrimitiveProtocol.decodeDouble(bb));
+        }
+    }
+
+    /** Struct slots added after the first swap get arrays in both arenas. */
+    @Test
+    void testStruct() throws ProtocolException {
+        try (AsyncUdpPrimitiveLogger logger = new AsyncUdpPrimitiveLogger(
+                x -> bb = copy(x), x -> mb = copy(x))) {
+            logger.doubleLogger("doublekey").log(1.0);
+            assertTrue(logger.swap());
+            logger.awaitSender();
+
+            PrimitiveLogger.PrimitiveStructLogger s = logger.structLogger("pose", Pose2d.struct);
+            byte[] val = new byte[Pose2d.struct.getSize()];
+            for (int i = 0; i < 2; ++i) {
+                val[0] = (byte) i;
+                s.log(val);
+                assertTrue(logger.swap());
+                logger.awaitSender();
+                bb.getLong(); // timestamp
+                assertEquals(2, UdpPrimitiveProtocol.decodeKey(bb));
+                assertEquals(UdpType.STRUCT, UdpPrimitiveProtocol.decodeType(bb));
+                byte[] actual = UdpPrimitiveProtocol.decodeStruct(bb);
+                assertEquals(24, actual.length);
+                assertEquals((byte) i, actual[0]);
+                assertFalse(bb.hasRemaining());
+            }
+        }
+    }
+
+    /** The logger copies the array, so the caller can reuse it. */
+    @Test
+    void testArrayCopied() throws ProtocolException {
+        try (AsyncUdpPrimitiveLogger logger = new AsyncUdpPrimitiveLogger(
+                x -> bb = copy(x), x -> mb = copy(x))) {
+            double[] val = new double[] { 1.0, 2.0 };
+            logger.doubleArrayLogger("doublearraykey").log(val);
+            val[0] = 3.0;
+            assertTrue(logger.swap());
+            logger.awaitSender();
+            bb.getLong(); // timestamp
+            assertEquals(1, UdpPrimitiveProtocol.decodeKey(bb));
+            assertEquals(UdpType.DOUBLE_ARRAY, UdpPrimitiveProtocol.decodeType(bb));
+            assertArrayEquals(new double[] { 1.0, 2.0 }, UdpPrimitiveProtocol.decodeDoubleArray(bb));
+            assertFalse(bb.hasRemaining());
+        }
+    }
+
+    /**
+     * In delta mode, unchanged values are skipped, and keyframes resend them,
+     * the same as the synchronous logger.
+     */
+    @Test
+    void testDelta() {
+        ByteBuffer[] syncHolder = new ByteBuffer[2];
+        UdpPrimitiveLogger syncLogger = new UdpPrimitiveLogger(
+                x -> syncHolder[0] = copy(x), x -> syncHolder[1] = copy(x), 3);
+        PrimitiveDoubleLogger syncDouble = syncLogger.doubleLogger("doublekey");
+        PrimitiveLogger.PrimitiveDoubleArrayLogger syncArray = syncLogger.doubleArrayLogger("doublearraykey");
+        try (AsyncUdpPrimitiveLogger logger = new AsyncUdpPrimitiveLogger(
+                x -> bb = copy(x), x -> mb = copy(x), 3)) {
+            PrimitiveDoubleLogger d = logger.doubleLogger("doublekey");
+            PrimitiveLogger.PrimitiveDoubleArrayLogger a = logger.doubleArrayLogger("doublearraykey");
+            int[] lengths = new int[7];
+            for (int i = 0; i < 7; ++i) {
+                // the double changes once, the array never does, and
+                // nothing is logged in the middle flush.
+                if (i != 4) {
+                    d.log(i < 2 ? 1.0 : 2.0);
+                    a.log(new double[] { 1.0, 2.0 });
+                    syncDouble.log(i < 2 ? 1.0 : 2.0);
+                    syncArray.log(new double[] { 1.0, 2.0 });
+                }
+                assertTrue(logger.swap());
+                logger.awaitSender();
+                syncLogger.flush();
+                assertEquals(syncHolder[0], bb, "flush " + i);
+                lengths[i] = bb.remaining();
+            }
+            // timestamp and frame header is 16 bytes, double is 11, array is 20.
+            // keyframes at 0, 3, and 6.
+            assertArrayEquals(new int[] { 47, 16, 27, 47, 16, 16, 47 }, lengths);
+        }
+    }
+
+    /** When the sink rolls to a new segment, the sender writes all the labels. */
+    @Test
+    void testSegmentLabels() {
+        AtomicBoolean rolled = new AtomicBoolean();
+        AtomicInteger labelPackets = new AtomicInteger();
+        try (AsyncUdpPrimitiveLogger logger = new AsyncUdpPrimitiveLogger(
+                x -> bb = copy(x), x -> labelPackets.incrementAndGet(),
+                () -> rolled.getAndSet(false), 0)) {
+            logger.doubleLogger("doublekey").log(1.0);
+            assertTrue(logger.swap());
+            logger.awaitSender();
+            // just the usual packet of labels
+            assertEquals(1, labelPackets.get());
+
+            rolled.set(true);
+            assertTrue(logger.swap());
+            logger.awaitSender();
+            // the usual one, and the one for the new segment
+            assertEquals(3, labelPackets.get());
+            assertFalse(rolled.get());
+        }
+    }
+
+    /** After close, the sender is gone, so there's nothing to swap to. */
+    @Test
+    void testClose() {
+        AsyncUdpPrimitiveLogger logger = new AsyncUdpPrimitiveLogger(
+                x -> bb = copy(x), x -> mb = copy(x));
+        logger.doubleLogger("doublekey").log(1.0);
+        assertTrue(logger.swap());
+        logger.awaitSender();
+        logger.close();
+        assertFalse(logger.swap());
+    }
+
+    /**
+     * The main-loop cost, i.e. the swap, should not depend on the number of keys.
+     * 
+     * This measures the CPU time of the calling thread, not the wall-clock time,
+     * because on a machine with few cores, waking the sender can preempt the
+     * caller.
+     * 
+     * The synchronous flush, for comparison, is linear in the number of keys.
+     */
+    @Test
+    void testConstantLoopCost() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        final int[] keyCounts = { 100, 1000, 20000 };
+        final int iterations = 200;
+        long[] swapNs = new long[keyCounts.length];
+        for (int k = 0; k < keyCounts.length; ++k) {
+            final int keys = keyCounts[k];
+            DummySender data = new DummySender();
+            try (AsyncUdpPrimitiveLogger logger = new AsyncUdpPrimitiveLogger(data, new DummySender())) {
+                PrimitiveDoubleLogger[] loggers = new PrimitiveDoubleLogger[keys];
+                for (int j = 0; j < keys; ++j) {
+                    loggers[j] = logger.doubleLogger("doublekey" + j);
+                }
+                // the first swap grows the back arena
+                logger.swap();
+                long swapTotal = 0;
+                for (int i = 0; i < iterations; ++i) {
+                    for (int j = 0; j < keys; ++j) {
+                        loggers[j].log(i);
+                    }
+                    logger.awaitSender();
+                    long t0 = bean.getCurrentThreadCpuTime();
+                    logger.swap();
+                    swapTotal += bean.getCurrentThreadCpuTime() - t0;
+                }
+                logger.awaitSender();
+                // about 11 bytes per key in a 1472 byte packet.
+                assertTrue(data.getCounter() >= iterations * (keys / 134));
+                swapNs[k] = swapTotal / iterations;
+            }
+
+            UdpPrimitiveLogger syncLogger = new UdpPrimitiveLogger(new DummySender(), new DummySender());
+            PrimitiveDoubleLogger[] syncLoggers = new PrimitiveDoubleLogger[keys];
+            for (int j = 0; j < keys; ++j) {
+                syncLoggers[j] = syncLogger.doubleLogger("doublekey" + j);
+            }
+            long flushTotal = 0;
+            for (int i = 0; i < iterations; ++i) {
+                for (int j = 0; j < keys; ++j) {
+                    syncLoggers[j].log(i);
+                }
+                long t0 = bean.getCurrentThreadCpuTime();
+                syncLogger.flush();
+                flushTotal += bean.getCurrentThreadCpuTime() - t0;
+            }
+            Util.printf("keys %6d swap (ns) %8d flush (ns) %10d\n",
+                    keys, swapNs[k], flushTotal / iterations);
+        }
+        // loose bounds, since timing in CI is noisy: the swap for 20000 keys
+        // should be in the same ballpark as the swap for 100 keys, and much
+        // less than the ~1 ms it takes to encode 20000 keys.
+        assertTrue(swapNs[2] < 5 * swapNs[0] + 20000,
+                String.format("100 keys: %d ns, 20000 keys: %d ns", swapNs[0], swapNs[2]));
+    }
+
+    /** The sink sees a view of a reused buffer, so copy it. */
+    private static ByteBuffer copy(ByteBuffer x) {
+        ByteBuffer result = ByteBuffer.allocate(x.remaining());
+        result.put(x.duplicate());
+        result.flip();
+        return result;
+    }
+}
@@ -0,0 +1,76 @@
+package org.team100.lib.logging.primitive;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.team100.lib.logging.primitive.PrimitiveLogger.PrimitiveDoubleLogger;
+import org.team100.lib.testing.Timeless;
+import org.team100.lib.util.Util;
+
+/**
+ * Compares the main-loop cost of logging to the mapped file and to network
+ * tables. The NT logger publishes on every log() call, so compare the whole
+ * loop, i.e. all the log() calls plus the periodic flush.
+ */
+class MappedFilePrimitiveLoggerTest implements Timeless {
+    private static final int kKeys = 2000;
+    private static final int kIterations = 200;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testLoopCost() throws IOException {
+        MappedLogFile file = new MappedLogFile(dir, 4, 1 << 22, true);
+        MappedFilePrimitiveLogger fileLogger = new MappedFilePrimitiveLogger(file);
+        PrimitiveDoubleLogger[] fileLoggers = new PrimitiveDoubleLogger[kKeys];
+        for (int j = 0; j < kKeys; ++j) {
+            fileLoggers[j] = fileLogger.doubleLogger("doublekey" + j);
+        }
+        // warm up
+        long fileNs = fileLoop(fileLogger, fileLoggers);
+        fileNs = fileLoop(fileLogger, fileLoggers);
+        file.close();
+
+        NTPrimitiveLogger ntLogger = new NTPrimitiveLogger();
+        PrimitiveDoubleLogger[] ntLoggers = new PrimitiveDoubleLogger[kKeys];
+        for (int j = 0; j < kKeys; ++j) {
+            ntLoggers[j] = ntLogger.doubleLogger("MappedFilePrimitiveLoggerTest/doublekey" + j);
+        }
+        long ntNs = ntLoop(ntLoggers);
+        ntNs = ntLoop(ntLoggers);
+
+        Util.printf("keys %d file loop (us) %8.1f NT loop (us) %8.1f\n",
+                kKeys, fileNs / 1000.0, ntNs / 1000.0);
+        // the file write is just a memory copy, the 50 hz loop is 20 ms.
+        assertTrue(fileNs < 5000000, String.format("file loop %d ns", fileNs));
+    }
+
+    /** Average nanoseconds per loop. */
+    private long fileLoop(MappedFilePrimitiveLogger logger, PrimitiveDoubleLogger[] loggers) {
+        long t0 = System.nanoTime();
+        for (int i = 0; i < kIterations; ++i) {
+            for (int j = 0; j < loggers.length; ++j) {
+                loggers[j].log(i);
+            }
+            stepTime(0.2);
+            logger.periodic();
+        }
+        return (System.nanoTime() - t0) / kIterations;
+    }
+
+    /** Average nanoseconds per loop. */
+    private static long ntLoop(PrimitiveDoubleLogger[] loggers) {
+        long t0 = System.nanoTime();
+        for (int i = 0; i < kIterations; ++i) {
+            for (int j = 0; j < loggers.length; ++j) {
+                loggers[j].log(i);
+            }
+        }
+        return (System.nanoTime() - t0) / kIterations;
+    }
+}
@@ -7,6 +7,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.nio.ByteBuffer;
 
 import org.junit.jupiter.api.Test;
+import org.team100.lib.logging.primitive.UdpPrimitiveProtocol.ProtocolException;
 
 class UdpMetadataProtocolTest {
 
@@ -36,4 +37,20 @@ class UdpMetadataProtocolTest {
         assertEquals((byte) 119, b[14]); // w
         assertEquals((byte) 111, b[15]); // o
     }
+
+    /** Struct keys also carry the struct type. */
+    @Test
+    void testStruct() throws ProtocolException {
+        byte[] b = new byte[16];
+        ByteBuffer bb = ByteBuffer.wrap(b);
+        assertTrue(UdpMetadataProtocol.addStruct(bb, 16, "one", "struct:A"));
+        assertFalse(UdpMetadataProtocol.addStruct(bb, 17, "two", "struct:B")); // no room
+        assertEquals(16, bb.position());
+        bb.flip();
+        assertEquals(16, UdpPrimitiveProtocol.decodeKey(bb));
+        assertEquals(UdpType.STRUCT, UdpPrimitiveProtocol.decodeType(bb));
+        assertEquals("one", UdpPrimitiveProtocol.decodeString(bb));
+        assertEquals("struct:A", UdpPrimitiveProtocol.decodeString(bb));
+        assertFalse(bb.hasRemaining());
+    }
 }
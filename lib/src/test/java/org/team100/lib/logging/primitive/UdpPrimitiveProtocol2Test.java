@@ -2,13 +2,21 @@ package org.team100.lib.logging.primitive;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 import org.team100.lib.logging.primitive.UdpPrimitiveProtocol.ProtocolException;
+import org.team100.lib.logging.receiver.UdpConsumersInterface;
+import org.team100.lib.logging.receiver.UdpDataDecoder;
+
+import edu.wpi.first.math.geometry.Pose2d;
 
 class UdpPrimitiveProtocol2Test {
 
@@ -249,6 +257,45 @@ class UdpPrimitiveProtocol2Test {
         assertEquals("hello", v);
     }
 
+    @Test
+    void testStruct() throws ProtocolException {
+        byte[] b = new byte[10];
+        ByteBuffer bb = ByteBuffer.wrap(b);
+        // encoder doesn't start at the beginning
+        bb.position(2);
+        int len = UdpPrimitiveProtocol.encodeStruct(bb, 16, new byte[] { 1, 2, 3, (byte) 200 });
+        assertEquals(8, len);
+        assertEquals((byte) 0, b[0]);
+        assertEquals((byte) 0, b[1]);
+        assertEquals((byte) 0, b[2]); // key high byte
+        assertEquals((byte) 16, b[3]); // key low byte
+        assertEquals((byte) 8, b[4]); // type
+        assertEquals((byte) 4, b[5]); // length
+        assertEquals((byte) 1, b[6]);
+        assertEquals((byte) 2, b[7]);
+        assertEquals((byte) 3, b[8]);
+        assertEquals((byte) 200, b[9]);
+
+        bb.rewind();
+        bb.position(5);
+        byte[] v = UdpPrimitiveProtocol.decodeStruct(bb);
+        assertEquals(10, bb.position());
+        assertArrayEquals(new byte[] { 1, 2, 3, (byte) 200 }, v);
+    }
+
+    /** Lengths over 127 are unsigned. */
+    @Test
+    void testLongStruct() throws ProtocolException {
+        ByteBuffer bb = ByteBuffer.allocate(300);
+        byte[] val = new byte[200];
+        val[199] = 1;
+        assertEquals(204, UdpPrimitiveProtocol.encodeStruct(bb, 16, val));
+        bb.flip();
+        assertEquals(16, UdpPrimitiveProtocol.decodeKey(bb));
+        assertEquals(UdpType.STRUCT, UdpPrimitiveProtocol.decodeType(bb));
+        assertArrayEquals(val, UdpPrimitiveProtocol.decodeStruct(bb));
+    }
+
     ////////////////////////////////////////////
     //
     // multi-type buffer
@@ -347,6 +394,17 @@ class UdpPrimitiveProtocol2Test {
         assertEquals(0, len);
     }
 
+    @Test
+    void testStructOverflow() {
+        byte[] b = new byte[12];
+        ByteBuffer bb = ByteBuffer.wrap(b);
+        bb.position(8);
+        int len = UdpPrimitiveProtocol.encodeStruct(bb, 16, new byte[] { 1 });
+        assertEquals(0, len);
+        assertThrows(IllegalArgumentException.class,
+                () -> UdpPrimitiveProtocol.encodeStruct(ByteBuffer.allocate(300), 16, new byte[256]));
+    }
+
     ///////////////////////////////////////
     //
     // Malformed packets
@@ -425,4 +483,316 @@ class UdpPrimitiveProtocol2Test {
         assertEquals((byte) 0, b[3]); //
         assertEquals((byte) 0, b[4]); //
     }
+
+    ///////////////////////////////////////
+    //
+    // Delta mode
+
+    @Test
+    void testFrame() throws ProtocolException {
+        byte[] b = new byte[16];
+        ByteBuffer bb = ByteBuffer.wrap(b);
+        int len = UdpPrimitiveProtocol.encodeFrame(bb, 258, true, false);
+        assertEquals(8, len);
+        assertEquals((byte) 0, b[0]); // key high byte
+        assertEquals((byte) 0, b[1]); // key low byte
+        assertEquals((byte) 7, b[2]); // type
+        assertEquals((byte) 0, b[3]); // seq MSB
+        assertEquals((byte) 0, b[4]); //
+        assertEquals((byte) 1, b[5]); //
+        assertEquals((byte) 2, b[6]); // seq LSB
+        assertEquals((byte) 1, b[7]); // flags
+
+        bb.rewind();
+        assertEquals(0, UdpPrimitiveProtocol.decodeKey(bb));
+        assertEquals(UdpType.FRAME, UdpPrimitiveProtocol.decodeType(bb));
+        assertEquals(258, UdpPrimitiveProtocol.decodeInt(bb));
+        assertEquals(UdpPrimitiveProtocol.kKeyframe, UdpPrimitiveProtocol.decodeFrameFlags(bb));
+    }
+
+    @Test
+    void testFrameOverflow() {
+        ByteBuffer bb = ByteBuffer.allocate(7);
+        assertEquals(0, UdpPrimitiveProtocol.encodeFrame(bb, 0, true, true));
+        assertEquals(0, bb.position());
+    }
+
+    /**
+     * Log a few thousand keys, where only a few change in each flush, and decode
+     * the packets. The decoder should end up with the same values as the
+     * logger, and delta mode should use far fewer packets.
+     */
+    @Test
+    void testDeltaRoundTrip() throws ProtocolException {
+        final int keys = 2000;
+        final int flushes = 50;
+        List<ByteBuffer> deltaPackets = new ArrayList<>();
+        List<ByteBuffer> fullPackets = new ArrayList<>();
+        UdpPrimitiveLogger deltaLogger = new UdpPrimitiveLogger(
+                x -> deltaPackets.add(copy(x)), x -> {
+                }, 10);
+        UdpPrimitiveLogger fullLogger = new UdpPrimitiveLogger(
+                x -> fullPackets.add(copy(x)), x -> {
+                });
+        UdpDataDecoder decoder = new UdpDataDecoder(new NullConsumers());
+
+        PrimitiveLogger.PrimitiveDoubleLogger[] deltaDoubles = new PrimitiveLogger.PrimitiveDoubleLogger[keys];
+        PrimitiveLogger.PrimitiveDoubleLogger[] fullDoubles = new PrimitiveLogger.PrimitiveDoubleLogger[keys];
+        for (int j = 0; j < keys; ++j) {
+            deltaDoubles[j] = deltaLogger.doubleLogger("double" + j);
+            fullDoubles[j] = fullLogger.doubleLogger("double" + j);
+        }
+        PrimitiveLogger.PrimitiveStringLogger deltaString = deltaLogger.stringLogger("string");
+        PrimitiveLogger.PrimitiveBooleanLogger deltaBoolean = deltaLogger.booleanLogger("boolean");
+
+        double[] expected = new double[keys];
+        for (int i = 0; i < flushes; ++i) {
+            // every key is logged every time, but only 1% change.
+            for (int j = 0; j < keys; ++j) {
+                if (j % 100 == i % 100)
+                    expected[j] = i;
+                deltaDoubles[j].log(expected[j]);
+                fullDoubles[j].log(expected[j]);
+            }
+            deltaString.log(i < 25 ? "auto" : "teleop");
+            deltaBoolean.log(true);
+            deltaLogger.flush();
+            fullLogger.flush();
+
+            for (ByteBuffer packet : deltaPackets) {
+                assertTrue(decoder.validateTimestamp(packet));
+                while (packet.hasRemaining())
+                    decoder.decode(packet);
+            }
+            deltaPackets.clear();
+
+            // the first flush is a keyframe, so from the second flush on, the
+            // decoder has the full state.
+            if (i > 0)
+                assertTrue(decoder.isSynced());
+            for (int j = 0; j < keys; ++j) {
+                // keys start at 1
+                assertEquals(expected[j], decoder.getDouble(j + 1), 1e-12);
+            }
+            assertEquals(i < 25 ? "auto" : "teleop", decoder.getString(keys + 1));
+            assertTrue(decoder.getBoolean(keys + 2));
+        }
+        assertEquals(UdpType.DOUBLE, decoder.getType(1));
+        assertEquals(UdpType.STRING, decoder.getType(keys + 1));
+
+        // count the packets from a fresh run of the same flushes.
+        DummySender deltaCounter = new DummySender();
+        DummySender fullCounter = new DummySender();
+        UdpPrimitiveLogger deltaLogger2 = new UdpPrimitiveLogger(deltaCounter, new DummySender(), 10);
+        UdpPrimitiveLogger fullLogger2 = new UdpPrimitiveLogger(fullCounter, new DummySender());
+        for (int j = 0; j < keys; ++j) {
+            deltaDoubles[j] = deltaLogger2.doubleLogger("double" + j);
+            fullDoubles[j] = fullLogger2.doubleLogger("double" + j);
+        }
+        for (int i = 0; i < flushes; ++i) {
+            for (int j = 0; j < keys; ++j) {
+                if (j % 100 == i % 100)
+                    expected[j] = i;
+                deltaDoubles[j].log(expected[j]);
+                fullDoubles[j].log(expected[j]);
+            }
+            deltaLogger2.flush();
+            fullLogger2.flush();
+        }
+        // full: 133 doubles per packet, so 16 packets per flush
+        // delta: 20 keys per flush, plus a keyframe every 10 flushes
+        assertEquals(800, fullCounter.getCounter());
+        assertTrue(deltaCounter.getCounter() * 4 < fullCounter.getCounter(),
+                String.format("delta %d full %d", deltaCounter.getCounter(), fullCounter.getCounter()));
+    }
+
+    /**
+     * Drop a packet; the decoder should notice, and recover at the next keyframe.
+     */
+    @Test
+    void testDeltaPacketLoss() throws ProtocolException {
+        List<ByteBuffer> packets = new ArrayList<>();
+        UdpPrimitiveLogger logger = new UdpPrimitiveLogger(
+                x -> packets.add(copy(x)), x -> {
+                }, 5);
+        UdpDataDecoder decoder = new UdpDataDecoder(new NullConsumers());
+        PrimitiveLogger.PrimitiveDoubleLogger a = logger.doubleLogger("a");
+        PrimitiveLogger.PrimitiveIntLogger b = logger.intLogger("b");
+
+        // flush 0 is a keyframe
+        a.log(1.0);
+        b.log(1);
+        logger.flush();
+        // flush 1 is a delta, with just "a"
+        a.log(2.0);
+        b.log(1);
+        logger.flush();
+        decodeAll(decoder, packets);
+        assertTrue(decoder.isSynced());
+        assertEquals(2.0, decoder.getDouble(1));
+        assertEquals(1, decoder.getInt(2));
+
+        // flush 2 is lost
+        a.log(3.0);
+        b.log(2);
+        logger.flush();
+        packets.clear();
+        // flush 3 doesn't include "b" since it didn't change.
+        a.log(4.0);
+        b.log(2);
+        logger.flush();
+        decodeAll(decoder, packets);
+        assertFalse(decoder.isSynced());
+        assertEquals(4.0, decoder.getDouble(1));
+        // stale
+        assertEquals(1, decoder.getInt(2));
+
+        // flush 4 is still delta
+        logger.flush();
+        decodeAll(decoder, packets);
+        assertFalse(decoder.isSynced());
+        assertEquals(1, decoder.getInt(2));
+
+        // flush 5 is a keyframe, so everything is sent
+        logger.flush();
+        decodeAll(decoder, packets);
+        assertEquals(4.0, decoder.getDouble(1));
+        assertEquals(2, decoder.getInt(2));
+        // but we don't know the keyframe is complete until the next flush
+        assertFalse(decoder.isSynced());
+        logger.flush();
+        decodeAll(decoder, packets);
+        assertTrue(decoder.isSynced());
+    }
+
+    /** Losing part of a keyframe means we have to wait for the next one. */
+    @Test
+    void testDeltaKeyframeLoss() throws ProtocolException {
+        List<ByteBuffer> packets = new ArrayList<>();
+        UdpPrimitiveLogger logger = new UdpPrimitiveLogger(
+                x -> packets.add(copy(x)), x -> {
+                }, 2);
+        UdpDataDecoder decoder = new UdpDataDecoder(new NullConsumers());
+        // enough keys for three packets per keyframe
+        final int keys = 300;
+        PrimitiveLogger.PrimitiveDoubleLogger[] doubles = new PrimitiveLogger.PrimitiveDoubleLogger[keys];
+        for (int j = 0; j < keys; ++j) {
+            doubles[j] = logger.doubleLogger("double" + j);
+            doubles[j].log(j);
+        }
+        // keyframe, lose the middle packet
+        logger.flush();
+        assertEquals(3, packets.size());
+        packets.remove(1);
+        decodeAll(decoder, packets);
+        // delta
+        logger.flush();
+        decodeAll(decoder, packets);
+        assertFalse(decoder.isSynced());
+        // keyframe, all good
+        logger.flush();
+        decodeAll(decoder, packets);
+        logger.flush();
+        decodeAll(decoder, packets);
+        assertTrue(decoder.isSynced());
+        for (int j = 0; j < keys; ++j) {
+            assertEquals(j, decoder.getDouble(j + 1));
+        }
+    }
+
+    /**
+     * A struct is one key, sent only when its bytes change, and the decoder
+     * keeps the packed bytes, which unpack to the logged value.
+     */
+    @Test
+    void testStructRoundTrip() throws ProtocolException {
+        List<ByteBuffer> packets = new ArrayList<>();
+        UdpPrimitiveLogger logger = new UdpPrimitiveLogger(
+                x -> packets.add(copy(x)), x -> {
+                }, 10);
+        UdpDataDecoder decoder = new UdpDataDecoder(new NullConsumers());
+        PrimitiveLogger.PrimitiveStructLogger poseLogger = logger.structLogger("pose", Pose2d.struct);
+        assertEquals(1, logger.keyCount());
+
+        byte[] bytes = new byte[Pose2d.struct.getSize()];
+        ByteBuffer packer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        packer.putDouble(1).putDouble(2).putDouble(3);
+        poseLogger.log(bytes);
+        // the logger copies the value, so the caller can reuse the array.
+        packer.clear();
+        packer.putDouble(4);
+        logger.flush();
+        decodeAll(decoder, packets);
+        assertEquals(UdpType.STRUCT, decoder.getType(1));
+        Pose2d pose = Pose2d.struct.unpack(
+                ByteBuffer.wrap(decoder.getStruct(1)).order(ByteOrder.LITTLE_ENDIAN));
+        assertEquals(1, pose.getX());
+        assertEquals(2, pose.getY());
+        assertEquals(3, pose.getRotation().getRadians(), 1e-9);
+
+        // same value: just the frame header and the timestamp.
+        packer.clear();
+        packer.putDouble(1).putDouble(2).putDouble(3);
+        poseLogger.log(bytes);
+        logger.flush();
+        assertEquals(1, packets.size());
+        assertEquals(16, packets.get(0).remaining());
+        packets.clear();
+    }
+
+    private static void decodeAll(UdpDataDecoder decoder, List<ByteBuffer> packets) throws ProtocolException {
+        for (ByteBuffer packet : packets) {
+            assertTrue(decoder.validateTimestamp(packet));
+            while (packet.hasRemaining())
+                decoder.decode(packet);
+        }
+        packets.clear();
+    }
+
+    /** The sink sees a view of a reused buffer, so copy it. */
+    private static ByteBuffer copy(ByteBuffer x) {
+        ByteBuffer result = ByteBuffer.allocate(x.remaining());
+        result.put(x.duplicate());
+        result.flip();
+        return result;
+    }
+
+    private static class NullConsumers implements UdpConsumersInterface {
+        @Override
+        public boolean validateTimestamp(long timestamp) {
+            return true;
+        }
+
+        @Override
+        public void acceptBoolean(int key, boolean val) {
+        }
+
+        @Override
+        public void acceptDouble(int key, double val) {
+        }
+
+        @Override
+        public void acceptInt(int key, int val) {
+        }
+
+        @Override
+        public void acceptDoubleArray(int key, double[] val) {
+        }
+
+        @Override
+        public void acceptString(int key, String val) {
+        }
+
+        @Override
+        public void acceptMeta(int key, UdpType type, String val) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
 }
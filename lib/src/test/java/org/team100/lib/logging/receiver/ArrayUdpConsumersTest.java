@@ -0,0 +1,185 @@
+package org.team100.lib.logging.receiver;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.team100.lib.logging.primitive.PrimitiveLogger.PrimitiveDoubleLogger;
+import org.team100.lib.logging.primitive.UdpPrimitiveLogger;
+import org.team100.lib.logging.primitive.UdpPrimitiveProtocol.ProtocolException;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+
+/**
+ * Encodes values with the real logger, decodes them into ArrayUdpConsumers,
+ * and reads back the log file it writes.
+ */
+class ArrayUdpConsumersTest {
+    /** Any nonzero epoch seconds will do. */
+    private static final long kTimestamp = 1700000000;
+    private static final double kDelta = 0.001;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testRoundTrip() throws ProtocolException, IOException {
+        List<ByteBuffer> data = new ArrayList<>();
+        List<ByteBuffer> meta = new ArrayList<>();
+        UdpPrimitiveLogger logger = new UdpPrimitiveLogger(
+                x -> data.add(copy(x)), x -> meta.add(copy(x)));
+        logger.booleanLogger("boolkey").log(true);
+        logger.doubleLogger("doublekey").log(1.5);
+        logger.intLogger("intkey").log(2);
+        logger.doubleArrayLogger("doublearraykey").log(new double[] { 3, 4 });
+        logger.longLogger("longkey").log(5);
+        logger.stringLogger("stringkey").log("six");
+        Pose2d pose = new Pose2d(7, 8, new Rotation2d(0.5));
+        ByteBuffer poseBytes = ByteBuffer.allocate(Pose2d.struct.getSize()).order(ByteOrder.LITTLE_ENDIAN);
+        Pose2d.struct.pack(poseBytes, pose);
+        logger.structLogger("posekey", Pose2d.struct).log(poseBytes.array());
+        logger.sendAllLabels();
+        logger.flush();
+
+        ArrayUdpConsumers consumers = new ArrayUdpConsumers(dir.toString(), false, true);
+        consumers.validateTimestamp(kTimestamp);
+        UdpMetaDecoder metaDecoder = new UdpMetaDecoder(consumers);
+        for (ByteBuffer packet : meta) {
+            packet.getLong(); // timestamp
+            while (packet.hasRemaining())
+                metaDecoder.decode(packet);
+        }
+        UdpDataDecoder dataDecoder = new UdpDataDecoder(consumers);
+        for (ByteBuffer packet : data) {
+            consumers.beginPacket(1);
+            packet.getLong(); // timestamp
+            dataDecoder.decodeAll(packet);
+        }
+        consumers.flush();
+        consumers.close();
+
+        Map<String, DataLogRecord> records = read();
+        assertTrue(records.get("boolkey").getBoolean());
+        assertEquals(1.5, records.get("doublekey").getDouble(), kDelta);
+        assertEquals(2, records.get("intkey").getInteger());
+        assertArrayEquals(new double[] { 3, 4 }, records.get("doublearraykey").getDoubleArray(), kDelta);
+        assertEquals(5, records.get("longkey").getInteger());
+        assertEquals("six", records.get("stringkey").getString());
+        Pose2d actual = Pose2d.struct.unpack(
+                ByteBuffer.wrap(records.get("posekey").getRaw()).order(ByteOrder.LITTLE_ENDIAN));
+        assertEquals(pose, actual);
+        // the schema is there too, so AdvantageScope can decode the struct.
+        assertTrue(records.containsKey("/.schema/struct:Pose2d"));
+    }
+
+    /** Each value is stamped with the receive time of its own packet. */
+    @Test
+    void testPacketTime() throws ProtocolException, IOException {
+        List<ByteBuffer> data = new ArrayList<>();
+        List<ByteBuffer> meta = new ArrayList<>();
+        UdpPrimitiveLogger logger = new UdpPrimitiveLogger(
+                x -> data.add(copy(x)), x -> meta.add(copy(x)));
+        PrimitiveDoubleLogger doubleLogger = logger.doubleLogger("doublekey");
+        logger.sendAllLabels();
+        doubleLogger.log(1.5);
+        logger.flush();
+        doubleLogger.log(2.5);
+        logger.flush();
+        assertEquals(2, data.size());
+
+        ArrayUdpConsumers consumers = new ArrayUdpConsumers(dir.toString(), false, true);
+        consumers.validateTimestamp(kTimestamp);
+        UdpMetaDecoder metaDecoder = new UdpMetaDecoder(consumers);
+        for (ByteBuffer packet : meta) {
+            packet.getLong(); // timestamp
+            while (packet.hasRemaining())
+                metaDecoder.decode(packet);
+        }
+        UdpDataDecoder dataDecoder = new UdpDataDecoder(consumers);
+        long timestampUs = 1000;
+        for (ByteBuffer packet : data) {
+            consumers.beginPacket(timestampUs);
+            packet.getLong(); // timestamp
+            dataDecoder.decodeAll(packet);
+            timestampUs += 1000;
+        }
+        consumers.flush();
+        consumers.close();
+
+        DataLogRecord record = read().get("doublekey");
+        assertEquals(2.5, record.getDouble(), kDelta);
+        assertEquals(2000, record.getTimestamp());
+    }
+
+    /** Values for keys without labels are dropped. */
+    @Test
+    void testNoLabel() throws ProtocolException, IOException {
+        List<ByteBuffer> data = new ArrayList<>();
+        UdpPrimitiveLogger logger = new UdpPrimitiveLogger(x -> data.add(copy(x)), x -> {
+        });
+        logger.doubleLogger("doublekey").log(1.5);
+        logger.flush();
+
+        ArrayUdpConsumers consumers = new ArrayUdpConsumers(dir.toString(), false, true);
+        consumers.validateTimestamp(kTimestamp);
+        UdpDataDecoder dataDecoder = new UdpDataDecoder(consumers);
+        for (ByteBuffer packet : data) {
+            consumers.beginPacket(1);
+            packet.getLong(); // timestamp
+            dataDecoder.decodeAll(packet);
+        }
+        consumers.flush();
+        consumers.close();
+
+        assertFalse(read().containsKey("doublekey"));
+    }
+
+    /** The last record for each entry name. */
+    private Map<String, DataLogRecord> read() throws IOException {
+        Optional<Path> file;
+        try (Stream<Path> files = Files.list(dir)) {
+            file = files.filter(p -> p.toString().endsWith(".wpilog")).findFirst();
+        }
+        if (file.isEmpty())
+            return Map.of();
+        DataLogReader reader = new DataLogReader(file.get().toString());
+        assertTrue(reader.isValid());
+        Map<Integer, String> names = new HashMap<>();
+        Map<String, DataLogRecord> result = new HashMap<>();
+        for (DataLogRecord record : reader) {
+            if (record.isStart()) {
+                DataLogRecord.StartRecordData start = record.getStartData();
+                names.put(start.entry, start.name);
+            } else if (!record.isControl()) {
+                result.put(names.get(record.getEntry()), record);
+            }
+        }
+        return result;
+    }
+
+    /** The sink sees a view of a reused buffer, so copy it. */
+    private static ByteBuffer copy(ByteBuffer x) {
+        ByteBuffer result = ByteBuffer.allocate(x.remaining());
+        result.put(x.duplicate());
+        result.flip();
+        return result;
+    }
+}
@@ -0,0 +1,202 @@
+package org.team100.lib.logging.receiver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.team100.lib.logging.primitive.MappedFilePrimitiveLogger;
+import org.team100.lib.logging.primitive.MappedLogFile;
+import org.team100.lib.logging.primitive.PrimitiveLogger.PrimitiveDoubleLogger;
+import org.team100.lib.logging.primitive.PrimitiveLogger.PrimitiveStringLogger;
+import org.team100.lib.logging.primitive.UdpType;
+import org.team100.lib.testing.Timeless;
+import org.team100.lib.util.Util;
+
+class LogFileReplayTest implements Timeless {
+    private static final double kDelta = 0.001;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testRoundTrip() throws IOException {
+        MappedLogFile file = new MappedLogFile(dir, 2, 1 << 16, false);
+        MappedFilePrimitiveLogger logger = new MappedFilePrimitiveLogger(file);
+        PrimitiveDoubleLogger d = logger.doubleLogger("doublekey");
+        PrimitiveStringLogger s = logger.stringLogger("stringkey");
+        d.log(1.0);
+        s.log("one");
+        logger.flush();
+        logger.sendAllLabels();
+        d.log(2.0);
+        logger.flush();
+        file.close();
+
+        RecordingConsumers consumers = replay();
+        assertEquals(Map.of(1, "doublekey", 2, "stringkey"), consumers.m_labels);
+        assertEquals(2.0, consumers.m_doubles.get(1), kDelta);
+        assertEquals("one", consumers.m_strings.get(2));
+        assertEquals(3, consumers.m_values);
+    }
+
+    /**
+     * Old segments are overwritten, and the rest are replayed in order. The
+     * logger's periodic() rewrites the labels at the start of each segment.
+     */
+    @Test
+    void testWrap() throws IOException {
+        // about 21 packets per segment
+        MappedLogFile file = new MappedLogFile(dir, 3, 32 * 1024, false);
+        MappedFilePrimitiveLogger logger = new MappedFilePrimitiveLogger(file);
+        PrimitiveDoubleLogger[] loggers = new PrimitiveDoubleLogger[500];
+        for (int j = 0; j < loggers.length; ++j) {
+            loggers[j] = logger.doubleLogger("doublekey" + j);
+        }
+        for (int i = 0; i < 100; ++i) {
+            for (int j = 0; j < loggers.length; ++j) {
+                loggers[j].log(i);
+            }
+            // past the flush period
+            stepTime(0.2);
+            logger.periodic();
+        }
+        assertTrue(file.sequence() > 3);
+        file.close();
+
+        RecordingConsumers consumers = replay();
+        // the newest values win
+        assertEquals(500, consumers.m_labels.size());
+        for (int j = 1; j <= loggers.length; ++j) {
+            assertEquals(99, consumers.m_doubles.get(j), kDelta);
+        }
+        // the oldest values are gone
+        assertTrue(consumers.m_values < 100 * loggers.length);
+
+        // the newest segment can be decoded on its own.
+        int newest = (int) (file.sequence() % 3);
+        for (int i = 0; i < 3; ++i) {
+            if (i != newest)
+                Files.delete(dir.resolve(MappedLogFile.segmentName(i)));
+        }
+        consumers = replay();
+        assertEquals(500, consumers.m_labels.size());
+    }
+
+    /** A restart keeps the old segments and continues the sequence. */
+    @Test
+    void testReopen() throws IOException {
+        MappedLogFile file = new MappedLogFile(dir, 4, 1 << 16, false);
+        assertEquals(0, file.sequence());
+        file.close();
+        file = new MappedLogFile(dir, 4, 1 << 16, false);
+        assertEquals(1, file.sequence());
+        MappedFilePrimitiveLogger logger = new MappedFilePrimitiveLogger(file);
+        logger.doubleLogger("doublekey").log(3.0);
+        logger.flush();
+        logger.sendAllLabels();
+        file.close();
+        file = new MappedLogFile(dir, 4, 1 << 16, false);
+        assertEquals(2, file.sequence());
+        file.close();
+
+        RecordingConsumers consumers = replay();
+        assertEquals(3.0, consumers.m_doubles.get(1), kDelta);
+    }
+
+    /** Replay speed, for lots of packets. */
+    @Test
+    void testReplaySpeed() throws IOException {
+        MappedLogFile file = new MappedLogFile(dir, 4, 1 << 22, false);
+        MappedFilePrimitiveLogger logger = new MappedFilePrimitiveLogger(file);
+        PrimitiveDoubleLogger[] loggers = new PrimitiveDoubleLogger[2000];
+        for (int j = 0; j < loggers.length; ++j) {
+            loggers[j] = logger.doubleLogger("doublekey" + j);
+        }
+        logger.sendAllLabels();
+        for (int i = 0; i < 500; ++i) {
+            for (int j = 0; j < loggers.length; ++j) {
+                loggers[j].log(i);
+            }
+            logger.flush();
+        }
+        file.close();
+
+        RecordingConsumers consumers = new RecordingConsumers();
+        LogFileReplay replay = new LogFileReplay(
+                dir, new UdpDataDecoder(consumers), new UdpMetaDecoder(consumers), consumers);
+        long t0 = System.nanoTime();
+        long packets = replay.replay();
+        long t1 = System.nanoTime();
+        double sec = (t1 - t0) / 1e9;
+        Util.printf("packets %d keys %d keys/s %.0f\n",
+                packets, consumers.m_values, consumers.m_values / sec);
+        assertEquals(1000000, consumers.m_values);
+    }
+
+    private RecordingConsumers replay() throws IOException {
+        RecordingConsumers consumers = new RecordingConsumers();
+        LogFileReplay replay = new LogFileReplay(
+                dir, new UdpDataDecoder(consumers), new UdpMetaDecoder(consumers), consumers);
+        replay.replay();
+        return consumers;
+    }
+
+    private static class RecordingConsumers implements UdpConsumersInterface {
+        final Map<Integer, String> m_labels = new HashMap<>();
+        final Map<Integer, Double> m_doubles = new HashMap<>();
+        final Map<Integer, String> m_strings = new HashMap<>();
+        long m_values;
+
+        @Override
+        public boolean validateTimestamp(long timestamp) {
+            return true;
+        }
+
+        @Override
+        public void acceptBoolean(int key, boolean val) {
+            m_values++;
+        }
+
+        @Override
+        public void acceptDouble(int key, double val) {
+            m_values++;
+            m_doubles.put(key, val);
+        }
+
+        @Override
+        public void acceptInt(int key, int val) {
+            m_values++;
+        }
+
+        @Override
+        public void acceptDoubleArray(int key, double[] val) {
+            m_values++;
+        }
+
+        @Override
+        public void acceptString(int key, String val) {
+            m_values++;
+            m_strings.put(key, val);
+        }
+
+        @Override
+        public void acceptMeta(int key, UdpType type, String val) {
+            m_labels.put(key, val);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package org.team100.lib.logging.receiver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.team100.lib.logging.primitive.PrimitiveLogger.PrimitiveDoubleLogger;
+import org.team100.lib.logging.primitive.UdpPrimitiveLogger;
+import org.team100.lib.logging.primitive.UdpPrimitiveProtocol.ProtocolException;
+import org.team100.lib.logging.primitive.UdpSender;
+import org.team100.lib.logging.primitive.UdpType;
+
+class UdpPacketRingTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void testCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new UdpPacketRing(3));
+        assertEquals(4, new UdpPacketRing(4).capacity());
+    }
+
+    @Test
+    void testFullAndEmpty() {
+        UdpPacketRing ring = new UdpPacketRing(2);
+        assertNull(ring.peek());
+        ByteBuffer a = ring.claim();
+        assertNotNull(a);
+        a.putInt(1).flip();
+        ring.publish(10);
+        ring.claim().putInt(2).flip();
+        ring.publish(20);
+        assertEquals(2, ring.size());
+        // full
+        assertNull(ring.claim());
+        assertEquals(1, ring.peek().getInt());
+        assertEquals(10, ring.timestampUs());
+        ring.release();
+        assertEquals(2, ring.peek().getInt());
+        assertEquals(20, ring.timestampUs());
+        ring.release();
+        assertNull(ring.peek());
+        assertEquals(0, ring.size());
+    }
+
+    /** One producer thread, one consumer thread, nothing lost or reordered. */
+    @Test
+    void testConcurrent() throws InterruptedException {
+        final int n = 100000;
+        UdpPacketRing ring = new UdpPacketRing(64);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < n; ++i) {
+                ByteBuffer buf;
+                while ((buf = ring.claim()) == null)
+                    Thread.yield();
+                buf.putInt(i).flip();
+                ring.publish(i);
+            }
+        });
+        producer.start();
+        for (int i = 0; i < n; ++i) {
+            ByteBuffer buf;
+            while ((buf = ring.peek()) == null)
+                Thread.yield();
+            assertEquals(i, buf.getInt());
+            assertEquals(i, ring.timestampUs());
+            ring.release();
+        }
+        producer.join();
+        assertNull(ring.peek());
+    }
+
+    /**
+     * Sender to receiver through localhost, into the real consumer, writing a log
+     * file. There's no flow control in the protocol, so the sender waits for each
+     * flush to be consumed, and then every value should arrive, in order.
+     */
+    @Test
+    void testLocalhost() throws InterruptedException, ProtocolException {
+        final int keys = 2000;
+        final int iterations = 500;
+        CountingConsumers consumers = new CountingConsumers(
+                new ArrayUdpConsumers(dir.toString(), false, true));
+        UdpPacketRing ring = new UdpPacketRing(1024);
+        UdpRingReader reader = new UdpRingReader(ring, 0);
+        UdpRingConsumer consumer = new UdpRingConsumer(
+                ring, new UdpDataDecoder(consumers), consumers);
+        Thread readerThread = new Thread(reader);
+        Thread consumerThread = new Thread(consumer);
+        readerThread.start();
+        consumerThread.start();
+
+        UdpSender sender = new UdpSender(InetAddress.getLoopbackAddress(), reader.getPort());
+        AtomicLong sent = new AtomicLong();
+        List<ByteBuffer> meta = new ArrayList<>();
+        UdpPrimitiveLogger logger = new UdpPrimitiveLogger(
+                x -> {
+                    sent.incrementAndGet();
+                    sender.accept(x);
+                },
+                x -> meta.add(copy(x)));
+        PrimitiveDoubleLogger[] loggers = new PrimitiveDoubleLogger[keys];
+        for (int j = 0; j < keys; ++j) {
+            loggers[j] = logger.doubleLogger("doublekey" + j);
+        }
+        // the labels go directly to the consumer, so the values have somewhere
+        // to go when they arrive.
+        logger.sendAllLabels();
+        // the counter substitutes its own timestamp
+        consumers.validateTimestamp(0);
+        UdpMetaDecoder metaDecoder = new UdpMetaDecoder(consumers);
+        for (ByteBuffer packet : meta) {
+            packet.getLong(); // timestamp
+            while (packet.hasRemaining())
+                metaDecoder.decode(packet);
+        }
+
+        for (int i = 0; i < iterations; ++i) {
+            for (int j = 0; j < keys; ++j) {
+                loggers[j].log(i);
+            }
+            logger.flush();
+            // let the consumer catch up
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (consumer.getConsumed() < sent.get()) {
+                assertTrue(System.nanoTime() < deadline, "lost packets");
+                Thread.sleep(1);
+            }
+        }
+
+        readerThread.interrupt();
+        reader.close();
+        consumerThread.interrupt();
+        readerThread.join();
+        consumerThread.join();
+        consumers.close();
+
+        assertEquals(sent.get(), reader.getReceived());
+        assertEquals(0, reader.getDropped());
+        assertEquals(reader.getReceived(), consumer.getConsumed());
+        assertEquals((long) keys * iterations, consumers.m_keys);
+        assertTrue(consumers.m_batches > 0);
+        // each key saw 0, 1, 2, ... with nothing missing or out of order.
+        assertEquals(0, consumers.m_outOfOrder);
+        int complete = 0;
+        for (double next : consumers.m_next) {
+            if (next == iterations)
+                complete++;
+        }
+        assertEquals(keys, complete);
+    }
+
+    /** The sink sees a view of a reused buffer, so copy it. */
+    private static ByteBuffer copy(ByteBuffer x) {
+        ByteBuffer result = ByteBuffer.allocate(x.remaining());
+        result.put(x.duplicate());
+        result.flip();
+        return result;
+    }
+
+    /**
+     * Counts the keys in each batch, checks that each double key counts up from
+     * zero, and passes everything along.
+     */
+    private static class CountingConsumers implements UdpConsumersInterface {
+        /** The sender's clock may not be set in tests, so use this instead. */
+        private static final long kTimestamp = 1700000000;
+        private final UdpConsumersInterface m_delegate;
+        volatile long m_keys;
+        volatile long m_batches;
+        /** The next value expected for each double key. */
+        final double[] m_next = new double[65536];
+        volatile long m_outOfOrder;
+        private long m_batchKeys;
+
+        CountingConsumers(UdpConsumersInterface delegate) {
+            m_delegate = delegate;
+        }
+
+        @Override
+        public boolean validateTimestamp(long timestamp) {
+            return m_delegate.validateTimestamp(kTimestamp);
+        }
+
+        @Override
+        public void beginPacket(long timestampUs) {
+            m_delegate.beginPacket(timestampUs);
+        }
+
+        @Override
+        public void acceptBoolean(int key, boolean val) {
+            m_batchKeys++;
+            m_delegate.acceptBoolean(key, val);
+        }
+
+        @Override
+        public void acceptDouble(int key, double val) {
+            m_batchKeys++;
+            if (val != m_next[key])
+                m_outOfOrder = m_outOfOrder + 1;
+            m_next[key] = val + 1;
+            m_delegate.acceptDouble(key, val);
+        }
+
+        @Override
+        public void acceptInt(int key, int val) {
+            m_batchKeys++;
+            m_delegate.acceptInt(key, val);
+        }
+
+        @Override
+        public void acceptDoubleArray(int key, double[] val) {
+            m_batchKeys++;
+            m_delegate.acceptDoubleArray(key, val);
+        }
+
+        @Override
+        public void acceptString(int key, String val) {
+            m_batchKeys++;
+            m_delegate.acceptString(key, val);
+        }
+
+        @Override
+        public void acceptStruct(int key, byte[] val) {
+            m_batchKeys++;
+            m_delegate.acceptStruct(key, val);
+        }
+
+        @Override
+        public void acceptMeta(int key, UdpType type, String val) {
+            m_delegate.acceptMeta(key, type, val);
+        }
+
+        @Override
+        public void acceptStructMeta(int key, String structType, String label) {
+            m_delegate.acceptStructMeta(key, structType, label);
+        }
+
+        @Override
+        public void flush() {
+            m_keys = m_keys + m_batchKeys;
+            m_batchKeys = 0;
+            m_batches = m_batches + 1;
+            m_delegate.flush();
+        }
+
+        @Override
+        public void close() {
+            m_delegate.close();
+        }
+    }
+}
@@ -5,7 +5,9 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Optional;
+import java.util.Random;
 
+import org.ejml.simple.SimpleMatrix;
 import org.junit.jupiter.api.Test;
 import org.team100.lib.geometry.GeometryUtil;
 import org.team100.lib.util.DriveUtil;
@@ -700,4 +702,69 @@ class SwerveDriveKinematics100Test {
                 () -> assertEquals(-1.0, arr.rearLeft().speedMetersPerSecond, kEpsilon),
                 () -> assertEquals(-1.0, arr.rearRight().speedMetersPerSecond, kEpsilon));
     }
+
+    /**
+     * The unrolled products should be exactly the same as the EJML ones, not
+     * just close.
+     */
+    @Test
+    void testSameAsMatrix() {
+        SwerveDriveKinematics100 kinematics = new SwerveDriveKinematics100(
+                new Translation2d(0.3, 0.25),
+                new Translation2d(0.3, -0.25),
+                new Translation2d(-0.3, 0.25),
+                new Translation2d(-0.3, -0.25));
+        Random random = new Random(0);
+        double[] moduleVectors = new double[8];
+        double[] chassisVector = new double[3];
+        ChassisSpeeds speeds = new ChassisSpeeds();
+        Twist2d twist = new Twist2d();
+        for (int i = 0; i < 1000; ++i) {
+            double vx = random.nextGaussian();
+            double vy = random.nextGaussian();
+            double omega = random.nextGaussian();
+
+            SimpleMatrix expectedModules = kinematics.m_inverseKinematics.mult(
+                    new SimpleMatrix(new double[] { vx, vy, omega }));
+            kinematics.toModuleVectors(vx, vy, omega, moduleVectors);
+            for (int j = 0; j < 8; ++j) {
+                assertEquals(expectedModules.get(j, 0), moduleVectors[j], 0);
+            }
+
+            SimpleMatrix expectedChassis = kinematics.m_forwardKinematics.mult(
+                    new SimpleMatrix(8, 1, true, moduleVectors));
+            kinematics.toChassisVector(moduleVectors, chassisVector);
+            for (int j = 0; j < 3; ++j) {
+                assertEquals(expectedChassis.get(j, 0), chassisVector[j], 0);
+            }
+
+            // the object versions go through cos and sin, so they're
+            // compared with the matrix product of the same inputs.
+            SwerveModuleStates states = kinematics.toSwerveModuleStates(new ChassisSpeeds(vx, vy, omega));
+            SimpleMatrix statesVector = new SimpleMatrix(8, 1);
+            SwerveModuleState100[] all = states.all();
+            for (int j = 0; j < 4; ++j) {
+                double v = all[j].speedMetersPerSecond;
+                if (Math.abs(v) < 1e-6 || all[j].angle.isEmpty())
+                    continue;
+                statesVector.set(2 * j, 0, v * all[j].angle.get().getCos());
+                statesVector.set(2 * j + 1, 0, v * all[j].angle.get().getSin());
+            }
+            SimpleMatrix expectedSpeeds = kinematics.m_forwardKinematics.mult(statesVector);
+            kinematics.toChassisSpeeds(states, speeds);
+            assertEquals(expectedSpeeds.get(0, 0), speeds.vxMetersPerSecond, 0);
+            assertEquals(expectedSpeeds.get(1, 0), speeds.vyMetersPerSecond, 0);
+            assertEquals(expectedSpeeds.get(2, 0), speeds.omegaRadiansPerSecond, 0);
+
+            SwerveModuleDeltas deltas = new SwerveModuleDeltas(
+                    new SwerveModuleDelta(all[0].speedMetersPerSecond, all[0].angle),
+                    new SwerveModuleDelta(all[1].speedMetersPerSecond, all[1].angle),
+                    new SwerveModuleDelta(all[2].speedMetersPerSecond, all[2].angle),
+                    new SwerveModuleDelta(all[3].speedMetersPerSecond, all[3].angle));
+            kinematics.toTwist2d(deltas, twist);
+            assertEquals(expectedSpeeds.get(0, 0), twist.dx, 0);
+            assertEquals(expectedSpeeds.get(1, 0), twist.dy, 0);
+            assertEquals(expectedSpeeds.get(2, 0), twist.dtheta, 0);
+        }
+    }
 }
@@ -0,0 +1,60 @@
+package org.team100.lib.motor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.team100.lib.util.Memo;
+
+import com.ctre.phoenix6.StatusSignal;
+import com.ctre.phoenix6.hardware.TalonFX;
+
+import edu.wpi.first.hal.HAL;
+
+/** Uses the Phoenix simulation, so the signals are real, just not on a bus. */
+class PhoenixSignalsTest {
+    private TalonFX m_motor;
+
+    @BeforeEach
+    void setup() {
+        HAL.initialize(500, 0);
+        PhoenixSignals.clear();
+        m_motor = new TalonFX(1);
+    }
+
+    @AfterEach
+    void cleanup() {
+        m_motor.close();
+        PhoenixSignals.clear();
+        HAL.shutdown();
+    }
+
+    @Test
+    void testRegisterAndUnregister() {
+        StatusSignal<Double> position = PhoenixSignals.register(m_motor.getPosition());
+        StatusSignal<Double> velocity = PhoenixSignals.register(m_motor.getVelocity());
+        assertEquals(2, PhoenixSignals.size());
+        PhoenixSignals.unregister(position);
+        assertEquals(1, PhoenixSignals.size());
+        PhoenixSignals.unregister(velocity);
+        assertEquals(0, PhoenixSignals.size());
+        // nothing to refresh is fine.
+        PhoenixSignals.refreshAll();
+    }
+
+    /** The batch refresh in Memo.resetAll() latches the simulated value. */
+    @Test
+    void testRefreshSim() throws InterruptedException {
+        StatusSignal<Double> position = PhoenixSignals.register(m_motor.getPosition());
+        m_motor.getSimState().setRawRotorPosition(2.5);
+        // the sim device updates asynchronously, so wait awhile for it.
+        for (int i = 0; i < 100; ++i) {
+            Memo.resetAll();
+            if (Math.abs(position.getValueAsDouble() - 2.5) < 1e-3)
+                break;
+            Thread.sleep(10);
+        }
+        assertEquals(2.5, position.getValueAsDouble(), 1e-3);
+    }
+}
@@ -195,4 +195,29 @@ class HeuristicsTest {
         assertEquals(-0.414, steer.x(), kDelta);
         assertEquals(0.414, steer.y(), kDelta);
     }
+
+    /** The primitive version matches the original. */
+    @Test
+    void testAvoidPrimitive() {
+        double[][] cases = {
+                // x, y, vx, vy, target x, target y
+                { 0, 0, 1, 0, 2, 0 },
+                { 0, 0, 1, 0, 0, 2 },
+                { 0, 0, 1, 0, 1, -0.5 },
+                { 0, 0, 0, 0, 1, -0.5 },
+                { 0, 0, 1, 0, -1, -0.5 },
+                { 0, 0, 1, 1, 1, 0 },
+                { 3, 4, -2, 0.5, 1.5, 4.2 } };
+        double[] out = new double[2];
+        for (double[] c : cases) {
+            FieldRelativeVelocity steer = m_heuristics.steerToAvoid(
+                    new Translation2d(c[0], c[1]),
+                    new FieldRelativeVelocity(c[2], c[3], 0),
+                    new Translation2d(c[4], c[5]),
+                    1);
+            m_heuristics.steerToAvoid(c[0], c[1], c[2], c[3], c[4], c[5], 1, out);
+            assertEquals(steer.x(), out[0], kDelta);
+            assertEquals(steer.y(), out[1], kDelta);
+        }
+    }
 }
@@ -0,0 +1,83 @@
+package org.team100.lib.planner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.camera.RobotSighting;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+class ObstacleIndexTest {
+    private static final double kDelta = 0.001;
+
+    @Test
+    void testFixed() {
+        ObstacleIndex index = new ObstacleIndex(1, List.of(
+                new Translation2d(1, 1),
+                new Translation2d(1.2, 1),
+                new Translation2d(5, 5)));
+        assertEquals(2, index.fixed(0, 0, 2));
+        assertEquals(0, index.fixed(0, 0, 1));
+        assertEquals(3, index.fixed(3, 3, 3));
+        assertEquals(1, index.fixed(5.5, 5, 1));
+        assertEquals(5, index.x(0), kDelta);
+        assertEquals(5, index.y(0), kDelta);
+    }
+
+    @Test
+    void testStagePosts() {
+        ObstacleIndex index = new ObstacleIndex(1);
+        // east post is at (3.38, 4.10)
+        assertEquals(1, index.fixed(3, 4, 1));
+        assertEquals(3.38, index.x(0), kDelta);
+        assertEquals(4.10, index.y(0), kDelta);
+        assertEquals(0, index.fixed(8, 1, 1));
+    }
+
+    @Test
+    void testRobotsExpire() {
+        ObstacleIndex index = new ObstacleIndex(1, List.of());
+        NavigableMap<Double, RobotSighting> sightings = new ConcurrentSkipListMap<>();
+        sightings.put(0.0, new RobotSighting(false, new Translation2d(2, 2)));
+        index.update(sightings.descendingMap(), 0.5);
+        assertEquals(1, index.robots(0, 0, 3));
+        assertEquals(0, index.robots(0, 0, 2));
+        index.update(sightings.descendingMap(), 1.5);
+        assertEquals(0, index.robots(0, 0, 3));
+    }
+
+    /** Sightings of one robot, moving a little, are merged, newest wins. */
+    @Test
+    void testRobotsMerge() {
+        ObstacleIndex index = new ObstacleIndex(1, List.of());
+        NavigableMap<Double, RobotSighting> sightings = new ConcurrentSkipListMap<>();
+        sightings.put(0.0, new RobotSighting(false, new Translation2d(1.9, 2)));
+        sightings.put(0.1, new RobotSighting(false, new Translation2d(2.1, 2)));
+        sightings.put(0.2, new RobotSighting(false, new Translation2d(2.2, 2)));
+        sightings.put(0.3, new RobotSighting(false, new Translation2d(6, 2)));
+        index.update(sightings.descendingMap(), 0.3);
+        assertEquals(1, index.robots(2, 2, 1));
+        assertEquals(2.2, index.x(0), kDelta);
+        assertEquals(2, index.robots(4, 2, 3));
+    }
+
+    /** Only the new sightings are read. */
+    @Test
+    void testRobotsIncremental() {
+        ObstacleIndex index = new ObstacleIndex(1, List.of());
+        NavigableMap<Double, RobotSighting> sightings = new ConcurrentSkipListMap<>();
+        sightings.put(0.0, new RobotSighting(false, new Translation2d(2, 2)));
+        index.update(sightings.descendingMap(), 0.0);
+        // this is older than the last update, so it's ignored.
+        sightings.put(-0.1, new RobotSighting(false, new Translation2d(5, 5)));
+        sightings.put(0.1, new RobotSighting(false, new Translation2d(8, 5)));
+        index.update(sightings.descendingMap(), 0.1);
+        assertEquals(0, index.robots(5, 5, 0.5));
+        assertEquals(1, index.robots(8, 5, 0.5));
+        assertEquals(1, index.robots(2, 2, 0.5));
+    }
+}
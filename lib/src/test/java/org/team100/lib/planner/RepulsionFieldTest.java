@@ -0,0 +1,86 @@
+package org.team100.lib.planner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.field.FieldMap2024;
+import org.team100.lib.planner.RepulsionField.Layer;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+
+class RepulsionFieldTest {
+    private static final double kDelta = 0.001;
+    private static final RepulsionField field = RepulsionField.instance();
+
+    /** Between the grid points, the samples are close to the analytic force. */
+    @Test
+    void testInterpolation() {
+        double[][] points = {
+                // near the east post
+                { 3.013, 3.517 },
+                // near the blue subwoofer
+                { 1.5, 5.0 },
+                // in the corner
+                { 0.5, 0.5 },
+                // nothing here
+                { 8, 4 } };
+        double[] sample = new double[2];
+        double[] force = new double[2];
+        for (double[] p : points) {
+            for (Layer layer : Layer.values()) {
+                field.sample(layer, p[0], p[1], sample);
+                RepulsionField.force(layer, p[0], p[1], force);
+                assertEquals(force[0], sample[0], 0.01);
+                assertEquals(force[1], sample[1], 0.01);
+            }
+        }
+    }
+
+    /** The path goes around the post, and ends at the goal. */
+    @Test
+    void testDescend() {
+        double[] xy = new double[1000];
+        int n = field.descend(2, 3.8, 5, 3.8, 0.1, xy);
+        assertTrue(RepulsionField.reached(n, 5, 3.8, xy));
+        assertEquals(2, xy[0], kDelta);
+        assertEquals(3.8, xy[1], kDelta);
+        assertTrue(minDistanceToPosts(n, xy) > 0.5);
+    }
+
+    /** Across the field, between the posts. */
+    @Test
+    void testDescendFar() {
+        double[] xy = new double[1000];
+        int n = field.descend(2, 2, 14, 6, 0.1, xy);
+        assertTrue(RepulsionField.reached(n, 14, 6, xy));
+        assertTrue(minDistanceToPosts(n, xy) > 0.5);
+    }
+
+    @Test
+    void testPlanner() {
+        ForceFieldPlanner planner = new ForceFieldPlanner(field);
+        Optional<List<Translation2d>> path = planner.plan(
+                new Translation2d(2, 3.8),
+                new Translation2d(5, 3.8));
+        assertTrue(path.isPresent());
+        List<Translation2d> p = path.get();
+        assertEquals(2, p.get(0).getX(), kDelta);
+        assertEquals(5, p.get(p.size() - 1).getX(), kDelta);
+    }
+
+    private static double minDistanceToPosts(int n, double[] xy) {
+        double minDistance = Double.MAX_VALUE;
+        for (int i = 0; i < n; ++i) {
+            for (Pose2d post : FieldMap2024.stagePosts.values()) {
+                minDistance = Math.min(minDistance,
+                        Math.hypot(xy[2 * i] - post.getX(), xy[2 * i + 1] - post.getY()));
+            }
+        }
+        return minDistance;
+    }
+}
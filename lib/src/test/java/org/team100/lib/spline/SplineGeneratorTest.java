@@ -1,7 +1,9 @@
 package org.team100.lib.spline;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.jupiter.api.Test;
@@ -38,4 +40,37 @@ class SplineGeneratorTest {
         assertEquals(78.690, cur_pose.getCourse().get().getDegrees(), 0.001);
         assertEquals(20.416, arclength, 0.001);
     }
+
+    /** The iterative version should produce exactly the same samples. */
+    @Test
+    void testSameAsRecursive() {
+        List<Pose2d> waypoints = List.of(
+                new Pose2d(2.9, 5.5, new Rotation2d(-0.4)),
+                new Pose2d(5.0, 4.2, new Rotation2d(0.1)),
+                new Pose2d(8.3, 4.1, new Rotation2d(-1.0)),
+                new Pose2d(6.0, 2.0, new Rotation2d(-2.5)));
+        List<Rotation2d> headings = List.of(
+                new Rotation2d(Math.PI),
+                new Rotation2d(2.5),
+                new Rotation2d(-3.0),
+                new Rotation2d(Math.PI));
+        List<HolonomicSpline> splines = new ArrayList<>();
+        for (int i = 1; i < waypoints.size(); ++i) {
+            splines.add(new HolonomicSpline(
+                    waypoints.get(i - 1), waypoints.get(i),
+                    headings.get(i - 1), headings.get(i)));
+        }
+        HolonomicSpline.optimizeSpline(splines);
+        for (double tolerance : new double[] { 0.05, 0.0127, 0.001 }) {
+            List<Pose2dWithMotion> expected = RecursiveSplineGenerator.parameterizeSplines(
+                    splines, tolerance, tolerance, 0.1);
+            List<Pose2dWithMotion> actual = SplineGenerator.parameterizeSplines(
+                    splines, tolerance, tolerance, 0.1);
+            assertTrue(expected.size() > splines.size());
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); ++i) {
+                assertEquals(expected.get(i), actual.get(i));
+            }
+        }
+    }
 }
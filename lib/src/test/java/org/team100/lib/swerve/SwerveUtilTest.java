@@ -19,13 +19,12 @@ class SwerveUtilTest {
         double x_1 = 1;
         double y_1 = 0;
         double max_deviation = 0.02;
-        int max_iterations = 1000;
 
         // since f0 = f1, there's nothing to do.
         double s = SwerveUtil.findDriveMaxS(
                 x_0, y_0,
                 x_1, y_1,
-                max_deviation, max_iterations);
+                max_deviation);
 
         assertEquals(0.02, s, kDelta);
         // this is an impossible steering solution, but the steering
@@ -39,13 +38,12 @@ class SwerveUtilTest {
         double x_1 = 1;
         double y_1 = 0;
         double max_deviation = 0.1;
-        int max_iterations = 1000;
 
         // since f0 = f1, there's nothing to do.
         double s = SwerveUtil.findDriveMaxS(
                 x_0, y_0,
                 x_1, y_1,
-                max_deviation, max_iterations);
+                max_deviation);
 
         assertEquals(1, s, kDelta);
         // this is an impossible steering solution, but the steering
@@ -59,12 +57,11 @@ class SwerveUtilTest {
         double x_1 = 0;
         double y_1 = 1;
         double max_deviation = 0.1;
-        int max_iterations = 1000;
 
         double s = SwerveUtil.findDriveMaxS(
                 x_0, y_0,
                 x_1, y_1,
-                max_deviation, max_iterations);
+                max_deviation);
 
         // since f0 = f1, the drive solution is to maintain speed.
 
@@ -80,12 +77,11 @@ class SwerveUtilTest {
         double x_1 = 1;
         double y_1 = 0;
         double max_deviation = 0.1;
-        int max_iterations = 1000;
 
         double s = SwerveUtil.findDriveMaxS(
                 x_0, y_0,
                 x_1, y_1,
-                max_deviation, max_iterations);
+                max_deviation);
 
         // max_deviation should apply here, 0.1 deviation is 20% of the way from 0.5 to
         // 1
@@ -99,12 +95,11 @@ class SwerveUtilTest {
         double x_1 = 1;
         double y_1 = 0;
         double max_deviation = 0.1;
-        int max_iterations = 1000;
 
         double s = SwerveUtil.findDriveMaxS(
                 x_0, y_0,
                 x_1, y_1,
-                max_deviation, max_iterations);
+                max_deviation);
 
         // the max deviation applies to the hypot so this looks for the
         // point where the line between (0,0.5) and (1,0) and the circle
@@ -126,12 +121,11 @@ class SwerveUtilTest {
         double y_1 = 0;
         double f_1 = 0;
         double max_deviation = 0.1;
-        int max_iterations = 1000;
 
         double s = SwerveUtil.findSteeringMaxS(
                 x_0, y_0, f_0,
                 x_1, y_1, f_1,
-                max_deviation, max_iterations);
+                max_deviation);
 
         // this is a 1.57 radian turning requirement with a step
         // of 0.1 radians which would be s=-0.063 if measured along a
@@ -140,6 +134,42 @@ class SwerveUtilTest {
         assertEquals(0.048, s, kDelta);
     }
 
+    /** The drive solution lands exactly on the circle of the target speed. */
+    @Test
+    void testFindDriveMaxSOnCircle() {
+        double x_0 = 1;
+        double y_0 = 0;
+        double x_1 = -1;
+        double y_1 = 0.5;
+        double max_deviation = 0.1;
+        double s = SwerveUtil.findDriveMaxS(
+                x_0, y_0,
+                x_1, y_1,
+                max_deviation);
+        double x = x_0 + s * (x_1 - x_0);
+        double y = y_0 + s * (y_1 - y_0);
+        assertEquals(1.1, Math.hypot(x, y), 1e-9);
+    }
+
+    /** The steering solution lands exactly on the ray at the target angle. */
+    @Test
+    void testFindSteeringMaxSOnRay() {
+        double x_0 = 1;
+        double y_0 = 0;
+        double f_0 = 0;
+        double x_1 = -1;
+        double y_1 = 0.1;
+        double f_1 = Math.atan2(y_1, x_1);
+        double max_deviation = 0.1;
+        double s = SwerveUtil.findSteeringMaxS(
+                x_0, y_0, f_0,
+                x_1, y_1, f_1,
+                max_deviation);
+        double x = x_0 + s * (x_1 - x_0);
+        double y = y_0 + s * (y_1 - y_0);
+        assertEquals(0.1, Math.atan2(y, x), 1e-9);
+    }
+
     @Test
     void testGetIsAccel() {
         // decelerating
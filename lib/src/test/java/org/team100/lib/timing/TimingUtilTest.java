@@ -9,6 +9,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.jupiter.api.Test;
 import org.team100.lib.geometry.GeometryUtil;
@@ -19,6 +20,7 @@ import org.team100.lib.path.Path100;
 import org.team100.lib.path.PathDistanceSampler;
 import org.team100.lib.timing.TimingConstraint.MinMaxAcceleration;
 import org.team100.lib.trajectory.Trajectory100;
+import org.team100.lib.trajectory.TrajectoryUtil100;
 
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
@@ -245,6 +247,59 @@ public class TimingUtilTest {
         assertNotNull(timed_traj);
     }
 
+    /**
+     * The array version gives exactly the same result as the old one, for short
+     * paths and long ones, in the main thread, where it's always serial.
+     */
+    @Test
+    void testSameAsSerial() {
+        checkSameAsSerial();
+    }
+
+    /** Long paths are parallel in a pool like the one in TrajectoryPlanService. */
+    @Test
+    void testSameAsSerialInPool() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            pool.submit(this::checkSameAsSerial).join();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void checkSameAsSerial() {
+        SwerveKinodynamics limits = SwerveKinodynamicsFactory.forRealisticTest();
+        List<TimingConstraint> constraints = new TimingConstraintFactory(limits).allGood();
+        for (double length : new double[] { 1, 3, 10, 20 }) {
+            List<Pose2d> waypoints = List.of(
+                    new Pose2d(0, 0, GeometryUtil.kRotationZero),
+                    new Pose2d(length / 2, 1, GeometryUtil.kRotationZero),
+                    new Pose2d(length, 0, GeometryUtil.kRotationZero));
+            List<Rotation2d> headings = List.of(
+                    GeometryUtil.kRotationZero,
+                    GeometryUtil.fromDegrees(90),
+                    GeometryUtil.kRotationZero);
+            Path100 path = TrajectoryUtil100.trajectoryFromWaypointsAndHeadings(
+                    waypoints, headings, 0.0127, 0.0127, Math.toRadians(1.0));
+            for (double[] vel : new double[][] { { 0, 0 }, { 1, 0 }, { 0, 1 } }) {
+                Trajectory100 expected = new SerialTimingUtil(constraints).timeParameterizeTrajectory(
+                        new PathDistanceSampler(path), 0.0127, vel[0], vel[1]);
+                Trajectory100 actual = new TimingUtil(constraints).timeParameterizeTrajectory(
+                        new PathDistanceSampler(path), 0.0127, vel[0], vel[1]);
+                assertFalse(expected.isEmpty());
+                assertEquals(expected.length(), actual.length());
+                for (int i = 0; i < expected.length(); ++i) {
+                    TimedPose e = expected.getPoint(i).state();
+                    TimedPose a = actual.getPoint(i).state();
+                    assertEquals(e.getTimeS(), a.getTimeS(), 0);
+                    assertEquals(e.velocityM_S(), a.velocityM_S(), 0);
+                    assertEquals(e.acceleration(), a.acceleration(), 0);
+                    assertEquals(e.state(), a.state());
+                }
+            }
+        }
+    }
+
     @Test
     void testAccel() {
         // average v = 0.5
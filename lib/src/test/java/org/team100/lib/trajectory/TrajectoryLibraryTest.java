@@ -0,0 +1,121 @@
+package org.team100.lib.trajectory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamicsFactory;
+import org.team100.lib.timing.TimedPose;
+import org.team100.lib.timing.TimingConstraint;
+import org.team100.lib.timing.TimingConstraintFactory;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+class TrajectoryLibraryTest {
+    private static final SwerveKinodynamics limits = SwerveKinodynamicsFactory.get();
+    private static final List<TimingConstraint> constraints = new TimingConstraintFactory(limits).allGood();
+    private static final long constraintFingerprint = TrajectoryLibrary.constraintFingerprint(constraints);
+    private static final List<Pose2d> waypoints = List.of(
+            new Pose2d(0, 0, new Rotation2d()),
+            new Pose2d(3, 1, new Rotation2d()));
+    private static final List<Rotation2d> headings = List.of(
+            new Rotation2d(), new Rotation2d(1));
+
+    @TempDir
+    Path dir;
+
+    private static Trajectory100 plan() {
+        return TrajectoryPlanner.restToRest(waypoints, headings, constraints);
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        long fingerprint = TrajectoryLibrary.fingerprint(waypoints, headings, constraintFingerprint, limits.getMaxDriveVelocityM_S());
+        TrajectoryLibrary generator = TrajectoryLibrary.empty();
+        Trajectory100 expected = generator.getOrPlan("foo", fingerprint, TrajectoryLibraryTest::plan);
+        assertEquals(1, generator.planned());
+        Path path = dir.resolve("trajectories.bin");
+        generator.write(path);
+
+        TrajectoryLibrary library = TrajectoryLibrary.load(path);
+        assertEquals(1, library.size());
+        Trajectory100 actual = library.getOrPlan("foo", fingerprint, () -> fail("should be in the file"));
+        assertEquals(0, library.planned());
+        assertEquals(expected.length(), actual.length());
+        for (int i = 0; i < expected.length(); ++i) {
+            TimedPose e = expected.getPoint(i).state();
+            TimedPose a = actual.getPoint(i).state();
+            assertEquals(e.state(), a.state());
+            assertEquals(e.getTimeS(), a.getTimeS());
+            assertEquals(e.velocityM_S(), a.velocityM_S());
+            assertEquals(e.acceleration(), a.acceleration());
+        }
+        // the second lookup is the same object
+        assertSame(actual, library.getOrPlan("foo", fingerprint, () -> fail("should be cached")));
+    }
+
+    /** Different inputs mean a different fingerprint, so it's planned live. */
+    @Test
+    void testStale() throws IOException {
+        long fingerprint = TrajectoryLibrary.fingerprint(waypoints, headings, constraintFingerprint, limits.getMaxDriveVelocityM_S());
+        TrajectoryLibrary generator = TrajectoryLibrary.empty();
+        generator.getOrPlan("foo", fingerprint, TrajectoryLibraryTest::plan);
+        Path path = dir.resolve("trajectories.bin");
+        generator.write(path);
+
+        long stale = TrajectoryLibrary.fingerprint(waypoints, headings, constraintFingerprint, limits.getMaxDriveVelocityM_S() + 1);
+        assertNotEquals(fingerprint, stale);
+        TrajectoryLibrary library = TrajectoryLibrary.load(path);
+        library.getOrPlan("foo", stale, TrajectoryLibraryTest::plan);
+        assertEquals(1, library.planned());
+        library.getOrPlan("bar", fingerprint, TrajectoryLibraryTest::plan);
+        assertEquals(2, library.planned());
+    }
+
+    /**
+     * The constraint fingerprint sees what the constraints do, so it's the same
+     * for equal constraints, and different for different ones, without anyone
+     * bumping the version.
+     */
+    @Test
+    void testConstraintFingerprint() {
+        TimingConstraintFactory factory = new TimingConstraintFactory(limits);
+        assertEquals(constraintFingerprint, TrajectoryLibrary.constraintFingerprint(factory.allGood()));
+        assertNotEquals(constraintFingerprint, TrajectoryLibrary.constraintFingerprint(factory.fast()));
+        TimingConstraintFactory slower = new TimingConstraintFactory(SwerveKinodynamicsFactory.forTest());
+        assertNotEquals(constraintFingerprint, TrajectoryLibrary.constraintFingerprint(slower.allGood()));
+    }
+
+    @Test
+    void testCorrupt() throws IOException {
+        long fingerprint = TrajectoryLibrary.fingerprint(waypoints, headings, constraintFingerprint);
+        TrajectoryLibrary generator = TrajectoryLibrary.empty();
+        generator.getOrPlan("foo", fingerprint, TrajectoryLibraryTest::plan);
+        Path path = dir.resolve("trajectories.bin");
+        generator.write(path);
+
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(path, bytes);
+        TrajectoryLibrary library = TrajectoryLibrary.load(path);
+        assertEquals(0, library.size());
+        library.getOrPlan("foo", fingerprint, TrajectoryLibraryTest::plan);
+        assertEquals(1, library.planned());
+    }
+
+    @Test
+    void testMissing() {
+        TrajectoryLibrary library = TrajectoryLibrary.load(dir.resolve("nothing.bin"));
+        assertEquals(0, library.size());
+    }
+}
@@ -0,0 +1,160 @@
+package org.team100.lib.trajectory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamicsFactory;
+import org.team100.lib.timing.TimingConstraint;
+import org.team100.lib.timing.TimingConstraintFactory;
+import org.team100.lib.util.Util;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+class TrajectoryPlanServiceTest {
+    private static final SwerveKinodynamics limits = SwerveKinodynamicsFactory.get();
+    private static final List<TimingConstraint> constraints = new TimingConstraintFactory(limits).allGood();
+
+    @Test
+    void testSameAsPlanner() {
+        try (TrajectoryPlanService service = new TrajectoryPlanService(2)) {
+            List<Pose2d> waypoints = List.of(new Pose2d(), new Pose2d(1, 0, new Rotation2d()));
+            List<Rotation2d> headings = List.of(new Rotation2d(), new Rotation2d());
+            Trajectory100 expected = TrajectoryPlanner.restToRest(waypoints, headings, constraints);
+            Trajectory100 actual = service.restToRest(waypoints, headings, constraints).join();
+            assertEquals(expected.length(), actual.length());
+            assertEquals(expected.getTotalTimeSeconds(), actual.getTotalTimeSeconds(), 1e-9);
+        }
+    }
+
+    /**
+     * Bad input produces an empty trajectory, not an exception, and it isn't
+     * kept, so the next request tries again.
+     */
+    @Test
+    void testStationary() {
+        try (TrajectoryPlanService service = new TrajectoryPlanService(2)) {
+            List<Pose2d> waypoints = List.of(new Pose2d(), new Pose2d());
+            List<Rotation2d> headings = List.of(new Rotation2d(), new Rotation2d());
+            assertTrue(service.restToRest(waypoints, headings, constraints).join().isEmpty());
+            assertEquals(0, service.size());
+        }
+    }
+
+    @Test
+    void testEviction() {
+        try (TrajectoryPlanService service = new TrajectoryPlanService(2)) {
+            List<Rotation2d> headings = List.of(new Rotation2d(), new Rotation2d());
+            Trajectory100 a = service.restToRest(
+                    List.of(new Pose2d(), new Pose2d(1, 0, new Rotation2d())), headings, constraints).join();
+            Trajectory100 b = service.restToRest(
+                    List.of(new Pose2d(), new Pose2d(2, 0, new Rotation2d())), headings, constraints).join();
+            // touch a, so b is the eldest
+            assertSame(a, service.restToRest(
+                    List.of(new Pose2d(), new Pose2d(1, 0, new Rotation2d())), headings, constraints).join());
+            service.restToRest(
+                    List.of(new Pose2d(), new Pose2d(3, 0, new Rotation2d())), headings, constraints).join();
+            assertEquals(2, service.size());
+            assertSame(a, service.restToRest(
+                    List.of(new Pose2d(), new Pose2d(1, 0, new Rotation2d())), headings, constraints).join());
+            assertNotSame(b, service.restToRest(
+                    List.of(new Pose2d(), new Pose2d(2, 0, new Rotation2d())), headings, constraints).join());
+        }
+    }
+
+    /** A start a few mm away, as from a jittery pose estimate, is a hit. */
+    @Test
+    void testNearbyStart() {
+        try (TrajectoryPlanService service = new TrajectoryPlanService(2)) {
+            List<Rotation2d> headings = List.of(new Rotation2d(), new Rotation2d());
+            Trajectory100 a = service.restToRest(
+                    List.of(new Pose2d(0.001, -0.002, new Rotation2d(0.001)), new Pose2d(1, 0, new Rotation2d())),
+                    headings, constraints).join();
+            Trajectory100 b = service.restToRest(
+                    List.of(new Pose2d(-0.002, 0.003, new Rotation2d(-0.002)), new Pose2d(1, 0, new Rotation2d())),
+                    headings, constraints).join();
+            assertSame(a, b);
+            assertEquals(1, service.size());
+            // far enough away is a miss
+            service.restToRest(
+                    List.of(new Pose2d(0.1, 0, new Rotation2d()), new Pose2d(1, 0, new Rotation2d())),
+                    headings, constraints).join();
+            assertEquals(2, service.size());
+        }
+    }
+
+    /** Only the start is rounded: the goal is always exactly the one asked for. */
+    @Test
+    void testExactGoal() {
+        try (TrajectoryPlanService service = new TrajectoryPlanService(2)) {
+            List<Rotation2d> headings = List.of(new Rotation2d(), new Rotation2d(0.001));
+            Trajectory100 a = service.restToRest(
+                    List.of(new Pose2d(), new Pose2d(1, 0, new Rotation2d())),
+                    headings, constraints).join();
+            Trajectory100 b = service.restToRest(
+                    List.of(new Pose2d(), new Pose2d(1.004, 0, new Rotation2d())),
+                    headings, constraints).join();
+            assertNotSame(a, b);
+            assertEquals(2, service.size());
+            Pose2d end = b.getLastPoint().state().state().getPose();
+            assertEquals(1.004, end.getX(), 1e-4);
+            assertEquals(0.001, end.getRotation().getRadians(), 1e-4);
+        }
+    }
+
+    /** Cancelling one caller's future leaves the cached result for the next. */
+    @Test
+    void testCancel() {
+        try (TrajectoryPlanService service = new TrajectoryPlanService(2)) {
+            List<Pose2d> waypoints = List.of(new Pose2d(), new Pose2d(1, 0, new Rotation2d()));
+            List<Rotation2d> headings = List.of(new Rotation2d(), new Rotation2d());
+            CompletableFuture<Trajectory100> first = service.restToRest(waypoints, headings, constraints);
+            first.cancel(false);
+            assertTrue(first.isCancelled());
+            Trajectory100 again = service.restToRest(waypoints, headings, constraints).join();
+            assertTrue(again.length() > 0);
+        }
+    }
+
+    /**
+     * A long path takes milliseconds to plan, but a cache hit is just a lookup.
+     */
+    @Test
+    void testCacheHit() {
+        try (TrajectoryPlanService service = new TrajectoryPlanService(8)) {
+            List<Pose2d> waypoints = List.of(
+                    new Pose2d(0, 0, new Rotation2d()),
+                    new Pose2d(3, 1, new Rotation2d()),
+                    new Pose2d(6, 0, new Rotation2d()),
+                    new Pose2d(9, 1, new Rotation2d()));
+            List<Rotation2d> headings = List.of(
+                    new Rotation2d(), new Rotation2d(1), new Rotation2d(), new Rotation2d(1));
+
+            long t0 = System.nanoTime();
+            Trajectory100 first = service.restToRest(waypoints, headings, constraints).join();
+            long t1 = System.nanoTime();
+
+            // a new (but equal) request, as a command would make in initialize().
+            final int iterations = 1000;
+            long t2 = System.nanoTime();
+            for (int i = 0; i < iterations; ++i) {
+                Trajectory100 again = service.restToRest(
+                        List.copyOf(waypoints), List.copyOf(headings), constraints).join();
+                assertSame(first, again);
+            }
+            long t3 = System.nanoTime();
+
+            double missUs = (t1 - t0) / 1e3;
+            double hitUs = (t3 - t2) / 1e3 / iterations;
+            Util.printf("miss (us) %8.1f hit (us) %5.2f\n", missUs, hitUs);
+            assertTrue(hitUs < 100);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package org.team100.lib.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class MemoTest {
+    /** Stands in for a batch of CAN signals: refresh() latches all of them. */
+    private static class MockSignals {
+        double[] raw = new double[3];
+        double[] latched = new double[3];
+        int refreshes = 0;
+
+        void refresh() {
+            refreshes++;
+            System.arraycopy(raw, 0, latched, 0, raw.length);
+        }
+    }
+
+    /** The updater registered by the test, removed afterwards. */
+    private Runnable m_updater;
+
+    @AfterEach
+    void removeUpdater() {
+        if (m_updater != null)
+            Memo.unregisterUpdater(m_updater);
+    }
+
+    @Test
+    void testBatchedRefresh() {
+        MockSignals signals = new MockSignals();
+        m_updater = signals::refresh;
+        Memo.registerUpdater(m_updater);
+        DoubleSupplier a = Memo.ofDouble(() -> signals.latched[0]);
+        DoubleSupplier b = Memo.ofDouble(() -> signals.latched[1]);
+        DoubleSupplier c = Memo.ofDouble(() -> signals.latched[2]);
+
+        signals.raw[0] = 1;
+        signals.raw[1] = 2;
+        signals.raw[2] = 3;
+        Memo.resetAll();
+        // one refresh for all the signals
+        assertEquals(1, signals.refreshes);
+        assertEquals(1, a.getAsDouble());
+        assertEquals(2, b.getAsDouble());
+        assertEquals(3, c.getAsDouble());
+
+        // new values arrive mid-cycle, but aren't seen until the next cycle
+        signals.raw[0] = 4;
+        assertEquals(1, a.getAsDouble());
+        Memo.resetAll();
+        assertEquals(2, signals.refreshes);
+        assertEquals(4, a.getAsDouble());
+    }
+
+    /**
+     * A read that lands during resetAll(), e.g. from another thread, must not
+     * latch the pre-refresh value for the new cycle.
+     */
+    @Test
+    void testReadDuringRefresh() {
+        MockSignals signals = new MockSignals();
+        AtomicReference<DoubleSupplier> a = new AtomicReference<>();
+        m_updater = () -> {
+            // stands in for another thread reading just before the refresh
+            a.get().getAsDouble();
+            signals.refresh();
+        };
+        a.set(Memo.ofDouble(() -> signals.latched[0]));
+        Memo.registerUpdater(m_updater);
+
+        signals.raw[0] = 1;
+        Memo.resetAll();
+        assertEquals(1, a.get().getAsDouble());
+        signals.raw[0] = 2;
+        Memo.resetAll();
+        assertEquals(2, a.get().getAsDouble());
+    }
+
+    @Test
+    void testCache() {
+        int[] calls = new int[1];
+        DoubleSupplier a = Memo.ofDouble(() -> ++calls[0]);
+        assertEquals(1, a.getAsDouble());
+        assertEquals(1, a.getAsDouble());
+        Memo.resetAll();
+        assertEquals(2, a.getAsDouble());
+        assertEquals(2, calls[0]);
+    }
+
+    @Test
+    void testReset() {
+        int[] calls = new int[1];
+        Memo.DoubleCache a = Memo.ofDouble(() -> ++calls[0]);
+        assertEquals(1, a.getAsDouble());
+        a.reset();
+        assertEquals(2, a.getAsDouble());
+        assertEquals(2, a.getAsDouble());
+    }
+
+    /** Null isn't cached. */
+    @Test
+    void testNull() {
+        int[] calls = new int[1];
+        Supplier<String> a = Memo.of(() -> {
+            calls[0]++;
+            return null;
+        });
+        assertNull(a.get());
+        assertNull(a.get());
+        assertEquals(2, calls[0]);
+    }
+
+    /**
+     * Other threads read the caches while this thread resets them. Readers should
+     * never see a value go backwards, and this thread should always see the
+     * current value right after a reset.
+     */
+    @Test
+    void testStress() throws InterruptedException {
+        final int readers = 3;
+        final int cycles = 100000;
+        // the "sensor"
+        double[] source = new double[1];
+        Object lock = new Object();
+        DoubleSupplier d = Memo.ofDouble(() -> {
+            synchronized (lock) {
+                return source[0];
+            }
+        });
+        Supplier<Double> c = Memo.of(() -> {
+            synchronized (lock) {
+                return source[0];
+            }
+        });
+        AtomicBoolean done = new AtomicBoolean(false);
+        AtomicReference<String> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < readers; ++i) {
+            Thread t = new Thread(() -> {
+                double lastD = 0;
+                double lastC = 0;
+                while (!done.get()) {
+                    double vd = d.getAsDouble();
+                    double vc = c.get();
+                    if (vd < lastD || vc < lastC)
+                        failure.compareAndSet(null, "went backwards " + vd + " " + vc);
+                    lastD = vd;
+                    lastC = vc;
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+        for (int i = 1; i <= cycles; ++i) {
+            synchronized (lock) {
+                source[0] = i;
+            }
+            Memo.resetAll();
+            assertEquals(i, d.getAsDouble());
+            assertEquals(i, c.get());
+        }
+        done.set(true);
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertNull(failure.get());
+    }
+}
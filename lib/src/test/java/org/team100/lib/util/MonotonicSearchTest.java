@@ -0,0 +1,118 @@
+package org.team100.lib.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class MonotonicSearchTest {
+
+    @Test
+    void testSimple() {
+        MonotonicSearch s = new MonotonicSearch(new double[] { 0, 1, 2, 3 });
+        assertEquals(1, s.ceiling(0.5));
+        assertEquals(1, s.ceiling(1));
+        assertEquals(2, s.ceiling(1.5));
+        assertEquals(3, s.ceiling(2.5));
+        // backwards
+        assertEquals(1, s.ceiling(0.1));
+        assertThrows(IllegalArgumentException.class, () -> new MonotonicSearch(new double[] { 0 }));
+    }
+
+    /** Repeated keys: the first one wins, like the linear scan. */
+    @Test
+    void testDuplicates() {
+        MonotonicSearch s = new MonotonicSearch(new double[] { 0, 1, 1, 1, 2 });
+        assertEquals(1, s.ceiling(1));
+        assertEquals(4, s.ceiling(1.5));
+        assertEquals(1, s.ceiling(1));
+    }
+
+    /** Same answers as the linear scan, for random queries in any order. */
+    @Test
+    void testSameAsLinear() {
+        Random random = new Random(0);
+        double[] keys = keys(random, 1000);
+        MonotonicSearch s = new MonotonicSearch(keys);
+        double max = keys[keys.length - 1];
+        double q = 0;
+        for (int i = 0; i < 100000; ++i) {
+            if (random.nextDouble() < 0.9) {
+                // mostly advancing
+                q += 0.01 * random.nextDouble();
+                if (q >= max)
+                    q = 0.001;
+            } else {
+                q = max * random.nextDouble();
+            }
+            if (q <= keys[0])
+                continue;
+            assertEquals(linear(keys, q), s.ceiling(q));
+        }
+    }
+
+    /**
+     * Cost of sampling all the way along a trajectory, every 20 ms, for
+     * trajectories of different lengths. The linear scan cost per sample grows
+     * with length; the cursor stays flat.
+     */
+    @Test
+    void testPerformance() {
+        Random random = new Random(0);
+        for (int n : new int[] { 100, 1000, 10000 }) {
+            double[] keys = keys(random, n);
+            double max = keys[n - 1];
+            int samples = (int) (max / 0.02);
+            // warm up
+            long linearNs = sweepLinear(keys, samples);
+            long cursorNs = sweepCursor(keys, samples);
+            linearNs = sweepLinear(keys, samples);
+            cursorNs = sweepCursor(keys, samples);
+            Util.printf("points %6d samples %6d linear (ns/sample) %6d cursor (ns/sample) %4d\n",
+                    n, samples, linearNs / samples, cursorNs / samples);
+        }
+    }
+
+    private static long sweepLinear(double[] keys, int samples) {
+        long t0 = System.nanoTime();
+        long sum = 0;
+        for (int i = 1; i < samples; ++i) {
+            sum += linear(keys, i * 0.02);
+        }
+        long t1 = System.nanoTime();
+        assertEquals(true, sum > 0);
+        return t1 - t0;
+    }
+
+    private static long sweepCursor(double[] keys, int samples) {
+        MonotonicSearch s = new MonotonicSearch(keys);
+        long t0 = System.nanoTime();
+        long sum = 0;
+        for (int i = 1; i < samples; ++i) {
+            sum += s.ceiling(i * 0.02);
+        }
+        long t1 = System.nanoTime();
+        assertEquals(true, sum > 0);
+        return t1 - t0;
+    }
+
+    /** About 0.01 apart, like trajectory point times. */
+    private static double[] keys(Random random, int n) {
+        double[] keys = new double[n];
+        for (int i = 1; i < n; ++i) {
+            keys[i] = keys[i - 1] + 0.02 * random.nextDouble();
+        }
+        return keys;
+    }
+
+    /** This is what the samplers used to do. */
+    private static int linear(double[] keys, double q) {
+        for (int i = 1; i < keys.length; ++i) {
+            if (keys[i] >= q)
+                return i;
+        }
+        return keys.length - 1;
+    }
+}
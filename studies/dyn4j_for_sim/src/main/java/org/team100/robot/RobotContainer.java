@@ -8,6 +8,7 @@ import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
 import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamicsFactory;
 import org.team100.lib.planner.ForceViz;
+import org.team100.lib.planner.RepulsionField;
 import org.team100.sim.SimWorld;
 
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
@@ -24,6 +25,7 @@ public class RobotContainer {
     public RobotContainer(LoggerFactory fieldLogger, SimWorld world) {
         m_world = world;
         m_viz = new ForceViz(fieldLogger);
+        m_viz.field(RepulsionField.instance(), 0.5);
         final SwerveKinodynamics swerveKinodynamics = SwerveKinodynamicsFactory.get();
         m_blue = new Blue(m_world, m_viz, swerveKinodynamics);
         m_red = new Red(m_world, m_viz, swerveKinodynamics);